@@ -0,0 +1,434 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet;
+
+import ca.nrc.cadc.dali.tables.parquet.readerhelper.ColumnVector;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.PrimitiveType;
+
+/**
+ * Condition on the value of a scalar column of a Parquet table, used by ParquetReader
+ * to skip row groups (from the min/max and null count statistics in the footer and from
+ * bloom filters) and to select rows. The column is identified by the VOTable field name.
+ */
+public abstract class ColumnPredicate {
+
+    private final String column;
+
+    protected ColumnPredicate(String column) {
+        if (column == null) {
+            throw new IllegalArgumentException("column cannot be null");
+        }
+        this.column = column;
+    }
+
+    /**
+     * @return VOTable field name of the column
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Value in [lower, upper] (inclusive); a null bound is open. The column must have a
+     * numeric type.
+     *
+     * @param column field name
+     * @param lower lower bound or null
+     * @param upper upper bound or null
+     * @return range predicate
+     */
+    public static ColumnPredicate range(String column, Number lower, Number upper) {
+        return new RangePredicate(column, lower, upper);
+    }
+
+    /**
+     * String value equal to the given value.
+     *
+     * @param column field name
+     * @param value value
+     * @return equality predicate
+     */
+    public static ColumnPredicate equal(String column, String value) {
+        return in(column, Arrays.asList(value));
+    }
+
+    /**
+     * String value equal to one of the given values.
+     *
+     * @param column field name
+     * @param values values
+     * @return set membership predicate
+     */
+    public static ColumnPredicate in(String column, Collection<String> values) {
+        return new InPredicate(column, values);
+    }
+
+    /**
+     * Null value.
+     *
+     * @param column field name
+     * @return null predicate
+     */
+    public static ColumnPredicate isNull(String column) {
+        return new NullPredicate(column);
+    }
+
+    /**
+     * Check that the predicate can be applied to a column of the given type.
+     *
+     * @param type physical type of the column
+     * @throws IllegalArgumentException if the type is not supported
+     */
+    public abstract void checkType(PrimitiveType.PrimitiveTypeName type);
+
+    /**
+     * @param chunk metadata of a column chunk, may be null
+     * @return false if no value in the chunk can match
+     */
+    public abstract boolean mayMatch(ColumnChunkMetaData chunk);
+
+    /**
+     * @param bloomFilter bloom filter of a column chunk
+     * @param type physical type of the column
+     * @return false if no value in the chunk can match
+     */
+    public boolean mayMatch(BloomFilter bloomFilter, PrimitiveType.PrimitiveTypeName type) {
+        return true;
+    }
+
+    /**
+     * For the column a file is sorted by (ascending): check if no value in this chunk, and so
+     * in any later chunk, can match.
+     *
+     * @param stats statistics of a column chunk, may be null
+     * @return true if all matching values are below the chunk minimum
+     */
+    public boolean isPast(Statistics<?> stats) {
+        return false;
+    }
+
+    /**
+     * @param values column values
+     * @param row row index
+     * @return true if the value in the row matches
+     */
+    public abstract boolean matches(ColumnVector values, int row);
+
+    // min and max are also missing when they were dropped (NaN values, binary values over the size
+    // limit), so only the null count shows that the chunk has nothing but nulls
+    private static boolean isAllNull(ColumnChunkMetaData chunk, Statistics<?> stats) {
+        return stats != null && stats.isNumNullsSet() && stats.getNumNulls() == chunk.getValueCount();
+    }
+
+    private static class RangePredicate extends ColumnPredicate {
+        private final Bound lower;
+        private final Bound upper;
+
+        RangePredicate(String column, Number lower, Number upper) {
+            super(column);
+            this.lower = lower == null ? null : new Bound(lower);
+            this.upper = upper == null ? null : new Bound(upper);
+        }
+
+        @Override
+        public void checkType(PrimitiveType.PrimitiveTypeName type) {
+            switch (type) {
+                case INT32:
+                case INT64:
+                case FLOAT:
+                case DOUBLE:
+                    return;
+                default:
+                    throw new IllegalArgumentException("range on non-numeric column: " + getColumn() + " " + type);
+            }
+        }
+
+        @Override
+        public boolean mayMatch(ColumnChunkMetaData chunk) {
+            Statistics<?> stats = chunk == null ? null : chunk.getStatistics();
+            if (stats == null || !stats.hasNonNullValue()) {
+                // no statistics, no min and max, or only nulls
+                return chunk == null || !isAllNull(chunk, stats);
+            }
+            Object min = stats.genericGetMin();
+            Object max = stats.genericGetMax();
+            if (!(min instanceof Number) || !(max instanceof Number)) {
+                return true;
+            }
+            return (lower == null || lower.compareTo((Number) max) <= 0)
+                && (upper == null || upper.compareTo((Number) min) >= 0);
+        }
+
+        @Override
+        public boolean mayMatch(BloomFilter bloomFilter, PrimitiveType.PrimitiveTypeName type) {
+            // only a single value can be looked up
+            if (lower == null || upper == null || lower.integral != upper.integral
+                || (lower.integral ? lower.longValue != upper.longValue : lower.value != upper.value)) {
+                return true;
+            }
+            switch (type) {
+                case INT32:
+                    if (lower.integral && lower.longValue >= Integer.MIN_VALUE && lower.longValue <= Integer.MAX_VALUE) {
+                        return bloomFilter.findHash(bloomFilter.hash((int) lower.longValue));
+                    }
+                    return true;
+                case INT64:
+                    return !lower.integral || bloomFilter.findHash(bloomFilter.hash(lower.longValue));
+                case FLOAT:
+                    float f = (float) lower.value;
+                    if (f != lower.value) {
+                        // not a float value: nothing to look up
+                        return true;
+                    }
+                    if (f == 0.0f) {
+                        // 0.0 and -0.0 match each other but hash differently
+                        return bloomFilter.findHash(bloomFilter.hash(0.0f)) || bloomFilter.findHash(bloomFilter.hash(-0.0f));
+                    }
+                    return bloomFilter.findHash(bloomFilter.hash(f));
+                case DOUBLE:
+                    if (lower.value == 0.0) {
+                        return bloomFilter.findHash(bloomFilter.hash(0.0)) || bloomFilter.findHash(bloomFilter.hash(-0.0));
+                    }
+                    return bloomFilter.findHash(bloomFilter.hash(lower.value));
+                default:
+                    return true;
+            }
+        }
+
+        @Override
+        public boolean isPast(Statistics<?> stats) {
+            if (upper == null || stats == null || !stats.hasNonNullValue()) {
+                return false;
+            }
+            Object min = stats.genericGetMin();
+            return min instanceof Number && upper.compareTo((Number) min) < 0;
+        }
+
+        @Override
+        public boolean matches(ColumnVector values, int row) {
+            if (values.isNull(row)) {
+                return false;
+            }
+            switch (values.getType()) {
+                case INT32:
+                    return inRange(values.getIntValues()[row]);
+                case INT64:
+                    return inRange(values.getLongValues()[row]);
+                case FLOAT:
+                    return inRange(values.getFloatValues()[row]);
+                default:
+                    return inRange(values.getDoubleValues()[row]);
+            }
+        }
+
+        private boolean inRange(long v) {
+            return (lower == null || lower.compareTo(v) <= 0) && (upper == null || upper.compareTo(v) >= 0);
+        }
+
+        private boolean inRange(double v) {
+            // NaN is never in range
+            return (lower == null || v >= lower.value) && (upper == null || v <= upper.value)
+                && !Double.isNaN(v);
+        }
+    }
+
+    // bound compared exactly to integral values, as double otherwise
+    private static class Bound {
+        private final boolean integral;
+        private final long longValue;
+        private final double value;
+
+        Bound(Number n) {
+            this.integral = n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte;
+            this.longValue = n.longValue();
+            this.value = n.doubleValue();
+        }
+
+        int compareTo(long v) {
+            return integral ? Long.compare(longValue, v) : Double.compare(value, v);
+        }
+
+        int compareTo(Number v) {
+            if (v instanceof Long || v instanceof Integer) {
+                return compareTo(v.longValue());
+            }
+            return Double.compare(value, v.doubleValue());
+        }
+    }
+
+    private static class InPredicate extends ColumnPredicate {
+        private final Set<Binary> values = new HashSet<>();
+        private final List<byte[]> bytes = new ArrayList<>();
+
+        InPredicate(String column, Collection<String> values) {
+            super(column);
+            if (values == null || values.isEmpty()) {
+                throw new IllegalArgumentException("values cannot be null or empty");
+            }
+            for (String s : values) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                this.values.add(Binary.fromConstantByteArray(b));
+                this.bytes.add(b);
+            }
+        }
+
+        @Override
+        public void checkType(PrimitiveType.PrimitiveTypeName type) {
+            if (type != PrimitiveType.PrimitiveTypeName.BINARY) {
+                throw new IllegalArgumentException("string comparison on non-string column: " + getColumn() + " " + type);
+            }
+        }
+
+        @Override
+        public boolean mayMatch(ColumnChunkMetaData chunk) {
+            Statistics<?> stats = chunk == null ? null : chunk.getStatistics();
+            if (stats == null || !stats.hasNonNullValue()) {
+                return chunk == null || !isAllNull(chunk, stats);
+            }
+            Object min = stats.genericGetMin();
+            Object max = stats.genericGetMax();
+            if (!(min instanceof Binary) || !(max instanceof Binary)) {
+                return true;
+            }
+            // statistics are ordered as unsigned bytes
+            byte[] lo = ((Binary) min).getBytes();
+            byte[] hi = ((Binary) max).getBytes();
+            for (byte[] b : bytes) {
+                if (Arrays.compareUnsigned(lo, b) <= 0 && Arrays.compareUnsigned(b, hi) <= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean mayMatch(BloomFilter bloomFilter, PrimitiveType.PrimitiveTypeName type) {
+            for (Binary v : values) {
+                if (bloomFilter.findHash(bloomFilter.hash(v))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isPast(Statistics<?> stats) {
+            if (stats == null || !stats.hasNonNullValue() || !(stats.genericGetMin() instanceof Binary)) {
+                return false;
+            }
+            byte[] lo = ((Binary) stats.genericGetMin()).getBytes();
+            for (byte[] b : bytes) {
+                if (Arrays.compareUnsigned(b, lo) >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean matches(ColumnVector values, int row) {
+            return !values.isNull(row) && this.values.contains(values.getBinaryValues()[row]);
+        }
+    }
+
+    private static class NullPredicate extends ColumnPredicate {
+
+        NullPredicate(String column) {
+            super(column);
+        }
+
+        @Override
+        public void checkType(PrimitiveType.PrimitiveTypeName type) {
+            // any type
+        }
+
+        @Override
+        public boolean mayMatch(ColumnChunkMetaData chunk) {
+            Statistics<?> stats = chunk == null ? null : chunk.getStatistics();
+            return stats == null || !stats.isNumNullsSet() || stats.getNumNulls() > 0;
+        }
+
+        @Override
+        public boolean matches(ColumnVector values, int row) {
+            return values.isNull(row);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet;
+
+import ca.nrc.cadc.dali.tables.votable.VOTableDocument;
+import ca.nrc.cadc.dali.tables.votable.VOTableField;
+import ca.nrc.cadc.dali.tables.votable.VOTableResource;
+import ca.nrc.cadc.dali.tables.votable.VOTableTable;
+import ca.nrc.cadc.dali.util.Format;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.schema.MessageType;
+
+/**
+ * Bounded cache of the metadata ParquetReader gets from a Parquet footer: the parsed
+ * footer, the Parquet schema and the VOTable document (without table data) with the
+ * formats of its fields. Repeated reads of the same content, and the scans of its table
+ * data, then skip reading and parsing the footer and the embedded VOTable XML. The least
+ * recently used entry is evicted when the cache is full.
+ *
+ * <p>Entries are keyed by a string that must change when the content changes: see
+ * {@link #getKey(File)} for files. The cache is thread safe and can be shared by readers.
+ * Each read gets its own copy of the document structure (resources, tables and the lists
+ * they hold) and of the table fields, so that a caller can edit the field metadata of the
+ * returned document. The params, groups and infos in the lists are shared with the cached
+ * copy and must not be modified.
+ */
+public class ParquetMetadataCache {
+
+    private static final Logger log = Logger.getLogger(ParquetMetadataCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final Map<String, Entry> entries;
+
+    public ParquetMetadataCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries maximum number of entries
+     */
+    public ParquetMetadataCache(final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("invalid maxEntries: " + maxEntries);
+        }
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cache key for a file: path, length and last modification time, so that a modified
+     * file does not match the old entry.
+     *
+     * @param file Parquet file
+     * @return cache key
+     */
+    public static String getKey(File file) {
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized Entry get(String key) {
+        Entry ret = entries.get(key);
+        log.debug("get " + key + ": " + (ret == null ? "miss" : "hit"));
+        return ret;
+    }
+
+    synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    // copy of the document structure and the table fields, sharing the other elements of the lists
+    static VOTableDocument copy(VOTableDocument doc) {
+        VOTableDocument ret = new VOTableDocument();
+        ret.getInfos().addAll(doc.getInfos());
+        for (VOTableResource r : doc.getResources()) {
+            VOTableResource rc = new VOTableResource(r.getType());
+            rc.setName(r.getName());
+            rc.id = r.id;
+            rc.utype = r.utype;
+            rc.description = r.description;
+            rc.getInfos().addAll(r.getInfos());
+            rc.getParams().addAll(r.getParams());
+            rc.getGroups().addAll(r.getGroups());
+            VOTableTable t = r.getTable();
+            if (t != null) {
+                VOTableTable tc = new VOTableTable();
+                tc.getInfos().addAll(t.getInfos());
+                tc.getParams().addAll(t.getParams());
+                for (VOTableField f : t.getFields()) {
+                    tc.getFields().add(copy(f));
+                }
+                rc.setTable(tc);
+            }
+            ret.getResources().add(rc);
+        }
+        return ret;
+    }
+
+    static VOTableField copy(VOTableField field) {
+        VOTableField ret = new VOTableField(field.getName(), field.getDatatype(), field.getArraysize(), field.xtype);
+        ret.id = field.id;
+        ret.ref = field.ref;
+        ret.ucd = field.ucd;
+        ret.unit = field.unit;
+        ret.utype = field.utype;
+        ret.description = field.description;
+        ret.nullValue = field.nullValue;
+        ret.getValues().addAll(field.getValues());
+        return ret;
+    }
+
+    static class Entry {
+        final ParquetMetadata footer;
+        final MessageType schema;
+        final VOTableDocument document;
+        final List<Format<Object>> formatters;
+
+        Entry(ParquetMetadata footer, MessageType schema, VOTableDocument document, List<Format<Object>> formatters) {
+            this.footer = footer;
+            this.schema = schema;
+            this.document = copy(document);
+            this.formatters = new ArrayList<>(formatters);
+        }
+    }
+}
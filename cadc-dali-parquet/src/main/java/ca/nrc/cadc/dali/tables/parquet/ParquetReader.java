@@ -70,11 +70,14 @@
 package ca.nrc.cadc.dali.tables.parquet;
 
 import ca.nrc.cadc.dali.tables.TableReader;
+import ca.nrc.cadc.dali.tables.parquet.io.ByteArraySource;
+import ca.nrc.cadc.dali.tables.parquet.io.ByteRangeSource;
+import ca.nrc.cadc.dali.tables.parquet.io.HttpByteRangeReader;
 import ca.nrc.cadc.dali.tables.parquet.io.RandomSeekableInputFile;
 import ca.nrc.cadc.dali.tables.parquet.readerhelper.ParquetTableData;
+import ca.nrc.cadc.dali.tables.votable.StreamingVOTableReader;
 import ca.nrc.cadc.dali.tables.votable.VOTableDocument;
 import ca.nrc.cadc.dali.tables.votable.VOTableField;
-import ca.nrc.cadc.dali.tables.votable.VOTableReader;
 import ca.nrc.cadc.dali.tables.votable.VOTableResource;
 import ca.nrc.cadc.dali.tables.votable.VOTableTable;
 import ca.nrc.cadc.dali.util.ByteArrayFormat;
@@ -95,11 +98,13 @@ import ca.nrc.cadc.dali.util.UUIDFormat;
 import ca.nrc.cadc.io.MultiBufferIO;
 import ca.nrc.cadc.io.RandomAccessFile;
 import ca.nrc.cadc.io.RandomAccessSource;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -120,14 +125,71 @@ public class ParquetReader implements TableReader {
 
     private static final Logger log = Logger.getLogger(ParquetReader.class);
 
+    public static final long DEFAULT_SPOOL_THRESHOLD = 32 * 1024 * 1024L;
+    public static final long MAX_SPOOL_THRESHOLD = Integer.MAX_VALUE - 16;
+
+    private static final int SPOOL_CHUNK_SIZE = 64 * 1024;
+
     private final FormatFactory formatFactory = new FormatFactory();
     private final List<Format<Object>> formatters = new ArrayList<>();
+    private ParquetMetadata footer;
     private MessageType parquetSchema;
     private List<VOTableField> votableFields;
+    private List<String> columns;
+    private List<ColumnPredicate> predicates;
+    private long spoolThreshold = DEFAULT_SPOOL_THRESHOLD;
+    private ParquetMetadataCache metadataCache;
+
+    /**
+     * Read only the given columns, in the given order. The table in the returned document
+     * only has these fields and only their column chunks are read from the Parquet content.
+     *
+     * @param columns VOTable field names, null to read all columns
+     */
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Only return the rows that match all the predicates. Row groups where the column
+     * statistics in the Parquet footer show that a predicate cannot match are not read.
+     * Predicate columns do not have to be in the projected columns.
+     *
+     * @param predicates conditions on scalar columns, null to return all rows
+     */
+    public void setPredicates(List<ColumnPredicate> predicates) {
+        this.predicates = predicates;
+    }
+
+    /**
+     * Maximum size of Parquet content read from a stream that is kept in memory.
+     * Larger content is spooled to a temporary file. The default is DEFAULT_SPOOL_THRESHOLD;
+     * 0 always uses a temporary file.
+     *
+     * @param spoolThreshold size in bytes, at most MAX_SPOOL_THRESHOLD
+     */
+    public void setSpoolThreshold(long spoolThreshold) {
+        if (spoolThreshold < 0 || spoolThreshold > MAX_SPOOL_THRESHOLD) {
+            throw new IllegalArgumentException("invalid spoolThreshold: " + spoolThreshold);
+        }
+        this.spoolThreshold = spoolThreshold;
+    }
+
+    /**
+     * Cache for the metadata of content read with a cache key: read(File) and
+     * read(RandomAccessSource, String). The cache can be shared by readers.
+     *
+     * @param metadataCache metadata cache, null to always read the metadata
+     */
+    public void setMetadataCache(ParquetMetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
 
     /**
      * Read a Parquet stream and produce a VOTableDocument.
-     * <p>It reads the stream fully and stores it in a local temporary file before returning.</p>
+     * <p>Parquet needs random access, so the stream is read fully before returning. Content up to
+     * the spool threshold is kept in memory; larger content is stored in a local temporary file
+     * that is deleted when the table data is closed.</p>
      *
      * @param inputStream stream of Parquet content.
      * @return VOTableDocument representation of the Parquet content;
@@ -139,10 +201,28 @@ public class ParquetReader implements TableReader {
         File tempFile = null;
 
         try (inputStream) {
+            SpoolBuffer mem = new SpoolBuffer();
+            byte[] buf = new byte[SPOOL_CHUNK_SIZE];
+            boolean eof = false;
+            while (!eof && mem.size() <= spoolThreshold) {
+                int n = inputStream.read(buf, 0, (int) Math.min(buf.length, spoolThreshold + 1 - mem.size()));
+                if (n == -1) {
+                    eof = true;
+                } else {
+                    mem.write(buf, 0, n);
+                }
+            }
+            if (eof) {
+                log.debug("Read " + mem.size() + " bytes into memory");
+                return read(new ByteArraySource(mem.buffer(), mem.size()));
+            }
+
             tempFile = File.createTempFile(fileName, ".parquet");
             log.debug("File " + fileName + " created successfully");
 
             try (OutputStream out = new FileOutputStream(tempFile)) {
+                mem.writeTo(out);
+                mem = null;
                 MultiBufferIO copier = new MultiBufferIO();
                 copier.copy(inputStream, out);
                 log.debug("File" + fileName + " prepared successfully for reading");
@@ -153,12 +233,12 @@ public class ParquetReader implements TableReader {
             RandomAccessFile randomAccessSource = new RandomAccessFile(tempFile, "r");
             VOTableDocument voTableDocument = readEmptyVOTable(new RandomSeekableInputFile(randomAccessSource));
 
-            ParquetTableData tableData = new ParquetTableData(parquetSchema, votableFields, formatters, randomAccessSource);
+            ParquetTableData tableData = createTableData(voTableDocument, randomAccessSource);
             tableData.registerCacheFile(tempFile);
             voTableDocument.getResourceByType("results").getTable().setTableData(tableData);
 
             return voTableDocument;
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
             if (tempFile != null && tempFile.exists()) {
                 try {
                     if (!tempFile.delete()) {
@@ -173,6 +253,19 @@ public class ParquetReader implements TableReader {
         }
     }
 
+    /**
+     * Read Parquet content from an HTTP URL using range requests, so that only the footer and
+     * the column chunks that are needed are transferred. The server must support range requests.
+     *
+     * @param url location of the Parquet content
+     * @return VOTableDocument built from the Parquet content
+     * @throws IOException if reading or parsing the Parquet content fails
+     */
+    public VOTableDocument read(URL url) throws IOException {
+        log.debug("Reading URL: " + url);
+        return read(new ByteRangeSource(new HttpByteRangeReader(url)));
+    }
+
     /**
      * Read a Parquet data source with random access support and produce a VOTableDocument representation.
      *
@@ -181,23 +274,108 @@ public class ParquetReader implements TableReader {
      * @throws IOException if reading, seeking, or parsing the Parquet content fails.
      */
     public VOTableDocument read(RandomAccessSource randomAccessSource) throws IOException {
+        return read(randomAccessSource, null);
+    }
+
+    /**
+     * Read a Parquet file. The metadata is taken from the metadata cache, if set, when the
+     * file has not changed since it was cached.
+     *
+     * @param file Parquet file
+     * @return VOTableDocument built from the Parquet file; close the table data to close the file
+     * @throws IOException if reading or parsing the Parquet content fails
+     */
+    public VOTableDocument read(File file) throws IOException {
+        String cacheKey = ParquetMetadataCache.getKey(file);
+        RandomAccessFile randomAccessSource = new RandomAccessFile(file, "r");
+        try {
+            return read(randomAccessSource, cacheKey);
+        } catch (IOException | RuntimeException e) {
+            randomAccessSource.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read a Parquet data source with random access support, using the metadata cache
+     * entry for the key when there is one.
+     *
+     * @param randomAccessSource Random-access handle to the Parquet file content.
+     * @param cacheKey key that identifies this version of the content, null to not use the cache
+     * @return VOTableDocument built from the Parquet input source;
+     * @throws IOException if reading, seeking, or parsing the Parquet content fails.
+     */
+    public VOTableDocument read(RandomAccessSource randomAccessSource, String cacheKey) throws IOException {
         log.debug("Reading RandomAccessSource.");
-        VOTableDocument voTableDocument = readEmptyVOTable(new RandomSeekableInputFile(randomAccessSource));
+        VOTableDocument voTableDocument;
+        ParquetMetadataCache.Entry cached = null;
+        if (metadataCache != null && cacheKey != null) {
+            cached = metadataCache.get(cacheKey);
+        }
+        if (cached != null) {
+            footer = cached.footer;
+            parquetSchema = cached.schema;
+            voTableDocument = ParquetMetadataCache.copy(cached.document);
+            votableFields = voTableDocument.getResourceByType("results").getTable().getFields();
+            formatters.clear();
+            String votable = footer.getFileMetaData().getKeyValueMetaData().get(ParquetWriter.IVOA_VOTABLE_PARQUET_CONTENT_KEY);
+            if (votable == null || votable.isBlank()) {
+                // formats from the Parquet schema: no field metadata
+                formatters.addAll(cached.formatters);
+            } else {
+                // formats of the copied fields
+                for (VOTableField field : votableFields) {
+                    formatters.add(formatFactory.getFormat(field));
+                }
+            }
+        } else {
+            voTableDocument = readEmptyVOTable(new RandomSeekableInputFile(randomAccessSource));
+            if (metadataCache != null && cacheKey != null) {
+                metadataCache.put(cacheKey, new ParquetMetadataCache.Entry(footer, parquetSchema, voTableDocument, formatters));
+            }
+        }
 
-        ParquetTableData tableData = new ParquetTableData(parquetSchema, votableFields, formatters, randomAccessSource);
+        ParquetTableData tableData = createTableData(voTableDocument, randomAccessSource);
         voTableDocument.getResourceByType("results").getTable().setTableData(tableData);
         return voTableDocument;
     }
 
+    // apply the column projection to the table and create the data for it
+    private ParquetTableData createTableData(VOTableDocument voTableDocument, RandomAccessSource randomAccessSource) {
+        List<VOTableField> fields = votableFields;
+        // the table data keeps the formats after the next read clears the reader's list
+        List<Format<Object>> fieldFormats = new ArrayList<>(formatters);
+        if (columns != null) {
+            fields = new ArrayList<>(columns.size());
+            fieldFormats = new ArrayList<>(columns.size());
+            for (String c : columns) {
+                int i = 0;
+                while (i < votableFields.size() && !votableFields.get(i).getName().equals(c)) {
+                    i++;
+                }
+                if (i == votableFields.size()) {
+                    throw new IllegalArgumentException("column not found: " + c);
+                }
+                fields.add(votableFields.get(i));
+                fieldFormats.add(formatters.get(i));
+            }
+            VOTableTable table = voTableDocument.getResourceByType("results").getTable();
+            table.getFields().clear();
+            table.getFields().addAll(fields);
+        }
+        return new ParquetTableData(parquetSchema, fields, fieldFormats, predicates, randomAccessSource, footer);
+    }
+
     private VOTableDocument readEmptyVOTable(RandomSeekableInputFile inputFile) throws IOException {
         log.debug("Reading parquet Input File.");
         VOTableDocument voTableDocument;
+        formatters.clear();
 
         try (ParquetFileReader reader = ParquetFileReader.open(inputFile)) {
-            ParquetMetadata metadata = reader.getFooter();
-            parquetSchema = metadata.getFileMetaData().getSchema();
+            footer = reader.getFooter();
+            parquetSchema = footer.getFileMetaData().getSchema();
 
-            String votable = metadata.getFileMetaData().getKeyValueMetaData().get(ParquetWriter.IVOA_VOTABLE_PARQUET_CONTENT_KEY);
+            String votable = footer.getFileMetaData().getKeyValueMetaData().get(ParquetWriter.IVOA_VOTABLE_PARQUET_CONTENT_KEY);
 
             voTableDocument = getVOTableDocument(votable, parquetSchema);
             votableFields = voTableDocument.getResourceByType("results").getTable().getFields();
@@ -304,7 +482,8 @@ public class ParquetReader implements TableReader {
             return voTableDocument;
         } else {
             log.debug("Reading empty VOTable from Parquet metadata.");
-            VOTableReader voTableReader = new VOTableReader();
+            // StAX parse of the metadata without schema validation
+            StreamingVOTableReader voTableReader = new StreamingVOTableReader();
             VOTableDocument voTableDocument = voTableReader.read(votable);
 
             List<VOTableField> fields = voTableDocument.getResourceByType("results").getTable().getFields();
@@ -363,4 +542,10 @@ public class ParquetReader implements TableReader {
         throw new IllegalArgumentException("Unsupported nested structure: " + field);
     }
 
+    // gives access to the buffer without copying it
+    private static class SpoolBuffer extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
 }
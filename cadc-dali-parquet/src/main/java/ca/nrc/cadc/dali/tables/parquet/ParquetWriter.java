@@ -69,45 +69,33 @@
 
 package ca.nrc.cadc.dali.tables.parquet;
 
-import ca.nrc.cadc.dali.Circle;
-import ca.nrc.cadc.dali.Interval;
-import ca.nrc.cadc.dali.MultiPolygon;
-import ca.nrc.cadc.dali.Point;
-import ca.nrc.cadc.dali.Polygon;
-import ca.nrc.cadc.dali.Shape;
 import ca.nrc.cadc.dali.tables.TableData;
 import ca.nrc.cadc.dali.tables.TableWriter;
 import ca.nrc.cadc.dali.tables.parquet.writerhelper.DynamicParquetWriterBuilder;
 import ca.nrc.cadc.dali.tables.parquet.writerhelper.DynamicSchemaGenerator;
+import ca.nrc.cadc.dali.tables.parquet.writerhelper.ParallelRowGroupWriter;
+import ca.nrc.cadc.dali.tables.parquet.writerhelper.SortedRowIterator;
 import ca.nrc.cadc.dali.tables.votable.VOTableDocument;
 import ca.nrc.cadc.dali.tables.votable.VOTableField;
 import ca.nrc.cadc.dali.tables.votable.VOTableResource;
 import ca.nrc.cadc.dali.tables.votable.VOTableWriter;
 import ca.nrc.cadc.dali.util.FormatFactory;
-import ca.nrc.cadc.dali.util.MultiPolygonFormat;
-import ca.nrc.cadc.dali.util.ShapeFormat;
-import ca.nrc.cadc.dali.util.URIFormat;
-import ca.nrc.cadc.dali.util.UUIDFormat;
-import ca.nrc.cadc.util.HexUtil;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.log4j.Logger;
+import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.hadoop.ParquetFileWriter;
-import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.apache.parquet.io.OutputFile;
 import org.apache.parquet.io.PositionOutputStream;
 import org.apache.parquet.schema.MessageType;
@@ -125,9 +113,15 @@ public class ParquetWriter implements TableWriter<VOTableDocument> {
     public static final String PARQUET_CONTENT_TYPE = "application/vnd.apache.parquet";
     public static final Long DEFAULT_BLOCK_SIZE = 16L * 1024 * 1024;
 
+    /**
+     * Footer key for the columns the rows are sorted by: comma separated Parquet column names.
+     */
+    public static final String SORT_COLUMNS_KEY = "opencadc.sort-columns";
+
     private FormatFactory formatFactory;
-    private List<VOTableField> voTableFields = new ArrayList<>();
     private final boolean addMetadata;
+    private ParquetWriterConfig config = new ParquetWriterConfig();
+    private String metadataTemplate;
 
     public ParquetWriter() {
         this(true);
@@ -157,6 +151,45 @@ public class ParquetWriter implements TableWriter<VOTableDocument> {
         this.formatFactory = ff;
     }
 
+    public ParquetWriterConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @param config encoding options for the Parquet output
+     */
+    public void setConfig(ParquetWriterConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config cannot be null");
+        }
+        this.config = config;
+    }
+
+    /**
+     * Encode the VOTable metadata that write() stores in the Parquet footer, for use with
+     * setMetadataTemplate. The document is not modified.
+     *
+     * @param voTableDocument document with the metadata of the exported tables
+     * @return encoded metadata
+     * @throws IOException if encoding fails
+     */
+    public String createMetadataTemplate(VOTableDocument voTableDocument) throws IOException {
+        VOTableDocument doc = ParquetMetadataCache.copy(voTableDocument);
+        updateVOTable(getResultsResource(doc));
+        return encodeMetadata(doc, Long.MAX_VALUE);
+    }
+
+    /**
+     * Store the given metadata in the footer instead of encoding the metadata of each written
+     * document, when the same table metadata is exported repeatedly. The template must come
+     * from createMetadataTemplate for a document with the same resources and fields.
+     *
+     * @param metadataTemplate encoded metadata, null to encode the metadata of each document
+     */
+    public void setMetadataTemplate(String metadataTemplate) {
+        this.metadataTemplate = metadataTemplate;
+    }
+
     /**
      * Write the VOTable in Parquet format to the specified OutputStream.
      *
@@ -183,11 +216,10 @@ public class ParquetWriter implements TableWriter<VOTableDocument> {
         log.debug("Writing VOTable to Parquet.");
         OutputFile outputFile = outputFileFromStream(out);
 
-        VOTableResource voTableResource = voTableDocument.getResources().stream().filter(obj -> "results".equals(obj.getType())).reduce((a, b) -> {
-            throw new RuntimeException("Multiple objects with type = results");
-        }).orElseThrow(() -> new RuntimeException("No object found with type = results"));
+        VOTableResource voTableResource = getResultsResource(voTableDocument);
 
-        voTableFields.addAll(voTableResource.getTable().getFields());
+        // original fields: updateVOTable rewrites timestamp and short fields for the embedded metadata
+        List<VOTableField> fields = new ArrayList<>(voTableResource.getTable().getFields());
 
         TableData tableData = voTableResource.getTable().getTableData();
 
@@ -196,24 +228,104 @@ public class ParquetWriter implements TableWriter<VOTableDocument> {
 
         updateVOTable(voTableResource);
 
-        try (org.apache.parquet.hadoop.ParquetWriter<List<Object>> writer =
-                     new DynamicParquetWriterBuilder(outputFile, schema, voTableResource.getTable().getFields(), prepareCustomMetaData(voTableDocument, maxRec))
-                             .withCompressionCodec(CompressionCodecName.SNAPPY)
-                             .withRowGroupSize(DEFAULT_BLOCK_SIZE)
-                             .withPageSize(org.apache.parquet.hadoop.ParquetWriter.DEFAULT_PAGE_SIZE)
-                             .withConf(new Configuration())
-                             .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
-                             .withValidation(false)
-                             .withDictionaryEncoding(false)
-                             .build()) {
-
-            int recordsCount = writeRecords(maxRec, tableData, writer);
-            writer.close();
+        Map<String, String> customMetaData = prepareCustomMetaData(voTableDocument, maxRec);
+        Iterator<List<Object>> rows = tableData.iterator();
+        if (!config.getSortColumns().isEmpty()) {
+            customMetaData.put(SORT_COLUMNS_KEY, getSortColumns(schema));
+            // readers rely on the order of the first sort column: fail the write if it is not sorted
+            String primary = config.getSortColumns().get(0);
+            int column = 0;
+            while (column < fields.size() && !fields.get(column).getName().equals(primary)) {
+                column++;
+            }
+            if (column == fields.size()) {
+                throw new IllegalArgumentException("invalid sort column: " + primary);
+            }
+            rows = new SortedRowIterator(rows, column, primary);
+        }
+        if (config.getEncodingThreads() > 1) {
+            ParallelRowGroupWriter parallelWriter = new ParallelRowGroupWriter(outputFile, schema,
+                    chunkOut -> createBuilder(outputFileFromStream(chunkOut), schema, fields, new HashMap<>()),
+                    config.getEncodingThreads(), config.getRowGroupRows(), config.getRowGroupSize());
+            long recordsCount = parallelWriter.write(rows, maxRec, customMetaData);
             log.debug("Total Records written= " + recordsCount);
+        } else {
+            DynamicParquetWriterBuilder builder = createBuilder(outputFile, schema, fields, customMetaData);
+            try (org.apache.parquet.hadoop.ParquetWriter<List<Object>> writer = builder.build()) {
+
+                int recordsCount = writeRecords(maxRec, rows, writer);
+                writer.close();
+                log.debug("Total Records written= " + recordsCount);
+            }
         }
         out.close();
     }
 
+    private DynamicParquetWriterBuilder createBuilder(OutputFile outputFile, MessageType schema,
+            List<VOTableField> fields, Map<String, String> extraMetaData) {
+        DynamicParquetWriterBuilder builder = new DynamicParquetWriterBuilder(outputFile, schema, fields, extraMetaData);
+        configure(builder, schema);
+        return builder;
+    }
+
+    private void configure(DynamicParquetWriterBuilder builder, MessageType schema) {
+        Configuration conf = new Configuration();
+        String[] level = config.getCompressionLevelConfig();
+        if (level != null) {
+            conf.set(level[0], level[1]);
+        }
+        builder.withCompressionCodec(config.getCodec())
+                .withRowGroupSize(config.getRowGroupSize())
+                .withPageSize(config.getPageSize())
+                .withPageRowCountLimit(config.getPageRowCountLimit())
+                .withDictionaryPageSize(config.getDictionaryPageSize())
+                .withWriterVersion(config.getWriterVersion())
+                .withConf(conf)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .withValidation(false)
+                .withDictionaryEncoding(config.isDictionaryEncoding());
+
+        for (String name : config.getDictionaryColumns()) {
+            builder.withDictionaryEncoding(getColumnPath(schema, name), true);
+        }
+        for (Map.Entry<String, Long> e : config.getBloomFilterColumns().entrySet()) {
+            String path = getColumnPath(schema, e.getKey());
+            builder.withBloomFilterEnabled(path, true);
+            if (e.getValue() != null) {
+                builder.withBloomFilterNDV(path, e.getValue());
+            }
+        }
+    }
+
+    private String getSortColumns(MessageType schema) {
+        StringBuilder sb = new StringBuilder();
+        for (String fieldName : config.getSortColumns()) {
+            String name = fieldName.replaceAll("\"", "_");
+            if (!schema.containsField(name) || !schema.getType(name).isPrimitive()) {
+                throw new IllegalArgumentException("invalid sort column: " + fieldName);
+            }
+            if (name.indexOf(',') >= 0) {
+                throw new IllegalArgumentException("sort column name cannot contain a comma: " + fieldName);
+            }
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append(name);
+        }
+        return sb.toString();
+    }
+
+    // dot separated path of the leaf column of a field, e.g. name.list.element for arrays
+    static String getColumnPath(MessageType schema, String fieldName) {
+        String name = fieldName.replaceAll("\"", "_");
+        for (ColumnDescriptor cd : schema.getColumns()) {
+            if (cd.getPath()[0].equals(name)) {
+                return String.join(".", cd.getPath());
+            }
+        }
+        throw new IllegalArgumentException("column not found: " + fieldName);
+    }
+
     /**
      * Write the Throwable to the specified OutputStream.
      *
@@ -350,95 +462,42 @@ public class ParquetWriter implements TableWriter<VOTableDocument> {
             return new HashMap<>();
         }
 
-        StringWriter stringWriter = new StringWriter();
-        VOTableWriter votableWriter = new VOTableWriter();
-        votableWriter.write(voTableDocument, stringWriter, maxRec);
+        String content = metadataTemplate;
+        if (content == null) {
+            content = encodeMetadata(voTableDocument, maxRec);
+        }
 
         Map<String, String> customMetaData = new HashMap<>();
         customMetaData.put(IVOA_VOTABLE_PARQUET_VERSION_KEY, IVOA_VOTABLE_PARQUET_VERSION_VALUE);
-        customMetaData.put(IVOA_VOTABLE_PARQUET_CONTENT_KEY, stringWriter.toString());
+        customMetaData.put(IVOA_VOTABLE_PARQUET_CONTENT_KEY, content);
 
         return customMetaData;
     }
 
-    private int writeRecords(Long maxRec, TableData tableData, org.apache.parquet.hadoop.ParquetWriter<List<Object>> writer)
-            throws IOException {
-        Iterator<List<Object>> iterator = tableData.iterator();
+    // compact VOTable XML of a document without table data
+    private static String encodeMetadata(VOTableDocument voTableDocument, Long maxRec) throws IOException {
+        StringWriter stringWriter = new StringWriter(4096);
+        VOTableWriter votableWriter = new VOTableWriter();
+        votableWriter.write(voTableDocument, stringWriter, maxRec);
+        return stringWriter.toString();
+    }
+
+    private static VOTableResource getResultsResource(VOTableDocument voTableDocument) {
+        return voTableDocument.getResources().stream().filter(obj -> "results".equals(obj.getType())).reduce((a, b) -> {
+            throw new RuntimeException("Multiple objects with type = results");
+        }).orElseThrow(() -> new RuntimeException("No object found with type = results"));
+    }
+
+    private int writeRecords(Long maxRec, Iterator<List<Object>> iterator,
+            org.apache.parquet.hadoop.ParquetWriter<List<Object>> writer) throws IOException {
         int recordCount = 1;
 
         while (iterator.hasNext() && recordCount <= maxRec) {
-            List<Object> rowData = iterator.next();
-            List<Object> formattedRowData = new ArrayList<>();
-
-            for (int i = 0; i < rowData.size(); i++) {
-                VOTableField voTableField = voTableFields.get(i);
-                Object data = rowData.get(i);
-                String xtype = voTableField.xtype;
-
-                try {
-                    if (data == null) {
-                        formattedRowData.add(null);
-                    } else if (xtype != null) {
-                        // handle complex types
-                        formattedRowData.add(handleXtypeConversion(xtype, data));
-                    } else {
-                        // handle primitives and primitive arrays
-                        formattedRowData.add(data);
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException("Failure while preparing data for field : " + voTableField, e);
-                }
-            }
-
-            writer.write(formattedRowData);
+            // values are converted by the per-column writers of CustomWriteSupport
+            writer.write(iterator.next());
             recordCount++;
         }
         return recordCount;
     }
 
-    private Object handleXtypeConversion(String xtype, Object data) {
-        Object dataToStore;
-        if (xtype.equals("interval")) {
-            if (data instanceof Interval) {
-                Interval di = (Interval) data;
-                dataToStore = di.toArray();
-            } else if (data instanceof Interval[]) {
-                Interval[] da = (Interval[]) data;
-                dataToStore = Interval.toArray(da);
-            } else {
-                throw new UnsupportedOperationException("unexpected Interval type: " + data.getClass().getName());
-            }
-        } else if (xtype.equals("point") && data instanceof Point) {
-            Point p = (Point) data;
-            dataToStore = p.toArray();
-        } else if (xtype.equals("circle") && data instanceof Circle) {
-            Circle c = (Circle) data;
-            dataToStore = c.toArray();
-        } else if (xtype.equals("polygon") && data instanceof Polygon) {
-            Polygon p = (Polygon) data;
-            dataToStore = p.toArray();
-        } else if (xtype.equals("multipolygon") && data instanceof MultiPolygon) {
-            MultiPolygon p = (MultiPolygon) data;
-            dataToStore = MultiPolygonFormat.toArray(p);
-        } else if (xtype.equals("shape") && data instanceof Shape) {
-            Shape s = (Shape) data;
-            ShapeFormat shapeFormat = new ShapeFormat();
-            dataToStore = shapeFormat.format(s);
-        } else if (data instanceof Date) {
-            dataToStore = ((Date) data).getTime();
-        } else if (data instanceof Instant) {
-            dataToStore = ((Instant) data).toEpochMilli();
-        } else if (xtype.equals("uuid")) {
-            UUIDFormat uuidFormat = new UUIDFormat();
-            String uuidHex = data.toString().replace("-", "");
-            dataToStore = HexUtil.toBytes(uuidHex);
-        } else if (xtype.equals("uri")) {
-            URIFormat uriFormat = new URIFormat();
-            dataToStore = uriFormat.format((URI) data);
-        } else {
-            throw new UnsupportedOperationException("unexpected value type: " + data.getClass().getName() + " with xtype: " + xtype);
-        }
-        return dataToStore;
-    }
-
 }
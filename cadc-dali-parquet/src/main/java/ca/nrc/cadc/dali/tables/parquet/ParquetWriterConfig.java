@@ -0,0 +1,319 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * Encoding options for ParquetWriter: compression codec and level, row group and page
+ * sizing, dictionary encoding, bloom filters, sort order and parallel encoding. The
+ * defaults produce the same output as before these options existed: SNAPPY, 16MiB row
+ * groups, default page size, no dictionary encoding, no bloom filters and one thread.
+ *
+ * <p>Column statistics (min/max and null count per column chunk) and page indexes are
+ * always written; the page row count limit sets the granularity of the page index.
+ */
+public class ParquetWriterConfig {
+
+    // hadoop/parquet configuration keys for codec levels
+    static final String ZSTD_LEVEL_KEY = "parquet.compression.codec.zstd.level";
+    static final String ZLIB_LEVEL_KEY = "zlib.compress.level";
+
+    public static final int DEFAULT_ROW_GROUP_ROWS = 100000;
+
+    // hadoop ZlibCompressor.CompressionLevel names for levels 0-9
+    private static final String[] ZLIB_LEVELS = new String[] {
+        "NO_COMPRESSION", "BEST_SPEED", "TWO", "THREE", "FOUR", "FIVE", "SIX", "SEVEN", "EIGHT", "BEST_COMPRESSION"
+    };
+
+    private CompressionCodecName codec = CompressionCodecName.SNAPPY;
+    private Integer compressionLevel;
+    private long rowGroupSize = ParquetWriter.DEFAULT_BLOCK_SIZE;
+    private int pageSize = ParquetProperties.DEFAULT_PAGE_SIZE;
+    private int pageRowCountLimit = ParquetProperties.DEFAULT_PAGE_ROW_COUNT_LIMIT;
+    private int dictionaryPageSize = ParquetProperties.DEFAULT_DICTIONARY_PAGE_SIZE;
+    private boolean dictionaryEncoding = false;
+    private final Set<String> dictionaryColumns = new TreeSet<>();
+    private ParquetProperties.WriterVersion writerVersion = ParquetProperties.DEFAULT_WRITER_VERSION;
+    private final Map<String, Long> bloomFilterColumns = new LinkedHashMap<>();
+    private final List<String> sortColumns = new ArrayList<>();
+    private int encodingThreads = 1;
+    private int rowGroupRows = DEFAULT_ROW_GROUP_ROWS;
+
+    public ParquetWriterConfig() {
+    }
+
+    public CompressionCodecName getCodec() {
+        return codec;
+    }
+
+    /**
+     * @param codec compression codec: UNCOMPRESSED, SNAPPY, GZIP, ZSTD, LZ4_RAW...
+     */
+    public void setCodec(CompressionCodecName codec) {
+        if (codec == null) {
+            throw new IllegalArgumentException("codec cannot be null");
+        }
+        this.codec = codec;
+    }
+
+    public Integer getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Compression level of the codec: 1-22 for ZSTD, 0-9 for GZIP. Other codecs do not
+     * have levels.
+     *
+     * @param compressionLevel level or null for the codec default
+     */
+    public void setCompressionLevel(Integer compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public long getRowGroupSize() {
+        return rowGroupSize;
+    }
+
+    /**
+     * @param rowGroupSize target size of a row group in bytes
+     */
+    public void setRowGroupSize(long rowGroupSize) {
+        if (rowGroupSize <= 0) {
+            throw new IllegalArgumentException("invalid rowGroupSize: " + rowGroupSize);
+        }
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @param pageSize target size of a data page in bytes
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("invalid pageSize: " + pageSize);
+        }
+        this.pageSize = pageSize;
+    }
+
+    public int getPageRowCountLimit() {
+        return pageRowCountLimit;
+    }
+
+    /**
+     * @param pageRowCountLimit maximum number of rows in a data page
+     */
+    public void setPageRowCountLimit(int pageRowCountLimit) {
+        if (pageRowCountLimit <= 0) {
+            throw new IllegalArgumentException("invalid pageRowCountLimit: " + pageRowCountLimit);
+        }
+        this.pageRowCountLimit = pageRowCountLimit;
+    }
+
+    public int getDictionaryPageSize() {
+        return dictionaryPageSize;
+    }
+
+    /**
+     * @param dictionaryPageSize maximum size of a dictionary page in bytes; a column falls
+     *     back to plain encoding when its dictionary gets larger
+     */
+    public void setDictionaryPageSize(int dictionaryPageSize) {
+        if (dictionaryPageSize <= 0) {
+            throw new IllegalArgumentException("invalid dictionaryPageSize: " + dictionaryPageSize);
+        }
+        this.dictionaryPageSize = dictionaryPageSize;
+    }
+
+    public boolean isDictionaryEncoding() {
+        return dictionaryEncoding;
+    }
+
+    /**
+     * @param dictionaryEncoding enable dictionary encoding for all columns
+     */
+    public void setDictionaryEncoding(boolean dictionaryEncoding) {
+        this.dictionaryEncoding = dictionaryEncoding;
+    }
+
+    /**
+     * Columns that use dictionary encoding when it is not enabled for all columns: add the
+     * VOTable field names of low cardinality columns.
+     *
+     * @return modifiable set of field names
+     */
+    public Set<String> getDictionaryColumns() {
+        return dictionaryColumns;
+    }
+
+    public ParquetProperties.WriterVersion getWriterVersion() {
+        return writerVersion;
+    }
+
+    /**
+     * @param writerVersion PARQUET_1_0 (default) or PARQUET_2_0 data pages and encodings
+     */
+    public void setWriterVersion(ParquetProperties.WriterVersion writerVersion) {
+        if (writerVersion == null) {
+            throw new IllegalArgumentException("writerVersion cannot be null");
+        }
+        this.writerVersion = writerVersion;
+    }
+
+    public int getEncodingThreads() {
+        return encodingThreads;
+    }
+
+    /**
+     * Number of threads that encode and compress row groups. With 1 (default) the rows are
+     * written on the calling thread. With more, the rows are buffered in chunks of
+     * rowGroupRows rows that are encoded into separate row groups by a worker pool and
+     * appended to the output in order, so up to encodingThreads + 2 chunks are held in
+     * memory.
+     *
+     * @param encodingThreads number of encoding threads
+     */
+    public void setEncodingThreads(int encodingThreads) {
+        if (encodingThreads < 1) {
+            throw new IllegalArgumentException("invalid encodingThreads: " + encodingThreads);
+        }
+        this.encodingThreads = encodingThreads;
+    }
+
+    public int getRowGroupRows() {
+        return rowGroupRows;
+    }
+
+    /**
+     * @param rowGroupRows number of rows per row group when encoding with more than one
+     *     thread; a row group is still split when it gets larger than rowGroupSize
+     */
+    public void setRowGroupRows(int rowGroupRows) {
+        if (rowGroupRows < 1) {
+            throw new IllegalArgumentException("invalid rowGroupRows: " + rowGroupRows);
+        }
+        this.rowGroupRows = rowGroupRows;
+    }
+
+    /**
+     * Columns that get a bloom filter in every row group, so that readers can skip row groups
+     * for equality lookups (e.g. on ID columns). Map the VOTable field name to the expected
+     * number of distinct values per row group, or to null for the parquet default size.
+     *
+     * @return modifiable map of field name to expected number of distinct values
+     */
+    public Map<String, Long> getBloomFilterColumns() {
+        return bloomFilterColumns;
+    }
+
+    /**
+     * Columns the rows are sorted by (ascending), most significant first. The caller must
+     * write the rows in this order. It is recorded in the footer so that readers can stop
+     * scanning once a range on the first column is passed, so the write fails if the values
+     * of the first column are not in ascending order.
+     *
+     * @return modifiable list of field names
+     */
+    public List<String> getSortColumns() {
+        return sortColumns;
+    }
+
+    // configuration key and value for the compression level, null when not set
+    String[] getCompressionLevelConfig() {
+        if (compressionLevel == null) {
+            return null;
+        }
+        int level = compressionLevel;
+        switch (codec) {
+            case ZSTD:
+                if (level < 1 || level > 22) {
+                    throw new IllegalArgumentException("invalid ZSTD compression level: " + level);
+                }
+                return new String[] {ZSTD_LEVEL_KEY, Integer.toString(level)};
+            case GZIP:
+                if (level < 0 || level > 9) {
+                    throw new IllegalArgumentException("invalid GZIP compression level: " + level);
+                }
+                return new String[] {ZLIB_LEVEL_KEY, ZLIB_LEVELS[level]};
+            default:
+                throw new IllegalArgumentException("compression level not supported for codec " + codec);
+        }
+    }
+}
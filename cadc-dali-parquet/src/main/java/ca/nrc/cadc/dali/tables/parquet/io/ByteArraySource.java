@@ -67,53 +67,62 @@
  ************************************************************************
  */
 
-package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+package ca.nrc.cadc.dali.tables.parquet.io;
 
-import org.apache.parquet.io.api.Converter;
-import org.apache.parquet.io.api.GroupConverter;
-import org.apache.parquet.schema.LogicalTypeAnnotation;
-import org.apache.parquet.schema.MessageType;
-import org.apache.parquet.schema.Type;
+import ca.nrc.cadc.io.RandomAccessSource;
+import java.io.IOException;
 
-public class DynamicRowConverter extends GroupConverter {
-
-    private final Converter[] converters;
-    private final DynamicRow currentRow = new DynamicRow();
+/**
+ * A {@link RandomAccessSource} over content held in a byte array.
+ */
+public class ByteArraySource implements RandomAccessSource {
 
-    public DynamicRowConverter(MessageType schema) {
-        int count = schema.getFieldCount();
-        this.converters = new Converter[count];
+    private final byte[] data;
+    private final int length;
+    private int position = 0;
 
-        for (int i = 0; i < count; i++) {
-            Type field = schema.getType(i);
-            String name = field.getName();
+    public ByteArraySource(byte[] data) {
+        this(data, data.length);
+    }
 
-            if (field.isPrimitive()) {
-                converters[i] = new DynamicPrimitiveConverter(currentRow, name, field.asPrimitiveType());
-            } else if (field.getLogicalTypeAnnotation() != null
-                    && field.getLogicalTypeAnnotation() instanceof LogicalTypeAnnotation.ListLogicalTypeAnnotation) {
-                converters[i] = new DynamicListConverter(currentRow, name, field.asGroupType());
-            } else {
-                throw new UnsupportedOperationException("Unsupported type: " + field);
-            }
+    /**
+     * @param data content buffer
+     * @param length number of bytes of content at the start of the buffer
+     */
+    public ByteArraySource(byte[] data, int length) {
+        if (length < 0 || length > data.length) {
+            throw new IllegalArgumentException("invalid length: " + length + " buffer: " + data.length);
         }
+        this.data = data;
+        this.length = length;
     }
 
     @Override
-    public Converter getConverter(int i) {
-        return converters[i];
+    public void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException("negative seek position: " + pos);
+        }
+        position = (int) Math.min(pos, length);
     }
 
     @Override
-    public void start() {
-        currentRow.getFieldNames().forEach(f -> currentRow.put(f, null)); // reset fields
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (position >= length) {
+            return -1;
+        }
+        int n = Math.min(len, length - position);
+        System.arraycopy(data, position, b, off, n);
+        position += n;
+        return n;
     }
 
     @Override
-    public void end() {
+    public long length() throws IOException {
+        return length;
     }
 
-    public DynamicRow getCurrentRow() {
-        return currentRow;
+    @Override
+    public void close() throws IOException {
+        // nothing to release
     }
 }
@@ -67,26 +67,31 @@
  ************************************************************************
  */
 
-package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+package ca.nrc.cadc.dali.tables.parquet.io;
 
-import org.apache.parquet.io.api.GroupConverter;
-import org.apache.parquet.io.api.RecordMaterializer;
-import org.apache.parquet.schema.MessageType;
+import java.io.Closeable;
+import java.io.IOException;
 
-public class DynamicRowMaterializer extends RecordMaterializer<DynamicRow> {
-    private final DynamicRowConverter root;
-
-    public DynamicRowMaterializer(MessageType schema) {
-        this.root = new DynamicRowConverter(schema);
-    }
+/**
+ * Provider of arbitrary byte ranges of some remote or otherwise non-local content,
+ * e.g. with HTTP range requests.
+ */
+public interface ByteRangeReader extends Closeable {
 
-    @Override
-    public DynamicRow getCurrentRecord() {
-        return root.getCurrentRow();
-    }
+    /**
+     * @return total length of the content
+     * @throws IOException if the length cannot be determined
+     */
+    long length() throws IOException;
 
-    @Override
-    public GroupConverter getRootConverter() {
-        return root;
-    }
+    /**
+     * Read exactly len bytes starting at the given position of the content.
+     *
+     * @param position offset in the content
+     * @param buf destination buffer
+     * @param off offset in the buffer
+     * @param len number of bytes
+     * @throws IOException if the range cannot be read
+     */
+    void read(long position, byte[] buf, int off, int len) throws IOException;
 }
@@ -0,0 +1,147 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet.io;
+
+import ca.nrc.cadc.io.RandomAccessSource;
+import java.io.IOException;
+
+/**
+ * A {@link RandomAccessSource} that fetches the bytes that are read from a {@link ByteRangeReader}.
+ * Small reads (e.g. of the Parquet footer) are served from a read-ahead buffer of minFetch
+ * bytes so that they do not each cost a request; larger reads (column chunks) are fetched
+ * as one range. Content that is never read is never fetched.
+ */
+public class ByteRangeSource implements RandomAccessSource {
+
+    public static final int DEFAULT_MIN_FETCH = 64 * 1024;
+
+    private final ByteRangeReader reader;
+    private final long length;
+    private final byte[] buffer;
+    private long bufferStart = 0;
+    private int bufferLength = 0;
+    private long position = 0;
+
+    public ByteRangeSource(ByteRangeReader reader) throws IOException {
+        this(reader, DEFAULT_MIN_FETCH);
+    }
+
+    /**
+     * @param reader byte range provider
+     * @param minFetch minimum number of bytes per request
+     * @throws IOException if the content length cannot be determined
+     */
+    public ByteRangeSource(ByteRangeReader reader, int minFetch) throws IOException {
+        if (minFetch < 1) {
+            throw new IllegalArgumentException("invalid minFetch: " + minFetch);
+        }
+        this.reader = reader;
+        this.length = reader.length();
+        this.buffer = new byte[minFetch];
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException("negative seek position: " + pos);
+        }
+        position = pos;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (position >= length) {
+            return -1;
+        }
+        int n = (int) Math.min(len, length - position);
+        if (position >= bufferStart && position + n <= bufferStart + bufferLength) {
+            System.arraycopy(buffer, (int) (position - bufferStart), b, off, n);
+        } else if (n >= buffer.length) {
+            reader.read(position, b, off, n);
+        } else {
+            bufferLength = (int) Math.min(buffer.length, length - position);
+            bufferStart = position;
+            reader.read(bufferStart, buffer, 0, bufferLength);
+            System.arraycopy(buffer, 0, b, off, n);
+        }
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long length() throws IOException {
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
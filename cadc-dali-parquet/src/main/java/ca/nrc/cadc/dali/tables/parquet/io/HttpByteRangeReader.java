@@ -0,0 +1,182 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+package ca.nrc.cadc.dali.tables.parquet.io;
+
+import ca.nrc.cadc.net.HttpGet;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import org.apache.log4j.Logger;
+
+/**
+ * {@link ByteRangeReader} that reads byte ranges of an HTTP resource with range requests.
+ * The server must support range requests (respond 206 Partial Content). Requests are made
+ * with {@link HttpGet}, so they follow redirects and use the credentials of the calling Subject.
+ */
+public class HttpByteRangeReader implements ByteRangeReader {
+
+    private static final Logger log = Logger.getLogger(HttpByteRangeReader.class);
+
+    public static final int DEFAULT_CONNECTION_TIMEOUT = 30000;
+    public static final int DEFAULT_READ_TIMEOUT = 60000;
+
+    private final URL url;
+    private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+    private long length = -1;
+
+    public HttpByteRangeReader(URL url) {
+        if (url == null) {
+            throw new IllegalArgumentException("url cannot be null");
+        }
+        this.url = url;
+    }
+
+    /**
+     * @param connectionTimeout connect timeout in milliseconds
+     */
+    public void setConnectionTimeout(int connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    /**
+     * @param readTimeout read timeout in milliseconds
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public long length() throws IOException {
+        if (length < 0) {
+            HttpGet head = prepare(null);
+            long len = head.getContentLength();
+            if (len < 0) {
+                throw new IOException("HEAD " + url + ": no Content-Length");
+            }
+            this.length = len;
+        }
+        return length;
+    }
+
+    @Override
+    public void read(long position, byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        String range = "bytes=" + position + "-" + (position + len - 1);
+        log.debug("GET " + url + " " + range);
+        HttpGet get = prepare(range);
+        // reading the body fully and closing the stream lets the connection be reused
+        try (InputStream in = get.getInputStream()) {
+            if (get.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("GET " + url + " " + range + " failed: range not supported (response code "
+                        + get.getResponseCode() + ")");
+            }
+            int total = 0;
+            while (total < len) {
+                int n = in.read(buf, off + total, len - total);
+                if (n == -1) {
+                    throw new EOFException("GET " + url + " " + range + ": got " + total + " of " + len + " bytes");
+                }
+                total += n;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // no persistent connection
+    }
+
+    // HEAD if range is null, otherwise GET of the range
+    private HttpGet prepare(String range) throws IOException {
+        HttpGet get = new HttpGet(url, true);
+        get.setHeadOnly(range == null);
+        get.setConnectionTimeout(connectionTimeout);
+        get.setReadTimeout(readTimeout);
+        if (range != null) {
+            get.setRequestProperty("Range", range);
+        }
+        try {
+            get.prepare();
+        } catch (IOException | RuntimeException ex) {
+            throw ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException((range == null ? "HEAD " : "GET ") + url + " interrupted");
+        } catch (Exception ex) {
+            throw new IOException((range == null ? "HEAD " : "GET ") + url + " failed: " + ex, ex);
+        }
+        return get;
+    }
+}
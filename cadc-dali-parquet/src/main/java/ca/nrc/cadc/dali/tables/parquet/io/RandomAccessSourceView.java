@@ -67,29 +67,55 @@
  ************************************************************************
  */
 
-package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+package ca.nrc.cadc.dali.tables.parquet.io;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Set;
+import ca.nrc.cadc.io.RandomAccessSource;
+import java.io.IOException;
 
-public class DynamicRow {
-    private final Map<String, Object> fields = new LinkedHashMap<>();
+/**
+ * A view of a shared {@link RandomAccessSource} with its own position, so that several
+ * threads can read the same content. Each read seeks the shared source and reads from it
+ * while holding its lock; closing the view does not close the shared source.
+ */
+public class RandomAccessSourceView implements RandomAccessSource {
+
+    private final RandomAccessSource source;
+    private long position = 0;
 
-    public void put(String field, Object value) {
-        fields.put(field, value);
+    public RandomAccessSourceView(RandomAccessSource source) {
+        this.source = source;
     }
 
-    public Object get(String field) {
-        return fields.get(field);
+    @Override
+    public void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException("negative seek position: " + pos);
+        }
+        position = pos;
     }
 
-    public Set<String> getFieldNames() {
-        return fields.keySet();
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n;
+        synchronized (source) {
+            source.seek(position);
+            n = source.read(b, off, len);
+        }
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long length() throws IOException {
+        synchronized (source) {
+            return source.length();
+        }
     }
 
     @Override
-    public String toString() {
-        return fields.toString();
+    public void close() throws IOException {
+        // the shared source is closed by its owner
     }
 }
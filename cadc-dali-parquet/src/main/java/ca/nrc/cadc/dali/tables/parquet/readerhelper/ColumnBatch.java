@@ -69,68 +69,73 @@
 
 package ca.nrc.cadc.dali.tables.parquet.readerhelper;
 
-import ca.nrc.cadc.dali.util.UUIDFormat;
-import java.util.Arrays;
-import org.apache.parquet.io.api.Binary;
-import org.apache.parquet.io.api.PrimitiveConverter;
-import org.apache.parquet.schema.LogicalTypeAnnotation;
-import org.apache.parquet.schema.PrimitiveType;
+/**
+ * A batch of rows from one row group of a Parquet file, stored by column. Columns are
+ * in the order of the table fields. When the reader has predicates, only the rows
+ * flagged as selected match them.
+ */
+public class ColumnBatch {
 
-public class DynamicPrimitiveConverter extends PrimitiveConverter {
-    private final DynamicRow row;
-    private final String field;
-    private final PrimitiveType type;
+    private final ColumnVector[] columns;
+    private int size;
+    private boolean[] selected;
+    private int selectedCount;
 
-    public DynamicPrimitiveConverter(DynamicRow row, String field, PrimitiveType type) {
-        this.row = row;
-        this.field = field;
-        this.type = type;
+    ColumnBatch(ColumnVector[] columns) {
+        this.columns = columns;
     }
 
-    @Override
-    public void addInt(int v) {
-        row.put(field, v);
+    /**
+     * @return number of rows in the batch
+     */
+    public int size() {
+        return size;
     }
 
-    @Override
-    public void addLong(long v) {
-        row.put(field, v);
+    void setSize(int size) {
+        this.size = size;
+        this.selectedCount = size;
     }
 
-    @Override
-    public void addFloat(float v) {
-        row.put(field, v);
+    /**
+     * @param row row index
+     * @return true if the row matches the predicates of the reader
+     */
+    public boolean isSelected(int row) {
+        return selected == null || selected[row];
     }
 
-    @Override
-    public void addDouble(double v) {
-        row.put(field, v);
+    /**
+     * @return number of selected rows
+     */
+    public int getSelectedCount() {
+        return selectedCount;
     }
 
-    @Override
-    public void addBinary(Binary v) {
-        try {
-            if (type.getLogicalTypeAnnotation() != null && type.getLogicalTypeAnnotation().equals(LogicalTypeAnnotation.uuidType())
-                    && type.getPrimitiveTypeName().equals(PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY)) {
-                UUIDFormat uuidFormat = new UUIDFormat();
-                row.put(field, uuidFormat.bytesToUUID(v.getBytes()).toString());
-            } else if (type.getLogicalTypeAnnotation() instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation) {
-                row.put(field, v.toStringUsingUTF8());
-            } else if (type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY
-                    && type.getTypeLength() == 1) {
-                // single byte
-                row.put(field, v.getBytes()[0]);
-            } else {
-                // byte[]
-                row.put(field, Arrays.toString(v.getBytes()));
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to read binary.", e);
-        }
+    // null: all rows selected
+    void setSelection(boolean[] selected, int selectedCount) {
+        this.selected = selected;
+        this.selectedCount = selectedCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
     }
 
-    @Override
-    public void addBoolean(boolean v) {
-        row.put(field, v);
+    public ColumnVector getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @param name Parquet column name
+     * @return the column or null if the batch does not contain it
+     */
+    public ColumnVector getColumn(String name) {
+        for (ColumnVector c : columns) {
+            if (c.getName().equals(name)) {
+                return c;
+            }
+        }
+        return null;
     }
 }
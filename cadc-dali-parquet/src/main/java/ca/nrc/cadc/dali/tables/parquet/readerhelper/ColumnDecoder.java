@@ -0,0 +1,572 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+
+import ca.nrc.cadc.dali.Circle;
+import ca.nrc.cadc.dali.DoubleInterval;
+import ca.nrc.cadc.dali.LongInterval;
+import ca.nrc.cadc.dali.Point;
+import ca.nrc.cadc.dali.Polygon;
+import ca.nrc.cadc.dali.tables.parquet.ParquetReader;
+import ca.nrc.cadc.dali.tables.votable.VOTableField;
+import ca.nrc.cadc.dali.util.BooleanFormat;
+import ca.nrc.cadc.dali.util.ByteArrayFormat;
+import ca.nrc.cadc.dali.util.ByteFormat;
+import ca.nrc.cadc.dali.util.CircleFormat;
+import ca.nrc.cadc.dali.util.DoubleArrayFormat;
+import ca.nrc.cadc.dali.util.DoubleFormat;
+import ca.nrc.cadc.dali.util.DoubleIntervalArrayFormat;
+import ca.nrc.cadc.dali.util.DoubleIntervalFormat;
+import ca.nrc.cadc.dali.util.FloatArrayFormat;
+import ca.nrc.cadc.dali.util.FloatFormat;
+import ca.nrc.cadc.dali.util.Format;
+import ca.nrc.cadc.dali.util.IntArrayFormat;
+import ca.nrc.cadc.dali.util.IntegerFormat;
+import ca.nrc.cadc.dali.util.LongArrayFormat;
+import ca.nrc.cadc.dali.util.LongFormat;
+import ca.nrc.cadc.dali.util.LongIntervalFormat;
+import ca.nrc.cadc.dali.util.MultiPolygonFormat;
+import ca.nrc.cadc.dali.util.PointFormat;
+import ca.nrc.cadc.dali.util.PolygonFormat;
+import ca.nrc.cadc.dali.util.ShortArrayFormat;
+import ca.nrc.cadc.dali.util.ShortFormat;
+import ca.nrc.cadc.dali.util.StringFormat;
+import ca.nrc.cadc.dali.util.UTCTimestampFormat;
+import ca.nrc.cadc.dali.util.UUIDFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import org.apache.log4j.Logger;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+/**
+ * Converts the values of one Parquet column directly to the object the Format of the
+ * VOTable field would produce (Integer, double[], Date, UUID, Point, Polygon, Interval...).
+ * Columns where the format and the Parquet type have no direct conversion fall back to
+ * parsing the text form of the value with the format.
+ */
+public abstract class ColumnDecoder {
+
+    private static final Logger log = Logger.getLogger(ColumnDecoder.class);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS")
+            .withZone(ZoneOffset.UTC);
+
+    public Object fromInt(int v) {
+        return fromLong(v);
+    }
+
+    public Object fromLong(long v) {
+        throw unexpected("long");
+    }
+
+    public Object fromFloat(float v) {
+        throw unexpected("float");
+    }
+
+    public Object fromDouble(double v) {
+        throw unexpected("double");
+    }
+
+    public Object fromBoolean(boolean v) {
+        throw unexpected("boolean");
+    }
+
+    public Object fromBinary(Binary v) {
+        throw unexpected("binary");
+    }
+
+    public Object fromList(ValueBuffer values) {
+        throw unexpected("list");
+    }
+
+    private UnsupportedOperationException unexpected(String type) {
+        return new UnsupportedOperationException("unexpected " + type + " value for " + getClass().getSimpleName());
+    }
+
+    /**
+     * Create the decoder for a column.
+     *
+     * @param field VOTable field of the column
+     * @param format format of the field
+     * @param parquetType Parquet type of the column: primitive or LIST of primitive
+     * @return decoder
+     */
+    public static ColumnDecoder create(VOTableField field, Format<Object> format, Type parquetType) {
+        ColumnDecoder ret;
+        if (parquetType.isPrimitive()) {
+            ret = createScalar(field, format, parquetType.asPrimitiveType());
+        } else {
+            PrimitiveType element = ParquetReader.extractActualElementType(parquetType).asPrimitiveType();
+            ret = createList(format, element.getPrimitiveTypeName());
+        }
+        if (ret == null) {
+            log.debug(field.getName() + ": no direct conversion for " + format.getClass().getName() + ", parsing text values");
+            ret = new TextDecoder(format, parquetType);
+        }
+        return ret;
+    }
+
+    private static ColumnDecoder createScalar(VOTableField field, Format<Object> format, PrimitiveType type) {
+        Class<?> c = format.getClass();
+        PrimitiveType.PrimitiveTypeName physical = type.getPrimitiveTypeName();
+        LogicalTypeAnnotation logical = type.getLogicalTypeAnnotation();
+        boolean plain = logical == null || logical instanceof LogicalTypeAnnotation.IntLogicalTypeAnnotation;
+
+        if (c == IntegerFormat.class && physical == PrimitiveType.PrimitiveTypeName.INT32 && plain) {
+            final Long nullValue = getNullValue(field);
+            return new ColumnDecoder() {
+                @Override
+                public Object fromInt(int v) {
+                    return nullValue != null && v == nullValue ? null : Integer.valueOf(v);
+                }
+            };
+        }
+        if (c == ShortFormat.class && physical == PrimitiveType.PrimitiveTypeName.INT32 && plain) {
+            final Long nullValue = getNullValue(field);
+            return new ColumnDecoder() {
+                @Override
+                public Object fromInt(int v) {
+                    if (nullValue != null && v == nullValue) {
+                        return null;
+                    }
+                    if (v < Short.MIN_VALUE || v > Short.MAX_VALUE) {
+                        throw new IllegalArgumentException("value out of range for short: " + v);
+                    }
+                    return Short.valueOf((short) v);
+                }
+            };
+        }
+        if (c == LongFormat.class && plain
+                && (physical == PrimitiveType.PrimitiveTypeName.INT64 || physical == PrimitiveType.PrimitiveTypeName.INT32)) {
+            final Long nullValue = getNullValue(field);
+            return new ColumnDecoder() {
+                @Override
+                public Object fromLong(long v) {
+                    return nullValue != null && v == nullValue ? null : Long.valueOf(v);
+                }
+            };
+        }
+        if (c == FloatFormat.class && physical == PrimitiveType.PrimitiveTypeName.FLOAT) {
+            return new ColumnDecoder() {
+                @Override
+                public Object fromFloat(float v) {
+                    return v;
+                }
+            };
+        }
+        if (c == DoubleFormat.class && physical == PrimitiveType.PrimitiveTypeName.DOUBLE) {
+            return new ColumnDecoder() {
+                @Override
+                public Object fromDouble(double v) {
+                    return v;
+                }
+            };
+        }
+        if (c == BooleanFormat.class && physical == PrimitiveType.PrimitiveTypeName.BOOLEAN) {
+            return new ColumnDecoder() {
+                @Override
+                public Object fromBoolean(boolean v) {
+                    return v;
+                }
+            };
+        }
+        if (c == StringFormat.class && physical == PrimitiveType.PrimitiveTypeName.BINARY
+                && logical instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation) {
+            return new ColumnDecoder() {
+                @Override
+                public Object fromBinary(Binary v) {
+                    return v.length() == 0 ? null : v.toStringUsingUTF8();
+                }
+            };
+        }
+        if (c == ByteArrayFormat.class && physical == PrimitiveType.PrimitiveTypeName.BINARY && logical == null) {
+            return new ColumnDecoder() {
+                @Override
+                public Object fromBinary(Binary v) {
+                    return v.length() == 0 ? null : v.getBytes();
+                }
+            };
+        }
+        if (c == ByteFormat.class && physical == PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY
+                && type.getTypeLength() == 1) {
+            return new ColumnDecoder() {
+                @Override
+                public Object fromBinary(Binary v) {
+                    return v.getBytes()[0];
+                }
+            };
+        }
+        if (c == UUIDFormat.class && physical == PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY
+                && logical instanceof LogicalTypeAnnotation.UUIDLogicalTypeAnnotation) {
+            final UUIDFormat uuidFormat = new UUIDFormat();
+            return new ColumnDecoder() {
+                @Override
+                public Object fromBinary(Binary v) {
+                    return uuidFormat.bytesToUUID(v.getBytes());
+                }
+            };
+        }
+        if (c == UTCTimestampFormat.class && physical == PrimitiveType.PrimitiveTypeName.INT64
+                && logical instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) {
+            final LogicalTypeAnnotation.TimeUnit unit = ((LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) logical).getUnit();
+            return new ColumnDecoder() {
+                @Override
+                public Object fromLong(long v) {
+                    return new Date(toMillis(v, unit));
+                }
+            };
+        }
+        return null;
+    }
+
+    private static ColumnDecoder createList(Format<Object> format, PrimitiveType.PrimitiveTypeName element) {
+        Class<?> c = format.getClass();
+        boolean ints = element == PrimitiveType.PrimitiveTypeName.INT32;
+        boolean longs = ints || element == PrimitiveType.PrimitiveTypeName.INT64;
+        boolean doubles = element == PrimitiveType.PrimitiveTypeName.DOUBLE;
+
+        if (c == IntArrayFormat.class && ints) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return values.toIntArray();
+                }
+            };
+        }
+        if (c == ShortArrayFormat.class && ints) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return values.toShortArray();
+                }
+            };
+        }
+        if (c == LongArrayFormat.class && longs) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return values.toLongArray();
+                }
+            };
+        }
+        if (c == LongIntervalFormat.class && longs) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    long[] vv = values.toLongArray();
+                    if (vv.length != 2) {
+                        throw new IllegalArgumentException("invalid interval (expected 2 values): " + vv.length);
+                    }
+                    return new LongInterval(vv[0], vv[1]);
+                }
+            };
+        }
+        if (c == BooleanFormat.class && element == PrimitiveType.PrimitiveTypeName.BOOLEAN) {
+            // boolean arrays have no array format: same value as written
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return values.toBooleanArray();
+                }
+            };
+        }
+        if (c == FloatArrayFormat.class && element == PrimitiveType.PrimitiveTypeName.FLOAT) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return values.toFloatArray();
+                }
+            };
+        }
+        if (!doubles) {
+            return null;
+        }
+        if (c == DoubleArrayFormat.class) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return values.toDoubleArray();
+                }
+            };
+        }
+        if (c == PointFormat.class) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return toPoint(values.toDoubleArray());
+                }
+            };
+        }
+        if (c == CircleFormat.class) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return toCircle(values.toDoubleArray());
+                }
+            };
+        }
+        if (c == PolygonFormat.class) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return toPolygon(values.toDoubleArray());
+                }
+            };
+        }
+        if (c == MultiPolygonFormat.class) {
+            final MultiPolygonFormat mpf = new MultiPolygonFormat();
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    return mpf.build(values.toDoubleArray());
+                }
+            };
+        }
+        if (c == DoubleIntervalFormat.class) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    double[] dd = values.toDoubleArray();
+                    if (dd.length != 2) {
+                        throw new IllegalArgumentException("invalid interval (expected 2 values): " + dd.length);
+                    }
+                    return new DoubleInterval(dd[0], dd[1]);
+                }
+            };
+        }
+        if (c == DoubleIntervalArrayFormat.class) {
+            return new ListDecoder() {
+                @Override
+                Object decode(ValueBuffer values) {
+                    double[] dd = values.toDoubleArray();
+                    if (dd.length % 2 != 0) {
+                        throw new IllegalArgumentException("invalid array length for array of interval: " + dd.length);
+                    }
+                    DoubleInterval[] ret = new DoubleInterval[dd.length / 2];
+                    for (int i = 0; i < dd.length; i += 2) {
+                        ret[i / 2] = new DoubleInterval(dd[i], dd[i + 1]);
+                    }
+                    return ret;
+                }
+            };
+        }
+        return null;
+    }
+
+    // declared nullValue of an integer field, null if none or not an integer
+    private static Long getNullValue(VOTableField field) {
+        if (field.nullValue != null) {
+            try {
+                return Long.valueOf(field.nullValue.trim());
+            } catch (NumberFormatException ex) {
+                log.debug("invalid nullValue for " + field.getName() + ": " + field.nullValue);
+            }
+        }
+        return null;
+    }
+
+    private static long toMillis(long v, LogicalTypeAnnotation.TimeUnit unit) {
+        switch (unit) {
+            case MICROS:
+                return Math.floorDiv(v, 1000L);
+            case NANOS:
+                return Math.floorDiv(v, 1000000L);
+            default:
+                return v;
+        }
+    }
+
+    private static Point toPoint(double[] dd) {
+        if (dd.length != 2) {
+            throw new IllegalArgumentException("invalid point (expected 2 values): " + dd.length);
+        }
+        return new Point(dd[0], dd[1]);
+    }
+
+    private static Circle toCircle(double[] dd) {
+        if (dd.length != 3) {
+            throw new IllegalArgumentException("invalid circle (expected 3 values): " + dd.length);
+        }
+        return new Circle(new Point(dd[0], dd[1]), dd[2]);
+    }
+
+    private static Polygon toPolygon(double[] dd) {
+        if (dd.length % 2 != 0) {
+            throw new IllegalArgumentException("invalid polygon (odd number of coordinate values): " + dd.length);
+        }
+        Polygon poly = new Polygon();
+        for (int i = 0; i < dd.length; i += 2) {
+            if (Double.isNaN(dd[i]) || Double.isNaN(dd[i + 1])) {
+                throw new IllegalArgumentException("invalid polygon (NaN coordinate value)");
+            }
+            poly.getVertices().add(new Point(dd[i], dd[i + 1]));
+        }
+        if (poly.getVertices().size() < 3) {
+            throw new IllegalArgumentException("invalid polygon (not enough points): " + poly.getVertices().size());
+        }
+        return poly;
+    }
+
+    // LIST columns: an empty list is a null value like the empty string for the array formats
+    private abstract static class ListDecoder extends ColumnDecoder {
+
+        abstract Object decode(ValueBuffer values);
+
+        @Override
+        public Object fromList(ValueBuffer values) {
+            if (values.size() == 0) {
+                return null;
+            }
+            return decode(values);
+        }
+    }
+
+    // fallback: parse the text form of the value
+    private static class TextDecoder extends ColumnDecoder {
+
+        private final Format<Object> format;
+        private final PrimitiveType type;
+        private final StringBuilder sb = new StringBuilder();
+
+        TextDecoder(Format<Object> format, Type parquetType) {
+            this.format = format;
+            this.type = parquetType.isPrimitive() ? parquetType.asPrimitiveType() : null;
+        }
+
+        // the format is shared by the iterators of a parallel scan and may not be thread safe
+        private Object parse(String s) {
+            synchronized (format) {
+                return format.parse(s);
+            }
+        }
+
+        @Override
+        public Object fromLong(long v) {
+            LogicalTypeAnnotation logical = type == null ? null : type.getLogicalTypeAnnotation();
+            if (logical instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) {
+                LogicalTypeAnnotation.TimeUnit unit = ((LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) logical).getUnit();
+                return parse(TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(toMillis(v, unit))));
+            }
+            return parse(Long.toString(v));
+        }
+
+        @Override
+        public Object fromInt(int v) {
+            return parse(Integer.toString(v));
+        }
+
+        @Override
+        public Object fromFloat(float v) {
+            return parse(Float.toString(v));
+        }
+
+        @Override
+        public Object fromDouble(double v) {
+            return parse(Double.toString(v));
+        }
+
+        @Override
+        public Object fromBoolean(boolean v) {
+            return parse(Boolean.toString(v));
+        }
+
+        @Override
+        public Object fromBinary(Binary v) {
+            LogicalTypeAnnotation logical = type.getLogicalTypeAnnotation();
+            if (logical instanceof LogicalTypeAnnotation.UUIDLogicalTypeAnnotation) {
+                return parse(new UUIDFormat().bytesToUUID(v.getBytes()).toString());
+            }
+            if (logical instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation) {
+                return parse(v.toStringUsingUTF8());
+            }
+            byte[] bytes = v.getBytes();
+            sb.setLength(0);
+            for (int i = 0; i < bytes.length; i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                sb.append(bytes[i]);
+            }
+            return parse(sb.toString());
+        }
+
+        @Override
+        public Object fromList(ValueBuffer values) {
+            sb.setLength(0);
+            values.appendTo(sb);
+            return parse(sb.toString());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+
+import java.util.Arrays;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.PrimitiveType;
+
+/**
+ * Values of one column for a batch of rows, in a primitive array of the physical type
+ * of the column (int[] for INT32, long[] for INT64, float[], double[], boolean[], and
+ * Binary[] for BINARY, FIXED_LEN_BYTE_ARRAY and INT96). Only the array of the column
+ * type is allocated.
+ *
+ * <p>For a scalar column the value of row i is at index i; the array holds 0 (or null)
+ * for null rows. For a list column the elements of all rows are stored one after the
+ * other and the elements of row i are at [getOffset(i), getOffset(i + 1)); null elements
+ * are NaN for floating point lists and the declared nullValue of the field for integer
+ * lists (reading fails without one). The null flag of a list row means the list itself is null.
+ */
+public class ColumnVector {
+
+    private final String name;
+    private final PrimitiveType.PrimitiveTypeName type;
+    private final boolean list;
+
+    private int size;
+    private int valueCount;
+    private boolean[] nulls;
+    private int[] offsets;
+
+    private int[] ints;
+    private long[] longs;
+    private float[] floats;
+    private double[] doubles;
+    private boolean[] booleans;
+    private Binary[] binaries;
+
+    ColumnVector(String name, PrimitiveType.PrimitiveTypeName type, boolean list, int capacity) {
+        this.name = name;
+        this.type = type;
+        this.list = list;
+        this.nulls = new boolean[capacity];
+        if (list) {
+            this.offsets = new int[capacity + 1];
+        }
+        switch (type) {
+            case INT32:
+                ints = new int[capacity];
+                break;
+            case INT64:
+                longs = new long[capacity];
+                break;
+            case FLOAT:
+                floats = new float[capacity];
+                break;
+            case DOUBLE:
+                doubles = new double[capacity];
+                break;
+            case BOOLEAN:
+                booleans = new boolean[capacity];
+                break;
+            default:
+                binaries = new Binary[capacity];
+        }
+    }
+
+    /**
+     * @return Parquet name of the column
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return physical type of the values
+     */
+    public PrimitiveType.PrimitiveTypeName getType() {
+        return type;
+    }
+
+    /**
+     * @return true if every row holds a list of values
+     */
+    public boolean isList() {
+        return list;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of values: the number of rows for a scalar column, the total
+     *     number of elements for a list column
+     */
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    public boolean isNull(int row) {
+        return nulls[row];
+    }
+
+    /**
+     * Null flags, one per row. The array may be longer than the number of rows.
+     *
+     * @return null flags
+     */
+    public boolean[] getNulls() {
+        return nulls;
+    }
+
+    /**
+     * Index of the first element of a row in the value array of a list column.
+     * getOffset(size()) is the number of values.
+     *
+     * @param row row index, 0 to size() inclusive
+     * @return value index
+     */
+    public int getOffset(int row) {
+        return offsets[row];
+    }
+
+    // direct access to the value arrays for tight loops; arrays may be longer than getValueCount()
+
+    public int[] getIntValues() {
+        return ints;
+    }
+
+    public long[] getLongValues() {
+        return longs;
+    }
+
+    public float[] getFloatValues() {
+        return floats;
+    }
+
+    public double[] getDoubleValues() {
+        return doubles;
+    }
+
+    public boolean[] getBooleanValues() {
+        return booleans;
+    }
+
+    /**
+     * Binary values are only valid until the iterator that produced the batch moves to
+     * the next row group.
+     *
+     * @return binary values
+     */
+    public Binary[] getBinaryValues() {
+        return binaries;
+    }
+
+    // filled by ParquetBatchIterator
+
+    void reset(int rows) {
+        if (nulls.length < rows) {
+            nulls = new boolean[rows];
+            if (list) {
+                offsets = new int[rows + 1];
+            }
+        } else {
+            Arrays.fill(nulls, 0, rows, false);
+        }
+        size = rows;
+        valueCount = 0;
+    }
+
+    void setNull(int row) {
+        nulls[row] = true;
+    }
+
+    void setOffset(int row) {
+        offsets[row] = valueCount;
+    }
+
+    void addNull() {
+        ensureCapacity();
+        switch (type) {
+            case INT32:
+                ints[valueCount] = 0;
+                break;
+            case INT64:
+                longs[valueCount] = 0L;
+                break;
+            case FLOAT:
+                floats[valueCount] = 0.0f;
+                break;
+            case DOUBLE:
+                doubles[valueCount] = 0.0;
+                break;
+            case BOOLEAN:
+                booleans[valueCount] = false;
+                break;
+            default:
+                binaries[valueCount] = null;
+        }
+        valueCount++;
+    }
+
+    void addInt(int v) {
+        ensureCapacity();
+        ints[valueCount++] = v;
+    }
+
+    void addLong(long v) {
+        ensureCapacity();
+        longs[valueCount++] = v;
+    }
+
+    void addFloat(float v) {
+        ensureCapacity();
+        floats[valueCount++] = v;
+    }
+
+    void addDouble(double v) {
+        ensureCapacity();
+        doubles[valueCount++] = v;
+    }
+
+    void addBoolean(boolean v) {
+        ensureCapacity();
+        booleans[valueCount++] = v;
+    }
+
+    void addBinary(Binary v) {
+        ensureCapacity();
+        binaries[valueCount++] = v;
+    }
+
+    private void ensureCapacity() {
+        int len;
+        switch (type) {
+            case INT32:
+                len = ints.length;
+                break;
+            case INT64:
+                len = longs.length;
+                break;
+            case FLOAT:
+                len = floats.length;
+                break;
+            case DOUBLE:
+                len = doubles.length;
+                break;
+            case BOOLEAN:
+                len = booleans.length;
+                break;
+            default:
+                len = binaries.length;
+        }
+        if (valueCount < len) {
+            return;
+        }
+        int n = Math.max(16, 2 * len);
+        switch (type) {
+            case INT32:
+                ints = Arrays.copyOf(ints, n);
+                break;
+            case INT64:
+                longs = Arrays.copyOf(longs, n);
+                break;
+            case FLOAT:
+                floats = Arrays.copyOf(floats, n);
+                break;
+            case DOUBLE:
+                doubles = Arrays.copyOf(doubles, n);
+                break;
+            case BOOLEAN:
+                booleans = Arrays.copyOf(booleans, n);
+                break;
+            default:
+                binaries = Arrays.copyOf(binaries, n);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+
+import ca.nrc.cadc.io.ResourceIterator;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * Row iterator that decodes the row groups of a Parquet file on a pool of threads and
+ * returns the rows in file order. Up to two row groups per thread are decoded ahead of the
+ * consumer, so memory use grows with the row group size times the number of threads.
+ * Each row group is read through its own view of the table data source.
+ */
+public class ParallelRowIterator implements ResourceIterator<List<Object>> {
+    private static final Logger log = Logger.getLogger(ParallelRowIterator.class);
+
+    private final ParquetTableData tableData;
+    private final int numRowGroups;
+    private final int readAhead;
+    private final ExecutorService pool;
+    private final Deque<Future<List<List<Object>>>> pending = new ArrayDeque<>();
+    private int nextRowGroup;
+    private Iterator<List<Object>> current;
+
+    ParallelRowIterator(ParquetTableData tableData, int numRowGroups, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("invalid threads: " + threads);
+        }
+        this.tableData = tableData;
+        this.numRowGroups = numRowGroups;
+        this.readAhead = 2 * threads;
+        this.pool = Executors.newFixedThreadPool(threads, new DecoderThreadFactory());
+        submit();
+    }
+
+    private void submit() {
+        while (pending.size() < readAhead && nextRowGroup < numRowGroups) {
+            final int rowGroup = nextRowGroup++;
+            pending.add(pool.submit(() -> decode(rowGroup)));
+        }
+        if (nextRowGroup >= numRowGroups) {
+            // all row groups submitted: the threads exit when they are decoded
+            pool.shutdown();
+        }
+    }
+
+    private List<List<Object>> decode(int rowGroup) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (ParquetRowIterator iter = tableData.rowIterator(rowGroup, rowGroup + 1)) {
+            while (iter.hasNext()) {
+                rows.add(iter.next());
+            }
+        }
+        log.debug("row group " + rowGroup + ": " + rows.size() + " rows");
+        return rows;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ((current == null || !current.hasNext()) && !pending.isEmpty()) {
+            current = take(pending.remove()).iterator();
+            submit();
+        }
+        return current != null && current.hasNext();
+    }
+
+    private List<List<Object>> take(Future<List<List<Object>>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while reading row groups", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Failed to read row group", cause);
+        }
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Stop decoding row groups and discard the rows that were read ahead.
+     */
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        pending.clear();
+        current = null;
+        nextRowGroup = numRowGroups;
+    }
+
+    private static class DecoderThreadFactory implements ThreadFactory {
+
+        private final String prefix = "ParallelRowIterator-" + Thread.currentThread().getName() + "-";
+        private final AtomicInteger num = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + num.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,539 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+
+import ca.nrc.cadc.dali.tables.parquet.ColumnPredicate;
+import ca.nrc.cadc.dali.tables.parquet.ParquetWriter;
+import ca.nrc.cadc.dali.tables.parquet.io.RandomSeekableInputFile;
+import ca.nrc.cadc.dali.tables.votable.VOTableField;
+import ca.nrc.cadc.io.RandomAccessSource;
+import ca.nrc.cadc.io.ResourceIterator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.log4j.Logger;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReadStore;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+/**
+ * Iterator for reading a Parquet file in column batches. Values are read with the column
+ * readers of each row group straight into the primitive arrays of a ColumnVector, without
+ * assembling records. A batch never spans row groups, so it holds up to batchSize rows.
+ *
+ * <p>Only the column chunks of the requested fields and of the predicate columns are
+ * read. Row groups where the footer statistics or the bloom filters show that a predicate
+ * cannot match are skipped; in the other row groups, rows that do not match are left
+ * unselected in the batch. When the file declares that it is sorted by a predicate column,
+ * the scan stops at the first row group past the predicate range.
+ *
+ * <p>The same ColumnBatch instance is refilled by every call to next(): callers must be
+ * done with a batch (or copy what they need) before asking for the next one.
+ */
+public class ParquetBatchIterator implements ResourceIterator<ColumnBatch> {
+    private static final Logger log = Logger.getLogger(ParquetBatchIterator.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+
+    private final ParquetFileReader reader;
+    private final RandomAccessSource inputSource;
+    private final MessageType requestedSchema;
+    private final GroupConverter skipConverter;
+    private final String createdBy;
+    private final int batchSize;
+    private final ColumnSource[] sources;
+    private final ColumnVector[] vectors;
+    private final ColumnBatch batch;
+    private final List<ColumnPredicate> predicates;
+    private final int[] predicateColumn;
+    private final boolean[] selected;
+    private final List<BlockMetaData> rowGroups;
+    private final int sortPredicate;
+    private final int firstRowGroup;
+    private final int endRowGroup;
+    private int rowGroupIndex;
+    private long rowsLeftInGroup;
+    private boolean done;
+
+    /**
+     * @param schema Parquet schema of the file
+     * @param fields table fields to read, matched to Parquet columns by name
+     * @param inputSource Parquet file content, closed with the iterator
+     * @param batchSize maximum number of rows per batch
+     * @throws IOException if the file cannot be opened
+     */
+    public ParquetBatchIterator(MessageType schema, List<VOTableField> fields, RandomAccessSource inputSource, int batchSize)
+            throws IOException {
+        this(schema, fields, null, inputSource, batchSize);
+    }
+
+    /**
+     * @param schema Parquet schema of the file
+     * @param fields table fields to read, matched to Parquet columns by name
+     * @param predicates conditions on scalar columns that selected rows match (all of them), may be null
+     * @param inputSource Parquet file content, closed with the iterator
+     * @param batchSize maximum number of rows per batch
+     * @throws IOException if the file cannot be opened
+     */
+    public ParquetBatchIterator(MessageType schema, List<VOTableField> fields, List<ColumnPredicate> predicates,
+            RandomAccessSource inputSource, int batchSize) throws IOException {
+        this(schema, fields, predicates, inputSource, null, batchSize, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Iterate over a range of row groups, for scans that split the file by row group.
+     *
+     * @param footer footer of the file, null to read it from the content
+     * @param firstRowGroup index of the first row group to read
+     * @param endRowGroup index after the last row group to read
+     */
+    ParquetBatchIterator(MessageType schema, List<VOTableField> fields, List<ColumnPredicate> predicates,
+            RandomAccessSource inputSource, ParquetMetadata footer, int batchSize, int firstRowGroup, int endRowGroup)
+            throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("invalid batchSize: " + batchSize);
+        }
+        this.inputSource = inputSource;
+        this.batchSize = batchSize;
+        this.predicates = predicates == null ? new ArrayList<>() : predicates;
+
+        // output columns first, then columns only used by predicates
+        List<String> names = new ArrayList<>();
+        for (VOTableField f : fields) {
+            names.add(toColumnName(f.getName()));
+        }
+        this.predicateColumn = new int[this.predicates.size()];
+        for (int i = 0; i < predicateColumn.length; i++) {
+            String name = toColumnName(this.predicates.get(i).getColumn());
+            if (!schema.containsField(name)) {
+                throw new IllegalArgumentException("predicate column not found: " + this.predicates.get(i).getColumn());
+            }
+            if (!schema.getType(name).isPrimitive()) {
+                throw new IllegalArgumentException("predicate on array column: " + this.predicates.get(i).getColumn());
+            }
+            int idx = names.indexOf(name);
+            if (idx < 0) {
+                idx = names.size();
+                names.add(name);
+            }
+            predicateColumn[i] = idx;
+        }
+
+        List<Type> requested = new ArrayList<>();
+        for (Type t : schema.getFields()) {
+            if (names.contains(t.getName())) {
+                requested.add(t);
+            }
+        }
+        this.requestedSchema = new MessageType(schema.getName(), requested);
+        this.skipConverter = new SkipGroupConverter(requestedSchema);
+
+        this.sources = new ColumnSource[names.size()];
+        this.vectors = new ColumnVector[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            Type type = schema.getType(name);
+            ColumnDescriptor desc = findColumn(requestedSchema, name);
+            boolean list = !type.isPrimitive();
+            // optional list group adds a definition level for the list itself
+            int listDef = list && type.isRepetition(Type.Repetition.OPTIONAL) ? 1 : 0;
+            // predicate columns are never lists: only output columns have null elements
+            String nullValue = i < fields.size() ? fields.get(i).nullValue : null;
+            sources[i] = new ColumnSource(desc, listDef, nullValue);
+            vectors[i] = new ColumnVector(name, desc.getPrimitiveType().getPrimitiveTypeName(), list, batchSize);
+        }
+        for (int i = 0; i < predicateColumn.length; i++) {
+            this.predicates.get(i).checkType(vectors[predicateColumn[i]].getType());
+        }
+        this.batch = new ColumnBatch(Arrays.copyOf(vectors, fields.size()));
+        this.selected = predicateColumn.length > 0 ? new boolean[batchSize] : null;
+
+        RandomSeekableInputFile inputFile = new RandomSeekableInputFile(inputSource);
+        if (footer == null) {
+            this.reader = ParquetFileReader.open(inputFile);
+        } else {
+            // footer already parsed: only the column chunks are read
+            this.reader = new ParquetFileReader(inputFile, footer, ParquetReadOptions.builder().build(), inputFile.newStream());
+        }
+        reader.setRequestedSchema(requestedSchema);
+        this.createdBy = reader.getFooter().getFileMetaData().getCreatedBy();
+        this.rowGroups = reader.getRowGroups();
+        this.firstRowGroup = firstRowGroup;
+        this.endRowGroup = Math.min(endRowGroup, rowGroups.size());
+
+        // predicate on the primary sort column, if any
+        String sortColumns = reader.getFooter().getFileMetaData().getKeyValueMetaData().get(ParquetWriter.SORT_COLUMNS_KEY);
+        int sortPredicate = -1;
+        if (sortColumns != null && !sortColumns.isEmpty()) {
+            String primary = sortColumns.split(",")[0];
+            for (int i = 0; i < predicateColumn.length && sortPredicate < 0; i++) {
+                if (vectors[predicateColumn[i]].getName().equals(primary)) {
+                    sortPredicate = i;
+                }
+            }
+        }
+        this.sortPredicate = sortPredicate;
+    }
+
+    private static String toColumnName(String fieldName) {
+        return fieldName.replaceAll("\"", "_");
+    }
+
+    private static ColumnDescriptor findColumn(MessageType schema, String name) {
+        for (ColumnDescriptor cd : schema.getColumns()) {
+            if (cd.getPath()[0].equals(name)) {
+                return cd;
+            }
+        }
+        throw new IllegalArgumentException("column not found in Parquet schema: " + name);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (rowsLeftInGroup == 0 && !done) {
+            advanceRowGroup();
+        }
+        return rowsLeftInGroup > 0;
+    }
+
+    @Override
+    public ColumnBatch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int rows = (int) Math.min(batchSize, rowsLeftInGroup);
+        for (int i = 0; i < sources.length; i++) {
+            sources[i].read(vectors[i], rows);
+        }
+        batch.setSize(rows);
+        if (selected != null) {
+            int count = 0;
+            for (int r = 0; r < rows; r++) {
+                boolean match = true;
+                for (int p = 0; p < predicateColumn.length && match; p++) {
+                    match = predicates.get(p).matches(vectors[predicateColumn[p]], r);
+                }
+                selected[r] = match;
+                if (match) {
+                    count++;
+                }
+            }
+            batch.setSelection(selected, count);
+        }
+        rowsLeftInGroup -= rows;
+        return batch;
+    }
+
+    private void advanceRowGroup() {
+        try {
+            while (rowGroupIndex < firstRowGroup && rowGroupIndex < endRowGroup) {
+                reader.skipNextRowGroup();
+                rowGroupIndex++;
+            }
+            while (rowGroupIndex < endRowGroup && !mayMatch(rowGroups.get(rowGroupIndex))) {
+                log.debug("skip row group " + rowGroupIndex);
+                if (sortPredicate >= 0 && isPast(rowGroups.get(rowGroupIndex))) {
+                    log.debug("row group " + rowGroupIndex + " is past the range of the sort column: done");
+                    done = true;
+                    return;
+                }
+                reader.skipNextRowGroup();
+                rowGroupIndex++;
+            }
+            if (rowGroupIndex >= endRowGroup) {
+                done = true;
+                return;
+            }
+            PageReadStore rowGroup = reader.readNextRowGroup();
+            if (rowGroup == null) {
+                done = true;
+                return;
+            }
+            rowGroupIndex++;
+            rowsLeftInGroup = rowGroup.getRowCount();
+            log.debug("row group: " + rowsLeftInGroup + " rows");
+            ColumnReadStore store = new ColumnReadStoreImpl(rowGroup, skipConverter, requestedSchema, createdBy);
+            for (ColumnSource s : sources) {
+                s.init(store);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read next row group", e);
+        }
+    }
+
+    // false if the statistics or bloom filters of the row group show that a predicate cannot match
+    private boolean mayMatch(BlockMetaData rowGroup) throws IOException {
+        for (int p = 0; p < predicateColumn.length; p++) {
+            ColumnChunkMetaData chunk = findChunk(rowGroup, p);
+            if (!predicates.get(p).mayMatch(chunk)) {
+                return false;
+            }
+        }
+        // bloom filters cost a read, so only check them when the statistics pass
+        for (int p = 0; p < predicateColumn.length; p++) {
+            ColumnChunkMetaData chunk = findChunk(rowGroup, p);
+            if (chunk != null && chunk.getBloomFilterOffset() >= 0) {
+                BloomFilter bloomFilter = reader.readBloomFilter(chunk);
+                if (bloomFilter != null && !predicates.get(p).mayMatch(bloomFilter, vectors[predicateColumn[p]].getType())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isPast(BlockMetaData rowGroup) {
+        ColumnChunkMetaData chunk = findChunk(rowGroup, sortPredicate);
+        return chunk != null && predicates.get(sortPredicate).isPast(chunk.getStatistics());
+    }
+
+    private ColumnChunkMetaData findChunk(BlockMetaData rowGroup, int predicate) {
+        String[] path = sources[predicateColumn[predicate]].desc.getPath();
+        for (ColumnChunkMetaData chunk : rowGroup.getColumns()) {
+            if (Arrays.equals(path, chunk.getPath().toArray())) {
+                return chunk;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+        inputSource.close();
+    }
+
+    // reads the values of one column in the current row group
+    private static class ColumnSource {
+        private final ColumnDescriptor desc;
+        private final int maxDef;
+        private final int listDef;
+        private final boolean list;
+        // value of a null element in an integer list: the declared nullValue of the field
+        private final Long elementNullValue;
+        private ColumnReader reader;
+        private long valuesLeft;
+
+        ColumnSource(ColumnDescriptor desc, int listDef, String nullValue) {
+            this.desc = desc;
+            this.maxDef = desc.getMaxDefinitionLevel();
+            this.listDef = listDef;
+            this.list = desc.getMaxRepetitionLevel() > 0;
+            Long nv = null;
+            if (nullValue != null) {
+                try {
+                    nv = Long.valueOf(nullValue.trim());
+                } catch (NumberFormatException ex) {
+                    log.debug("invalid nullValue for " + String.join(".", desc.getPath()) + ": " + nullValue);
+                }
+            }
+            this.elementNullValue = nv;
+        }
+
+        void init(ColumnReadStore store) {
+            this.reader = store.getColumnReader(desc);
+            this.valuesLeft = reader.getTotalValueCount();
+        }
+
+        void read(ColumnVector vec, int rows) {
+            vec.reset(rows);
+            if (list) {
+                for (int r = 0; r < rows; r++) {
+                    vec.setOffset(r);
+                    if (reader.getCurrentDefinitionLevel() < listDef) {
+                        vec.setNull(r);
+                    }
+                    // all entries up to the start of the next record; empty and null lists have one entry without value
+                    do {
+                        int def = reader.getCurrentDefinitionLevel();
+                        if (def == maxDef) {
+                            addValue(vec);
+                        } else if (def > listDef) {
+                            // list entry without value: null element
+                            addNullElement(vec);
+                        }
+                        reader.consume();
+                        valuesLeft--;
+                    } while (valuesLeft > 0 && reader.getCurrentRepetitionLevel() > 0);
+                }
+                vec.setOffset(rows);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    if (reader.getCurrentDefinitionLevel() == maxDef) {
+                        addValue(vec);
+                    } else {
+                        vec.setNull(r);
+                        vec.addNull();
+                    }
+                    reader.consume();
+                    valuesLeft--;
+                }
+            }
+        }
+
+        // keep the position of a null element: NaN for floating point, the declared nullValue for integers
+        private void addNullElement(ColumnVector vec) {
+            switch (vec.getType()) {
+                case FLOAT:
+                    vec.addFloat(Float.NaN);
+                    return;
+                case DOUBLE:
+                    vec.addDouble(Double.NaN);
+                    return;
+                case INT32:
+                    if (elementNullValue != null
+                            && elementNullValue >= Integer.MIN_VALUE && elementNullValue <= Integer.MAX_VALUE) {
+                        vec.addInt(elementNullValue.intValue());
+                        return;
+                    }
+                    break;
+                case INT64:
+                    if (elementNullValue != null) {
+                        vec.addLong(elementNullValue);
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            throw new IllegalArgumentException("null element in array column " + vec.getName()
+                    + ": no nullValue declared for " + vec.getType());
+        }
+
+        private void addValue(ColumnVector vec) {
+            switch (vec.getType()) {
+                case INT32:
+                    vec.addInt(reader.getInteger());
+                    break;
+                case INT64:
+                    vec.addLong(reader.getLong());
+                    break;
+                case FLOAT:
+                    vec.addFloat(reader.getFloat());
+                    break;
+                case DOUBLE:
+                    vec.addDouble(reader.getDouble());
+                    break;
+                case BOOLEAN:
+                    vec.addBoolean(reader.getBoolean());
+                    break;
+                default:
+                    vec.addBinary(reader.getBinary());
+            }
+        }
+    }
+
+    // the column readers need a converter for every column; values are never pushed to it
+    private static class SkipGroupConverter extends GroupConverter {
+        private final Converter[] converters;
+
+        SkipGroupConverter(GroupType type) {
+            this.converters = new Converter[type.getFieldCount()];
+            for (int i = 0; i < converters.length; i++) {
+                Type t = type.getType(i);
+                if (t.isPrimitive()) {
+                    converters[i] = new PrimitiveConverter() {
+                    };
+                } else {
+                    converters[i] = new SkipGroupConverter(t.asGroupType());
+                }
+            }
+        }
+
+        @Override
+        public Converter getConverter(int fieldIndex) {
+            return converters[fieldIndex];
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+}
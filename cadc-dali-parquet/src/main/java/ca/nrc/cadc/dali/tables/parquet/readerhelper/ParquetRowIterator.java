@@ -69,84 +69,82 @@
 
 package ca.nrc.cadc.dali.tables.parquet.readerhelper;
 
-import ca.nrc.cadc.dali.tables.parquet.io.RandomSeekableInputFile;
+import ca.nrc.cadc.dali.tables.parquet.ColumnPredicate;
 import ca.nrc.cadc.dali.tables.votable.VOTableField;
 import ca.nrc.cadc.dali.util.Format;
 import ca.nrc.cadc.io.RandomAccessSource;
 import ca.nrc.cadc.io.ResourceIterator;
 import java.io.IOException;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
-import org.apache.parquet.column.page.PageReadStore;
-import org.apache.parquet.hadoop.ParquetFileReader;
-import org.apache.parquet.io.ColumnIOFactory;
-import org.apache.parquet.io.MessageColumnIO;
-import org.apache.parquet.io.RecordReader;
-import org.apache.parquet.io.api.RecordMaterializer;
-import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.Type;
 
 /**
  * Iterator for reading rows from a Parquet file as lists of objects,
- * mapping Parquet columns to VOTable fields.
+ * mapping Parquet columns to VOTable fields. Rows are taken from the column batches of a
+ * ParquetBatchIterator and each value is decoded straight into the object of the field
+ * format (see ColumnDecoder).
  */
 public class ParquetRowIterator implements ResourceIterator<List<Object>> {
-    private final ParquetFileReader reader;
-    private final RandomAccessSource inputSource;
-    private final MessageType schema;
-    private final List<VOTableField> fields;
-    private final List<Format<Object>> formatters;
-    private PageReadStore currentRowGroup;
-    private RecordReader<DynamicRow> recordReader;
-    private long rowsInGroup;
-    private long rowIndex;
+    private final ParquetBatchIterator batches;
+    private final ColumnDecoder[] decoders;
+    private final ValueBuffer[] listValues;
+    private ColumnBatch batch;
+    private int rowIndex;
 
     public ParquetRowIterator(MessageType schema, List<VOTableField> fields, List<Format<Object>> formatters, RandomAccessSource inputSource) 
             throws IOException {
-        this.inputSource = inputSource;
-        this.reader = ParquetFileReader.open(new RandomSeekableInputFile(inputSource));
-        this.schema = schema;
-        this.fields = fields;
-        this.formatters = formatters;
-        this.currentRowGroup = null;
-        this.recordReader = null;
-        this.rowsInGroup = 0;
-        this.rowIndex = 0;
-        
-        advanceRowGroup();
+        this(schema, fields, formatters, null, inputSource);
     }
 
-    private void advanceRowGroup() {
-        try {
-            currentRowGroup = reader.readNextRowGroup();
-            if (currentRowGroup != null) {
-                rowsInGroup = currentRowGroup.getRowCount();
-                rowIndex = 0;
-                recordReader = createRecordReader(currentRowGroup, schema);
-            } else {
-                rowsInGroup = 0;
-                recordReader = null;
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to read next row group", e);
+    /**
+     * @param schema Parquet schema of the file
+     * @param fields table fields to read
+     * @param formatters format of each field
+     * @param predicates conditions the returned rows match (all of them), may be null
+     * @param inputSource Parquet file content, closed with the iterator
+     * @throws IOException if the file cannot be opened
+     */
+    public ParquetRowIterator(MessageType schema, List<VOTableField> fields, List<Format<Object>> formatters,
+            List<ColumnPredicate> predicates, RandomAccessSource inputSource) throws IOException {
+        this(schema, fields, formatters, predicates, inputSource, null, 0, Integer.MAX_VALUE);
+    }
+
+    // rows of the row groups from firstRowGroup up to (not including) endRowGroup; footer may be null
+    ParquetRowIterator(MessageType schema, List<VOTableField> fields, List<Format<Object>> formatters,
+            List<ColumnPredicate> predicates, RandomAccessSource inputSource, ParquetMetadata footer,
+            int firstRowGroup, int endRowGroup) throws IOException {
+        this.decoders = new ColumnDecoder[fields.size()];
+        this.listValues = new ValueBuffer[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            VOTableField field = fields.get(i);
+            Type type = schema.getType(field.getName().replaceAll("\"", "_"));
+            decoders[i] = ColumnDecoder.create(field, formatters.get(i), type);
         }
+        this.batches = new ParquetBatchIterator(schema, fields, predicates, inputSource, footer,
+                ParquetBatchIterator.DEFAULT_BATCH_SIZE, firstRowGroup, endRowGroup);
     }
 
     @Override
     public boolean hasNext() {
-        if (recordReader == null) {
-            return false;
-        }
-        if (rowIndex < rowsInGroup) {
-            return true;
+        while (true) {
+            if (batch != null) {
+                while (rowIndex < batch.size() && !batch.isSelected(rowIndex)) {
+                    rowIndex++;
+                }
+                if (rowIndex < batch.size()) {
+                    return true;
+                }
+            }
+            if (!batches.hasNext()) {
+                return false;
+            }
+            batch = batches.next();
+            rowIndex = 0;
         }
-        advanceRowGroup();
-        return recordReader != null && rowIndex < rowsInGroup;
     }
 
     @Override
@@ -154,48 +152,78 @@ public class ParquetRowIterator implements ResourceIterator<List<Object>> {
         if (!hasNext()) {
             throw new NoSuchElementException();
         }
-        rowIndex++;
-
-        DynamicRow dynamicRow = recordReader.read();
-        List<Object> row = new ArrayList<>();
-
-        for (int i = 0; i < fields.size(); i++) {
-            final VOTableField field = fields.get(i);
-            final Format<Object> fmt = formatters.get(i);
-            String fieldName = field.getName();
-            Type parquetField = schema.getType(fieldName);
-            Object valueObj = dynamicRow.get(fieldName);
-            String value;
-
-            if (valueObj == null) {
-                value = null;
-            } else if (parquetField.isPrimitive()
-                    && parquetField.asPrimitiveType().getLogicalTypeAnnotation() instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) {
-                if (valueObj instanceof Long) {
-                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS")
-                            .withZone(ZoneId.of("UTC"));
-                    value = formatter.format(Instant.ofEpochMilli((long) valueObj));
-                } else {
-                    value = valueObj.toString();
-                }
-            } else {
-                value = valueObj.toString().replaceAll("[\\[\\],]", "");
-            }
-
-            row.add(fmt.parse(value));
+        List<Object> row = new ArrayList<>(decoders.length);
+        for (int i = 0; i < decoders.length; i++) {
+            row.add(decode(i, batch.getColumn(i), rowIndex));
         }
+        rowIndex++;
         return row;
     }
 
-    private RecordReader<DynamicRow> createRecordReader(PageReadStore rowGroup, MessageType schema) {
-        MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(schema);
-        RecordMaterializer<DynamicRow> materializer = new DynamicRowMaterializer(schema);
-        return columnIO.getRecordReader(rowGroup, materializer);
+    private Object decode(int col, ColumnVector vec, int r) {
+        if (vec.isNull(r)) {
+            return null;
+        }
+        ColumnDecoder decoder = decoders[col];
+        if (vec.isList()) {
+            ValueBuffer values = listValues[col];
+            if (values == null) {
+                values = new ValueBuffer(vec.getType());
+                listValues[col] = values;
+            }
+            values.clear();
+            int end = vec.getOffset(r + 1);
+            switch (vec.getType()) {
+                case INT32:
+                    for (int i = vec.getOffset(r); i < end; i++) {
+                        values.addInt(vec.getIntValues()[i]);
+                    }
+                    break;
+                case INT64:
+                    for (int i = vec.getOffset(r); i < end; i++) {
+                        values.addLong(vec.getLongValues()[i]);
+                    }
+                    break;
+                case FLOAT:
+                    for (int i = vec.getOffset(r); i < end; i++) {
+                        values.addFloat(vec.getFloatValues()[i]);
+                    }
+                    break;
+                case DOUBLE:
+                    for (int i = vec.getOffset(r); i < end; i++) {
+                        values.addDouble(vec.getDoubleValues()[i]);
+                    }
+                    break;
+                case BOOLEAN:
+                    for (int i = vec.getOffset(r); i < end; i++) {
+                        values.addBoolean(vec.getBooleanValues()[i]);
+                    }
+                    break;
+                default:
+                    for (int i = vec.getOffset(r); i < end; i++) {
+                        values.addBinary(vec.getBinaryValues()[i]);
+                    }
+            }
+            return decoder.fromList(values);
+        }
+        switch (vec.getType()) {
+            case INT32:
+                return decoder.fromInt(vec.getIntValues()[r]);
+            case INT64:
+                return decoder.fromLong(vec.getLongValues()[r]);
+            case FLOAT:
+                return decoder.fromFloat(vec.getFloatValues()[r]);
+            case DOUBLE:
+                return decoder.fromDouble(vec.getDoubleValues()[r]);
+            case BOOLEAN:
+                return decoder.fromBoolean(vec.getBooleanValues()[r]);
+            default:
+                return decoder.fromBinary(vec.getBinaryValues()[r]);
+        }
     }
 
     @Override
     public void close() throws IOException {
-        reader.close();
-        inputSource.close();
+        batches.close();
     }
 }
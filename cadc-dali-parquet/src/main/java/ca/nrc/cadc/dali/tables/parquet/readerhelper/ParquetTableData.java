@@ -70,6 +70,9 @@
 package ca.nrc.cadc.dali.tables.parquet.readerhelper;
 
 import ca.nrc.cadc.dali.tables.TableData;
+import ca.nrc.cadc.dali.tables.parquet.ColumnPredicate;
+import ca.nrc.cadc.dali.tables.parquet.io.RandomAccessSourceView;
+import ca.nrc.cadc.dali.tables.parquet.io.RandomSeekableInputFile;
 import ca.nrc.cadc.dali.tables.votable.VOTableField;
 import ca.nrc.cadc.dali.util.Format;
 import ca.nrc.cadc.io.RandomAccessSource;
@@ -77,6 +80,12 @@ import ca.nrc.cadc.io.ResourceIterator;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.schema.MessageType;
 
 public class ParquetTableData implements TableData {
@@ -84,14 +93,45 @@ public class ParquetTableData implements TableData {
     private final MessageType schema;
     private final List<VOTableField> fields;
     private final List<Format<Object>> formatters;
+    private final List<ColumnPredicate> predicates;
     private final RandomAccessSource inputSource;
+    private final ParquetMetadata footer;
+    private final Set<ResourceIterator<List<Object>>> openIterators = ConcurrentHashMap.newKeySet();
     private File cacheFile;
+    private long[] rowGroupRowCounts;
 
     public ParquetTableData(MessageType schema, List<VOTableField> fields, List<Format<Object>> formatters, RandomAccessSource inputSource) {
+        this(schema, fields, formatters, null, inputSource, null);
+    }
+
+    /**
+     * @param schema Parquet schema of the file
+     * @param fields table fields, a subset of the Parquet columns
+     * @param formatters format of each field
+     * @param predicates conditions on the rows of the table (all of them), may be null
+     * @param inputSource Parquet file content, closed with the table data
+     */
+    public ParquetTableData(MessageType schema, List<VOTableField> fields, List<Format<Object>> formatters,
+            List<ColumnPredicate> predicates, RandomAccessSource inputSource) {
+        this(schema, fields, formatters, predicates, inputSource, null);
+    }
+
+    /**
+     * @param schema Parquet schema of the file
+     * @param fields table fields, a subset of the Parquet columns
+     * @param formatters format of each field
+     * @param predicates conditions on the rows of the table (all of them), may be null
+     * @param inputSource Parquet file content, closed with the table data
+     * @param footer footer of the content, so that scans do not read it again; null to read it for each scan
+     */
+    public ParquetTableData(MessageType schema, List<VOTableField> fields, List<Format<Object>> formatters,
+            List<ColumnPredicate> predicates, RandomAccessSource inputSource, ParquetMetadata footer) {
         this.schema = schema;
         this.fields = fields;
         this.formatters = formatters;
+        this.predicates = predicates;
         this.inputSource = inputSource;
+        this.footer = footer;
     }
 
     public void registerCacheFile(File cacheFile) {
@@ -100,11 +140,103 @@ public class ParquetTableData implements TableData {
 
     @Override
     public ResourceIterator<List<Object>> iterator() throws IOException {
-        return new ParquetRowIterator(schema, fields, formatters, inputSource);
+        return new ParquetRowIterator(schema, fields, formatters, predicates, new RandomAccessSourceView(inputSource), footer,
+                0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Iterate over the table in column batches of up to ParquetBatchIterator.DEFAULT_BATCH_SIZE rows.
+     *
+     * @return batch iterator
+     * @throws IOException if the Parquet content cannot be opened
+     */
+    public ResourceIterator<ColumnBatch> batchIterator() throws IOException {
+        return batchIterator(ParquetBatchIterator.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Iterate over the table in column batches, with one ColumnVector per field. The
+     * returned batch instance is reused by the iterator. Rows that do not match the
+     * predicates are not selected in the batch.
+     *
+     * @param batchSize maximum number of rows per batch
+     * @return batch iterator
+     * @throws IOException if the Parquet content cannot be opened
+     */
+    public ResourceIterator<ColumnBatch> batchIterator(int batchSize) throws IOException {
+        return new ParquetBatchIterator(schema, fields, predicates, new RandomAccessSourceView(inputSource), footer, batchSize,
+                0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Iterate over the rows with the row groups decoded in parallel. The rows are returned
+     * in file order; the iterator must be closed to stop the decoding threads when the
+     * caller stops early.
+     *
+     * @param threads number of decoding threads
+     * @return row iterator
+     * @throws IOException if the Parquet footer cannot be read
+     */
+    public ResourceIterator<List<Object>> parallelIterator(int threads) throws IOException {
+        return new ParallelRowIterator(this, getRowGroupRowCounts().length, threads);
+    }
+
+    /**
+     * Split the rows by row group, for use with a parallel stream:
+     * {@code StreamSupport.stream(tableData.spliterator(), true)}. Each split reads its
+     * row groups through its own view of the Parquet content. Splits that a short-circuiting
+     * stream leaves open are closed with the table data.
+     *
+     * @return spliterator over all rows
+     * @throws IOException if the Parquet footer cannot be read
+     */
+    public Spliterator<List<Object>> spliterator() throws IOException {
+        long[] rowCounts = getRowGroupRowCounts();
+        return new RowGroupSpliterator(this, rowCounts, 0, rowCounts.length);
+    }
+
+    // iterators of the splits of a stream that may stop before their last row
+    void register(ResourceIterator<List<Object>> iter) {
+        openIterators.add(iter);
+    }
+
+    void unregister(ResourceIterator<List<Object>> iter) {
+        openIterators.remove(iter);
+    }
+
+    // rows of a range of row groups, read through a separate view of the content
+    ParquetRowIterator rowIterator(int firstRowGroup, int endRowGroup) throws IOException {
+        return new ParquetRowIterator(schema, fields, formatters, predicates, new RandomAccessSourceView(inputSource), footer,
+                firstRowGroup, endRowGroup);
+    }
+
+    private synchronized long[] getRowGroupRowCounts() throws IOException {
+        if (rowGroupRowCounts == null) {
+            List<BlockMetaData> rowGroups;
+            if (footer != null) {
+                rowGroups = footer.getBlocks();
+            } else {
+                try (ParquetFileReader reader = ParquetFileReader.open(new RandomSeekableInputFile(new RandomAccessSourceView(inputSource)))) {
+                    rowGroups = reader.getRowGroups();
+                }
+            }
+            long[] counts = new long[rowGroups.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = rowGroups.get(i).getRowCount();
+            }
+            rowGroupRowCounts = counts;
+        }
+        return rowGroupRowCounts;
     }
 
     @Override
     public void close() throws IOException {
+        // iterators read through views: the content is closed here only
+        for (ResourceIterator<List<Object>> iter : openIterators) {
+            iter.close();
+        }
+        openIterators.clear();
+        inputSource.close();
         if (cacheFile != null && cacheFile.exists()) {
             String fileName = cacheFile.getName();
             try {
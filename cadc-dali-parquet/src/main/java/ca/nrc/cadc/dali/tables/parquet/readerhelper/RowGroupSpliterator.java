@@ -0,0 +1,149 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the rows of a range of row groups of a Parquet file. It splits by row
+ * group, so a parallel stream decodes different row groups on different threads, each
+ * through its own view of the table data source.
+ *
+ * <p>The row group of a split is opened on the first call to tryAdvance and closed when
+ * its last row has been returned. A stream that stops early (findFirst, limit, anyMatch)
+ * leaves the split open until the table data is closed.
+ */
+public class RowGroupSpliterator implements Spliterator<List<Object>> {
+
+    private final ParquetTableData tableData;
+    private final long[] rowCounts;
+    private int firstRowGroup;
+    private final int endRowGroup;
+    private ParquetRowIterator iter;
+
+    RowGroupSpliterator(ParquetTableData tableData, long[] rowCounts, int firstRowGroup, int endRowGroup) {
+        this.tableData = tableData;
+        this.rowCounts = rowCounts;
+        this.firstRowGroup = firstRowGroup;
+        this.endRowGroup = endRowGroup;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super List<Object>> action) {
+        try {
+            if (iter == null) {
+                if (firstRowGroup >= endRowGroup) {
+                    return false;
+                }
+                iter = tableData.rowIterator(firstRowGroup, endRowGroup);
+                tableData.register(iter);
+            }
+            if (iter.hasNext()) {
+                action.accept(iter.next());
+                return true;
+            }
+            tableData.unregister(iter);
+            iter.close();
+            firstRowGroup = endRowGroup;
+            return false;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read row groups " + firstRowGroup + "-" + endRowGroup, e);
+        }
+    }
+
+    @Override
+    public Spliterator<List<Object>> trySplit() {
+        if (iter != null || endRowGroup - firstRowGroup < 2) {
+            return null;
+        }
+        int mid = firstRowGroup + (endRowGroup - firstRowGroup) / 2;
+        Spliterator<List<Object>> prefix = new RowGroupSpliterator(tableData, rowCounts, firstRowGroup, mid);
+        firstRowGroup = mid;
+        return prefix;
+    }
+
+    // number of rows before predicates are applied
+    @Override
+    public long estimateSize() {
+        long n = 0;
+        for (int i = firstRowGroup; i < endRowGroup; i++) {
+            n += rowCounts[i];
+        }
+        return n;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
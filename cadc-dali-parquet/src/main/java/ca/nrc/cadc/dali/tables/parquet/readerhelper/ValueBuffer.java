@@ -0,0 +1,233 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+
+import java.util.Arrays;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.PrimitiveType;
+
+/**
+ * Growable buffer for the elements of one LIST value. Elements are kept in a primitive array
+ * of the Parquet element type and copied to an array of the final size at the end of the list.
+ */
+public class ValueBuffer {
+
+    private final PrimitiveType.PrimitiveTypeName type;
+
+    private int[] ints;
+    private long[] longs;
+    private float[] floats;
+    private double[] doubles;
+    private boolean[] booleans;
+    private String[] strings;
+    private int size;
+
+    public ValueBuffer(PrimitiveType.PrimitiveTypeName type) {
+        this.type = type;
+        switch (type) {
+            case INT32:
+                ints = new int[16];
+                break;
+            case INT64:
+                longs = new long[16];
+                break;
+            case FLOAT:
+                floats = new float[16];
+                break;
+            case DOUBLE:
+                doubles = new double[16];
+                break;
+            case BOOLEAN:
+                booleans = new boolean[16];
+                break;
+            default:
+                strings = new String[16];
+        }
+    }
+
+    public PrimitiveType.PrimitiveTypeName getType() {
+        return type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void addInt(int v) {
+        if (size == ints.length) {
+            ints = Arrays.copyOf(ints, 2 * size);
+        }
+        ints[size++] = v;
+    }
+
+    public void addLong(long v) {
+        if (size == longs.length) {
+            longs = Arrays.copyOf(longs, 2 * size);
+        }
+        longs[size++] = v;
+    }
+
+    public void addFloat(float v) {
+        if (size == floats.length) {
+            floats = Arrays.copyOf(floats, 2 * size);
+        }
+        floats[size++] = v;
+    }
+
+    public void addDouble(double v) {
+        if (size == doubles.length) {
+            doubles = Arrays.copyOf(doubles, 2 * size);
+        }
+        doubles[size++] = v;
+    }
+
+    public void addBoolean(boolean v) {
+        if (size == booleans.length) {
+            booleans = Arrays.copyOf(booleans, 2 * size);
+        }
+        booleans[size++] = v;
+    }
+
+    public void addBinary(Binary v) {
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, 2 * size);
+        }
+        strings[size++] = v.toStringUsingUTF8();
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOf(ints, size);
+    }
+
+    public short[] toShortArray() {
+        short[] ret = new short[size];
+        for (int i = 0; i < size; i++) {
+            if (ints[i] < Short.MIN_VALUE || ints[i] > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("value out of range for short: " + ints[i]);
+            }
+            ret[i] = (short) ints[i];
+        }
+        return ret;
+    }
+
+    public long[] toLongArray() {
+        if (ints != null) {
+            long[] ret = new long[size];
+            for (int i = 0; i < size; i++) {
+                ret[i] = ints[i];
+            }
+            return ret;
+        }
+        return Arrays.copyOf(longs, size);
+    }
+
+    public float[] toFloatArray() {
+        return Arrays.copyOf(floats, size);
+    }
+
+    public double[] toDoubleArray() {
+        return Arrays.copyOf(doubles, size);
+    }
+
+    public boolean[] toBooleanArray() {
+        return Arrays.copyOf(booleans, size);
+    }
+
+    /**
+     * Append the elements separated by a space, the text form used by the
+     * array formats.
+     *
+     * @param sb destination
+     */
+    public void appendTo(StringBuilder sb) {
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            if (ints != null) {
+                sb.append(ints[i]);
+            } else if (longs != null) {
+                sb.append(longs[i]);
+            } else if (floats != null) {
+                sb.append(floats[i]);
+            } else if (doubles != null) {
+                sb.append(doubles[i]);
+            } else if (booleans != null) {
+                sb.append(booleans[i]);
+            } else {
+                sb.append(strings[i]);
+            }
+        }
+    }
+}
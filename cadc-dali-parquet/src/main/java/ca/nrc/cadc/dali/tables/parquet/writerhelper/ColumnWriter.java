@@ -0,0 +1,584 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet.writerhelper;
+
+import ca.nrc.cadc.dali.Circle;
+import ca.nrc.cadc.dali.Interval;
+import ca.nrc.cadc.dali.MultiPolygon;
+import ca.nrc.cadc.dali.Point;
+import ca.nrc.cadc.dali.Polygon;
+import ca.nrc.cadc.dali.Shape;
+import ca.nrc.cadc.dali.tables.votable.VOTableField;
+import ca.nrc.cadc.dali.util.ShapeFormat;
+import ca.nrc.cadc.util.HexUtil;
+import java.net.URI;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+
+/**
+ * Writes the non-null values of one column to the RecordConsumer. A writer is resolved once
+ * per column from the VOTable field (datatype, arraysize and xtype), so converting DALI values
+ * (point, circle, polygon, interval, timestamp, ...) needs no per-value type or xtype lookup.
+ * Arrays are written with the 3-level list structure of DynamicSchemaGenerator.
+ */
+abstract class ColumnWriter {
+
+    private static final String LIST = "list";
+    private static final String ELEMENT = "element";
+
+    // single byte values are immutable, so share them
+    private static final Binary[] BYTE_VALUES = new Binary[256];
+
+    static {
+        for (int i = 0; i < BYTE_VALUES.length; i++) {
+            BYTE_VALUES[i] = Binary.fromConstantByteArray(new byte[] {(byte) i});
+        }
+    }
+
+    abstract void write(RecordConsumer consumer, Object value);
+
+    /**
+     * Resolve the writer for a field. The field must be the original VOTable field, before
+     * timestamp and short columns are rewritten for the embedded VOTable metadata.
+     *
+     * @param field VOTable field
+     * @return writer for the column values
+     */
+    static ColumnWriter create(VOTableField field) {
+        String datatype = field.getDatatype();
+        String xtype = field.xtype;
+        boolean array = field.getArraysize() != null;
+
+        switch (datatype) {
+            case "short":
+            case "int":
+                return array ? INT_LIST : INT;
+            case "long":
+                if ("interval".equals(xtype)) {
+                    return new IntervalWriter(false);
+                }
+                return array ? LONG_LIST : LONG;
+            case "float":
+                return array ? FLOAT_LIST : FLOAT;
+            case "double":
+                if (xtype != null) {
+                    switch (xtype) {
+                        case "point":
+                            return POINT;
+                        case "circle":
+                            return CIRCLE;
+                        case "polygon":
+                            return POLYGON;
+                        case "multipolygon":
+                            return MULTIPOLYGON;
+                        case "interval":
+                            return new IntervalWriter(true);
+                        default:
+                            break;
+                    }
+                }
+                return array ? DOUBLE_LIST : DOUBLE;
+            case "char":
+                if ("timestamp".equalsIgnoreCase(xtype)) {
+                    return LONG;
+                } else if ("uuid".equalsIgnoreCase(xtype)) {
+                    return UUID_BYTES;
+                } else if ("shape".equals(xtype)) {
+                    return new ShapeWriter();
+                } else if ("uri".equals(xtype)) {
+                    return URI_STRING;
+                }
+                return STRING;
+            case "boolean":
+                return array ? BOOLEAN_LIST : BOOLEAN;
+            case "date":
+            case "timestamp":
+                return LONG;
+            case "byte":
+            case "unsignedByte":
+                return array ? BYTES : BYTE;
+            default:
+                throw new UnsupportedOperationException("Datatype not supported: " + datatype);
+        }
+    }
+
+    static UnsupportedOperationException unsupported(Object value) {
+        return new UnsupportedOperationException("Unsupported data type: " + value.getClass().getName());
+    }
+
+    // an empty list is a list group without the repeated field
+    static void startList(RecordConsumer consumer, int size) {
+        consumer.startGroup();
+        if (size > 0) {
+            consumer.startField(LIST, 0);
+        }
+    }
+
+    static void endList(RecordConsumer consumer, int size) {
+        if (size > 0) {
+            consumer.endField(LIST, 0);
+        }
+        consumer.endGroup();
+    }
+
+    static void startElement(RecordConsumer consumer) {
+        consumer.startGroup();
+        consumer.startField(ELEMENT, 0);
+    }
+
+    static void endElement(RecordConsumer consumer) {
+        consumer.endField(ELEMENT, 0);
+        consumer.endGroup();
+    }
+
+    static void addNullElement(RecordConsumer consumer) {
+        consumer.startGroup();
+        consumer.endGroup();
+    }
+
+    static void addDoubleElement(RecordConsumer consumer, double value) {
+        startElement(consumer);
+        consumer.addDouble(value);
+        endElement(consumer);
+    }
+
+    static void addLongElement(RecordConsumer consumer, long value) {
+        startElement(consumer);
+        consumer.addLong(value);
+        endElement(consumer);
+    }
+
+    static final ColumnWriter INT = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            consumer.addInteger(((Number) value).intValue());
+        }
+    };
+
+    // also used for timestamps: INT64 with millisecond precision
+    static final ColumnWriter LONG = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof Number) {
+                consumer.addLong(((Number) value).longValue());
+            } else if (value instanceof Date) {
+                consumer.addLong(((Date) value).getTime());
+            } else if (value instanceof Instant) {
+                consumer.addLong(((Instant) value).toEpochMilli());
+            } else {
+                throw unsupported(value);
+            }
+        }
+    };
+
+    static final ColumnWriter FLOAT = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            consumer.addFloat(((Number) value).floatValue());
+        }
+    };
+
+    static final ColumnWriter DOUBLE = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            consumer.addDouble(((Number) value).doubleValue());
+        }
+    };
+
+    static final ColumnWriter BOOLEAN = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            consumer.addBoolean((Boolean) value);
+        }
+    };
+
+    static final ColumnWriter STRING = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof String) {
+                consumer.addBinary(Binary.fromString((String) value));
+            } else {
+                throw unsupported(value);
+            }
+        }
+    };
+
+    static final ColumnWriter URI_STRING = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof URI) {
+                consumer.addBinary(Binary.fromString(((URI) value).toASCIIString()));
+            } else {
+                STRING.write(consumer, value);
+            }
+        }
+    };
+
+    static final ColumnWriter UUID_BYTES = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            byte[] bytes;
+            if (value instanceof UUID) {
+                UUID uuid = (UUID) value;
+                bytes = new byte[16];
+                putLong(bytes, 0, uuid.getMostSignificantBits());
+                putLong(bytes, 8, uuid.getLeastSignificantBits());
+            } else {
+                bytes = HexUtil.toBytes(value.toString().replace("-", ""));
+            }
+            consumer.addBinary(Binary.fromConstantByteArray(bytes));
+        }
+
+        private void putLong(byte[] dest, int off, long v) {
+            for (int i = 7; i >= 0; i--) {
+                dest[off + i] = (byte) v;
+                v >>>= 8;
+            }
+        }
+    };
+
+    static final ColumnWriter BYTE = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            consumer.addBinary(BYTE_VALUES[((Number) value).byteValue() & 0xff]);
+        }
+    };
+
+    static final ColumnWriter BYTES = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof byte[]) {
+                consumer.addBinary(Binary.fromConstantByteArray((byte[]) value));
+            } else {
+                throw unsupported(value);
+            }
+        }
+    };
+
+    static final ColumnWriter INT_LIST = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof int[]) {
+                int[] arr = (int[]) value;
+                startList(consumer, arr.length);
+                for (int v : arr) {
+                    startElement(consumer);
+                    consumer.addInteger(v);
+                    endElement(consumer);
+                }
+                endList(consumer, arr.length);
+            } else if (value instanceof short[]) {
+                // Parquet does not have a short type, so we use int
+                short[] arr = (short[]) value;
+                startList(consumer, arr.length);
+                for (short v : arr) {
+                    startElement(consumer);
+                    consumer.addInteger(v);
+                    endElement(consumer);
+                }
+                endList(consumer, arr.length);
+            } else {
+                throw unsupported(value);
+            }
+        }
+    };
+
+    static final ColumnWriter LONG_LIST = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof long[]) {
+                long[] arr = (long[]) value;
+                startList(consumer, arr.length);
+                for (long v : arr) {
+                    addLongElement(consumer, v);
+                }
+                endList(consumer, arr.length);
+            } else if (value instanceof Long[]) {
+                Long[] arr = (Long[]) value;
+                startList(consumer, arr.length);
+                for (Long v : arr) {
+                    if (v == null) {
+                        addNullElement(consumer);
+                    } else {
+                        addLongElement(consumer, v);
+                    }
+                }
+                endList(consumer, arr.length);
+            } else {
+                throw unsupported(value);
+            }
+        }
+    };
+
+    static final ColumnWriter FLOAT_LIST = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof float[]) {
+                float[] arr = (float[]) value;
+                startList(consumer, arr.length);
+                for (float v : arr) {
+                    startElement(consumer);
+                    consumer.addFloat(v);
+                    endElement(consumer);
+                }
+                endList(consumer, arr.length);
+            } else {
+                throw unsupported(value);
+            }
+        }
+    };
+
+    static final ColumnWriter DOUBLE_LIST = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof double[]) {
+                double[] arr = (double[]) value;
+                startList(consumer, arr.length);
+                for (double v : arr) {
+                    addDoubleElement(consumer, v);
+                }
+                endList(consumer, arr.length);
+            } else if (value instanceof Double[]) {
+                Double[] arr = (Double[]) value;
+                startList(consumer, arr.length);
+                for (Double v : arr) {
+                    if (v == null) {
+                        addNullElement(consumer);
+                    } else {
+                        addDoubleElement(consumer, v);
+                    }
+                }
+                endList(consumer, arr.length);
+            } else {
+                throw unsupported(value);
+            }
+        }
+    };
+
+    static final ColumnWriter BOOLEAN_LIST = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof boolean[]) {
+                boolean[] arr = (boolean[]) value;
+                startList(consumer, arr.length);
+                for (boolean v : arr) {
+                    startElement(consumer);
+                    consumer.addBoolean(v);
+                    endElement(consumer);
+                }
+                endList(consumer, arr.length);
+            } else {
+                throw unsupported(value);
+            }
+        }
+    };
+
+    static final ColumnWriter POINT = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof Point) {
+                Point p = (Point) value;
+                startList(consumer, 2);
+                addDoubleElement(consumer, p.getLongitude());
+                addDoubleElement(consumer, p.getLatitude());
+                endList(consumer, 2);
+            } else {
+                DOUBLE_LIST.write(consumer, value);
+            }
+        }
+    };
+
+    static final ColumnWriter CIRCLE = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof Circle) {
+                Circle c = (Circle) value;
+                startList(consumer, 3);
+                addDoubleElement(consumer, c.getCenter().getLongitude());
+                addDoubleElement(consumer, c.getCenter().getLatitude());
+                addDoubleElement(consumer, c.getRadius());
+                endList(consumer, 3);
+            } else {
+                DOUBLE_LIST.write(consumer, value);
+            }
+        }
+    };
+
+    static final ColumnWriter POLYGON = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof Polygon) {
+                List<Point> vertices = ((Polygon) value).getVertices();
+                int size = 2 * vertices.size();
+                startList(consumer, size);
+                addVertices(consumer, vertices);
+                endList(consumer, size);
+            } else {
+                DOUBLE_LIST.write(consumer, value);
+            }
+        }
+    };
+
+    // polygons separated by a NaN,NaN vertex, as in MultiPolygonFormat.toArray
+    static final ColumnWriter MULTIPOLYGON = new ColumnWriter() {
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof MultiPolygon) {
+                List<Polygon> polygons = ((MultiPolygon) value).getPolygons();
+                int size = 0;
+                for (Polygon poly : polygons) {
+                    size += 2 * poly.getVertices().size();
+                }
+                if (!polygons.isEmpty()) {
+                    size += 2 * (polygons.size() - 1);
+                }
+                startList(consumer, size);
+                for (int i = 0; i < polygons.size(); i++) {
+                    if (i > 0) {
+                        addDoubleElement(consumer, Double.NaN);
+                        addDoubleElement(consumer, Double.NaN);
+                    }
+                    addVertices(consumer, polygons.get(i).getVertices());
+                }
+                endList(consumer, size);
+            } else {
+                DOUBLE_LIST.write(consumer, value);
+            }
+        }
+    };
+
+    static void addVertices(RecordConsumer consumer, List<Point> vertices) {
+        for (Point p : vertices) {
+            addDoubleElement(consumer, p.getLongitude());
+            addDoubleElement(consumer, p.getLatitude());
+        }
+    }
+
+    // Interval and Interval[] as a flat list of lower,upper pairs
+    private static class IntervalWriter extends ColumnWriter {
+
+        private final boolean floatingPoint;
+
+        IntervalWriter(boolean floatingPoint) {
+            this.floatingPoint = floatingPoint;
+        }
+
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof Interval) {
+                startList(consumer, 2);
+                addInterval(consumer, (Interval) value);
+                endList(consumer, 2);
+            } else if (value instanceof Interval[]) {
+                Interval[] arr = (Interval[]) value;
+                startList(consumer, 2 * arr.length);
+                for (Interval i : arr) {
+                    addInterval(consumer, i);
+                }
+                endList(consumer, 2 * arr.length);
+            } else if (floatingPoint) {
+                DOUBLE_LIST.write(consumer, value);
+            } else {
+                LONG_LIST.write(consumer, value);
+            }
+        }
+
+        private void addInterval(RecordConsumer consumer, Interval i) {
+            addBound(consumer, (Number) i.getLower());
+            addBound(consumer, (Number) i.getUpper());
+        }
+
+        private void addBound(RecordConsumer consumer, Number n) {
+            if (floatingPoint) {
+                addDoubleElement(consumer, n.doubleValue());
+            } else {
+                addLongElement(consumer, n.longValue());
+            }
+        }
+    }
+
+    private static class ShapeWriter extends ColumnWriter {
+
+        private final ShapeFormat format = new ShapeFormat();
+
+        @Override
+        void write(RecordConsumer consumer, Object value) {
+            if (value instanceof Shape) {
+                consumer.addBinary(Binary.fromString(format.format((Shape) value)));
+            } else {
+                STRING.write(consumer, value);
+            }
+        }
+    }
+}
@@ -73,26 +73,38 @@ import ca.nrc.cadc.dali.tables.votable.VOTableField;
 import java.util.List;
 import java.util.Map;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.log4j.Logger;
 import org.apache.parquet.hadoop.api.WriteSupport;
-import org.apache.parquet.io.api.Binary;
 import org.apache.parquet.io.api.RecordConsumer;
 import org.apache.parquet.schema.MessageType;
 
 public class CustomWriteSupport extends WriteSupport<List<Object>> {
 
-    private static final Logger log = Logger.getLogger(CustomWriteSupport.class);
-
     private final List<VOTableField> voTableFields;
     private RecordConsumer recordConsumer;
     private final MessageType schema;
     private final Map<String, String> extraMetaData;
 
+    // resolved once per column and reused for every row
+    private final String[] fieldNames;
+    private final ColumnWriter[] columnWriters;
+
+    /**
+     * @param schema Parquet schema generated from the fields
+     * @param voTableFields original VOTable fields, in schema order
+     * @param extraMetaData key-value metadata for the footer
+     */
     CustomWriteSupport(MessageType schema, List<VOTableField> voTableFields, Map<String, String> extraMetaData) {
         super();
         this.voTableFields = voTableFields;
         this.schema = schema;
         this.extraMetaData = extraMetaData;
+
+        this.fieldNames = new String[voTableFields.size()];
+        this.columnWriters = new ColumnWriter[voTableFields.size()];
+        for (int i = 0; i < columnWriters.length; i++) {
+            fieldNames[i] = schema.getFieldName(i);
+            columnWriters[i] = ColumnWriter.create(voTableFields.get(i));
+        }
     }
 
     @Override
@@ -109,123 +121,18 @@ public class CustomWriteSupport extends WriteSupport<List<Object>> {
     public void write(List<Object> dataList) {
         recordConsumer.startMessage();
 
-        VOTableField voTableField;
         for (int i = 0; i < dataList.size(); i++) {
-            voTableField = voTableFields.get(i);
             Object data = dataList.get(i);
             if (data != null) {
-                recordConsumer.startField(voTableField.getName(), i);
-                if (data.getClass().isArray()) {
-                    fillUpArrayData(recordConsumer, data);
-                } else {
-                    fillUpPrimitiveData(recordConsumer, data);
+                try {
+                    recordConsumer.startField(fieldNames[i], i);
+                    columnWriters[i].write(recordConsumer, data);
+                    recordConsumer.endField(fieldNames[i], i);
+                } catch (RuntimeException e) {
+                    throw new RuntimeException("Failure while preparing data for field : " + voTableFields.get(i), e);
                 }
-                recordConsumer.endField(voTableField.getName(), i);
             }
         }
         recordConsumer.endMessage();
     }
-
-    private void fillUpPrimitiveData(RecordConsumer recordConsumer, Object data) {
-        if (data instanceof String) {
-            recordConsumer.addBinary(Binary.fromString((String) data));
-        } else if (data instanceof Integer) {
-            recordConsumer.addInteger((Integer) data);
-        } else if (data instanceof Short) {
-            recordConsumer.addInteger((int)(Short) data);
-        } else if (data instanceof Long) {
-            recordConsumer.addLong((Long) data);
-        } else if (data instanceof Double) {
-            recordConsumer.addDouble((Double) data);
-        } else if (data instanceof Float) {
-            recordConsumer.addFloat((Float) data);
-        } else if (data instanceof Boolean) {
-            recordConsumer.addBoolean((Boolean) data);
-        } else if (data instanceof Byte) {
-            recordConsumer.addBinary(Binary.fromConstantByteArray(new byte[]{(Byte)data}));
-        } else {
-            log.debug("Unsupported data type: " + data.getClass().getName());
-            throw new UnsupportedOperationException("Unsupported data type: " + data.getClass().getName());
-        }
-    }
-
-    private void fillUpArrayData(RecordConsumer recordConsumer, Object data) {
-        if (data instanceof byte[]) {
-            recordConsumer.addBinary(Binary.fromConstantByteArray((byte[]) data));
-            return;
-        }
-
-        recordConsumer.startGroup();
-        recordConsumer.startField("list", 0);
-        if (data instanceof int[]) {
-            int[] array = (int[]) data;
-            for (int value : array) {
-                recordConsumer.startGroup();
-                recordConsumer.startField("element", 0);
-                recordConsumer.addInteger(value);
-                recordConsumer.endField("element", 0);
-                recordConsumer.endGroup();
-            }
-        } else if (data instanceof long[]) {
-            long[] array = (long[]) data;
-            for (long value : array) {
-                recordConsumer.startGroup();
-                recordConsumer.startField("element", 0);
-                recordConsumer.addLong(value);
-                recordConsumer.endField("element", 0);
-                recordConsumer.endGroup();
-            }
-        } else if (data instanceof double[]) {
-            double[] array = (double[]) data;
-            for (double value : array) {
-                recordConsumer.startGroup();
-                recordConsumer.startField("element", 0);
-                recordConsumer.addDouble(value);
-                recordConsumer.endField("element", 0);
-                recordConsumer.endGroup();
-            }
-        } else if (data instanceof float[]) {
-            float[] array = (float[]) data;
-            for (float value : array) {
-                recordConsumer.startGroup();
-                recordConsumer.startField("element", 0);
-                recordConsumer.addFloat(value);
-                recordConsumer.endField("element", 0);
-                recordConsumer.endGroup();
-            }
-        } else if (data instanceof Long[]) {
-            Long[] array = (Long[]) data;
-            for (Long value : array) {
-                recordConsumer.startGroup();
-                recordConsumer.startField("element", 0);
-                recordConsumer.addLong(value);
-                recordConsumer.endField("element", 0);
-                recordConsumer.endGroup();
-            }
-        } else if (data instanceof Double[]) {
-            Double[] array = (Double[]) data;
-            for (Double value : array) {
-                recordConsumer.startGroup();
-                recordConsumer.startField("element", 0);
-                recordConsumer.addDouble(value);
-                recordConsumer.endField("element", 0);
-                recordConsumer.endGroup();
-            }
-        } else if (data instanceof short[]) {
-            short[] array = (short[]) data;
-            for (short value : array) {
-                recordConsumer.startGroup();
-                recordConsumer.startField("element", 0);
-                recordConsumer.addInteger(value); // Parquet does not have a short type, so we use int
-                recordConsumer.endField("element", 0);
-                recordConsumer.endGroup();
-            }
-        } else {
-            log.debug("Unsupported array data type: " + data.getClass().getName());
-            throw new UnsupportedOperationException("Unsupported array data type: " + data.getClass().getName());
-        }
-
-        recordConsumer.endField("list", 0);
-        recordConsumer.endGroup();
-    }
 }
@@ -0,0 +1,321 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.parquet.writerhelper;
+
+import ca.nrc.cadc.dali.tables.parquet.io.ByteArraySource;
+import ca.nrc.cadc.dali.tables.parquet.io.RandomSeekableInputFile;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.log4j.Logger;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.SeekableInputStream;
+import org.apache.parquet.schema.MessageType;
+
+/**
+ * Writes rows to a Parquet file with the row groups encoded and compressed in parallel.
+ * The rows are split into chunks that a worker pool writes as separate in-memory Parquet
+ * files; the column chunks of these files (with their statistics, bloom filters and page
+ * indexes) are then copied to the output in row order, without decoding, and the footer
+ * is written for the whole file.
+ */
+public class ParallelRowGroupWriter {
+
+    private static final Logger log = Logger.getLogger(ParallelRowGroupWriter.class);
+
+    private final OutputFile outputFile;
+    private final MessageType schema;
+    private final Function<OutputStream, DynamicParquetWriterBuilder> builderFactory;
+    private final int threads;
+    private final int rowGroupRows;
+    private final long rowGroupSize;
+
+    /**
+     * @param outputFile output
+     * @param schema Parquet schema
+     * @param builderFactory creates a configured writer builder for a chunk written to the stream;
+     *     the builder must not add footer metadata
+     * @param threads number of encoding threads
+     * @param rowGroupRows number of rows per chunk
+     * @param rowGroupSize target row group size in bytes
+     */
+    public ParallelRowGroupWriter(OutputFile outputFile, MessageType schema,
+            Function<OutputStream, DynamicParquetWriterBuilder> builderFactory, int threads, int rowGroupRows, long rowGroupSize) {
+        if (threads < 1 || rowGroupRows < 1) {
+            throw new IllegalArgumentException("invalid threads or rowGroupRows: " + threads + " " + rowGroupRows);
+        }
+        this.outputFile = outputFile;
+        this.schema = schema;
+        this.builderFactory = builderFactory;
+        this.threads = threads;
+        this.rowGroupRows = rowGroupRows;
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    /**
+     * Write the rows and the footer.
+     *
+     * @param rows row iterator
+     * @param maxRec maximum number of rows to write
+     * @param extraMetaData key-value metadata for the footer
+     * @return number of rows written
+     * @throws IOException failure to encode or write the rows
+     */
+    public long write(Iterator<List<Object>> rows, long maxRec, Map<String, String> extraMetaData) throws IOException {
+        ClosingOutputFile target = new ClosingOutputFile(outputFile);
+        ExecutorService pool = null;
+        boolean done = false;
+        try {
+            ParquetFileWriter fileWriter = new ParquetFileWriter(target, schema, ParquetFileWriter.Mode.OVERWRITE, rowGroupSize, 0);
+            fileWriter.start();
+
+            pool = Executors.newFixedThreadPool(threads, new EncoderThreadFactory());
+            Deque<Future<ChunkBuffer>> pending = new ArrayDeque<>();
+            long numRows = 0;
+            List<List<Object>> chunk = new ArrayList<>(rowGroupRows);
+            while (numRows < maxRec && rows.hasNext()) {
+                chunk.add(rows.next());
+                numRows++;
+                if (chunk.size() == rowGroupRows) {
+                    pending.add(pool.submit(new Encoder(chunk)));
+                    chunk = new ArrayList<>(rowGroupRows);
+                    // keep at most one finished chunk waiting per thread
+                    while (pending.size() > threads) {
+                        append(fileWriter, pending.remove());
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                pending.add(pool.submit(new Encoder(chunk)));
+            }
+            while (!pending.isEmpty()) {
+                append(fileWriter, pending.remove());
+            }
+
+            // writes the footer and closes the output
+            fileWriter.end(extraMetaData);
+            done = true;
+            log.debug("wrote " + numRows + " rows with " + threads + " encoding threads");
+            return numRows;
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+            if (!done) {
+                // the file writer cannot be aborted: release the output, which is left without a footer
+                target.closeQuietly();
+            }
+        }
+    }
+
+    // copy the row groups of an encoded chunk to the output
+    private void append(ParquetFileWriter fileWriter, Future<ChunkBuffer> future) throws IOException {
+        ChunkBuffer buf;
+        try {
+            buf = future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while encoding row groups");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("failed to encode row group: " + cause, cause);
+        }
+
+        InputFile inputFile = new RandomSeekableInputFile(buf.toSource());
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile);
+                SeekableInputStream in = inputFile.newStream()) {
+            for (BlockMetaData block : reader.getRowGroups()) {
+                fileWriter.startBlock(block.getRowCount());
+                for (ColumnChunkMetaData chunk : block.getColumns()) {
+                    fileWriter.appendColumnChunk(schema.getColumnDescription(chunk.getPath().toArray()), in, chunk,
+                            reader.readBloomFilter(chunk), reader.readColumnIndex(chunk), reader.readOffsetIndex(chunk));
+                }
+                fileWriter.endBlock();
+            }
+        }
+    }
+
+    // keeps the stream the file writer creates so that it can be closed after a failure
+    private static class ClosingOutputFile implements OutputFile {
+        private final OutputFile target;
+        private PositionOutputStream out;
+
+        ClosingOutputFile(OutputFile target) {
+            this.target = target;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) throws IOException {
+            this.out = target.create(blockSizeHint);
+            return out;
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) throws IOException {
+            this.out = target.createOrOverwrite(blockSizeHint);
+            return out;
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return target.supportsBlockSize();
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return target.defaultBlockSize();
+        }
+
+        void closeQuietly() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException | RuntimeException ex) {
+                    log.debug("failed to close output after write failure: " + ex);
+                }
+            }
+        }
+    }
+
+    private class Encoder implements Callable<ChunkBuffer> {
+
+        private List<List<Object>> rows;
+
+        Encoder(List<List<Object>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public ChunkBuffer call() throws IOException {
+            ChunkBuffer buf = new ChunkBuffer();
+            try (ParquetWriter<List<Object>> writer = builderFactory.apply(buf).build()) {
+                for (List<Object> row : rows) {
+                    writer.write(row);
+                }
+            }
+            // release the rows before the chunk waits to be appended
+            rows = null;
+            return buf;
+        }
+    }
+
+    // encoded chunk: read back without copying the buffer
+    private static class ChunkBuffer extends ByteArrayOutputStream {
+
+        ChunkBuffer() {
+            super(64 * 1024);
+        }
+
+        ByteArraySource toSource() {
+            return new ByteArraySource(buf, count);
+        }
+    }
+
+    private static class EncoderThreadFactory implements ThreadFactory {
+
+        private final String prefix = "ParallelRowGroupWriter-" + Thread.currentThread().getName() + "-";
+        private final AtomicInteger num = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + num.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
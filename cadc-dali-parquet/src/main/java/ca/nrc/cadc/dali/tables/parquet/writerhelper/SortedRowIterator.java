@@ -67,120 +67,106 @@
  ************************************************************************
  */
 
-package ca.nrc.cadc.dali.tables.parquet.readerhelper;
+package ca.nrc.cadc.dali.tables.parquet.writerhelper;
 
-import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
-import org.apache.parquet.io.api.Binary;
-import org.apache.parquet.io.api.Converter;
-import org.apache.parquet.io.api.GroupConverter;
-import org.apache.parquet.io.api.PrimitiveConverter;
-import org.apache.parquet.schema.GroupType;
-import org.apache.parquet.schema.PrimitiveType;
-import org.apache.parquet.schema.Type;
-
-public class DynamicListConverter extends GroupConverter {
-    private final List<Object> list = new ArrayList<>();
-    private final DynamicRow row;
-    private final String field;
-    private final Converter elementConverter;
-
-    public DynamicListConverter(DynamicRow row, String field, GroupType listGroup) {
-        this.row = row;
-        this.field = field;
-
-        Type repeatedField = listGroup.getType(0); // can be group or primitive
-
-        if (repeatedField.isRepetition(Type.Repetition.REPEATED)) {
-            if (repeatedField.isPrimitive()) {
-                // repeated primitive (double, int, etc.)
-                PrimitiveType.PrimitiveTypeName type = repeatedField.asPrimitiveType().getPrimitiveTypeName();
-                this.elementConverter = new ListElementPrimitiveConverter(list, type);
-            } else {
-                GroupType repeatedGroup = repeatedField.asGroupType();
-                if (repeatedGroup.getFieldCount() == 1 && repeatedGroup.getType(0).isPrimitive()) {
-                    // repeated group with primitive element (standard 3-level LIST)
-                    PrimitiveType.PrimitiveTypeName type = repeatedGroup.getType(0).asPrimitiveType().getPrimitiveTypeName();
-                    this.elementConverter = new ListElementGroupConverter(list, type);
-                } else {
-                    throw new UnsupportedOperationException("Unsupported group structure in array: " + repeatedGroup);
-                }
-            }
-        } else {
-            throw new UnsupportedOperationException("First field in LIST group is not repeated: " + repeatedField);
-        }
+import java.util.UUID;
+
+/**
+ * Row iterator that checks that the values of a column are in ascending order, in the
+ * order of the Parquet column statistics. The declared sort column is recorded in the footer
+ * and readers stop scanning when a range on it is passed, so rows that are not sorted
+ * would be silently skipped on later reads. Null and NaN values are not in the statistics
+ * and are not checked.
+ */
+public class SortedRowIterator implements Iterator<List<Object>> {
+
+    private final Iterator<List<Object>> rows;
+    private final int column;
+    private final String name;
+    private Object previous;
+    private long rowCount = 0L;
+
+    /**
+     * @param rows rows to write
+     * @param column index of the sort column in a row
+     * @param name name of the sort column
+     */
+    public SortedRowIterator(Iterator<List<Object>> rows, int column, String name) {
+        this.rows = rows;
+        this.column = column;
+        this.name = name;
     }
 
     @Override
-    public Converter getConverter(int fieldIndex) {
-        return elementConverter;
+    public boolean hasNext() {
+        return rows.hasNext();
     }
 
     @Override
-    public void start() {
-        list.clear();
+    public List<Object> next() {
+        List<Object> row = rows.next();
+        rowCount++;
+        Object value = row.get(column);
+        if (value != null && !isNaN(value)) {
+            if (previous != null && compare(previous, value) > 0) {
+                throw new IllegalArgumentException("rows are not sorted by " + name + ": " + value
+                        + " after " + previous + " at row " + rowCount);
+            }
+            previous = value;
+        }
+        return row;
     }
 
-    @Override
-    public void end() {
-        row.put(field, new ArrayList<>(list));
+    private static boolean isNaN(Object value) {
+        return (value instanceof Double && ((Double) value).isNaN())
+                || (value instanceof Float && ((Float) value).isNaN());
     }
 
-    // For 3-level
-    static class ListElementGroupConverter extends GroupConverter {
-        private final PrimitiveConverter elementConverter;
-
-        public ListElementGroupConverter(List<Object> list, PrimitiveType.PrimitiveTypeName type) {
-            this.elementConverter = new ListElementPrimitiveConverter(list, type);
+    @SuppressWarnings("unchecked")
+    static int compare(Object a, Object b) {
+        if (a instanceof Byte && b instanceof Byte) {
+            // unsignedByte: unsigned like the FIXED_LEN_BYTE_ARRAY statistics
+            return Integer.compare((Byte) a & 0xff, (Byte) b & 0xff);
         }
-
-        @Override
-        public Converter getConverter(int i) {
-            return elementConverter;
-        }
-
-        @Override
-        public void start() {
+        if (a instanceof Number && b instanceof Number) {
+            if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+                return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            }
+            return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
         }
-
-        @Override
-        public void end() {
+        if (a instanceof String && b instanceof String) {
+            // code point order is the UTF-8 byte order of the statistics
+            return compareCodePoints((String) a, (String) b);
         }
-    }
-
-    // For 2-level or 3-level element primitive
-    static class ListElementPrimitiveConverter extends PrimitiveConverter {
-        private final List<Object> list;
-        private final PrimitiveType.PrimitiveTypeName type;
-
-        public ListElementPrimitiveConverter(List<Object> list, PrimitiveType.PrimitiveTypeName type) {
-            this.list = list;
-            this.type = type;
+        if (a instanceof UUID && b instanceof UUID) {
+            // the lower case hex text has the unsigned byte order of the statistics
+            return a.toString().compareTo(b.toString());
         }
-
-        @Override
-        public void addInt(int v) {
-            list.add(v);
+        if (a instanceof Date && b instanceof Date) {
+            return ((Date) a).compareTo((Date) b);
         }
-
-        @Override
-        public void addLong(long v) {
-            list.add(v);
-        }
-
-        @Override
-        public void addFloat(float v) {
-            list.add(v);
-        }
-
-        @Override
-        public void addDouble(double v) {
-            list.add(v);
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable<Object>) a).compareTo(b);
         }
+        throw new IllegalArgumentException("unsupported sort column value: " + a.getClass().getName()
+                + " " + b.getClass().getName());
+    }
 
-        @Override
-        public void addBinary(Binary v) {
-            list.add(v.toStringUsingUTF8());
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
         }
+        return Integer.compare(a.length() - i, b.length() - j);
     }
 }
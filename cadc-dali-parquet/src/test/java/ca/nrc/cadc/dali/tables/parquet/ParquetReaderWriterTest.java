@@ -69,21 +69,41 @@
 
 package ca.nrc.cadc.dali.tables.parquet;
 
+import ca.nrc.cadc.dali.tables.ListTableData;
 import ca.nrc.cadc.dali.tables.TableData;
+import ca.nrc.cadc.dali.tables.parquet.io.ByteArraySource;
+import ca.nrc.cadc.dali.tables.parquet.io.ByteRangeReader;
+import ca.nrc.cadc.dali.tables.parquet.io.ByteRangeSource;
+import ca.nrc.cadc.dali.tables.parquet.io.RandomSeekableInputFile;
+import ca.nrc.cadc.dali.tables.parquet.readerhelper.ColumnBatch;
+import ca.nrc.cadc.dali.tables.parquet.readerhelper.ColumnVector;
+import ca.nrc.cadc.dali.tables.parquet.readerhelper.ParquetTableData;
 import ca.nrc.cadc.dali.tables.votable.VOTableDocument;
 import ca.nrc.cadc.dali.tables.votable.VOTableField;
 import ca.nrc.cadc.dali.tables.votable.VOTableResource;
+import ca.nrc.cadc.dali.tables.votable.VOTableTable;
 import ca.nrc.cadc.io.ResourceIterator;
 import org.apache.log4j.Logger;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.lang.reflect.Array;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 public class ParquetReaderWriterTest extends TestUtil {
 
@@ -105,6 +125,635 @@ public class ParquetReaderWriterTest extends TestUtil {
         compareVOTable(originalVOTableDoc, actualVOTableDoc, null);
     }
 
+    @Test
+    public void testWriteConfig() throws Exception {
+        log.debug("testWriteConfig");
+        VOTableDocument originalVOTableDoc = prepareVOTable();
+
+        ParquetWriterConfig config = new ParquetWriterConfig();
+        config.setCodec(CompressionCodecName.GZIP);
+        config.setCompressionLevel(9);
+        config.setRowGroupSize(1024);
+        config.setPageSize(512);
+        config.setPageRowCountLimit(100);
+        config.getDictionaryColumns().add("char column");
+        config.getDictionaryColumns().add("int[] column");
+        config.setWriterVersion(ParquetProperties.WriterVersion.PARQUET_2_0);
+
+        ParquetWriter writer = new ParquetWriter();
+        writer.setConfig(config);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(prepareVOTable(), out);
+
+        ParquetReader reader = new ParquetReader();
+        VOTableDocument actualVOTableDoc = reader.read(new ByteArrayInputStream(out.toByteArray()));
+        compareVOTable(originalVOTableDoc, actualVOTableDoc, null);
+
+        config.setCodec(CompressionCodecName.SNAPPY);
+        try {
+            writer.write(prepareVOTable(), new ByteArrayOutputStream());
+            Assert.fail("expected IllegalArgumentException for SNAPPY level");
+        } catch (IllegalArgumentException expected) {
+            log.debug("caught expected: " + expected);
+        }
+    }
+
+    @Test
+    public void testWriteMetadataTemplate() throws Exception {
+        log.debug("testWriteMetadataTemplate");
+        VOTableDocument originalVOTableDoc = prepareVOTable();
+
+        ParquetWriter writer = new ParquetWriter();
+        VOTableDocument templateDoc = prepareVOTable();
+        String template = writer.createMetadataTemplate(templateDoc);
+        Assert.assertNotNull(templateDoc.getResourceByType("results").getTable().getTableData());
+        writer.setMetadataTemplate(template);
+
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.write(prepareVOTable(), out);
+            ParquetReader reader = new ParquetReader();
+            VOTableDocument actualVOTableDoc = reader.read(new ByteArrayInputStream(out.toByteArray()));
+            compareVOTable(originalVOTableDoc, actualVOTableDoc, null);
+        }
+    }
+
+    @Test
+    public void testBloomFilterAndSortColumns() throws Exception {
+        log.debug("testBloomFilterAndSortColumns");
+        ParquetWriterConfig config = new ParquetWriterConfig();
+        config.getBloomFilterColumns().put("char column", null);
+        config.getBloomFilterColumns().put("int column", 100L);
+        config.getSortColumns().add("long column");
+
+        ParquetWriter writer = new ParquetWriter();
+        writer.setConfig(config);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(prepareVOTable(), out);
+        byte[] content = out.toByteArray();
+
+        ParquetReader reader = new ParquetReader();
+        reader.setPredicates(Arrays.asList(ColumnPredicate.equal("char column", "string value")));
+        Assert.assertEquals(1, readRows(reader.read(new ByteArrayInputStream(content))).size());
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.equal("char column", "no such value")));
+        Assert.assertEquals(0, readRows(reader.read(new ByteArrayInputStream(content))).size());
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.range("int column", 11, 11)));
+        Assert.assertEquals(1, readRows(reader.read(new ByteArrayInputStream(content))).size());
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.range("long column", null, 10L)));
+        Assert.assertEquals(0, readRows(reader.read(new ByteArrayInputStream(content))).size());
+
+        config.getSortColumns().add("int[] column");
+        try {
+            writer.write(prepareVOTable(), new ByteArrayOutputStream());
+            Assert.fail("expected IllegalArgumentException for array sort column");
+        } catch (IllegalArgumentException expected) {
+            log.debug("caught expected: " + expected);
+        }
+    }
+
+    @Test
+    public void testSortColumnOrderChecked() throws Exception {
+        log.debug("testSortColumnOrderChecked");
+        VOTableDocument doc = new VOTableDocument();
+        VOTableResource vr = new VOTableResource("results");
+        doc.getResources().add(vr);
+        VOTableTable vot = new VOTableTable();
+        vr.setTable(vot);
+        vot.getFields().add(new VOTableField("name", "char", "*"));
+        vot.getFields().add(new VOTableField("n", "long"));
+
+        for (int threads : new int[] {1, 2}) {
+            ParquetWriterConfig config = new ParquetWriterConfig();
+            config.setEncodingThreads(threads);
+            config.setRowGroupRows(1);
+            config.getSortColumns().add("n");
+            ParquetWriter writer = new ParquetWriter();
+            writer.setConfig(config);
+
+            // nulls are not in the statistics and do not break the order
+            ListTableData tableData = new ListTableData();
+            tableData.getArrayList().add(Arrays.asList("a", 1L));
+            tableData.getArrayList().add(Arrays.asList("b", null));
+            tableData.getArrayList().add(Arrays.asList("c", 1L));
+            tableData.getArrayList().add(Arrays.asList("d", 3L));
+            vot.setTableData(tableData);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.write(doc, out);
+            ParquetReader reader = new ParquetReader();
+            reader.setPredicates(Arrays.asList(ColumnPredicate.range("n", 3L, 3L)));
+            Assert.assertEquals(1, readRows(reader.read(new ByteArrayInputStream(out.toByteArray()))).size());
+
+            // a declared order that is wrong would make readers skip rows
+            tableData.getArrayList().add(Arrays.asList("e", 2L));
+            vot.setTableData(tableData);
+            try {
+                writer.write(doc, new ByteArrayOutputStream());
+                Assert.fail("expected IllegalArgumentException for unsorted rows, threads=" + threads);
+            } catch (IllegalArgumentException expected) {
+                log.debug("caught expected: " + expected);
+            }
+        }
+    }
+
+    @Test
+    public void testBloomFilterSignedZero() throws Exception {
+        log.debug("testBloomFilterSignedZero");
+        VOTableDocument doc = new VOTableDocument();
+        VOTableResource vr = new VOTableResource("results");
+        doc.getResources().add(vr);
+        VOTableTable vot = new VOTableTable();
+        vr.setTable(vot);
+        vot.getFields().add(new VOTableField("double column", "double"));
+        vot.getFields().add(new VOTableField("float column", "float"));
+        ListTableData tableData = new ListTableData();
+        tableData.getArrayList().add(Arrays.asList(0.0, -0.0f));
+        vot.setTableData(tableData);
+
+        ParquetWriterConfig config = new ParquetWriterConfig();
+        config.getBloomFilterColumns().put("double column", null);
+        config.getBloomFilterColumns().put("float column", null);
+        ParquetWriter writer = new ParquetWriter();
+        writer.setConfig(config);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(doc, out);
+        byte[] content = out.toByteArray();
+
+        // 0.0 and -0.0 are equal: the bloom filter must not skip the row group
+        ParquetReader reader = new ParquetReader();
+        reader.setPredicates(Arrays.asList(ColumnPredicate.range("double column", -0.0, -0.0)));
+        Assert.assertEquals(1, readRows(reader.read(new ByteArrayInputStream(content))).size());
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.range("float column", 0.0, 0.0)));
+        Assert.assertEquals(1, readRows(reader.read(new ByteArrayInputStream(content))).size());
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.range("double column", 1.0, 1.0)));
+        Assert.assertEquals(0, readRows(reader.read(new ByteArrayInputStream(content))).size());
+    }
+
+    @Test
+    public void testPredicateWithoutMinMax() throws Exception {
+        log.debug("testPredicateWithoutMinMax");
+        VOTableDocument doc = new VOTableDocument();
+        VOTableResource vr = new VOTableResource("results");
+        doc.getResources().add(vr);
+        VOTableTable vot = new VOTableTable();
+        vr.setTable(vot);
+        vot.getFields().add(new VOTableField("double column", "double"));
+        vot.getFields().add(new VOTableField("char column", "char", "*"));
+        char[] longString = new char[5000];
+        Arrays.fill(longString, 'x');
+        ListTableData tableData = new ListTableData();
+        tableData.getArrayList().add(Arrays.asList(Double.NaN, new String(longString)));
+        tableData.getArrayList().add(Arrays.asList(1.0, "abc"));
+        vot.setTableData(tableData);
+
+        ParquetWriter writer = new ParquetWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(doc, out);
+        byte[] content = out.toByteArray();
+
+        // a NaN first value and a string over the 4 KiB statistics limit: no min and max
+        try (ParquetFileReader reader = ParquetFileReader.open(new RandomSeekableInputFile(new ByteArraySource(content)))) {
+            for (ColumnChunkMetaData chunk : reader.getFooter().getBlocks().get(0).getColumns()) {
+                Assert.assertFalse(chunk.getPath().toDotString(), chunk.getStatistics().hasNonNullValue());
+            }
+        }
+
+        ParquetReader reader = new ParquetReader();
+        reader.setPredicates(Arrays.asList(ColumnPredicate.range("double column", 1.0, 1.0)));
+        Assert.assertEquals(1, readRows(reader.read(new ByteArrayInputStream(content))).size());
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.equal("char column", "abc")));
+        Assert.assertEquals(1, readRows(reader.read(new ByteArrayInputStream(content))).size());
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.isNull("char column")));
+        Assert.assertEquals(0, readRows(reader.read(new ByteArrayInputStream(content))).size());
+    }
+
+    @Test
+    public void testWriteArrays() throws Exception {
+        log.debug("testWriteArrays");
+        VOTableDocument doc = new VOTableDocument();
+        VOTableResource vr = new VOTableResource("results");
+        doc.getResources().add(vr);
+        VOTableTable vot = new VOTableTable();
+        vr.setTable(vot);
+        vot.getFields().add(new VOTableField("short[] column", "short", "*"));
+        vot.getFields().add(new VOTableField("int[] column", "int", "*"));
+        vot.getFields().add(new VOTableField("long[] column", "long", "*"));
+        vot.getFields().add(new VOTableField("Long[] column", "long", "*"));
+        vot.getFields().add(new VOTableField("float[] column", "float", "*"));
+        vot.getFields().add(new VOTableField("double[] column", "double", "*"));
+        vot.getFields().add(new VOTableField("Double[] column", "double", "*"));
+        vot.getFields().add(new VOTableField("boolean[] column", "boolean", "*"));
+        ListTableData tableData = new ListTableData();
+        // empty arrays, null arrays, values
+        tableData.getArrayList().add(Arrays.asList(new short[0], new int[0], new long[0], new Long[0],
+            new float[0], new double[0], new Double[0], new boolean[0]));
+        tableData.getArrayList().add(Arrays.asList(null, null, null, null, null, null, null, null));
+        tableData.getArrayList().add(Arrays.asList(new short[] {1, 2}, new int[] {3, 4}, new long[] {5L, 6L},
+            new Long[] {7L, null, 8L}, new float[] {1.5f, 2.5f}, new double[] {3.5, 4.5},
+            new Double[] {null, 5.5, null}, new boolean[] {true, false}));
+        vot.setTableData(tableData);
+
+        ParquetWriter writer = new ParquetWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(doc, out);
+        byte[] content = out.toByteArray();
+
+        // one list entry per element, null elements included, and one for an empty or null list
+        long[] expectedCounts = new long[] {4, 4, 4, 5, 4, 4, 5, 4};
+        try (ParquetFileReader reader = ParquetFileReader.open(new RandomSeekableInputFile(new ByteArraySource(content)))) {
+            List<ColumnChunkMetaData> chunks = reader.getFooter().getBlocks().get(0).getColumns();
+            Assert.assertEquals(expectedCounts.length, chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                Assert.assertEquals(chunks.get(i).getPath().toDotString(), expectedCounts[i], chunks.get(i).getValueCount());
+            }
+        }
+
+        // a null element of an integer array is read as the declared nullValue of the field;
+        // the embedded metadata has no null values, so the reader declares one
+        ParquetReader reader = new ParquetReader();
+        VOTableDocument actual = reader.read(new ByteArrayInputStream(content));
+        actual.getResourceByType("results").getTable().getFields().get(3).nullValue = "-1";
+        ParquetTableData actualData = (ParquetTableData) actual.getResourceByType("results").getTable().getTableData();
+        try (ResourceIterator<ColumnBatch> iter = actualData.batchIterator(3)) {
+            ColumnBatch batch = iter.next();
+            Assert.assertEquals(3, batch.size());
+            for (int c = 0; c < batch.getColumnCount(); c++) {
+                ColumnVector vec = batch.getColumn(c);
+                Assert.assertTrue(vec.getName(), vec.isList());
+                // an empty list is not null
+                Assert.assertFalse(vec.getName(), vec.isNull(0));
+                Assert.assertEquals(vec.getName(), vec.getOffset(0), vec.getOffset(1));
+                Assert.assertTrue(vec.getName(), vec.isNull(1));
+                Assert.assertEquals(vec.getName(), vec.getOffset(1), vec.getOffset(2));
+                Assert.assertFalse(vec.getName(), vec.isNull(2));
+            }
+            Assert.assertTrue(Arrays.equals(new boolean[] {true, false},
+                Arrays.copyOf(batch.getColumn("boolean[] column").getBooleanValues(), 2)));
+            Assert.assertFalse(iter.hasNext());
+        }
+        actualData.close();
+
+        // empty arrays read as null; null elements are NaN or the declared nullValue
+        actual = reader.read(new ByteArrayInputStream(content));
+        actual.getResourceByType("results").getTable().getFields().get(3).nullValue = "-1";
+        List<List<Object>> rows = readRows(actual);
+        Assert.assertEquals(3, rows.size());
+        for (int r = 0; r < 2; r++) {
+            for (int c = 0; c < 8; c++) {
+                Assert.assertNull("row " + r + " column " + c, rows.get(r).get(c));
+            }
+        }
+        List<Object> row = rows.get(2);
+        // short columns are stored as int
+        Assert.assertArrayEquals(new int[] {1, 2}, (int[]) row.get(0));
+        Assert.assertArrayEquals(new int[] {3, 4}, (int[]) row.get(1));
+        Assert.assertArrayEquals(new long[] {5L, 6L}, (long[]) row.get(2));
+        Assert.assertArrayEquals(new long[] {7L, -1L, 8L}, (long[]) row.get(3));
+        Assert.assertArrayEquals(new float[] {1.5f, 2.5f}, (float[]) row.get(4), 0.0f);
+        Assert.assertArrayEquals(new double[] {3.5, 4.5}, (double[]) row.get(5), 0.0);
+        Assert.assertArrayEquals(new double[] {Double.NaN, 5.5, Double.NaN}, (double[]) row.get(6), 0.0);
+        Assert.assertTrue(Arrays.equals(new boolean[] {true, false}, (boolean[]) row.get(7)));
+
+        // a null element of an integer array without a nullValue is not dropped
+        reader.setColumns(Arrays.asList("Long[] column"));
+        try {
+            readRows(reader.read(new ByteArrayInputStream(content)));
+            Assert.fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            log.debug("caught expected: " + expected);
+        }
+    }
+
+    @Test
+    public void testWriteParallel() throws Exception {
+        log.debug("testWriteParallel");
+        VOTableDocument originalVOTableDoc = prepareVOTable();
+
+        // one row per row group, each encoded by a worker and appended in order
+        ParquetWriterConfig config = new ParquetWriterConfig();
+        config.setEncodingThreads(2);
+        config.setRowGroupRows(1);
+        config.getBloomFilterColumns().put("char column", null);
+
+        ParquetWriter writer = new ParquetWriter();
+        writer.setConfig(config);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(prepareVOTable(), out);
+        byte[] content = out.toByteArray();
+
+        ParquetReader reader = new ParquetReader();
+        VOTableDocument actualVOTableDoc = reader.read(new ByteArrayInputStream(content));
+        compareVOTable(originalVOTableDoc, actualVOTableDoc, null);
+
+        try (ResourceIterator<ColumnBatch> iter = ((ParquetTableData) actualVOTableDoc.getResourceByType("results")
+                .getTable().getTableData()).batchIterator()) {
+            int numBatches = 0;
+            while (iter.hasNext()) {
+                Assert.assertEquals(1, iter.next().size());
+                numBatches++;
+            }
+            Assert.assertEquals(2, numBatches);
+        }
+
+        // bloom filters are copied with the row groups
+        reader.setPredicates(Arrays.asList(ColumnPredicate.equal("char column", "string value")));
+        Assert.assertEquals(1, readRows(reader.read(new ByteArrayInputStream(content))).size());
+        reader.setPredicates(Arrays.asList(ColumnPredicate.equal("char column", "no such value")));
+        Assert.assertEquals(0, readRows(reader.read(new ByteArrayInputStream(content))).size());
+    }
+
+    @Test
+    public void testWriteParallelFailure() throws Exception {
+        log.debug("testWriteParallelFailure");
+        VOTableDocument doc = new VOTableDocument();
+        VOTableResource vr = new VOTableResource("results");
+        doc.getResources().add(vr);
+        VOTableTable vot = new VOTableTable();
+        vr.setTable(vot);
+        vot.getFields().add(new VOTableField("int column", "int"));
+        ListTableData tableData = new ListTableData();
+        tableData.getArrayList().add(Arrays.asList(1));
+        tableData.getArrayList().add(Arrays.asList("not an int"));
+        vot.setTableData(tableData);
+
+        ParquetWriterConfig config = new ParquetWriterConfig();
+        config.setEncodingThreads(2);
+        config.setRowGroupRows(1);
+        ParquetWriter writer = new ParquetWriter();
+        writer.setConfig(config);
+        final boolean[] closed = new boolean[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        try {
+            writer.write(doc, out);
+            Assert.fail("expected failure to encode a row group");
+        } catch (Exception expected) {
+            log.debug("caught expected: " + expected);
+        }
+        Assert.assertTrue("output closed", closed[0]);
+    }
+
+    @Test
+    public void testReadBatches() throws Exception {
+        log.debug("testReadBatches");
+        ParquetWriter writer = new ParquetWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(prepareVOTable(), out);
+
+        ParquetReader reader = new ParquetReader();
+        VOTableDocument doc = reader.read(new ByteArrayInputStream(out.toByteArray()));
+        ParquetTableData tableData = (ParquetTableData) doc.getResourceByType("results").getTable().getTableData();
+
+        // one row per batch: row 1 has values, row 2 only the boolean
+        try (ResourceIterator<ColumnBatch> iter = tableData.batchIterator(1)) {
+            Assert.assertTrue(iter.hasNext());
+            ColumnBatch batch = iter.next();
+            Assert.assertEquals(1, batch.size());
+
+            ColumnVector dcol = batch.getColumn("double column");
+            Assert.assertFalse(dcol.isList());
+            Assert.assertFalse(dcol.isNull(0));
+            Assert.assertEquals(5.5, dcol.getDoubleValues()[0], 0.0);
+
+            ColumnVector dacol = batch.getColumn("double[] column");
+            Assert.assertTrue(dacol.isList());
+            Assert.assertEquals(0, dacol.getOffset(0));
+            Assert.assertEquals(2, dacol.getOffset(1));
+            Assert.assertEquals(3.3, dacol.getDoubleValues()[0], 0.0);
+            Assert.assertEquals(4.4, dacol.getDoubleValues()[1], 0.0);
+
+            ColumnVector icol = batch.getColumn("int column");
+            Assert.assertEquals(11, icol.getIntValues()[0]);
+
+            Assert.assertTrue(iter.hasNext());
+            batch = iter.next();
+            Assert.assertEquals(1, batch.size());
+            Assert.assertFalse(batch.getColumn("boolean column").isNull(0));
+            Assert.assertFalse(batch.getColumn("boolean column").getBooleanValues()[0]);
+            Assert.assertTrue(batch.getColumn("double column").isNull(0));
+            Assert.assertTrue(batch.getColumn("double[] column").isNull(0));
+            Assert.assertEquals(0, batch.getColumn("double[] column").getValueCount());
+
+            Assert.assertFalse(iter.hasNext());
+        }
+        tableData.close();
+    }
+
+    @Test
+    public void testReadProjectionAndPredicates() throws Exception {
+        log.debug("testReadProjectionAndPredicates");
+        ParquetWriter writer = new ParquetWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(prepareVOTable(), out);
+        byte[] content = out.toByteArray();
+
+        ParquetReader reader = new ParquetReader();
+        reader.setColumns(Arrays.asList("int column", "char column"));
+        reader.setPredicates(Arrays.asList(ColumnPredicate.range("double column", 5.0, 6.0)));
+        VOTableDocument doc = reader.read(new ByteArrayInputStream(content));
+        List<VOTableField> fields = doc.getResourceByType("results").getTable().getFields();
+        Assert.assertEquals(2, fields.size());
+        Assert.assertEquals("int column", fields.get(0).getName());
+        Assert.assertEquals("char column", fields.get(1).getName());
+        List<List<Object>> rows = readRows(doc);
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals(Arrays.asList(11, "string value"), rows.get(0));
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.isNull("double column")));
+        rows = readRows(reader.read(new ByteArrayInputStream(content)));
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals(Arrays.asList(null, null), rows.get(0));
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.equal("char column", "string value"),
+            ColumnPredicate.range("int column", null, 10)));
+        rows = readRows(reader.read(new ByteArrayInputStream(content)));
+        Assert.assertEquals(0, rows.size());
+
+        reader.setPredicates(Arrays.asList(ColumnPredicate.in("char column", Arrays.asList("a", "string value"))));
+        rows = readRows(reader.read(new ByteArrayInputStream(content)));
+        Assert.assertEquals(1, rows.size());
+    }
+
+    @Test
+    public void testReadParallel() throws Exception {
+        log.debug("testReadParallel");
+        // two row groups
+        ParquetWriterConfig config = new ParquetWriterConfig();
+        config.setEncodingThreads(2);
+        config.setRowGroupRows(1);
+        ParquetWriter writer = new ParquetWriter();
+        writer.setConfig(config);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(prepareVOTable(), out);
+        byte[] content = out.toByteArray();
+
+        ParquetReader reader = new ParquetReader();
+        List<List<Object>> expected = readRows(reader.read(new ByteArrayInputStream(content)));
+        Assert.assertEquals(2, expected.size());
+
+        VOTableDocument doc = reader.read(new ByteArrayInputStream(content));
+        ParquetTableData tableData = (ParquetTableData) doc.getResourceByType("results").getTable().getTableData();
+        List<List<Object>> actual = new ArrayList<>();
+        try (ResourceIterator<List<Object>> iter = tableData.parallelIterator(2)) {
+            while (iter.hasNext()) {
+                actual.add(iter.next());
+            }
+        }
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertTrue("row " + i, Arrays.deepEquals(expected.get(i).toArray(), actual.get(i).toArray()));
+        }
+
+        Assert.assertEquals(2, tableData.spliterator().estimateSize());
+        List<List<Object>> streamed = StreamSupport.stream(tableData.spliterator(), true).collect(Collectors.toList());
+        Assert.assertEquals(expected.size(), streamed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertTrue("row " + i, Arrays.deepEquals(expected.get(i).toArray(), streamed.get(i).toArray()));
+        }
+
+        // a short-circuiting stream leaves its splits open until the table data is closed
+        List<Object> first = StreamSupport.stream(tableData.spliterator(), true).findFirst().get();
+        Assert.assertTrue(Arrays.deepEquals(expected.get(0).toArray(), first.toArray()));
+        tableData.close();
+    }
+
+    private List<List<Object>> readRows(VOTableDocument doc) throws Exception {
+        List<List<Object>> ret = new ArrayList<>();
+        TableData tableData = doc.getResourceByType("results").getTable().getTableData();
+        try (ResourceIterator<List<Object>> iter = tableData.iterator()) {
+            while (iter.hasNext()) {
+                ret.add(iter.next());
+            }
+        }
+        tableData.close();
+        return ret;
+    }
+
+    @Test
+    public void testReadMetadataCache() throws Exception {
+        log.debug("testReadMetadataCache");
+        VOTableDocument originalVOTableDoc = prepareVOTable();
+
+        File file = File.createTempFile("testReadMetadataCache", ".parquet");
+        try {
+            ParquetWriter writer = new ParquetWriter();
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                writer.write(prepareVOTable(), out);
+            }
+
+            ParquetMetadataCache cache = new ParquetMetadataCache(1);
+            ParquetReader reader = new ParquetReader();
+            reader.setMetadataCache(cache);
+
+            // the projection of a read does not change the cached document
+            reader.setColumns(Arrays.asList("int column"));
+            VOTableDocument doc = reader.read(file);
+            Assert.assertEquals(1, doc.getResourceByType("results").getTable().getFields().size());
+            Assert.assertEquals(2, readRows(doc).size());
+            Assert.assertEquals(1, cache.size());
+
+            reader.setColumns(null);
+            VOTableDocument actualVOTableDoc = reader.read(file);
+            compareVOTable(originalVOTableDoc, actualVOTableDoc, null);
+            actualVOTableDoc.getResourceByType("results").getTable().getTableData().close();
+            Assert.assertEquals(1, cache.size());
+
+            // editing the fields of a returned document does not change the cached document
+            for (VOTableField f : actualVOTableDoc.getResourceByType("results").getTable().getFields()) {
+                f.description = "edited";
+                f.nullValue = "-1";
+                f.getValues().add("edited");
+            }
+            doc = reader.read(file);
+            compareVOTable(originalVOTableDoc, doc, null);
+            for (VOTableField f : doc.getResourceByType("results").getTable().getFields()) {
+                Assert.assertNotEquals("edited", f.description);
+                Assert.assertNull(f.nullValue);
+                Assert.assertTrue(f.getValues().isEmpty());
+            }
+            doc.getResourceByType("results").getTable().getTableData().close();
+
+            // scans of a cache hit open the file with the cached footer
+            Assert.assertNotNull(cache.get(ParquetMetadataCache.getKey(file)).footer);
+            reader.setPredicates(Arrays.asList(ColumnPredicate.range("int column", 11, 11)));
+            ParquetTableData tableData = (ParquetTableData) reader.read(file).getResourceByType("results").getTable().getTableData();
+            Assert.assertEquals(2, tableData.spliterator().estimateSize());
+            try (ResourceIterator<ColumnBatch> iter = tableData.batchIterator()) {
+                Assert.assertEquals(1, iter.next().getSelectedCount());
+            }
+            tableData.close();
+            reader.setPredicates(null);
+
+            // another file evicts the entry
+            reader.read(new ByteArraySource(Files.readAllBytes(file.toPath())), "other");
+            Assert.assertEquals(1, cache.size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReadSpoolToFile() throws Exception {
+        log.debug("testReadSpoolToFile");
+        VOTableDocument originalVOTableDoc = prepareVOTable();
+
+        ParquetWriter writer = new ParquetWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(prepareVOTable(), out);
+
+        // content larger than the threshold goes to a temporary file
+        ParquetReader reader = new ParquetReader();
+        reader.setSpoolThreshold(100);
+        VOTableDocument actualVOTableDoc = reader.read(new ByteArrayInputStream(out.toByteArray()));
+
+        compareVOTable(originalVOTableDoc, actualVOTableDoc, null);
+    }
+
+    @Test
+    public void testReadByteRanges() throws Exception {
+        log.debug("testReadByteRanges");
+        VOTableDocument originalVOTableDoc = prepareVOTable();
+
+        ParquetWriter writer = new ParquetWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(prepareVOTable(), out);
+        final byte[] content = out.toByteArray();
+
+        final int[] requests = new int[1];
+        ByteRangeReader ranges = new ByteRangeReader() {
+            @Override
+            public long length() {
+                return content.length;
+            }
+
+            @Override
+            public void read(long position, byte[] buf, int off, int len) {
+                requests[0]++;
+                System.arraycopy(content, (int) position, buf, off, len);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        ParquetReader reader = new ParquetReader();
+        VOTableDocument actualVOTableDoc = reader.read(new ByteRangeSource(ranges, 16));
+        compareVOTable(originalVOTableDoc, actualVOTableDoc, null);
+        log.info("range requests: " + requests[0]);
+        Assert.assertTrue(requests[0] > 0);
+    }
+
     @Test
     public void readArbitrarySampleFile() throws Exception {
         log.debug("readArbitrarySampleFile");
@@ -0,0 +1,283 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.postgresql;
+
+import ca.nrc.cadc.dali.Circle;
+import ca.nrc.cadc.dali.Interval;
+import ca.nrc.cadc.dali.Point;
+import ca.nrc.cadc.dali.Polygon;
+import ca.nrc.cadc.dali.Shape;
+import ca.nrc.cadc.date.DateUtil;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Formatter for rows in the PostgreSQL COPY text format (tab-separated columns,
+ * newline-terminated rows, \N for null). DALI Point, Circle, and Polygon values are
+ * written as pgsphere spoint, scircle, and spoly and Interval (or Interval[]) values
+ * as the 2D polygon generated by PgInterval. Dates are written in UTC and arrays as
+ * array literals; other values are written via toString(). This class is not
+ * thread-safe.
+ */
+public class PgCopyFormat {
+
+    private static final String NULL = "\\N";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final PgInterval interval;
+    private final DateFormat dateFormat = DateUtil.getDateFormat(DateUtil.IVOA_DATE_FORMAT, DateUtil.UTC);
+    private final StringBuilder element = new StringBuilder();
+
+    public PgCopyFormat() {
+        this(new PgInterval());
+    }
+
+    /**
+     * @param interval converter for Interval values (e.g. log scale)
+     */
+    public PgCopyFormat(PgInterval interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Append one row, including the row terminator.
+     *
+     * @param sb destination
+     * @param row column values, elements may be null
+     */
+    public void appendRow(StringBuilder sb, List<Object> row) {
+        boolean first = true;
+        for (Object val : row) {
+            if (!first) {
+                sb.append('\t');
+            }
+            appendValue(sb, val);
+            first = false;
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Append a single column value.
+     *
+     * @param sb destination
+     * @param val value to append, may be null
+     */
+    public void appendValue(StringBuilder sb, Object val) {
+        if (val == null) {
+            sb.append(NULL);
+        } else if (val instanceof String) {
+            appendText(sb, (String) val);
+        } else if (val instanceof Number || val instanceof Boolean) {
+            sb.append(val);
+        } else if (val instanceof Point) {
+            PgSpoint.appendPoint(sb, (Point) val);
+        } else if (val instanceof Circle) {
+            PgScircle.appendCircle(sb, (Circle) val);
+        } else if (val instanceof Polygon) {
+            PgSpoly.appendPolygon(sb, (Polygon) val);
+        } else if (val instanceof Interval) {
+            // the type parameter of Interval is bounded by Number
+            @SuppressWarnings("unchecked")
+            Interval<? extends Number> v = (Interval<? extends Number>) val;
+            interval.appendPolygon2D(sb, v);
+        } else if (val instanceof Interval[]) {
+            @SuppressWarnings("unchecked")
+            Interval<? extends Number>[] vals = (Interval<? extends Number>[]) val;
+            if (vals.length == 0) {
+                sb.append(NULL);
+            } else {
+                interval.appendPolygon2D(sb, vals);
+            }
+        } else if (val instanceof Shape) {
+            throw new IllegalArgumentException("unsupported shape type: " + val.getClass().getName());
+        } else if (val instanceof Date) {
+            sb.append(dateFormat.format((Date) val));
+        } else if (val instanceof byte[]) {
+            appendBytes(sb, (byte[]) val);
+        } else if (val instanceof double[]) {
+            double[] a = (double[]) val;
+            sb.append('{');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(a[i]);
+            }
+            sb.append('}');
+        } else if (val instanceof float[]) {
+            float[] a = (float[]) val;
+            sb.append('{');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(a[i]);
+            }
+            sb.append('}');
+        } else if (val instanceof long[]) {
+            long[] a = (long[]) val;
+            sb.append('{');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(a[i]);
+            }
+            sb.append('}');
+        } else if (val instanceof int[]) {
+            int[] a = (int[]) val;
+            sb.append('{');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(a[i]);
+            }
+            sb.append('}');
+        } else if (val instanceof short[]) {
+            short[] a = (short[]) val;
+            sb.append('{');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(a[i]);
+            }
+            sb.append('}');
+        } else if (val instanceof Object[]) {
+            appendArray(sb, (Object[]) val);
+        } else {
+            appendText(sb, val.toString());
+        }
+    }
+
+    // array literal with quoted elements, e.g. {"a","b\"c",NULL}, then escaped for COPY
+    private void appendArray(StringBuilder sb, Object[] a) {
+        sb.append('{');
+        for (int i = 0; i < a.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            Object v = a[i];
+            if (v == null) {
+                sb.append("NULL");
+            } else if (v.getClass().isArray()) {
+                throw new IllegalArgumentException("unsupported nested array: " + a.getClass().getName());
+            } else {
+                element.setLength(0);
+                element.append('"');
+                String s = v instanceof Date ? dateFormat.format((Date) v) : v.toString();
+                for (int j = 0; j < s.length(); j++) {
+                    char c = s.charAt(j);
+                    if (c == '"' || c == '\\') {
+                        element.append('\\');
+                    }
+                    element.append(c);
+                }
+                element.append('"');
+                appendText(sb, element.toString());
+            }
+        }
+        sb.append('}');
+    }
+
+    // bytea hex format; the backslash itself is escaped for COPY
+    private static void appendBytes(StringBuilder sb, byte[] b) {
+        sb.append("\\\\x");
+        for (byte v : b) {
+            sb.append(HEX[(v >> 4) & 0xf]);
+            sb.append(HEX[v & 0xf]);
+        }
+    }
+
+    private static void appendText(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+}
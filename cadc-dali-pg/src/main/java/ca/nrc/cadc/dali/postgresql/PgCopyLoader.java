@@ -0,0 +1,242 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.postgresql;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import org.apache.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Bulk loader that streams rows into a table with COPY ... FROM STDIN instead of
+ * one INSERT per row. Rows are formatted with PgCopyFormat and sent to the server
+ * in chunks; every batchSize rows the current COPY is completed and the next row
+ * starts a new one. Loaded rows are part of the caller's transaction. This class
+ * is not thread-safe.
+ */
+public class PgCopyLoader implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(PgCopyLoader.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    private static final int SEND_CHARS = 64 * 1024;
+
+    private final CopyManager copyManager;
+    private final String sql;
+    private final int numColumns;
+    private final int batchSize;
+    private final PgCopyFormat format;
+    private final StringBuilder buffer = new StringBuilder(2 * SEND_CHARS);
+
+    private CopyIn copyIn;
+    private int batchRows = 0;
+    private long rowCount = 0L;
+
+    public PgCopyLoader(Connection con, String tableName, List<String> columnNames) throws SQLException {
+        this(con, tableName, columnNames, DEFAULT_BATCH_SIZE, new PgCopyFormat());
+    }
+
+    /**
+     * @param con connection to a PostgreSQL server
+     * @param tableName target table
+     * @param columnNames target columns in the order values are provided
+     * @param batchSize number of rows per COPY statement
+     * @param format row formatter
+     * @throws SQLException if con is not (or does not wrap) a PostgreSQL connection
+     */
+    public PgCopyLoader(Connection con, String tableName, List<String> columnNames, int batchSize, PgCopyFormat format)
+            throws SQLException {
+        if (columnNames == null || columnNames.isEmpty()) {
+            throw new IllegalArgumentException("columnNames cannot be null or empty");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("invalid batchSize: " + batchSize);
+        }
+        this.copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+        this.numColumns = columnNames.size();
+        this.batchSize = batchSize;
+        this.format = format;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("COPY ").append(tableName).append(" (");
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(columnNames.get(i));
+        }
+        sb.append(") FROM STDIN");
+        this.sql = sb.toString();
+    }
+
+    /**
+     * Add a row. The row may be sent to the server immediately or on a later call.
+     * A row with a value that cannot be formatted is not added.
+     *
+     * @param row column values in columnNames order, elements may be null
+     * @throws SQLException failure to send data to the server
+     */
+    public void write(List<Object> row) throws SQLException {
+        if (row.size() != numColumns) {
+            throw new IllegalArgumentException("expected " + numColumns + " values, found " + row.size());
+        }
+        int rowStart = buffer.length();
+        try {
+            format.appendRow(buffer, row);
+        } catch (RuntimeException ex) {
+            // drop the partial row so the next row does not continue it in the COPY stream
+            buffer.setLength(rowStart);
+            throw ex;
+        }
+        batchRows++;
+        if (batchRows == batchSize) {
+            flush();
+        } else if (buffer.length() >= SEND_CHARS) {
+            send();
+        }
+    }
+
+    /**
+     * Send buffered rows and complete the current COPY.
+     *
+     * @return number of rows loaded by the completed COPY
+     * @throws SQLException failure to load the rows
+     */
+    public long flush() throws SQLException {
+        if (batchRows == 0) {
+            return 0L;
+        }
+        send();
+        try {
+            long n = copyIn.endCopy();
+            log.debug(sql + " rows: " + n);
+            rowCount += n;
+            return n;
+        } finally {
+            copyIn = null;
+            batchRows = 0;
+        }
+    }
+
+    /**
+     * @return number of rows loaded so far
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Flush remaining rows.
+     *
+     * @throws SQLException failure to load the rows
+     */
+    @Override
+    public void close() throws SQLException {
+        flush();
+    }
+
+    private void send() throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] b = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        buffer.setLength(0);
+        try {
+            if (copyIn == null) {
+                copyIn = copyManager.copyIn(sql);
+            }
+            copyIn.writeToCopy(b, 0, b.length);
+        } catch (SQLException ex) {
+            abort();
+            throw ex;
+        }
+    }
+
+    // discard the current batch and cancel the COPY so the connection is usable again
+    private void abort() {
+        batchRows = 0;
+        buffer.setLength(0);
+        if (copyIn != null) {
+            try {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            } catch (SQLException ex) {
+                log.debug("failed to cancel " + sql, ex);
+            }
+            copyIn = null;
+        }
+    }
+}
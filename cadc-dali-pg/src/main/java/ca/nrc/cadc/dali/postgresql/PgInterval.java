@@ -71,8 +71,6 @@ import ca.nrc.cadc.dali.DoubleInterval;
 import ca.nrc.cadc.dali.Interval;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import org.apache.log4j.Logger;
 import org.postgresql.geometric.PGpoint;
@@ -142,23 +140,7 @@ public class PgInterval {
         if (val == null) {
             return null;
         }
-
-        List<PGpoint> verts = new ArrayList<>();
-
-        double lb = rescale(val.getLower());
-        double ub = rescale(val.getUpper());
-        
-        // draw a 2D polygon that looks like a tooth-up-comb with each tooth having x-range that
-        // corresponds to one (sub) interval... it is a simple box for an Interval with no sub-samples
-        // full-span line at y1
-        verts.add(new PGpoint(lb, y1));
-        verts.add(new PGpoint(ub, y1));
-
-        // just the basic bounds interval
-        verts.add(new PGpoint(ub, y2));
-        verts.add(new PGpoint(lb, y2));
-
-        return new PGpolygon(verts.toArray(new PGpoint[verts.size()]));
+        return toPolygon(getVertices(val));
     }
 
     /**
@@ -172,36 +154,97 @@ public class PgInterval {
         if (vals == null || vals.length == 0) {
             return null;
         }
+        return toPolygon(getVertices(vals));
+    }
+
+    /**
+     * Append the polygon text form of the interval: ((x,y),(x,y),...).
+     *
+     * @param sb destination
+     * @param val value to append, not null
+     */
+    void appendPolygon2D(StringBuilder sb, Interval<? extends Number> val) {
+        appendPolygon(sb, getVertices(val));
+    }
+
+    /**
+     * Append the polygon text form of the array of disjoint intervals: ((x,y),(x,y),...).
+     *
+     * @param sb destination
+     * @param vals value to append, not null or empty
+     */
+    void appendPolygon2D(StringBuilder sb, Interval<? extends Number>[] vals) {
+        appendPolygon(sb, getVertices(vals));
+    }
 
-        List<PGpoint> verts = new ArrayList<>();
+    // vertices as x,y pairs
+    private double[] getVertices(Interval<? extends Number> val) {
+        double lb = rescale(val.getLower().doubleValue());
+        double ub = rescale(val.getUpper().doubleValue());
+        
+        // draw a 2D polygon that looks like a tooth-up-comb with each tooth having x-range that
+        // corresponds to one (sub) interval... it is a simple box for an Interval with no sub-samples
+        // full-span line at y1, then just the basic bounds interval
+        return new double[] {
+            lb, y1,
+            ub, y1,
+            ub, y2,
+            lb, y2
+        };
+    }
 
+    // vertices as x,y pairs
+    private double[] getVertices(Interval<? extends Number>[] vals) {
         // draw a 2D polygon that looks like a tooth-up-comb with each tooth having x-range that
         // corresponds to one (sub) interval... it is a simple box for an Interval with no sub-samples
-        LinkedList<Interval<Double>> samples = new LinkedList<>();
-        for (Interval<Double> ii : vals) {
-            samples.add(ii); // TODO: sort and verify the intervals are disjoint
-        }
+        // TODO: sort and verify the intervals are disjoint
+        double[] ret = new double[8 * vals.length];
+        int n = 0;
         // full-span line at y1
-        double lb = rescale(samples.getFirst().getLower());
-        double ub = rescale(samples.getLast().getUpper());
-        
-        verts.add(new PGpoint(lb, y1));
-        verts.add(new PGpoint(ub, y1));
+        ret[n++] = rescale(vals[0].getLower().doubleValue());
+        ret[n++] = y1;
+        ret[n++] = rescale(vals[vals.length - 1].getUpper().doubleValue());
+        ret[n++] = y1;
 
-        Iterator<Interval<Double>> iter = samples.descendingIterator();
-        Interval<Double> prev = null;
-        while (iter.hasNext()) {
-            Interval<Double> si = iter.next();
+        Interval<? extends Number> prev = null;
+        for (int i = vals.length - 1; i >= 0; i--) {
+            Interval<? extends Number> si = vals[i];
             if (prev != null) {
-                verts.add(new PGpoint(rescale(prev.getLower()), ym));
-                verts.add(new PGpoint(rescale(si.getUpper()), ym));
+                ret[n++] = rescale(prev.getLower().doubleValue());
+                ret[n++] = ym;
+                ret[n++] = rescale(si.getUpper().doubleValue());
+                ret[n++] = ym;
             }
-            verts.add(new PGpoint(rescale(si.getUpper()), y2));
-            verts.add(new PGpoint(rescale(si.getLower()), y2));
+            ret[n++] = rescale(si.getUpper().doubleValue());
+            ret[n++] = y2;
+            ret[n++] = rescale(si.getLower().doubleValue());
+            ret[n++] = y2;
             prev = si;
         }
+        return ret;
+    }
+
+    private static PGpolygon toPolygon(double[] xy) {
+        PGpoint[] verts = new PGpoint[xy.length / 2];
+        for (int i = 0; i < verts.length; i++) {
+            verts[i] = new PGpoint(xy[2 * i], xy[2 * i + 1]);
+        }
+        return new PGpolygon(verts);
+    }
 
-        return new PGpolygon(verts.toArray(new PGpoint[verts.size()]));
+    private static void appendPolygon(StringBuilder sb, double[] xy) {
+        sb.append("(");
+        for (int i = 0; i < xy.length; i += 2) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("(");
+            sb.append(xy[i]);
+            sb.append(",");
+            sb.append(xy[i + 1]);
+            sb.append(")");
+        }
+        sb.append(")");
     }
 
     /**
@@ -275,19 +318,22 @@ public class PgInterval {
     }
 
     private List<Double> parsePolygon2D(String s) {
-        s = s.replaceAll("[()]", ""); // remove all ( )
-        //log.debug("strip: '" + s + "'");
-        String[] points = s.split(",");
+        // polygon string format: ((a,b),(c,d),(e,f) ... )
+        PgTextParser p = new PgTextParser(s);
+        p.expect('(');
         List<Double> vals = new ArrayList<>();
-        for (int i = 0; i < points.length; i += 2) {
-            String xs = points[i];
-            String ys = points[i + 1];
-            //log.debug("check: " + xs + "," + ys);
-            double y = Double.parseDouble(ys);
+        do {
+            p.expect('(');
+            double x = p.readDouble();
+            p.expect(',');
+            double y = p.readDouble();
+            p.expect(')');
             if (y > YVALUE) {
-                vals.add(Double.parseDouble(xs));
+                vals.add(x);
             }
-        }
+        } while (p.accept(','));
+        p.expect(')');
+
         // sort so we don't care about winding direction of the polygon impl
         Collections.sort(vals);
 
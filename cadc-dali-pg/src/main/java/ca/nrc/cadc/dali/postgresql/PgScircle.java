@@ -97,15 +97,7 @@ public class PgScircle {
         }
 
         StringBuilder sval = new StringBuilder();
-        sval.append("<");
-        sval.append("(");
-        sval.append(Math.toRadians(c.getCenter().getLongitude()));
-        sval.append(",");
-        sval.append(Math.toRadians(c.getCenter().getLatitude()));
-        sval.append(")");
-        sval.append(",");
-        sval.append(Math.toRadians(c.getRadius()));
-        sval.append(">");
+        appendCircle(sval, c);
         String spt = sval.toString();
 
         try {
@@ -118,6 +110,20 @@ public class PgScircle {
         }
     }
 
+    /**
+     * Append the scircle text form of a circle: &lt;(lon,lat),radius&gt; in radians.
+     *
+     * @param sb destination
+     * @param c value to append, not null
+     */
+    static void appendCircle(StringBuilder sb, Circle c) {
+        sb.append("<");
+        PgSpoint.appendPoint(sb, c.getCenter());
+        sb.append(",");
+        sb.append(Math.toRadians(c.getRadius()));
+        sb.append(">");
+    }
+
     /**
      * Parse the string representation of an scircle value (from ResultSet.getString(...)).
      *
@@ -129,37 +135,18 @@ public class PgScircle {
             return null;
         }
 
-        int open = s.indexOf("<");
-        int close = s.lastIndexOf(">");
-        if (open == -1 || close == -1) {
+        PgTextParser p = new PgTextParser(s);
+        if (!p.seek('<')) {
             throw new IllegalArgumentException("Missing opening or closing < > " + s);
         }
-        s = s.substring(open + 1, close);
-        String[] values = s.split(",");
-
-        final String radius = values[2];
-
-        open = s.indexOf("(");
-        close = s.lastIndexOf(")");
-        int comma = s.lastIndexOf(',');
-        if (open == -1 || close == -1) {
-            throw new IllegalArgumentException("Missing opening or closing ( ) " + s);
-        }
-
-        s = s.substring(open + 1, close);
-        values = s.split(",");
-        if (values.length != 2) {
-            throw new IllegalArgumentException("point must have only 2 values " + s);
-        }
-
-        double x = Double.parseDouble(values[0]);
-        double y = Double.parseDouble(values[1]);
-        double r = Double.parseDouble(radius);
+        p.expect('(');
+        Point center = PgSpoint.readPoint(p, s);
+        p.expect(',');
+        double r = p.readDouble();
+        p.expect('>');
 
-        x = Math.toDegrees(x);
-        y = Math.toDegrees(y);
         r = Math.toDegrees(r);
 
-        return new Circle(new Point(x, y), r);
+        return new Circle(center, r);
     }
 }
@@ -96,11 +96,7 @@ public class PgSpoint {
         }
 
         StringBuilder sval = new StringBuilder();
-        sval.append("(");
-        sval.append(Math.toRadians(p.getLongitude()));
-        sval.append(",");
-        sval.append(Math.toRadians(p.getLatitude()));
-        sval.append(")");
+        appendPoint(sval, p);
         String spt = sval.toString();
 
         try {
@@ -113,6 +109,20 @@ public class PgSpoint {
         }
     }
 
+    /**
+     * Append the spoint text form of a point: (lon,lat) in radians.
+     *
+     * @param sb destination
+     * @param p value to append, not null
+     */
+    static void appendPoint(StringBuilder sb, Point p) {
+        sb.append("(");
+        sb.append(Math.toRadians(p.getLongitude()));
+        sb.append(",");
+        sb.append(Math.toRadians(p.getLatitude()));
+        sb.append(")");
+    }
+
     /**
      * Parse the string representation of an spoint value (from ResultSet.getString(...)).
      *
@@ -124,20 +134,22 @@ public class PgSpoint {
             return null;
         }
 
-        int open = s.indexOf("(");
-        int close = s.lastIndexOf(")");
-        if (open == -1 || close == -1) {
+        PgTextParser p = new PgTextParser(s);
+        if (!p.seek('(')) {
             throw new IllegalArgumentException("Missing opening or closing ( ) " + s);
         }
+        return readPoint(p, s);
+    }
 
-        s = s.substring(open + 1, close);
-        String[] values = s.split(",");
-        if (values.length != 2) {
+    // read the rest of a point after the opening ( and convert to degrees
+    static Point readPoint(PgTextParser p, String s) {
+        double x = p.readDouble();
+        p.expect(',');
+        double y = p.readDouble();
+        if (p.accept(',')) {
             throw new IllegalArgumentException("point must have only 2 values " + s);
         }
-
-        double x = Double.parseDouble(values[0]);
-        double y = Double.parseDouble(values[1]);
+        p.expect(')');
 
         x = Math.toDegrees(x);
         y = Math.toDegrees(y);
@@ -99,16 +99,7 @@ public class PgSpoly {
         }
 
         StringBuilder sval = new StringBuilder();
-        sval.append("{");
-        for (Point p : poly.getVertices()) {
-            sval.append("(");
-            sval.append(Math.toRadians(p.getLongitude()));
-            sval.append(",");
-            sval.append(Math.toRadians(p.getLatitude()));
-            sval.append(")");
-            sval.append(",");
-        }
-        sval.setCharAt(sval.length() - 1, '}'); // replace last comma with closing }
+        appendPolygon(sval, poly);
         String spoly = sval.toString();
 
         try {
@@ -121,6 +112,21 @@ public class PgSpoly {
         }
     }
 
+    /**
+     * Append the spoly text form of a polygon: {(lon,lat),(lon,lat),...} in radians.
+     *
+     * @param sb destination
+     * @param poly value to append, not null
+     */
+    static void appendPolygon(StringBuilder sb, Polygon poly) {
+        sb.append("{");
+        for (Point p : poly.getVertices()) {
+            PgSpoint.appendPoint(sb, p);
+            sb.append(",");
+        }
+        sb.setCharAt(sb.length() - 1, '}'); // replace last comma with closing }
+    }
+
     /**
      * Parse the string representation of an spoly value (from ResultSet.getString(...)).
      * A round-trip to the database spoly column does not preserve starting vertex
@@ -136,48 +142,23 @@ public class PgSpoly {
             return null;
         }
 
-        // Get the string inside the enclosing brackets.
-        int open = s.indexOf("{");
-        int close = s.indexOf("}");
-        if (open == -1 || close == -1) {
+        PgTextParser p = new PgTextParser(s);
+        if (!p.seek('{')) {
             throw new IllegalArgumentException("Missing opening or closing { } " + s);
         }
 
-        // Get the string inside the enclosing parentheses.
-        s = s.substring(open + 1, close);
-        open = s.indexOf("(");
-        close = s.lastIndexOf(")");
-        if (open == -1 || close == -1) {
-            throw new IllegalArgumentException("Missing opening or closing ( ) " + s);
-        }
-
-        // Each set of vertices is '),(' separated.
-        s = s.substring(open + 1, close);
-        String[] vertices = s.split("\\){1}?\\s*,\\s*{1}\\({1}?");
+        // Each vertex is (x,y) and vertices are comma separated.
+        Polygon ret = new Polygon();
+        do {
+            p.expect('(');
+            ret.getVertices().add(PgSpoint.readPoint(p, s));
+        } while (p.accept(','));
+        p.expect('}');
 
         // Check minimum vertices to make a polygon.
-        if (vertices.length < 3) {
+        if (ret.getVertices().size() < 3) {
             throw new IllegalArgumentException("Minimum 3 vertices required to form a Polygon " + s);
         }
-
-        Polygon ret = new Polygon();
-
-        // Loop through each set of vertices.
-        for (int i = 0; i < vertices.length; i++) {
-            // Each vertex is 2 values separated by a comma.
-            String vertex = vertices[i];
-            String[] values = vertex.split(",");
-            if (values.length != 2) {
-                throw new IllegalArgumentException("Each set of vertices must have only 2 values " + vertex);
-            }
-
-            double x = Double.parseDouble(values[0]);
-            double y = Double.parseDouble(values[1]);
-
-            x = Math.toDegrees(x);
-            y = Math.toDegrees(y);
-            ret.getVertices().add(new Point(x, y));
-        }
         return ret;
     }
 }
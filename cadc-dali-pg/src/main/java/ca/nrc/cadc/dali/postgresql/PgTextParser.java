@@ -0,0 +1,226 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.postgresql;
+
+/**
+ * Single-pass scanner for the text output of geometric and pgsphere types. Numbers
+ * are read directly from the string: values with at most 18 significant digits and
+ * a small decimal exponent are computed exactly from the digits and anything else
+ * falls back to Double.parseDouble. Whitespace between tokens is ignored.
+ */
+final class PgTextParser {
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // largest mantissa that is exactly representable as a double
+    private static final long MAX_EXACT = 1L << 53;
+
+    private final String s;
+    private int pos = 0;
+
+    PgTextParser(String s) {
+        this.s = s;
+    }
+
+    /**
+     * Move to just after the next occurrence of c.
+     *
+     * @return false if c was not found
+     */
+    boolean seek(char c) {
+        int i = s.indexOf(c, pos);
+        if (i == -1) {
+            return false;
+        }
+        pos = i + 1;
+        return true;
+    }
+
+    /**
+     * Consume c if it is the next token.
+     *
+     * @return true if c was consumed
+     */
+    boolean accept(char c) {
+        skipWhitespace();
+        if (pos < s.length() && s.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consume c, which must be the next token.
+     */
+    void expect(char c) {
+        if (!accept(c)) {
+            throw new IllegalArgumentException("expected '" + c + "' at position " + pos + ": " + s);
+        }
+    }
+
+    double readDouble() {
+        skipWhitespace();
+        final int start = pos;
+        final int n = s.length();
+        int i = pos;
+
+        boolean neg = false;
+        if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            neg = s.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0L;
+        int sig = 0;
+        int exp = 0;
+        int numDigits = 0;
+        boolean exact = true;
+        boolean frac = false;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (sig < 18) {
+                    mantissa = 10L * mantissa + (c - '0');
+                    if (mantissa != 0L) {
+                        sig++;
+                    }
+                    if (frac) {
+                        exp--;
+                    }
+                } else {
+                    exact = false;
+                }
+                numDigits++;
+            } else if (c == '.' && !frac) {
+                frac = true;
+            } else {
+                break;
+            }
+            i++;
+        }
+
+        if (numDigits == 0) {
+            // NaN, Infinity, or not a number
+            while (i < n && Character.isLetter(s.charAt(i))) {
+                i++;
+            }
+            return parse(start, i);
+        }
+
+        if (i < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            boolean negExp = false;
+            if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negExp = s.charAt(i) == '-';
+                i++;
+            }
+            int e = 0;
+            int expDigits = 0;
+            while (i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+                if (e < 10000) {
+                    e = 10 * e + (s.charAt(i) - '0');
+                }
+                expDigits++;
+                i++;
+            }
+            if (expDigits == 0) {
+                return parse(start, i);
+            }
+            exp += negExp ? -e : e;
+        }
+
+        if (!exact || mantissa > MAX_EXACT || exp < -22 || exp > 22) {
+            return parse(start, i);
+        }
+        pos = i;
+        double ret = (exp < 0) ? mantissa / POW10[-exp] : mantissa * POW10[exp];
+        return neg ? -ret : ret;
+    }
+
+    private double parse(int start, int end) {
+        try {
+            double ret = Double.parseDouble(s.substring(start, end));
+            pos = end;
+            return ret;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("expected number at position " + start + ": " + s, ex);
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+            pos++;
+        }
+    }
+}
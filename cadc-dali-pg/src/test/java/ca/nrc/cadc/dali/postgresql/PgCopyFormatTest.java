@@ -0,0 +1,213 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.postgresql;
+
+import ca.nrc.cadc.dali.Circle;
+import ca.nrc.cadc.dali.Interval;
+import ca.nrc.cadc.dali.Point;
+import ca.nrc.cadc.dali.Polygon;
+import ca.nrc.cadc.util.Log4jInit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PgCopyFormatTest {
+
+    private static final Logger log = Logger.getLogger(PgCopyFormatTest.class);
+
+    static {
+        Log4jInit.setLevel("ca.nrc.cadc.dali", Level.INFO);
+    }
+
+    public PgCopyFormatTest() {
+    }
+
+    PgCopyFormat fmt = new PgCopyFormat();
+
+    private String format(Object val) {
+        StringBuilder sb = new StringBuilder();
+        fmt.appendValue(sb, val);
+        return sb.toString();
+    }
+
+    @Test
+    public void testRow() {
+        try {
+            List<Object> row = new ArrayList<>();
+            row.add("abc");
+            row.add(null);
+            row.add(42);
+            row.add(true);
+            row.add(new Date(0L));
+
+            StringBuilder sb = new StringBuilder();
+            fmt.appendRow(sb, row);
+            log.info("testRow: " + sb);
+            Assert.assertEquals("abc\t\\N\t42\ttrue\t1970-01-01T00:00:00.000\n", sb.toString());
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testEscape() {
+        try {
+            Assert.assertEquals("a\\tb\\nc\\rd\\\\e", format("a\tb\nc\rd\\e"));
+            Assert.assertEquals("\\\\x00ff7f", format(new byte[] {0, -1, 127}));
+            Assert.assertEquals("{1.0,NaN}", format(new double[] {1.0, Double.NaN}));
+            Assert.assertEquals("{}", format(new int[0]));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testObjectArray() {
+        try {
+            // quoted elements with array escapes, then COPY escapes
+            Assert.assertEquals("{\"a\",\"b\\\\\"c\",NULL,\"d\\te\"}",
+                format(new String[] {"a", "b\"c", null, "d\te"}));
+            UUID id = UUID.randomUUID();
+            Assert.assertEquals("{\"" + id + "\"}", format(new UUID[] {id}));
+            Assert.assertEquals("{}", format(new String[0]));
+            try {
+                format(new Object[] {new int[] {1}});
+                Assert.fail("expected IllegalArgumentException for nested array");
+            } catch (IllegalArgumentException expected) {
+                log.info("caught expected: " + expected);
+            }
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testShapes() {
+        try {
+            Point p = new Point(10.0, 20.0);
+            Assert.assertEquals(new PgSpoint().generatePoint(p).getValue(), format(p));
+
+            Circle c = new Circle(p, 0.5);
+            Assert.assertEquals(new PgScircle().generateCircle(c).getValue(), format(c));
+
+            Polygon poly = new Polygon();
+            poly.getVertices().add(new Point(10.0, 10.0));
+            poly.getVertices().add(new Point(12.0, 10.0));
+            poly.getVertices().add(new Point(11.0, 12.0));
+            Assert.assertEquals(new PgSpoly().generatePolygon(poly).getValue(), format(poly));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testInterval() {
+        try {
+            PgInterval gen = new PgInterval();
+            Interval<Double> i = new Interval<>(1.0, 3.0);
+            String s = format(i);
+            log.info("testInterval: " + s);
+            Assert.assertEquals(gen.generatePolygon2D(i).getValue(), s);
+
+            Interval<Double>[] arr = new Interval[] {
+                new Interval<>(1.0, 2.0), new Interval<>(3.0, 4.0), new Interval<>(5.0, 6.0)
+            };
+            s = format(arr);
+            log.info("testInterval: " + s);
+            Assert.assertEquals(gen.generatePolygon2D(arr).getValue(), s);
+            Assert.assertEquals("\\N", format(new Interval[0]));
+
+            Interval<Double>[] actual = gen.getIntervalArray(s);
+            Assert.assertEquals(arr.length, actual.length);
+            for (int j = 0; j < arr.length; j++) {
+                Assert.assertEquals(arr[j].getLower(), actual[j].getLower());
+                Assert.assertEquals(arr[j].getUpper(), actual[j].getUpper());
+            }
+
+            PgInterval loggen = new PgInterval(true);
+            PgCopyFormat logfmt = new PgCopyFormat(loggen);
+            StringBuilder sb = new StringBuilder();
+            logfmt.appendValue(sb, i);
+            Assert.assertEquals(loggen.generatePolygon2D(i).getValue(), sb.toString());
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+}
@@ -144,4 +144,45 @@ public class PgSpolyTest
         }
     }
     
+    @Test
+    public void testParseServerFormat()
+    {
+        try
+        {
+            // spacing and exponents as they may come back from the server
+            String s = "{(0.0174532925199433 , 0.0349065850398866), (5.23598775598299e-02,5.2359877559829887E-2),(0.0349065850398866,0.0698131700797732)}";
+            Polygon poly = gen.getPolygon(s);
+            Assert.assertEquals(3, poly.getVertices().size());
+            Assert.assertEquals(1.0, poly.getVertices().get(0).getLongitude(), 1.0e-12);
+            Assert.assertEquals(2.0, poly.getVertices().get(0).getLatitude(), 1.0e-12);
+            Assert.assertEquals(3.0, poly.getVertices().get(1).getLongitude(), 1.0e-12);
+            Assert.assertEquals(3.0, poly.getVertices().get(1).getLatitude(), 1.0e-12);
+            Assert.assertEquals(2.0, poly.getVertices().get(2).getLongitude(), 1.0e-12);
+            Assert.assertEquals(4.0, poly.getVertices().get(2).getLatitude(), 1.0e-12);
+
+            try
+            {
+                gen.getPolygon("{(0.1,0.2),(0.2,0.2)}");
+                Assert.fail("expected IllegalArgumentException: too few vertices");
+            }
+            catch(IllegalArgumentException expected)
+            {
+                log.debug("caught expected: " + expected);
+            }
+            try
+            {
+                gen.getPolygon("{(0.1,0.2),(0.2,0.2,0.3),(0.3,0.3)}");
+                Assert.fail("expected IllegalArgumentException: 3 values in vertex");
+            }
+            catch(IllegalArgumentException expected)
+            {
+                log.debug("caught expected: " + expected);
+            }
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
 }
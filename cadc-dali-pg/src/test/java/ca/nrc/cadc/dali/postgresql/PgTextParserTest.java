@@ -0,0 +1,155 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2025.                            (c) 2025.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.postgresql;
+
+import ca.nrc.cadc.util.Log4jInit;
+import java.util.Locale;
+import java.util.Random;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PgTextParserTest {
+
+    private static final Logger log = Logger.getLogger(PgTextParserTest.class);
+
+    static {
+        Log4jInit.setLevel("ca.nrc.cadc.dali", Level.INFO);
+    }
+
+    public PgTextParserTest() {
+    }
+
+    private void assertParse(String s) {
+        double expected = Double.parseDouble(s);
+        double actual = new PgTextParser(s).readDouble();
+        Assert.assertEquals(s, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+
+    @Test
+    public void testReadDouble() {
+        try {
+            String[] vals = new String[] {
+                "0", "-0", "0.0", "-0.0", "1", "+1", "1.", "123.456", "-2.5e-3", "1E22", "1e23", "4.9e-324",
+                "1.7976931348623157E308", "0.000001234", "12345678901234567890", "0.17453292519943295",
+                "NaN", "Infinity", "-Infinity"
+            };
+            for (String s : vals) {
+                assertParse(s);
+            }
+
+            Random rnd = new Random(42L);
+            for (int i = 0; i < 100000; i++) {
+                double d = (rnd.nextDouble() - 0.5) * Math.pow(10.0, rnd.nextInt(20) - 10);
+                assertParse(Double.toString(d));
+                assertParse(String.format(Locale.US, "%.15g", d));
+                assertParse(String.format(Locale.US, "%.6f", d));
+            }
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testTokens() {
+        try {
+            PgTextParser p = new PgTextParser(" < ( 1.5 ,-2 ) , 3e-1 >");
+            Assert.assertTrue(p.seek('<'));
+            p.expect('(');
+            Assert.assertEquals(1.5, p.readDouble(), 0.0);
+            p.expect(',');
+            Assert.assertEquals(-2.0, p.readDouble(), 0.0);
+            Assert.assertFalse(p.accept(','));
+            p.expect(')');
+            Assert.assertTrue(p.accept(','));
+            Assert.assertEquals(0.3, p.readDouble(), 0.0);
+            p.expect('>');
+            Assert.assertFalse(p.seek('<'));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testInvalid() {
+        String[] vals = new String[] { "", "abc", "-", ".", "1e", "(1" };
+        for (String s : vals) {
+            try {
+                double d = new PgTextParser(s).readDouble();
+                Assert.fail("expected IllegalArgumentException for '" + s + "', got " + d);
+            } catch (IllegalArgumentException expected) {
+                log.debug("caught expected: " + expected);
+            }
+        }
+    }
+}
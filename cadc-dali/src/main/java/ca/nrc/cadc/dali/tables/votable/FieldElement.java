@@ -73,6 +73,12 @@ import java.util.List;
 import org.jdom2.Element;
 import org.jdom2.Namespace;
 
+/**
+ * JDOM FIELD element.
+ *
+ * @deprecated VOTableWriter writes the document with a streaming emitter and no longer builds JDOM elements
+ */
+@Deprecated
 public class FieldElement extends Element {
 
     /**
@@ -75,7 +75,9 @@ import org.jdom2.Namespace;
 /**
  *
  * @author pdowler
+ * @deprecated VOTableWriter writes the document with a streaming emitter and no longer builds JDOM elements
  */
+@Deprecated
 public class GroupElement extends Element {
 
     public GroupElement(VOTableGroup group, Namespace namespace) {
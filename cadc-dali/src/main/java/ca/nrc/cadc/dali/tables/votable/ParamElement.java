@@ -76,7 +76,9 @@ import org.jdom2.Namespace;
  * A VOTable PARAM element extends FIELD by adding a value attribute.
  *
  * @author jburke
+ * @deprecated VOTableWriter writes the document with a streaming emitter and no longer builds JDOM elements
  */
+@Deprecated
 public class ParamElement extends FieldElement {
 
     /**
@@ -0,0 +1,251 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.votable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Row iterator that reads the source iterator in a separate producer thread, so that
+ * fetching rows (e.g. from a database cursor) overlaps with formatting and writing them.
+ * Rows are handed over in batches through a bounded queue; the producer blocks when the
+ * queue is full.
+ *
+ * <p>A failure of the source iterator is thrown from hasNext() after all rows read before
+ * the failure have been returned. The iterator must be closed to stop the producer when
+ * the consumer stops early (e.g. at maxrec).
+ */
+public class PipelinedRowIterator implements Iterator<List<Object>>, Closeable {
+
+    private static final Logger log = Logger.getLogger(PipelinedRowIterator.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_QUEUE_SIZE = 4;
+
+    // marks the end of the rows in the queue
+    private static final List<List<Object>> END = new ArrayList<>(0);
+
+    private static final long OFFER_TIMEOUT_MS = 100L;
+
+    private final Iterator<List<Object>> source;
+    private final int batchSize;
+    private final long maxRows;
+    private final BlockingQueue<List<List<Object>>> queue;
+    private final Thread producer;
+
+    private volatile boolean closed = false;
+    private volatile RuntimeException failure;
+
+    private List<List<Object>> batch;
+    private int pos;
+    private boolean done = false;
+
+    /**
+     * Start reading all rows from the source with the default batch and queue size.
+     *
+     * @param source row iterator
+     */
+    public PipelinedRowIterator(Iterator<List<Object>> source) {
+        this(source, Long.MAX_VALUE, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Start reading rows from the source.
+     *
+     * @param source row iterator
+     * @param maxRows maximum number of rows to read from the source
+     * @param batchSize number of rows per batch
+     * @param queueSize maximum number of batches waiting for the consumer
+     */
+    public PipelinedRowIterator(Iterator<List<Object>> source, long maxRows, int batchSize, int queueSize) {
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        if (batchSize < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("invalid batchSize or queueSize: " + batchSize + " " + queueSize);
+        }
+        this.source = source;
+        this.maxRows = maxRows;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.producer = new Thread(new Producer(), "PipelinedRowIterator-" + Thread.currentThread().getName());
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (batch != null && pos < batch.size()) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        try {
+            batch = queue.take();
+            pos = 0;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while waiting for rows", ex);
+        }
+        if (batch == END) {
+            batch = null;
+            done = true;
+            if (failure != null) {
+                throw failure;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.get(pos++);
+    }
+
+    /**
+     * Stop the producer and wait for it to finish. The producer only notices after a
+     * pending call to the source iterator returns.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.clear();
+        try {
+            producer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.debug("interrupted while waiting for producer to stop");
+        }
+        queue.clear();
+        done = true;
+        batch = null;
+    }
+
+    private class Producer implements Runnable {
+
+        @Override
+        public void run() {
+            long numRows = 0;
+            List<List<Object>> rows = new ArrayList<>(batchSize);
+            try {
+                while (!closed && failure == null && numRows < maxRows && source.hasNext()) {
+                    rows.add(source.next());
+                    numRows++;
+                    if (rows.size() == batchSize) {
+                        offer(rows);
+                        rows = new ArrayList<>(batchSize);
+                    }
+                }
+            } catch (RuntimeException ex) {
+                failure = ex;
+            } catch (Error err) {
+                failure = new RuntimeException("failed to read rows: " + err, err);
+            } finally {
+                // rows read before a failure are still returned
+                if (!rows.isEmpty()) {
+                    offer(rows);
+                }
+                offer(END);
+                log.debug("producer done: " + numRows + " rows");
+            }
+        }
+
+        // wait for space in the queue, giving up when the consumer closes the iterator
+        private void offer(List<List<Object>> rows) {
+            try {
+                while (!closed) {
+                    if (queue.offer(rows, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // drop the pending rows so the consumer sees the failure without waiting
+                failure = new RuntimeException("interrupted while reading rows", ex);
+                queue.clear();
+                queue.offer(END);
+            }
+        }
+    }
+}
@@ -0,0 +1,585 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.votable;
+
+import ca.nrc.cadc.dali.tables.BinaryTableData;
+import ca.nrc.cadc.dali.tables.ListTableData;
+import ca.nrc.cadc.dali.tables.TableData;
+import ca.nrc.cadc.dali.tables.votable.VOTableWriter.SerializationType;
+import ca.nrc.cadc.io.ResourceIterator;
+import ca.nrc.cadc.util.StringUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.log4j.Logger;
+
+/**
+ * VOTable reader that uses a StAX pull parser instead of building a JDOM document.
+ * Metadata (RESOURCE, INFO, PARAM, FIELD, GROUP) is read eagerly, but the rows of
+ * the first TABLEDATA element are parsed one TR at a time while the caller iterates
+ * over the TableData, so arbitrarily large tables can be read in constant memory.
+ * The same applies to the first BINARY or BINARY2 STREAM: the base64 content is fed
+ * from the parser to the row decoder without being accumulated.
+ * <p>
+ * The streamed TableData can only be iterated once. Elements that follow it in the
+ * document (e.g. the trailing INFO with the QUERY_STATUS) are added to the returned
+ * VOTableDocument once the row iterator has been exhausted. This reader never
+ * performs schema validation.
+ * </p>
+ */
+public class StreamingVOTableReader extends VOTableReader {
+
+    private static final Logger log = Logger.getLogger(StreamingVOTableReader.class);
+
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    public StreamingVOTableReader() {
+        super(false);
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory ret = XMLInputFactory.newInstance();
+        ret.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        ret.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        ret.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        ret.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return ret;
+    }
+
+    @Override
+    protected VOTableDocument readImpl(Reader reader) throws IOException {
+        VOTableDocument votable = new VOTableDocument();
+        try {
+            XMLStreamReader xsr = inputFactory.createXMLStreamReader(reader);
+            StreamParser parser = new StreamParser(xsr, reader, votable);
+            parser.parse();
+        } catch (XMLStreamException e) {
+            reader.close();
+            throw new IOException("Unable to parse " + e.getMessage());
+        }
+        return votable;
+    }
+
+    // marker pushed on the context stack for DATA elements
+    private static final String DATA = "DATA";
+
+    private class StreamParser {
+
+        private final XMLStreamReader xsr;
+        private final Reader reader;
+        private final VOTableDocument votable;
+        private final Deque<Object> context = new ArrayDeque<>();
+        private boolean streaming = false;
+        private boolean closed = false;
+
+        StreamParser(XMLStreamReader xsr, Reader reader, VOTableDocument votable) {
+            this.xsr = xsr;
+            this.reader = reader;
+            this.votable = votable;
+        }
+
+        /**
+         * Parse from the current position until the start of the streamed TABLEDATA
+         * or the end of the document.
+         */
+        void parse() throws XMLStreamException, IOException {
+            while (xsr.hasNext()) {
+                int event = xsr.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (startElement()) {
+                        // suspended: rows are pulled by the TableData iterator
+                        return;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    endElement();
+                }
+            }
+            close();
+        }
+
+        void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    xsr.close();
+                } catch (XMLStreamException ex) {
+                    log.debug("failed to close XMLStreamReader: " + ex);
+                }
+                reader.close();
+            }
+        }
+
+        // return true if parsing is suspended at a streamed TABLEDATA element
+        private boolean startElement() throws XMLStreamException, IOException {
+            final String name = xsr.getLocalName();
+            final Object parent = context.peek();
+
+            if ("VOTABLE".equals(name) && parent == null) {
+                context.push(votable);
+            } else if ("RESOURCE".equals(name) && parent == votable) {
+                VOTableResource votResource = new VOTableResource(xsr.getAttributeValue(null, "type"));
+                votResource.utype = xsr.getAttributeValue(null, "utype");
+                votResource.setName(xsr.getAttributeValue(null, "name"));
+                votResource.id = xsr.getAttributeValue(null, "ID");
+                votable.getResources().add(votResource);
+                context.push(votResource);
+            } else if ("DESCRIPTION".equals(name) && parent instanceof VOTableResource) {
+                ((VOTableResource) parent).description = xsr.getElementText();
+            } else if ("INFO".equals(name)) {
+                VOTableInfo info = readInfo();
+                if (info != null) {
+                    if (parent == votable) {
+                        votable.getInfos().add(info);
+                    } else if (parent instanceof VOTableResource) {
+                        ((VOTableResource) parent).getInfos().add(info);
+                    } else if (parent instanceof VOTableTable) {
+                        ((VOTableTable) parent).getInfos().add(info);
+                    }
+                }
+            } else if ("PARAM".equals(name) && isParamContainer(parent)) {
+                VOTableParam param = new VOTableParam(xsr.getAttributeValue(null, "name"), xsr.getAttributeValue(null, "datatype"),
+                        xsr.getAttributeValue(null, "arraysize"), xsr.getAttributeValue(null, "value"));
+                readFieldContent(param);
+                if (parent instanceof VOTableResource) {
+                    ((VOTableResource) parent).getParams().add(param);
+                } else if (parent instanceof VOTableTable) {
+                    ((VOTableTable) parent).getParams().add(param);
+                } else {
+                    ((VOTableGroup) parent).getParams().add(param);
+                }
+            } else if ("FIELD".equals(name) && parent instanceof VOTableTable) {
+                VOTableField field = new VOTableField(xsr.getAttributeValue(null, "name"), xsr.getAttributeValue(null, "datatype"),
+                        xsr.getAttributeValue(null, "arraysize"));
+                readFieldContent(field);
+                ((VOTableTable) parent).getFields().add(field);
+            } else if ("GROUP".equals(name) && (parent instanceof VOTableResource || parent instanceof VOTableGroup)) {
+                VOTableGroup group = new VOTableGroup(xsr.getAttributeValue(null, "name"));
+                if (parent instanceof VOTableResource) {
+                    ((VOTableResource) parent).getGroups().add(group);
+                } else {
+                    ((VOTableGroup) parent).getGroups().add(group);
+                }
+                context.push(group);
+            } else if ("TABLE".equals(name) && parent instanceof VOTableResource && ((VOTableResource) parent).getTable() == null) {
+                VOTableTable table = new VOTableTable();
+                ((VOTableResource) parent).setTable(table);
+                context.push(table);
+            } else if ("DATA".equals(name) && parent instanceof VOTableTable) {
+                context.push(DATA);
+            } else if ("TABLEDATA".equals(name) && parent == DATA) {
+                VOTableTable table = getCurrentTable();
+                if (streaming) {
+                    // only the first table is streamed: read any others into memory
+                    ListTableData tableData = new ListTableData();
+                    RowParser rowParser = new RowParser(table.getFields());
+                    List<Object> row = rowParser.readRow();
+                    while (row != null) {
+                        tableData.getArrayList().add(row);
+                        row = rowParser.readRow();
+                    }
+                    table.setTableData(tableData);
+                } else {
+                    streaming = true;
+                    table.setTableData(new StreamTableData(new RowParser(table.getFields())));
+                    return true;
+                }
+            } else if (isBinaryType(name) && parent == DATA) {
+                context.push(name);
+            } else if ("STREAM".equals(name) && parent instanceof String && isBinaryType((String) parent)) {
+                String binaryType = (String) parent;
+                if (!SerializationType.BINARY.name().equals(binaryType) && !SerializationType.BINARY2.name().equals(binaryType)) {
+                    throw new UnsupportedOperationException("Unsupported type: " + binaryType);
+                }
+                // Default to base64 encoding
+                String encoding = xsr.getAttributeValue(null, "encoding");
+                if (encoding == null) {
+                    encoding = DEFAULT_STREAM_ENCODING;
+                }
+                VOTableTable table = getCurrentTable();
+                boolean isBinary2 = SerializationType.BINARY2.name().equals(binaryType);
+                if (streaming) {
+                    // only the first table is streamed: buffer the content of any others
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    try (InputStream istream = new StreamContentInputStream(false)) {
+                        istream.transferTo(bos);
+                    }
+                    table.setTableData(new BinaryTableData(new ByteArrayInputStream(bos.toByteArray()),
+                            table.getFields(), encoding, formatFactory, isBinary2));
+                } else {
+                    streaming = true;
+                    table.setTableData(new BinaryTableData(new StreamContentInputStream(true),
+                            table.getFields(), encoding, formatFactory, isBinary2));
+                    return true;
+                }
+            } else {
+                skipElement();
+            }
+            return false;
+        }
+
+        private void endElement() {
+            Object current = context.pop();
+            if (current == DATA) {
+                if (getCurrentTable().getTableData() == null) {
+                    throw new UnsupportedOperationException("Unknown DATA");
+                }
+            } else if (current instanceof String) {
+                // BINARY element without a STREAM
+                VOTableTable table = getCurrentTable();
+                if (table.getTableData() == null) {
+                    table.setTableData(new ListTableData());
+                }
+            }
+        }
+
+        private VOTableTable getCurrentTable() {
+            for (Object o : context) {
+                if (o instanceof VOTableTable) {
+                    return (VOTableTable) o;
+                }
+            }
+            throw new IllegalStateException("BUG: no TABLE in current context");
+        }
+
+        private boolean isParamContainer(Object parent) {
+            return parent instanceof VOTableResource || parent instanceof VOTableTable || parent instanceof VOTableGroup;
+        }
+
+        private boolean isBinaryType(String name) {
+            for (String s : BINARY_TYPES) {
+                if (s.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // skip the current element and all its content
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                int event = xsr.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+
+        private VOTableInfo readInfo() throws XMLStreamException {
+            String name = xsr.getAttributeValue(null, "name");
+            String value = xsr.getAttributeValue(null, "value");
+            String id = xsr.getAttributeValue(null, "ID");
+            String content = xsr.getElementText();
+            if (StringUtil.hasText(name) && StringUtil.hasText(value)) {
+                VOTableInfo ret = new VOTableInfo(name, value);
+                log.debug("INFO content: " + content);
+                if (StringUtil.hasText(content)) {
+                    ret.content = content;
+                }
+                if (StringUtil.hasText(id)) {
+                    ret.id = id;
+                }
+                return ret;
+            }
+            return null;
+        }
+
+        // populate a FIELD or PARAM from the attributes and child elements of the current element
+        private void readFieldContent(VOTableField field) throws XMLStreamException {
+            field.id = xsr.getAttributeValue(null, "ID");
+            field.ucd = xsr.getAttributeValue(null, "ucd");
+            field.unit = xsr.getAttributeValue(null, "unit");
+            field.utype = xsr.getAttributeValue(null, "utype");
+            field.xtype = xsr.getAttributeValue(null, "xtype");
+            field.ref = xsr.getAttributeValue(null, "ref");
+
+            int event = xsr.nextTag();
+            while (event == XMLStreamConstants.START_ELEMENT) {
+                String name = xsr.getLocalName();
+                if ("DESCRIPTION".equals(name)) {
+                    field.description = xsr.getElementText();
+                } else if ("VALUES".equals(name)) {
+                    String nullValue = xsr.getAttributeValue(null, "null");
+                    if (nullValue != null) {
+                        field.nullValue = nullValue.trim();
+                    }
+                    int e = xsr.nextTag();
+                    while (e == XMLStreamConstants.START_ELEMENT) {
+                        if ("OPTION".equals(xsr.getLocalName())) {
+                            field.getValues().add(xsr.getAttributeValue(null, "value"));
+                        }
+                        skipElement();
+                        e = xsr.nextTag();
+                    }
+                } else {
+                    skipElement();
+                }
+                event = xsr.nextTag();
+            }
+        }
+
+        /**
+         * Parses TR elements from the current TABLEDATA element into rows, using
+         * the codec plan of the table.
+         */
+        private class RowParser {
+
+            private final int numFields;
+            private final TableCodecPlan plan;
+
+            RowParser(List<VOTableField> fields) {
+                this.numFields = fields.size();
+                this.plan = new TableCodecPlan(fields, formatFactory);
+            }
+
+            // return the next row or null at the end of the TABLEDATA element
+            List<Object> readRow() throws XMLStreamException {
+                int event = xsr.nextTag();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    return null;
+                }
+                if (!"TR".equals(xsr.getLocalName())) {
+                    throw new XMLStreamException("unexpected element in TABLEDATA: " + xsr.getLocalName(), xsr.getLocation());
+                }
+                List<Object> row = new ArrayList<>(numFields);
+                int i = 0;
+                event = xsr.nextTag();
+                while (event == XMLStreamConstants.START_ELEMENT) {
+                    row.add(plan.getColumn(i).parse(xsr.getElementText().trim()));
+                    i++;
+                    event = xsr.nextTag();
+                }
+                return row;
+            }
+        }
+
+        /**
+         * InputStream over the character content of the current STREAM element. The
+         * characters are taken directly from the parser events so the (base64) content is
+         * never accumulated in memory; decoding can start before the rest of the document
+         * has been received. The content of an inline STREAM is always ASCII so each char
+         * maps to one byte.
+         */
+        private class StreamContentInputStream extends InputStream {
+
+            private final boolean resumeAtEnd;
+            private boolean textEvent = false;
+            private int textPos;
+            private boolean eof = false;
+
+            StreamContentInputStream(boolean resumeAtEnd) {
+                this.resumeAtEnd = resumeAtEnd;
+            }
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                int n = read(b, 0, 1);
+                if (n == -1) {
+                    return -1;
+                }
+                return b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                try {
+                    while (!eof) {
+                        if (textEvent) {
+                            int n = Math.min(len, xsr.getTextLength() - textPos);
+                            if (n > 0) {
+                                char[] text = xsr.getTextCharacters();
+                                int start = xsr.getTextStart() + textPos;
+                                for (int i = 0; i < n; i++) {
+                                    b[off + i] = (byte) text[start + i];
+                                }
+                                textPos += n;
+                                return n;
+                            }
+                            textEvent = false;
+                        }
+                        int event = xsr.next();
+                        if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                                || event == XMLStreamConstants.SPACE) {
+                            textEvent = true;
+                            textPos = 0;
+                        } else if (event == XMLStreamConstants.END_ELEMENT) {
+                            eof = true;
+                            if (resumeAtEnd) {
+                                // end of STREAM: read the rest of the document
+                                parse();
+                            }
+                        } else if (event == XMLStreamConstants.START_ELEMENT) {
+                            throw new IOException("unexpected element in STREAM: " + xsr.getLocalName());
+                        }
+                    }
+                } catch (XMLStreamException ex) {
+                    throw new IOException("failed to read STREAM content: " + ex.getMessage(), ex);
+                }
+                return -1;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (resumeAtEnd) {
+                    StreamParser.this.close();
+                }
+            }
+        }
+
+        private class StreamTableData implements TableData {
+
+            private final RowParser rowParser;
+            private boolean iterated = false;
+
+            StreamTableData(RowParser rowParser) {
+                this.rowParser = rowParser;
+            }
+
+            @Override
+            public ResourceIterator<List<Object>> iterator() {
+                if (iterated) {
+                    throw new IllegalStateException("streamed TABLEDATA can only be iterated once");
+                }
+                iterated = true;
+                return new StreamIterator(rowParser);
+            }
+
+            @Override
+            public void close() throws IOException {
+                StreamParser.this.close();
+            }
+        }
+
+        private class StreamIterator implements ResourceIterator<List<Object>> {
+
+            private final RowParser rowParser;
+            private List<Object> nextRow;
+
+            StreamIterator(RowParser rowParser) {
+                this.rowParser = rowParser;
+                fetchNext();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextRow != null;
+            }
+
+            @Override
+            public List<Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more rows");
+                }
+                List<Object> current = nextRow;
+                fetchNext();
+                return current;
+            }
+
+            private void fetchNext() {
+                if (closed) {
+                    nextRow = null;
+                    return;
+                }
+                try {
+                    nextRow = rowParser.readRow();
+                    if (nextRow == null) {
+                        // end of TABLEDATA: read the rest of the document
+                        parse();
+                    }
+                } catch (XMLStreamException | IOException ex) {
+                    nextRow = null;
+                    throw new IllegalStateException("failed to read TABLEDATA row: " + ex.getMessage(), ex);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                StreamParser.this.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.votable;
+
+import ca.nrc.cadc.dali.tables.votable.binary.FieldProcessor;
+import ca.nrc.cadc.dali.tables.votable.binary.FieldProcessorFactory;
+import ca.nrc.cadc.dali.util.Format;
+import ca.nrc.cadc.dali.util.FormatFactory;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Per-column serialization state of a table: the Format, binary field processor,
+ * array shape and parsed null value of every field are resolved once from the
+ * field list and reused by the readers and writers for every row of the table.
+ */
+public class TableCodecPlan {
+
+    private static final FieldProcessorFactory FIELD_PROCESSORS = new FieldProcessorFactory();
+
+    private final ColumnCodec[] columns;
+
+    /**
+     * Resolve the codecs for the specified fields.
+     *
+     * @param fields table fields
+     * @param formatFactory factory used to create the column formats; null for the default FormatFactory
+     */
+    public TableCodecPlan(List<VOTableField> fields, FormatFactory formatFactory) {
+        FormatFactory ff = formatFactory == null ? new FormatFactory() : formatFactory;
+        this.columns = new ColumnCodec[fields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnCodec(fields.get(i), ff);
+        }
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int size() {
+        return columns.length;
+    }
+
+    /**
+     * @param i column index
+     * @return codec for the column
+     */
+    public ColumnCodec getColumn(int i) {
+        return columns[i];
+    }
+
+    public static class ColumnCodec {
+
+        private final VOTableField field;
+        private final Format format;
+        private final RuntimeException formatError;
+        private final FieldProcessor fieldProcessor;
+        private final int[] shape;
+        private final boolean variable;
+        private final int fixedLength;
+        private final boolean hasNullValue;
+        private final Object nullValue;
+
+        ColumnCodec(VOTableField field, FormatFactory formatFactory) {
+            this.field = field;
+            Format fmt = null;
+            RuntimeException err = null;
+            try {
+                fmt = formatFactory.getFormat(field);
+            } catch (UnsupportedOperationException | IllegalArgumentException ex) {
+                // unsupported field: reported on use
+                err = ex;
+            }
+            this.format = fmt;
+            this.formatError = err;
+
+            FieldProcessor fp = null;
+            if (field.getDatatype() != null) {
+                try {
+                    fp = FIELD_PROCESSORS.getFieldProcessor(field.getDatatype().toLowerCase());
+                } catch (IllegalArgumentException ex) {
+                    // not supported in binary serialization: reported on use
+                }
+            }
+            this.fieldProcessor = fp;
+
+            this.shape = VOTableUtil.parseArraySize(field.getArraysize());
+            int len = 1;
+            boolean var = false;
+            if (shape != null) {
+                for (int dim : shape) {
+                    if (dim == -1) { // -1 is for variable dimension
+                        var = true;
+                    } else {
+                        len *= dim;
+                    }
+                }
+            }
+            this.variable = var;
+            this.fixedLength = len;
+
+            this.hasNullValue = field.nullValue != null && !field.nullValue.isEmpty();
+            Object nv = null;
+            if (hasNullValue && format != null) {
+                try {
+                    nv = format.parse(field.nullValue);
+                } catch (IllegalArgumentException ex) {
+                    // element null value of an array that is not a valid cell value, e.g. for an interval
+                }
+            }
+            this.nullValue = nv;
+        }
+
+        public VOTableField getField() {
+            return field;
+        }
+
+        /**
+         * @return the format for values of the column
+         * @throws UnsupportedOperationException or IllegalArgumentException if the FormatFactory does not support the field
+         */
+        public Format getFormat() {
+            if (formatError != null) {
+                throw formatError;
+            }
+            return format;
+        }
+
+        /**
+         * @return the binary field processor for the datatype
+         * @throws IllegalArgumentException if the datatype is not supported in binary serialization
+         */
+        public FieldProcessor getFieldProcessor() {
+            if (fieldProcessor == null) {
+                throw new IllegalArgumentException("Unsupported datatype: " + field.getDatatype());
+            }
+            return fieldProcessor;
+        }
+
+        /**
+         * @return parsed arraysize or null for a scalar
+         */
+        public int[] getShape() {
+            return shape;
+        }
+
+        public boolean isArray() {
+            return shape != null;
+        }
+
+        /**
+         * @return true if the last dimension of the array is variable
+         */
+        public boolean isVariable() {
+            return variable;
+        }
+
+        /**
+         * @return number of elements in a value, excluding the variable dimension
+         */
+        public int getFixedLength() {
+            return fixedLength;
+        }
+
+        /**
+         * @return true if the field declares a null value
+         */
+        public boolean hasNullValue() {
+            return hasNullValue;
+        }
+
+        /**
+         * @return the declared null value parsed with the column format
+         */
+        public Object getNullValue() {
+            return nullValue;
+        }
+
+        /**
+         * Parse a text value, mapping empty text and the declared null value to null.
+         *
+         * @param text text value
+         * @return parsed value or null
+         */
+        public Object parse(String text) {
+            if (text != null && text.isEmpty()) {
+                text = null;
+            }
+            Object ret = getFormat().parse(text);
+            if (hasNullValue && Objects.equals(ret, nullValue)) {
+                return null;
+            }
+            return ret;
+        }
+
+        /**
+         * @param value non-null value
+         * @return text value
+         */
+        @SuppressWarnings("unchecked")
+        public String format(Object value) {
+            return getFormat().format(value);
+        }
+
+        /**
+         * @param value non-null value
+         * @param sb buffer to append the text value to
+         */
+        @SuppressWarnings("unchecked")
+        public void appendTo(Object value, StringBuilder sb) {
+            getFormat().appendTo(value, sb);
+        }
+    }
+}
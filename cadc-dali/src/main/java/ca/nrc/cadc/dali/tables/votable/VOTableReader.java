@@ -74,25 +74,21 @@ import ca.nrc.cadc.dali.tables.ListTableData;
 import ca.nrc.cadc.dali.tables.TableData;
 import ca.nrc.cadc.dali.tables.TableReader;
 import ca.nrc.cadc.dali.tables.votable.VOTableWriter.SerializationType;
-import ca.nrc.cadc.dali.util.Format;
 import ca.nrc.cadc.dali.util.FormatFactory;
 import ca.nrc.cadc.util.StringUtil;
 import ca.nrc.cadc.xml.XmlUtil;
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
-import java.util.Objects;
 import org.apache.log4j.Logger;
 import org.jdom2.Attribute;
 import org.jdom2.Document;
@@ -128,7 +124,7 @@ public class VOTableReader implements TableReader {
     private static final String votable13SchemaUrl;
     private static final String votable14SchemaUrl;
 
-    private FormatFactory formatFactory;
+    protected FormatFactory formatFactory;
 
     static {
         votable11SchemaUrl = getSchemaURL(VOTABLE_11_SCHEMA);
@@ -343,8 +339,7 @@ public class VOTableReader implements TableReader {
 
                                 if (binaryData.getName().equals(SerializationType.BINARY.name()) 
                                         || binaryData.getName().equals(SerializationType.BINARY2.name())) {
-                                    vot.setTableData(new BinaryTableData(
-                                            new ByteArrayInputStream(streamData.getText().getBytes(StandardCharsets.UTF_8)),
+                                    vot.setTableData(new BinaryTableData(new TextInputStream(streamData.getText()),
                                             vot.getFields(), encoding, formatFactory, binaryData.getName().equals(SerializationType.BINARY2.name())));
                                 } else {
                                     throw new UnsupportedOperationException("Unsupported type: " + binaryData.getName());
@@ -522,30 +517,52 @@ public class VOTableReader implements TableReader {
         ListTableData tableData = new ListTableData(reader);
 
         if (element != null) {
+            TableCodecPlan plan = new TableCodecPlan(fields, formatFactory);
             List<Element> trs = element.getChildren("TR", namespace);
             for (Element tr : trs) {
                 List<Object> row = new ArrayList<Object>();
                 List<Element> tds = tr.getChildren("TD", namespace);
                 for (int i = 0; i < tds.size(); i++) {
                     Element td = tds.get(i);
-                    VOTableField field = fields.get(i);
-                    Format format = formatFactory.getFormat(field);
-                    String text = td.getTextTrim();
-                    if (text != null && text.length() == 0) {
-                        text = null;
-                    }
-                    Object parsedData = format.parse(text);
-                    if (field.nullValue != null && !field.nullValue.isEmpty()) {
-                        Object nullObj = formatFactory.getFormat(field).parse(field.nullValue);
-                        if (Objects.equals(parsedData, nullObj)) {
-                            parsedData = null;
-                        }
-                    }
-                    row.add(parsedData);
+                    row.add(plan.getColumn(i).parse(td.getTextTrim()));
                 }
                 tableData.getArrayList().add(row);
             }
         }
         return tableData;
     }
+
+    // InputStream over the (ASCII) text content of a STREAM element without copying it to a byte[]
+    private static class TextInputStream extends InputStream {
+
+        private final String text;
+        private int pos = 0;
+
+        TextInputStream(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read() {
+            if (pos >= text.length()) {
+                return -1;
+            }
+            return text.charAt(pos++) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= text.length()) {
+                return -1;
+            }
+            int n = Math.min(len, text.length() - pos);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) text.charAt(pos++);
+            }
+            return n;
+        }
+    }
 }
@@ -70,24 +70,22 @@
 package ca.nrc.cadc.dali.tables.votable;
 
 import ca.nrc.cadc.dali.tables.TableWriter;
+import ca.nrc.cadc.dali.tables.votable.binary.BinaryElementWriter;
+import ca.nrc.cadc.dali.tables.votable.tabledata.TableDataElementWriter;
 import ca.nrc.cadc.dali.util.Format;
 import ca.nrc.cadc.dali.util.FormatFactory;
 import ca.nrc.cadc.xml.ContentConverter;
 import ca.nrc.cadc.xml.MaxIterations;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import org.apache.log4j.Logger;
-import org.jdom2.Comment;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.Namespace;
-import org.jdom2.output.XMLOutputter;
 
 /**
  * Basic VOTable reader. This class currently supports a subset of VOTable (tabledata
@@ -102,6 +100,7 @@ public class VOTableWriter implements TableWriter<VOTableDocument> {
 
     public static final String CONTENT_TYPE = "application/x-votable+xml";
     public static final String CONTENT_TYPE_ALT = "text/xml";
+    public static final String SERIALIZATION_PARAM_BINARY = "; serialization=binary";
     public static final String SERIALIZATION_PARAM_BINARY2 = " ;serialization=binary2";
     public static final String SERIALIZATION_PARAM_TABLEDATA = "; serialization=tabledata";
 
@@ -117,6 +116,8 @@ public class VOTableWriter implements TableWriter<VOTableDocument> {
     public static final String VOTABLE_13_NS_URI = "http://www.ivoa.net/xml/VOTable/v1.3";
 
     private FormatFactory formatFactory;
+    private boolean prettyPrint = false;
+    private boolean pipelined = false;
 
     private final String contentType;
     private final SerializationType serialization;
@@ -169,6 +170,9 @@ public class VOTableWriter implements TableWriter<VOTableDocument> {
             case TABLEDATA:
                 contentType = CONTENT_TYPE + SERIALIZATION_PARAM_TABLEDATA;
                 break;
+            case BINARY:
+                contentType = CONTENT_TYPE + SERIALIZATION_PARAM_BINARY;
+                break;
             case BINARY2:
                 contentType = CONTENT_TYPE + SERIALIZATION_PARAM_BINARY2;
                 break;
@@ -206,6 +210,28 @@ public class VOTableWriter implements TableWriter<VOTableDocument> {
         this.formatFactory = formatFactory;
     }
 
+    /**
+     * Indent the XML elements of the document. The default is compact output
+     * without whitespace between elements.
+     *
+     * @param prettyPrint true to indent nested elements
+     */
+    public void setPrettyPrint(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+    }
+
+    /**
+     * Read rows from the table data iterator in a separate thread while the current
+     * thread formats and writes them. This helps when fetching rows (e.g. from a database
+     * cursor) and encoding them have comparable cost. Failures reading rows are reported
+     * in the trailing INFO element as in the default (single thread) mode.
+     *
+     * @param pipelined true to read rows in a separate thread
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
     /**
      * Write the VOTable to the specified OutputStream.
      *
@@ -232,7 +258,7 @@ public class VOTableWriter implements TableWriter<VOTableDocument> {
     @Override
     public void write(VOTableDocument votable, OutputStream ostream, Long maxrec)
             throws IOException {
-        Writer writer = new BufferedWriter(new OutputStreamWriter(ostream, "UTF-8"));
+        Writer writer = new Utf8OutputWriter(ostream);
         write(votable, writer, maxrec);
     }
     
@@ -277,196 +303,294 @@ public class VOTableWriter implements TableWriter<VOTableDocument> {
      */
     public void write(Throwable thrown, OutputStream output)
             throws IOException {
-        Document document = createDocument();
-        Element root = document.getRootElement();
-        Namespace namespace = root.getNamespace();
-
-        // Create the RESOURCE element and add to the VOTABLE element.
-        Element resource = new Element("RESOURCE", namespace);
-        resource.setAttribute("type", "results");
-        root.addContent(resource);
-
-        // Create the INFO element and add to the RESOURCE element.
-        Element info = new Element("INFO", namespace);
-        info.setAttribute("name", "QUERY_STATUS");
-        info.setAttribute("value", "ERROR");
-        info.setText(getThrownExceptions(thrown));
-        resource.addContent(info);
-
-        // Write out the VOTABLE.
-        XMLOutputter outputter = new XMLOutputter();
-        outputter.setFormat(org.jdom2.output.Format.getPrettyFormat());
-        outputter.output(document, output);
+        Writer writer = new Utf8OutputWriter(output);
+        XmlEmitter xml = new XmlEmitter(writer, prettyPrint);
+        startDocument(xml);
+
+        // RESOURCE element with the INFO element
+        xml.startElement("RESOURCE");
+        xml.attribute("type", "results");
+        writeInfo(xml, "QUERY_STATUS", "ERROR", null, getThrownExceptions(thrown));
+        xml.endElement();
+
+        xml.end();
     }
 
     protected void writeImpl(VOTableDocument votable, Writer writer, Long maxrec)
             throws IOException {
         log.debug("write, maxrec=" + maxrec);
 
-        // VOTable document and root element.
-        Document document = createDocument();
-        Element root = document.getRootElement();
-        Namespace namespace = root.getNamespace();
-
-        Iterator<List<Object>> rowIter = null;
-        List<VOTableField> fields = null;
-        Element trailer = null;
-        TabledataMaxIterations maxIterations = null;
-
-        for (VOTableResource votResource : votable.getResources()) {
-            Element resource = createResource(votResource, namespace);
-            root.addContent(resource);
-
-            if (votResource.getTable() != null) {
+        if (serialization.equals(SerializationType.BINARY)) {
+            // refuse columns that cannot represent null before any output is written
+            for (VOTableResource votResource : votable.getResources()) {
                 VOTableTable vot = votResource.getTable();
-
-                // Create the TABLE element and add to the RESOURCE element.
-                Element table = new Element("TABLE", namespace);
-                resource.addContent(table);
-
-                // Add INFO elements to the TABLE element.
-                for (VOTableInfo tableInfo : vot.getInfos()) {
-                    table.addContent(createInfo(tableInfo, namespace));
-                }
-                log.debug("wrote resource.table.info: " + vot.getInfos().size());
-
-                // Add the metadata elements.
-                for (VOTableParam param : vot.getParams()) {
-                    table.addContent(new ParamElement(param, namespace));
-                }
-                log.debug("wrote resource.table.param: " + vot.getParams().size());
-                for (VOTableField field : vot.getFields()) {
-                    table.addContent(new FieldElement(field, namespace));
-                }
-                log.debug("wrote resource.table.field: " + vot.getFields().size());
-
-                if (vot.getTableData() != null) {
-                    // Create the DATA and either TABLEDATA OR BINARY2 elements.
-                    Element data = new Element("DATA", namespace);
-                    table.addContent(data);
-
-                    log.debug("setup content interator: maxrec=" + maxrec);
-                    trailer = new Element("INFO", namespace);
-                    trailer.setAttribute("name", "placeholder");
-                    trailer.setAttribute("value", "ignore");
-                    resource.addContent(trailer);
-
-                    maxIterations = new TabledataMaxIterations(maxrec, trailer);
-                    rowIter = vot.getTableData().iterator();
-                    fields = vot.getFields();
-
-                    // Data content is added by the XMLOutputProcessor while writing out the XML format
-                    if (serialization.equals(SerializationType.TABLEDATA)) {
-                        log.debug("adding TABLEDATA element to DATA element");
-                        Element tabledataElement = new Element("TABLEDATA", namespace);
-                        data.addContent(tabledataElement);
-                    } else if (serialization.equals(SerializationType.BINARY2)) {
-                        log.debug("adding BINARY2 element to DATA element");
-                        Element binary2 = new Element("BINARY2", namespace);
-                        data.addContent(binary2);
-                    } else {
-                        throw new RuntimeException("Invalid serialization type: " + serialization);
-                    }
-                } else {
-                    table.addContent(new Comment("data goes here"));
+                if (vot != null && vot.getTableData() != null) {
+                    BinaryElementWriter.checkNullValues(new TableCodecPlan(vot.getFields(), formatFactory));
                 }
             }
         }
 
-        // Add INFO elements to the VOTABLE element.
-        for (VOTableInfo votableInfo : votable.getInfos()) {
-            root.addContent(createInfo(votableInfo, namespace));
-        }
-
-        // Write out the VOTABLE.
         try {
-            XMLOutputter outputter = new XMLOutputter();
-            outputter.setFormat(org.jdom2.output.Format.getPrettyFormat());
-            outputter.setXMLOutputProcessor(new XMLOutputProcessor(rowIter, fields, maxIterations, trailer, formatFactory));
-            outputter.output(document, writer);
+            XmlEmitter xml = new XmlEmitter(writer, prettyPrint);
+            startDocument(xml);
+
+            for (VOTableResource votResource : votable.getResources()) {
+                writeResource(xml, votResource, maxrec);
+            }
+
+            // Add INFO elements to the VOTABLE element.
+            for (VOTableInfo votableInfo : votable.getInfos()) {
+                writeInfo(xml, votableInfo);
+            }
+
+            xml.end();
         } catch (RuntimeException ex) {
-            // IterableContent setup should catch and handle all exceptions, but if they don't
+            // element writers should catch and handle all exceptions, but if they don't
             // might as well be useful here
             log.error("OUTPUT FAIL", ex);
             throw ex;
         }
     }
 
-    private Element createResource(VOTableResource votResource, Namespace namespace) {
-        // Create the RESOURCE element and add to the VOTABLE element.
-        Element resource = new Element("RESOURCE", namespace);
+    /**
+     * Builds a empty VOTable document with the appropriate namespaces and
+     * attributes.
+     *
+     * @return VOTable document.
+     * @deprecated documents are written with a streaming emitter and this method is no longer called
+     */
+    @Deprecated
+    protected Document createDocument() {
+        // the root VOTABLE element
+        Namespace vot = Namespace.getNamespace(VOTABLE_13_NS_URI);
+        Namespace xsi = Namespace.getNamespace("xsi", XSI_SCHEMA);
+        Element votable = new Element("VOTABLE", vot);
+        votable.setAttribute("version", VOTABLE_VERSION);
+        votable.addNamespaceDeclaration(xsi);
 
-        resource.setAttribute("type", votResource.getType());
-        log.debug("wrote resource.type: " + votResource.getType());
+        Document document = new Document();
+        document.addContent(votable);
 
-        if (votResource.id != null) {
-            resource.setAttribute("ID", votResource.id);
-        }
+        return document;
+    }
 
-        if (votResource.getName() != null) {
-            resource.setAttribute("name", votResource.getName());
-        }
+    // XML declaration and the root VOTABLE start tag with the appropriate namespaces and attributes
+    private void startDocument(XmlEmitter xml) throws IOException {
+        xml.declaration();
+        xml.startElement("VOTABLE");
+        xml.attribute("xmlns", VOTABLE_13_NS_URI);
+        xml.attribute("xmlns:xsi", XSI_SCHEMA);
+        xml.attribute("version", VOTABLE_VERSION);
+    }
 
-        if (votResource.utype != null) {
-            resource.setAttribute("utype", votResource.utype);
-        }
+    private void writeResource(XmlEmitter xml, VOTableResource votResource, Long maxrec)
+            throws IOException {
+        xml.startElement("RESOURCE");
+        xml.attribute("type", votResource.getType());
+        xml.attribute("ID", votResource.id);
+        xml.attribute("name", votResource.getName());
+        xml.attribute("utype", votResource.utype);
+        log.debug("wrote resource.type: " + votResource.getType());
 
-        // Create the DESCRIPTION element and add to RESOURCE element.
         if (votResource.description != null) {
-            Element description = new Element("DESCRIPTION", namespace);
-            description.setText(votResource.description);
-            resource.addContent(description);
+            xml.element("DESCRIPTION", votResource.description);
         }
 
-        // Add INFO elements to the RESOURCE element.
         for (VOTableInfo in : votResource.getInfos()) {
-            resource.addContent(createInfo(in, namespace));
+            writeInfo(xml, in);
         }
         log.debug("wrote resource.info: " + votResource.getInfos().size());
 
         for (VOTableParam param : votResource.getParams()) {
-            resource.addContent(new ParamElement(param, namespace));
+            writeField(xml, "PARAM", param, null);
         }
         log.debug("wrote resource.param: " + votResource.getParams().size());
 
         for (VOTableGroup vg : votResource.getGroups()) {
-            resource.addContent(new GroupElement(vg, namespace));
+            writeGroup(xml, vg);
         }
 
-        return resource;
+        VOTableTable vot = votResource.getTable();
+        if (vot != null) {
+            xml.startElement("TABLE");
+
+            for (VOTableInfo tableInfo : vot.getInfos()) {
+                writeInfo(xml, tableInfo);
+            }
+            log.debug("wrote resource.table.info: " + vot.getInfos().size());
+
+            for (VOTableParam param : vot.getParams()) {
+                writeField(xml, "PARAM", param, null);
+            }
+            log.debug("wrote resource.table.param: " + vot.getParams().size());
+            for (VOTableField field : vot.getFields()) {
+                String nullValue = null;
+                if (serialization.equals(SerializationType.BINARY)) {
+                    // BINARY has no null flags: declare the value used for nulls
+                    nullValue = BinaryElementWriter.getNullValue(field);
+                }
+                writeField(xml, "FIELD", field, nullValue);
+            }
+            log.debug("wrote resource.table.field: " + vot.getFields().size());
+
+            if (vot.getTableData() != null) {
+                log.debug("setup content interator: maxrec=" + maxrec);
+                TabledataMaxIterations maxIterations = new TabledataMaxIterations(maxrec);
+                Exception error = writeData(xml, vot, maxIterations);
+                xml.endElement(); // TABLE
+
+                // trailing INFO: the outcome is only known after the rows are written
+                if (error != null) {
+                    // DALI error
+                    writeInfo(xml, "QUERY_STATUS", "ERROR", null, error.toString());
+                } else if (maxIterations.overflow) {
+                    // DALI overflow
+                    writeInfo(xml, "QUERY_STATUS", "OVERFLOW", null, null);
+                } else {
+                    writeInfo(xml, "placeholder", "ignore", null, null);
+                }
+            } else {
+                xml.comment("data goes here");
+                xml.endElement(); // TABLE
+            }
+        }
+
+        xml.endElement(); // RESOURCE
     }
 
-    /**
-     * Builds a empty VOTable document with the appropriate namespaces and
-     * attributes.
-     *
-     * @return VOTable document.
-     */
-    protected Document createDocument() {
-        // the root VOTABLE element
-        Namespace vot = Namespace.getNamespace(VOTABLE_13_NS_URI);
-        Namespace xsi = Namespace.getNamespace("xsi", XSI_SCHEMA);
-        Element votable = new Element("VOTABLE", vot);
-        votable.setAttribute("version", VOTABLE_VERSION);
-        votable.addNamespaceDeclaration(xsi);
+    // write the DATA element and rows; returns the exception that stopped writing rows, if any
+    private Exception writeData(XmlEmitter xml, VOTableTable vot, TabledataMaxIterations maxIterations)
+            throws IOException {
+        TableCodecPlan plan = new TableCodecPlan(vot.getFields(), formatFactory);
+        Iterator<List<Object>> rowIter = vot.getTableData().iterator();
+        PipelinedRowIterator pipeline = null;
+        if (pipelined) {
+            // the writer checks for more rows after maxrec to detect overflow
+            long maxRows = maxIterations.getMaxIterations();
+            if (maxRows < Long.MAX_VALUE) {
+                maxRows++;
+            }
+            pipeline = new PipelinedRowIterator(rowIter, maxRows,
+                    PipelinedRowIterator.DEFAULT_BATCH_SIZE, PipelinedRowIterator.DEFAULT_QUEUE_SIZE);
+            rowIter = pipeline;
+        }
 
-        Document document = new Document();
-        document.addContent(votable);
+        try {
+            return writeData(xml, plan, rowIter, maxIterations);
+        } finally {
+            if (pipeline != null) {
+                pipeline.close();
+            }
+        }
+    }
 
-        return document;
+    private Exception writeData(XmlEmitter xml, TableCodecPlan plan, Iterator<List<Object>> rowIter,
+                                TabledataMaxIterations maxIterations) throws IOException {
+        xml.startElement("DATA");
+        Exception error;
+        if (serialization.equals(SerializationType.TABLEDATA)) {
+            log.debug("writing TABLEDATA element");
+            TableDataElementWriter tableWriter = new TableDataElementWriter(rowIter, plan, maxIterations);
+            tableWriter.write(xml.content());
+            error = tableWriter.getError();
+        } else if (serialization.equals(SerializationType.BINARY2) || serialization.equals(SerializationType.BINARY)) {
+            boolean isBinary2 = serialization.equals(SerializationType.BINARY2);
+            log.debug("writing " + serialization + " element");
+            BinaryElementWriter binaryWriter = new BinaryElementWriter(rowIter, plan, maxIterations, isBinary2);
+            binaryWriter.write(xml.content());
+            error = binaryWriter.getError();
+        } else {
+            throw new RuntimeException("Invalid serialization type: " + serialization);
+        }
+        xml.endElement();
+        return error;
+    }
+
+    // FIELD or PARAM element
+    private void writeField(XmlEmitter xml, String elementName, VOTableField field, String nullValue)
+            throws IOException {
+        xml.startElement(elementName);
+        xml.attribute("name", field.getName());
+        xml.attribute("datatype", field.getDatatype());
+        xml.attribute("arraysize", field.getArraysize());
+        xml.attribute("ID", field.id);
+        xml.attribute("ucd", field.ucd);
+        xml.attribute("unit", field.unit);
+        xml.attribute("utype", field.utype);
+        xml.attribute("xtype", field.xtype);
+        xml.attribute("ref", field.ref);
+
+        if (field instanceof VOTableParam) {
+            xml.attribute("value", ((VOTableParam) field).getValue());
+        }
+
+        if (field.description != null) {
+            xml.element("DESCRIPTION", field.description);
+        }
+
+        // VALUES content order is MIN, MAX, OPTION
+        List<String> options = new ArrayList<>(field.getValues());
+        String min = null;
+        String max = null;
+        if (field instanceof VOTableParam) {
+            VOTableParam param = (VOTableParam) field;
+            min = param.getMin();
+            max = param.getMax();
+            options.addAll(param.getOptions());
+        }
+        boolean hasNull = nullValue != null && !nullValue.isEmpty();
+        if (hasNull || min != null || max != null || !options.isEmpty()) {
+            xml.startElement("VALUES");
+            if (hasNull) {
+                xml.attribute("null", nullValue);
+            }
+            if (min != null) {
+                writeValue(xml, "MIN", min);
+            }
+            if (max != null) {
+                writeValue(xml, "MAX", max);
+            }
+            for (String value : options) {
+                writeValue(xml, "OPTION", value);
+            }
+            xml.endElement();
+        }
+
+        xml.endElement();
+    }
+
+    private void writeValue(XmlEmitter xml, String elementName, String value) throws IOException {
+        xml.startElement(elementName);
+        xml.attribute("value", value);
+        xml.endElement();
     }
 
-    private Element createInfo(VOTableInfo voTableInfo, Namespace namespace) {
-        Element info = new Element("INFO", namespace);
-        info.setAttribute("name", voTableInfo.getName());
-        info.setAttribute("value", voTableInfo.getValue());
-        if (voTableInfo.id != null) {
-            info.setAttribute("ID", voTableInfo.id);
+    private void writeGroup(XmlEmitter xml, VOTableGroup group) throws IOException {
+        xml.startElement("GROUP");
+        xml.attribute("name", group.getName());
+        xml.attribute("ID", group.id);
+        for (VOTableParam param : group.getParams()) {
+            writeField(xml, "PARAM", param, null);
         }
-        if (voTableInfo.content != null) {
-            info.setText(voTableInfo.content);
+        for (VOTableGroup g : group.getGroups()) {
+            writeGroup(xml, g);
         }
-        return info;
+        xml.endElement();
+    }
+
+    private void writeInfo(XmlEmitter xml, VOTableInfo voTableInfo) throws IOException {
+        writeInfo(xml, voTableInfo.getName(), voTableInfo.getValue(), voTableInfo.id, voTableInfo.content);
+    }
+
+    private void writeInfo(XmlEmitter xml, String name, String value, String id, String content) throws IOException {
+        xml.startElement("INFO");
+        xml.attribute("name", name);
+        xml.attribute("value", value);
+        xml.attribute("ID", id);
+        if (content != null) {
+            xml.text(content);
+        }
+        xml.endElement();
     }
 
     // Build a String containing the nested Exception messages.
@@ -492,15 +616,14 @@ public class VOTableWriter implements TableWriter<VOTableDocument> {
     private class TabledataMaxIterations implements MaxIterations {
 
         private final long maxRec;
-        private final Element info;
+        private boolean overflow = false;
 
-        TabledataMaxIterations(Long maxRec, Element info) {
+        TabledataMaxIterations(Long maxRec) {
             if (maxRec == null) {
                 this.maxRec = Long.MAX_VALUE;
             } else {
                 this.maxRec = maxRec;
             }
-            this.info = info;
         }
 
         @Override
@@ -511,11 +634,7 @@ public class VOTableWriter implements TableWriter<VOTableDocument> {
         @Override
         public void maxIterationsReached(boolean moreAvailable) {
             log.debug("TabledataMaxIterations.maxIterationsReached: " + maxRec + ", more=" + moreAvailable);
-            if (moreAvailable) {
-                // DALI overflow
-                info.setAttribute("name", "QUERY_STATUS");
-                info.setAttribute("value", "OVERFLOW");
-            }
+            this.overflow = moreAvailable;
         }
 
     }
@@ -86,7 +86,10 @@ import org.jdom2.util.NamespaceStack;
 /**
  * XMLOutputProcessor is responsible for serializing VOTable data in TABLEDATA and BINARY2 format within the XML output.
  * It intercepts the writing logic of JDOM elements.
+ *
+ * @deprecated VOTableWriter writes the document with a streaming emitter and no longer uses a JDOM output processor
  */
+@Deprecated
 public class XMLOutputProcessor extends AbstractXMLOutputProcessor {
 
     private static final Logger log = Logger.getLogger(XMLOutputProcessor.class);
@@ -0,0 +1,264 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.votable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Minimal streaming XML emitter used by VOTableWriter. Elements are written straight
+ * to the Writer as they are started, so no document tree is built in memory. All elements
+ * are in the default namespace of the root element.
+ *
+ * <p>Output is compact unless pretty printing is enabled, in which case child elements are
+ * indented by two spaces per level.
+ */
+class XmlEmitter {
+
+    private static final String INDENT = "  ";
+
+    private final Writer out;
+    private final boolean pretty;
+
+    // open elements: name and whether child elements were written
+    private final Deque<String> names = new ArrayDeque<>();
+    private final Deque<Boolean> hasChildren = new ArrayDeque<>();
+    private boolean startTagOpen = false;
+
+    XmlEmitter(Writer out, boolean pretty) {
+        this.out = out;
+        this.pretty = pretty;
+    }
+
+    void declaration() throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        out.write('\n');
+    }
+
+    void startElement(String name) throws IOException {
+        beginChild();
+        out.write('<');
+        out.write(name);
+        names.push(name);
+        hasChildren.push(Boolean.FALSE);
+        startTagOpen = true;
+    }
+
+    /**
+     * Add an attribute to the element just started. Null values are not written.
+     *
+     * @param name attribute name
+     * @param value attribute value
+     * @throws IOException if writing fails
+     */
+    void attribute(String name, String value) throws IOException {
+        if (!startTagOpen) {
+            throw new IllegalStateException("attribute " + name + " outside of start tag");
+        }
+        if (value != null) {
+            out.write(' ');
+            out.write(name);
+            out.write("=\"");
+            escape(value, true);
+            out.write('"');
+        }
+    }
+
+    void text(String text) throws IOException {
+        closeStartTag();
+        escape(text, false);
+    }
+
+    void comment(String text) throws IOException {
+        beginChild();
+        out.write("<!--");
+        out.write(text);
+        out.write("-->");
+    }
+
+    /**
+     * Write a complete element with optional text content.
+     *
+     * @param name element name
+     * @param text text content, null for an empty element
+     * @throws IOException if writing fails
+     */
+    void element(String name, String text) throws IOException {
+        startElement(name);
+        if (text != null) {
+            text(text);
+        }
+        endElement();
+    }
+
+    void endElement() throws IOException {
+        String name = names.pop();
+        boolean children = hasChildren.pop();
+        if (startTagOpen) {
+            out.write("/>");
+            startTagOpen = false;
+            return;
+        }
+        if (children) {
+            newline(names.size());
+        }
+        out.write("</");
+        out.write(name);
+        out.write('>');
+    }
+
+    /**
+     * Get the underlying Writer to append pre-formatted content (e.g. table data) as
+     * a child of the current element.
+     *
+     * @return the Writer
+     * @throws IOException if writing fails
+     */
+    Writer content() throws IOException {
+        beginChild();
+        return out;
+    }
+
+    void end() throws IOException {
+        while (!names.isEmpty()) {
+            endElement();
+        }
+        out.write('\n');
+        out.flush();
+    }
+
+    private void beginChild() throws IOException {
+        closeStartTag();
+        if (!hasChildren.isEmpty()) {
+            hasChildren.pop();
+            hasChildren.push(Boolean.TRUE);
+            newline(names.size());
+        }
+    }
+
+    private void closeStartTag() throws IOException {
+        if (startTagOpen) {
+            out.write('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void newline(int depth) throws IOException {
+        if (pretty) {
+            out.write('\n');
+            for (int i = 0; i < depth; i++) {
+                out.write(INDENT);
+            }
+        }
+    }
+
+    // write text with markup characters replaced by entities, copying unchanged runs in one call
+    private void escape(String s, boolean attribute) throws IOException {
+        int start = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            String entity;
+            char c = s.charAt(i);
+            switch (c) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '"':
+                    entity = attribute ? "&quot;" : null;
+                    break;
+                case '\t':
+                    entity = attribute ? "&#x9;" : null;
+                    break;
+                case '\n':
+                    entity = attribute ? "&#xA;" : null;
+                    break;
+                case '\r':
+                    entity = "&#xD;";
+                    break;
+                default:
+                    entity = null;
+            }
+            if (entity != null) {
+                out.write(s, start, i - start);
+                out.write(entity);
+                start = i + 1;
+            }
+        }
+        out.write(s, start, len - start);
+    }
+}
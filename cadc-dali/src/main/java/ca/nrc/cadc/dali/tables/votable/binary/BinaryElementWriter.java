@@ -69,12 +69,19 @@
 
 package ca.nrc.cadc.dali.tables.votable.binary;
 
+import ca.nrc.cadc.dali.tables.votable.TableCodecPlan;
+import ca.nrc.cadc.dali.tables.votable.Utf8OutputWriter;
 import ca.nrc.cadc.dali.tables.votable.VOTableField;
 import ca.nrc.cadc.xml.MaxIterations;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Iterator;
 import java.util.List;
@@ -82,85 +89,365 @@ import org.apache.log4j.Logger;
 import org.jdom2.Element;
 
 /**
- * Writes data in VOTable BINARY2 format.
+ * Writes data in VOTable BINARY2 or BINARY format. BINARY has no null flags: null
+ * values are written as the null value declared for the field (see getNullValue),
+ * NaN for floating point values, the '?' byte for boolean values, and empty or
+ * NUL-filled values for variable length arrays and char fields.
  */
 public class BinaryElementWriter {
 
     private static final Logger log = Logger.getLogger(BinaryElementWriter.class);
 
-    private final FieldProcessorFactory decoderFactory = new FieldProcessorFactory();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // BINARY null value of a boolean field
+    private static final byte BOOLEAN_NULL = '?';
+    private static final Object BOOLEAN_NULL_VALUE = new Object();
+
     private final Iterator<List<Object>> rowIter;
-    private final List<VOTableField> fields;
+    private final TableCodecPlan plan;
     private final MaxIterations maxIterations;
-    private final Element trailer;
+    private final boolean isBinary2;
+    private final String elementName;
+    private Exception error;
+
+    // BINARY: value written for null in each column; null if the column cannot represent null
+    private final Object[] nullValues;
+
+    // deprecated: INFO element that gets the error
+    private Element trailer;
+
+    public BinaryElementWriter(Iterator<List<Object>> rowIter, List<VOTableField> fields, MaxIterations maxIterations) {
+        this(rowIter, new TableCodecPlan(fields, null), maxIterations);
+    }
+
+    public BinaryElementWriter(Iterator<List<Object>> rowIter, TableCodecPlan plan, MaxIterations maxIterations) {
+        this(rowIter, plan, maxIterations, true);
+    }
+
+    /**
+     * @param rowIter rows to write
+     * @param fields table fields
+     * @param maxIterations row limit, may be null
+     * @param trailer INFO element that is set to QUERY_STATUS ERROR if writing rows fails
+     * @deprecated use {@link #BinaryElementWriter(Iterator, List, MaxIterations)} and report {@link #getError()}
+     */
+    @Deprecated
+    public BinaryElementWriter(Iterator<List<Object>> rowIter, List<VOTableField> fields, MaxIterations maxIterations,
+                               Element trailer) {
+        this(rowIter, fields, maxIterations);
+        this.trailer = trailer;
+    }
 
-    public BinaryElementWriter(Iterator<List<Object>> rowIter, List<VOTableField> fields, MaxIterations maxIterations, Element trailer) {
+    public BinaryElementWriter(Iterator<List<Object>> rowIter, TableCodecPlan plan, MaxIterations maxIterations,
+                               boolean isBinary2) {
         this.rowIter = rowIter;
-        this.fields = fields;
+        this.plan = plan;
         this.maxIterations = maxIterations;
-        this.trailer = trailer;
+        this.isBinary2 = isBinary2;
+        this.elementName = isBinary2 ? "BINARY2" : "BINARY";
+        if (isBinary2) {
+            this.nullValues = null;
+        } else {
+            this.nullValues = new Object[plan.size()];
+            for (int i = 0; i < nullValues.length; i++) {
+                nullValues[i] = getNullObject(plan.getColumn(i));
+            }
+            checkNullValues(plan, nullValues);
+        }
+    }
+
+    /**
+     * Check that every column can represent null in BINARY serialization. Columns without
+     * a null representation (e.g. unsignedByte without a declared nullValue) are refused
+     * before any row is written instead of failing at the first null value.
+     *
+     * @param plan table columns
+     * @throws IllegalArgumentException if a column cannot represent null
+     */
+    public static void checkNullValues(TableCodecPlan plan) {
+        Object[] nullValues = new Object[plan.size()];
+        for (int i = 0; i < nullValues.length; i++) {
+            nullValues[i] = getNullObject(plan.getColumn(i));
+        }
+        checkNullValues(plan, nullValues);
+    }
+
+    private static void checkNullValues(TableCodecPlan plan, Object[] nullValues) {
+        for (int i = 0; i < nullValues.length; i++) {
+            if (nullValues[i] == null) {
+                VOTableField field = plan.getColumn(i).getField();
+                throw new IllegalArgumentException("BINARY serialization requires a nullValue for field "
+                        + field.getName() + " (" + field.getDatatype() + ")");
+            }
+        }
+    }
+
+    /**
+     * Get the failure that stopped writing rows. The caller reports it in the
+     * trailing INFO element (DALI QUERY_STATUS ERROR).
+     *
+     * @return the exception or null if all rows were written
+     */
+    public Exception getError() {
+        return error;
     }
 
     public void write(Writer out) throws IOException {
-        log.debug("Writing BINARY2 element - starting");
-        out.write("<BINARY2><STREAM encoding=\"base64\">");
+        log.debug("Writing " + elementName + " element - starting");
 
-        long rowCount = 0;
+        String startTags = "<" + elementName + "><STREAM encoding=\"base64\">";
+        String endTags = "</STREAM></" + elementName + ">";
+        if (out instanceof Utf8OutputWriter) {
+            // base64 is pure ASCII: write bytes directly to the underlying stream
+            OutputStream ostream = ((Utf8OutputWriter) out).getOutputStream();
+            ostream.write(startTags.getBytes(StandardCharsets.US_ASCII));
+            writeStream(new NonClosingOutputStream(ostream));
+            ostream.write(endTags.getBytes(StandardCharsets.US_ASCII));
+        } else {
+            out.write(startTags);
+            writeStream(new WriterOutputStream(out));
+            out.write(endTags);
+        }
+        if (error != null && trailer != null) {
+            trailer.setAttribute("name", "QUERY_STATUS");
+            trailer.setAttribute("value", "ERROR");
+            trailer.setText(error.toString());
+        }
+    }
 
-        try (OutputStream base64Out = Base64.getEncoder().wrap(new WriterOutputStream(out))) {
-            DataOutputStream dataOut = new DataOutputStream(base64Out);
-
-            Iterator<List<Object>> iter = rowIter;
-            while (iter.hasNext()) {
-                rowCount++;
-                List<Object> row = iter.next();
-
-                try {
-                    writeRow(row, dataOut);
-                } catch (Exception ex) {
-                    // DALI error
-                    log.error("Error writing row " + rowCount + ": " + ex.getMessage(), ex);
-                    trailer.setAttribute("name", "QUERY_STATUS");
-                    trailer.setAttribute("value", "ERROR");
-                    trailer.setText(ex.toString());
+    /**
+     * Get the null value a field needs in BINARY serialization: the declared nullValue of the
+     * field or, for short, int, and long scalars and fixed size arrays without one, the minimum
+     * value of the type. A null fixed size array is written with every element set to this value.
+     * Every unsignedByte value is valid data, so unsignedByte fields only get a declared nullValue.
+     * Writers have to declare a value returned for a field without a nullValue in the VALUES
+     * element of the FIELD.
+     *
+     * @param field table field
+     * @return the null value or null if the field does not need or cannot have one
+     */
+    public static String getNullValue(VOTableField field) {
+        if (field.nullValue != null && !field.nullValue.isEmpty()) {
+            return field.nullValue;
+        }
+        String arraysize = field.getArraysize();
+        if ((arraysize == null || !arraysize.contains("*")) && field.getDatatype() != null) {
+            switch (field.getDatatype()) {
+                case "short":
+                    return Short.toString(Short.MIN_VALUE);
+                case "int":
+                    return Integer.toString(Integer.MIN_VALUE);
+                case "long":
+                    return Long.toString(Long.MIN_VALUE);
+                default:
                     break;
+            }
+        }
+        return null;
+    }
+
+    // the object serialized for a null value in BINARY
+    private static Object getNullObject(TableCodecPlan.ColumnCodec column) {
+        VOTableField field = column.getField();
+        String datatype = field.getDatatype() == null ? "" : field.getDatatype().toLowerCase();
+        if (column.isVariable()) {
+            switch (datatype) {
+                case "char":
+                    return "";
+                case "unsignedbyte":
+                    return new byte[0];
+                case "short":
+                    return new short[0];
+                case "int":
+                    return new int[0];
+                case "long":
+                    return new long[0];
+                case "float":
+                    return new float[0];
+                case "double":
+                    return new double[0];
+                default:
+                    return null;
+            }
+        }
+        switch (datatype) {
+            case "char":
+                return "";
+            case "boolean":
+                return column.isArray() ? null : BOOLEAN_NULL_VALUE;
+            case "float":
+                if (column.isArray()) {
+                    float[] ret = new float[column.getFixedLength()];
+                    Arrays.fill(ret, Float.NaN);
+                    return ret;
                 }
+                return Float.NaN;
+            case "double":
+                if (column.isArray()) {
+                    double[] ret = new double[column.getFixedLength()];
+                    Arrays.fill(ret, Double.NaN);
+                    return ret;
+                }
+                return Double.NaN;
+            default:
+                break;
+        }
+        String nullValue = getNullValue(field);
+        if (nullValue != null && column.isArray()) {
+            try {
+                int len = column.getFixedLength();
+                switch (datatype) {
+                    case "unsignedbyte":
+                        byte[] bytes = new byte[len];
+                        Arrays.fill(bytes, (byte) Integer.parseInt(nullValue));
+                        return bytes;
+                    case "short":
+                        short[] shorts = new short[len];
+                        Arrays.fill(shorts, Short.parseShort(nullValue));
+                        return shorts;
+                    case "int":
+                        int[] ints = new int[len];
+                        Arrays.fill(ints, Integer.parseInt(nullValue));
+                        return ints;
+                    case "long":
+                        long[] longs = new long[len];
+                        Arrays.fill(longs, Long.parseLong(nullValue));
+                        return longs;
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException ex) {
+                log.debug("invalid nullValue for " + field.getName() + ": " + nullValue);
+            }
+        } else if (nullValue != null) {
+            try {
+                switch (datatype) {
+                    case "unsignedbyte":
+                        return (byte) Integer.parseInt(nullValue);
+                    case "short":
+                        return Short.valueOf(nullValue);
+                    case "int":
+                        return Integer.valueOf(nullValue);
+                    case "long":
+                        return Long.valueOf(nullValue);
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException ex) {
+                log.debug("invalid nullValue for " + field.getName() + ": " + nullValue);
+            }
+        }
+        return null;
+    }
 
-                if (maxIterations != null && rowCount == maxIterations.getMaxIterations()) {
-                    maxIterations.maxIterationsReached(iter.hasNext());
-                    break;
+    private void writeStream(OutputStream dest) throws IOException {
+        long rowCount = 0;
+
+        // the encoder gets large blocks from the buffer instead of a few bytes per cell
+        OutputStream encoded = Base64.getEncoder().wrap(dest);
+        try (OutputStream base64Out = new BufferedOutputStream(encoded, BUFFER_SIZE)) {
+            RowBuffer rowBuffer = new RowBuffer();
+            DataOutputStream rowOut = new DataOutputStream(rowBuffer);
+            byte[] nullFlags = isBinary2 ? new byte[(plan.size() + 7) / 8] : null;
+
+            try {
+                Iterator<List<Object>> iter = rowIter;
+                while (iter.hasNext()) {
+                    rowCount++;
+                    List<Object> row = iter.next();
+
+                    try {
+                        rowBuffer.reset();
+                        writeRow(row, nullFlags, rowOut);
+                    } catch (Exception ex) {
+                        // DALI error
+                        log.error("Error writing row " + rowCount + ": " + ex.getMessage(), ex);
+                        this.error = ex;
+                        break;
+                    }
+                    rowBuffer.writeTo(base64Out);
+
+                    if (maxIterations != null && rowCount == maxIterations.getMaxIterations()) {
+                        maxIterations.maxIterationsReached(iter.hasNext());
+                        break;
+                    }
                 }
+            } catch (RuntimeException ex) {
+                // DALI error: failed to get the next row, e.g. from a database cursor
+                log.error("Error reading next row: " + ex.getMessage(), ex);
+                this.error = ex;
             }
-            dataOut.flush();
         }
 
-        out.write("</STREAM></BINARY2>");
-        log.debug("Finished writing BINARY2 element. Wrote " + rowCount + " rows");
+        log.debug("Finished writing " + elementName + " element. Wrote " + rowCount + " rows");
     }
 
-    private void writeRow(List<Object> row, DataOutputStream out) throws IOException {
-        // Null flags
-        int numFields = fields.size();
-        int numFlagBytes = (numFields + 7) / 8;
-        byte[] nullFlags = new byte[numFlagBytes];
-        for (int i = 0; i < numFields; i++) {
-            if (row.get(i) == null) {
-                nullFlags[i / 8] |= (byte) (1 << (7 - (i % 8)));
+    private void writeRow(List<Object> row, byte[] nullFlags, DataOutputStream out) throws IOException {
+        int numFields = plan.size();
+        if (isBinary2) {
+            // Null flags
+            Arrays.fill(nullFlags, (byte) 0);
+            for (int i = 0; i < numFields; i++) {
+                if (row.get(i) == null) {
+                    nullFlags[i / 8] |= (byte) (1 << (7 - (i % 8)));
+                }
             }
+            out.write(nullFlags);
         }
-        out.write(nullFlags);
 
         // Field values
         for (int i = 0; i < numFields; i++) {
             Object value = row.get(i);
+            TableCodecPlan.ColumnCodec column = plan.getColumn(i);
+            if (value == null && !isBinary2) {
+                value = nullValues[i];
+                if (value == BOOLEAN_NULL_VALUE) {
+                    out.writeByte(BOOLEAN_NULL);
+                    continue;
+                }
+            }
             if (value != null) {
-                decoderFactory.getFieldProcessor(fields.get(i).getDatatype().toLowerCase()).serialize(out, fields.get(i), value);
+                column.getFieldProcessor().serialize(out, column.getField(), value);
             }
         }
     }
 
+    // reusable buffer for the serialized row: a row that fails is not written at all
+    private static class RowBuffer extends ByteArrayOutputStream {
+
+        RowBuffer() {
+            super(1024);
+        }
+
+        // no copy of the buffer
+        @Override
+        public synchronized void writeTo(OutputStream out) throws IOException {
+            out.write(buf, 0, count);
+        }
+    }
+
+    // the base64 encoder closes its destination to write the final padding
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            // the caller continues writing to the stream
+        }
+    }
+
     static class WriterOutputStream extends OutputStream {
         private final Writer writer;
+        private final char[] chars = new char[BUFFER_SIZE];
 
         WriterOutputStream(Writer writer) {
             this.writer = writer;
@@ -173,8 +460,14 @@ public class BinaryElementWriter {
 
         @Override
         public void write(byte[] b, int off, int len) throws IOException {
-            for (int i = off; i < off + len; i++) {
-                writer.write(b[i] & 0xFF);
+            while (len > 0) {
+                int n = Math.min(len, chars.length);
+                for (int i = 0; i < n; i++) {
+                    chars[i] = (char) (b[off + i] & 0xFF);
+                }
+                writer.write(chars, 0, n);
+                off += n;
+                len -= n;
             }
         }
 
@@ -93,12 +93,14 @@ public class BinaryIterator implements ResourceIterator<List<Object>> {
 
     private static final Logger log = Logger.getLogger(BinaryIterator.class);
 
+    private final InputStream input;
     private final DataInputStream in;
     private final BinaryRowReader binaryRowReader;
     private List<Object> nextRow;
     private boolean finished = false;
 
     public BinaryIterator(InputStream input, List<VOTableField> fields, String encoding, FormatFactory formatFactory, boolean isBinary2) {
+        this.input = input;
         if ("gzip".equalsIgnoreCase(encoding)) {
             try {
                 this.in = new DataInputStream(new GZIPInputStream(input));
@@ -135,10 +137,12 @@ public class BinaryIterator implements ResourceIterator<List<Object>> {
             nextRow = binaryRowReader.readRow(in);
             if (nextRow == null) {
                 finished = true;
+                drain();
             }
         } catch (EOFException eof) { // This can be a loophole. But no other way for binary reading.
             finished = true;
             nextRow = null;
+            drain();
         } catch (Exception e) {
             log.error("Error while reading next row", e);
             finished = true;
@@ -147,6 +151,19 @@ public class BinaryIterator implements ResourceIterator<List<Object>> {
         }
     }
 
+    // the decoder may stop at the base64 padding: consume the rest of the raw input so
+    // a streaming source sees the end of the content
+    private void drain() {
+        try {
+            byte[] buf = new byte[512];
+            while (input.read(buf) != -1) {
+                // discard
+            }
+        } catch (IOException ex) {
+            log.debug("failed to drain input after last row: " + ex);
+        }
+    }
+
     @Override
     public void close() throws IOException {
         in.close();
@@ -69,9 +69,35 @@
 
 package ca.nrc.cadc.dali.tables.votable.binary;
 
+import ca.nrc.cadc.dali.Circle;
+import ca.nrc.cadc.dali.DoubleInterval;
+import ca.nrc.cadc.dali.LongInterval;
+import ca.nrc.cadc.dali.Point;
+import ca.nrc.cadc.dali.Polygon;
+import ca.nrc.cadc.dali.tables.votable.TableCodecPlan;
 import ca.nrc.cadc.dali.tables.votable.VOTableField;
-import ca.nrc.cadc.dali.tables.votable.VOTableUtil;
+import ca.nrc.cadc.dali.util.BooleanFormat;
+import ca.nrc.cadc.dali.util.ByteArrayFormat;
+import ca.nrc.cadc.dali.util.ByteFormat;
+import ca.nrc.cadc.dali.util.CircleFormat;
+import ca.nrc.cadc.dali.util.DoubleArray2DFormat;
+import ca.nrc.cadc.dali.util.DoubleArrayFormat;
+import ca.nrc.cadc.dali.util.DoubleFormat;
+import ca.nrc.cadc.dali.util.DoubleIntervalArrayFormat;
+import ca.nrc.cadc.dali.util.DoubleIntervalFormat;
+import ca.nrc.cadc.dali.util.FloatArrayFormat;
+import ca.nrc.cadc.dali.util.FloatFormat;
+import ca.nrc.cadc.dali.util.Format;
 import ca.nrc.cadc.dali.util.FormatFactory;
+import ca.nrc.cadc.dali.util.IntArrayFormat;
+import ca.nrc.cadc.dali.util.IntegerFormat;
+import ca.nrc.cadc.dali.util.LongArrayFormat;
+import ca.nrc.cadc.dali.util.LongFormat;
+import ca.nrc.cadc.dali.util.LongIntervalFormat;
+import ca.nrc.cadc.dali.util.PointFormat;
+import ca.nrc.cadc.dali.util.PolygonFormat;
+import ca.nrc.cadc.dali.util.ShortArrayFormat;
+import ca.nrc.cadc.dali.util.ShortFormat;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -80,31 +106,43 @@ import java.util.Objects;
 
 /*
  * Reads a single row from a VOTable binary stream.
+ *
+ * Cells are decoded directly into the objects the standard Format for the column
+ * would produce (primitive arrays, Point, Circle, Polygon, Interval...); the
+ * decoding and the null value for each column are resolved once from the
+ * TableCodecPlan. Columns whose
+ * Format has no direct equivalent (char types, custom formats from a FormatFactory
+ * subclass) are converted via the string representation.
  * */
 public class BinaryRowReader {
-    private final List<VOTableField> fields;
-    private final FieldProcessorFactory decoderFactory = new FieldProcessorFactory();
-    private final FormatFactory formatFactory;
     private final boolean isBinary2;
+    private final ColumnReader[] columns;
+    private final byte[] nullMask;
 
     public BinaryRowReader(List<VOTableField> fields, FormatFactory formatFactory, boolean isBinary2) {
-        this.fields = fields;
-        this.formatFactory = formatFactory == null ? new FormatFactory() : formatFactory;
+        this(new TableCodecPlan(fields, formatFactory), isBinary2);
+    }
+
+    public BinaryRowReader(TableCodecPlan plan, boolean isBinary2) {
         this.isBinary2 = isBinary2;
+        this.columns = new ColumnReader[plan.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnReader(plan.getColumn(i), isBinary2);
+        }
+        this.nullMask = isBinary2 ? new byte[(columns.length + 7) / 8] : null;
     }
 
     public List<Object> readRow(DataInputStream in) throws IOException {
-        int numFields = fields.size();
-        byte[] nullMask = null;
+        int numFields = columns.length;
 
         // read null mask if binary2
         if (isBinary2) {
-            int numMaskBytes = (numFields + 7) / 8;
-            nullMask = new byte[numMaskBytes];
-            int read = in.read(nullMask);
-            if (read < numMaskBytes) {
+            int b = in.read();
+            if (b == -1) {
                 return null; // End of stream
             }
+            nullMask[0] = (byte) b;
+            in.readFully(nullMask, 1, nullMask.length - 1);
         }
 
         List<Object> row = new ArrayList<>(numFields);
@@ -116,52 +154,354 @@ public class BinaryRowReader {
                     continue;
                 }
             }
+            row.add(columns[i].read(in));
+        }
+        return row;
+    }
 
-            VOTableField field = fields.get(i);
-            int length = computeLength(in, field);
+    // converts the deserialized primitive value(s) of a cell to the final object
+    private interface CellConverter {
+        Object convert(Object raw, int length);
+    }
+
+    private static class ColumnReader {
+        private final VOTableField field;
+        private final FieldProcessor fieldProcessor;
+        private final Format format;
+        private final boolean array;
+        private final boolean nanArrayIsNull;
+        // BINARY: a fixed size integer array with every element set to the null value is null
+        private final Long arrayNullValue;
+        private final boolean variable;
+        private final int fixedLength;
+        private final CellConverter converter;
+        private final boolean hasNullValue;
+        private final Object nullValue;
+
+        ColumnReader(TableCodecPlan.ColumnCodec codec, boolean isBinary2) {
+            this.field = codec.getField();
+            this.fieldProcessor = codec.getFieldProcessor();
+            this.format = codec.getFormat();
+            this.array = codec.isArray();
+            // BINARY has no null flags: a floating point array of NaN is null
+            this.nanArrayIsNull = array && !isBinary2;
+            this.variable = codec.isVariable();
+            this.arrayNullValue = array && !variable && !isBinary2 && codec.hasNullValue()
+                    ? parseLong(field.nullValue) : null;
+            this.fixedLength = codec.getFixedLength();
+            this.converter = createConverter(format, field);
+            this.hasNullValue = codec.hasNullValue();
+            this.nullValue = hasNullValue ? resolveNullValue(codec) : null;
+        }
+
+        Object read(DataInputStream in) throws IOException {
+            int length = fixedLength;
+            if (variable) {
+                length *= in.readInt();
+            }
 
-            FieldProcessor fieldProcessor = decoderFactory.getFieldProcessor(field.getDatatype().toLowerCase());
             Object rawData = fieldProcessor.deSerialize(in, field, length);
+            if (nanArrayIsNull && isNaN(rawData)) {
+                return null;
+            }
+            if (arrayNullValue != null && isNullArray(rawData, arrayNullValue)) {
+                return null;
+            }
 
-            String stringValue = fieldProcessor.toStringValue(length, rawData);
-            row.add(parseAndResolveNull(field, stringValue));
+            Object value;
+            if (converter != null) {
+                value = converter.convert(rawData, length);
+            } else {
+                value = format.parse(fieldProcessor.toStringValue(length, rawData));
+            }
+            return resolveNull(value);
+        }
+
+        private Object resolveNullValue(TableCodecPlan.ColumnCodec codec) {
+            if (converter != null) {
+                // the scalar integer formats already map their own null value to null
+                try {
+                    if (format instanceof ShortFormat) {
+                        return Short.valueOf(field.nullValue);
+                    } else if (format instanceof IntegerFormat) {
+                        return Integer.valueOf(field.nullValue);
+                    } else if (format instanceof LongFormat) {
+                        return Long.valueOf(field.nullValue);
+                    }
+                } catch (NumberFormatException ex) {
+                    return null;
+                }
+            }
+            return codec.getNullValue();
+        }
+
+        private Object resolveNull(Object value) {
+            if (hasNullValue) {
+                if (Objects.equals(value, nullValue)) {
+                    return null;
+                }
+            } else if (value instanceof Float && Float.isNaN((Float) value)) {
+                return null;
+            } else if (value instanceof Double && Double.isNaN((Double) value)) {
+                return null;
+            }
+            return value;
+        }
+
+        // variable length arrays can be empty: same as an empty string in the string round trip
+        private CellConverter createConverter(Format fmt, VOTableField field) {
+            Class<?> c = fmt.getClass();
+            if (c == BooleanFormat.class || c == ByteFormat.class || c == ShortFormat.class || c == IntegerFormat.class
+                    || c == LongFormat.class || c == FloatFormat.class || c == DoubleFormat.class) {
+                if (!array) {
+                    return (raw, len) -> raw;
+                }
+            } else if (c == ByteArrayFormat.class) {
+                return (raw, len) -> len == 0 ? null : toByteArray(raw);
+            } else if (c == ShortArrayFormat.class) {
+                return (raw, len) -> len == 0 ? null : toShortArray(raw);
+            } else if (c == IntArrayFormat.class) {
+                return (raw, len) -> len == 0 ? null : toIntArray(raw);
+            } else if (c == LongArrayFormat.class) {
+                return (raw, len) -> len == 0 ? null : toLongArray(raw);
+            } else if (c == FloatArrayFormat.class) {
+                return (raw, len) -> len == 0 ? null : toFloatArray(raw);
+            } else if (c == DoubleArrayFormat.class) {
+                return (raw, len) -> len == 0 ? null : toDoubleArray(raw);
+            } else if (c == DoubleArray2DFormat.class) {
+                final int n1 = field.getArrayShape()[0];
+                return (raw, len) -> len == 0 ? null : toDoubleArray2D(toDoubleArray(raw), n1);
+            } else if (c == PointFormat.class) {
+                return (raw, len) -> len == 0 ? null : toPoint(toDoubleArray(raw));
+            } else if (c == CircleFormat.class) {
+                return (raw, len) -> len == 0 ? null : toCircle(toDoubleArray(raw));
+            } else if (c == PolygonFormat.class) {
+                return (raw, len) -> len == 0 ? null : toPolygon(toDoubleArray(raw));
+            } else if (c == DoubleIntervalFormat.class) {
+                return (raw, len) -> len == 0 ? null : toDoubleInterval(toDoubleArray(raw));
+            } else if (c == DoubleIntervalArrayFormat.class) {
+                return (raw, len) -> len == 0 ? null : toDoubleIntervalArray(toDoubleArray(raw));
+            } else if (c == LongIntervalFormat.class) {
+                return (raw, len) -> len == 0 ? null : toLongInterval(toLongArray(raw));
+            }
+            return null;
         }
-        return row;
     }
 
-    private static int computeLength(DataInputStream in, VOTableField field) throws IOException {
-        int[] shape = VOTableUtil.parseArraySize(field.getArraysize());
-        int length = 1;
+    // deserialized arrays of length 1 are returned as a scalar by the FieldProcessor
 
-        if (shape != null) {
-            int variableDim = 1;
-            if (shape[shape.length - 1] == -1) { // -1 is for variable dimension
-                variableDim = in.readInt();
+    private static boolean isNaN(Object raw) {
+        if (raw instanceof double[]) {
+            double[] dd = (double[]) raw;
+            for (double d : dd) {
+                if (!Double.isNaN(d)) {
+                    return false;
+                }
             }
-            for (int dim : shape) {
-                if (dim == -1) {
-                    dim = variableDim;
+            return dd.length > 0;
+        }
+        if (raw instanceof float[]) {
+            float[] ff = (float[]) raw;
+            for (float f : ff) {
+                if (!Float.isNaN(f)) {
+                    return false;
                 }
-                length *= dim;
             }
+            return ff.length > 0;
         }
-        return length;
+        if (raw instanceof Double) {
+            return ((Double) raw).isNaN();
+        }
+        if (raw instanceof Float) {
+            return ((Float) raw).isNaN();
+        }
+        return false;
     }
 
-    private Object parseAndResolveNull(VOTableField field, String stringValue) {
-        Object parsedData = formatFactory.getFormat(field).parse(stringValue);
+    private static Long parseLong(String s) {
+        try {
+            return Long.valueOf(s);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
 
-        if (field.nullValue != null && !field.nullValue.isEmpty()) {
-            Object nullValue = formatFactory.getFormat(field).parse(field.nullValue);
-            if (Objects.equals(parsedData, nullValue)) {
-                parsedData = null;
+    private static boolean isNullArray(Object raw, long nullValue) {
+        if (raw instanceof byte[]) {
+            for (byte b : (byte[]) raw) {
+                if ((b & 0xFF) != nullValue) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (raw instanceof short[]) {
+            for (short v : (short[]) raw) {
+                if (v != nullValue) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (raw instanceof int[]) {
+            for (int v : (int[]) raw) {
+                if (v != nullValue) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (raw instanceof long[]) {
+            for (long v : (long[]) raw) {
+                if (v != nullValue) {
+                    return false;
+                }
             }
-        } else if (parsedData instanceof Float && Float.isNaN((Float) parsedData)) {
-            parsedData = null;
-        } else if (parsedData instanceof Double && Double.isNaN((Double) parsedData)) {
-            parsedData = null;
+            return true;
+        }
+        if (raw instanceof Byte) {
+            return (((Byte) raw) & 0xFF) == nullValue;
         }
-        return parsedData;
+        if (raw instanceof Short || raw instanceof Integer || raw instanceof Long) {
+            return ((Number) raw).longValue() == nullValue;
+        }
+        return false;
     }
 
+    private static byte[] toByteArray(Object raw) {
+        if (raw instanceof byte[]) {
+            return (byte[]) raw;
+        }
+        return new byte[] {(Byte) raw};
+    }
+
+    private static short[] toShortArray(Object raw) {
+        if (raw instanceof short[]) {
+            return (short[]) raw;
+        }
+        return new short[] {(Short) raw};
+    }
+
+    private static int[] toIntArray(Object raw) {
+        if (raw instanceof int[]) {
+            return (int[]) raw;
+        }
+        return new int[] {(Integer) raw};
+    }
+
+    private static long[] toLongArray(Object raw) {
+        if (raw instanceof long[]) {
+            return (long[]) raw;
+        }
+        if (raw instanceof int[]) {
+            int[] ia = (int[]) raw;
+            long[] ret = new long[ia.length];
+            for (int i = 0; i < ia.length; i++) {
+                ret[i] = ia[i];
+            }
+            return ret;
+        }
+        if (raw instanceof short[]) {
+            short[] sa = (short[]) raw;
+            long[] ret = new long[sa.length];
+            for (int i = 0; i < sa.length; i++) {
+                ret[i] = sa[i];
+            }
+            return ret;
+        }
+        return new long[] {((Number) raw).longValue()};
+    }
+
+    private static float[] toFloatArray(Object raw) {
+        if (raw instanceof float[]) {
+            return (float[]) raw;
+        }
+        return new float[] {(Float) raw};
+    }
+
+    private static double[] toDoubleArray(Object raw) {
+        if (raw instanceof double[]) {
+            return (double[]) raw;
+        }
+        if (raw instanceof float[]) {
+            float[] fa = (float[]) raw;
+            double[] ret = new double[fa.length];
+            for (int i = 0; i < fa.length; i++) {
+                ret[i] = fa[i];
+            }
+            return ret;
+        }
+        if (raw instanceof Float) {
+            return new double[] {(Float) raw};
+        }
+        return new double[] {(Double) raw};
+    }
+
+    private static double[][] toDoubleArray2D(double[] dd, int n1) {
+        int n2 = dd.length / n1;
+        double[][] ret = new double[n1][n2];
+        int k = 0;
+        for (int i = 0; i < n1; i++) {
+            for (int j = 0; j < n2; j++) {
+                ret[i][j] = dd[k++];
+            }
+        }
+        return ret;
+    }
+
+    private static Point toPoint(double[] dd) {
+        if (dd.length != 2) {
+            throw new IllegalArgumentException("invalid point (expected 2 values): " + dd.length);
+        }
+        return new Point(dd[0], dd[1]);
+    }
+
+    private static Circle toCircle(double[] dd) {
+        if (dd.length != 3) {
+            throw new IllegalArgumentException("invalid circle (expected 3 values): " + dd.length);
+        }
+        return new Circle(new Point(dd[0], dd[1]), dd[2]);
+    }
+
+    private static Polygon toPolygon(double[] dd) {
+        if (dd.length % 2 != 0) {
+            throw new IllegalArgumentException("invalid polygon (odd number of coordinate values): " + dd.length);
+        }
+        Polygon poly = new Polygon();
+        for (int i = 0; i < dd.length; i += 2) {
+            if (Double.isNaN(dd[i]) || Double.isNaN(dd[i + 1])) {
+                throw new IllegalArgumentException("invalid polygon (NaN coordinate value)");
+            }
+            poly.getVertices().add(new Point(dd[i], dd[i + 1]));
+        }
+        if (poly.getVertices().size() < 3) {
+            throw new IllegalArgumentException("invalid polygon (not enough points): " + poly.getVertices().size());
+        }
+        return poly;
+    }
+
+    private static DoubleInterval toDoubleInterval(double[] dd) {
+        if (dd.length != 2) {
+            throw new IllegalArgumentException("invalid interval (expected 2 values): " + dd.length);
+        }
+        return new DoubleInterval(dd[0], dd[1]);
+    }
+
+    private static DoubleInterval[] toDoubleIntervalArray(double[] dd) {
+        if (dd.length % 2 != 0) {
+            throw new IllegalArgumentException("invalid array length for array of interval: " + dd.length);
+        }
+        DoubleInterval[] ret = new DoubleInterval[dd.length / 2];
+        for (int i = 0; i < dd.length; i += 2) {
+            ret[i / 2] = new DoubleInterval(dd[i], dd[i + 1]);
+        }
+        return ret;
+    }
+
+    private static LongInterval toLongInterval(long[] vv) {
+        if (vv.length != 2) {
+            throw new IllegalArgumentException("invalid interval (expected 2 values): " + vv.length);
+        }
+        return new LongInterval(vv[0], vv[1]);
+    }
 }
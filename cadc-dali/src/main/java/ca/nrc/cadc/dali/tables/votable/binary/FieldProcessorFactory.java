@@ -134,11 +134,18 @@ public class FieldProcessorFactory {
             }
 
             byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
-            if (field.getArraysize().contains("*")) {
+            if (field.getArraysize() != null && field.getArraysize().contains("*")) {
                 int variableDim = computeVariableDim(field, bytes.length);
                 out.writeInt(variableDim); // variable-length prefix
+                out.write(bytes);
+            } else {
+                // fixed size: truncate or pad with NUL
+                int length = computeFixedLength(field);
+                out.write(bytes, 0, Math.min(bytes.length, length));
+                for (int i = bytes.length; i < length; i++) {
+                    out.write(0);
+                }
             }
-            out.write(bytes);
         }
 
         @Override
@@ -450,7 +457,20 @@ public class FieldProcessorFactory {
         @Override
         public Object deSerialize(DataInputStream in, VOTableField field, int length) throws IOException {
             if (length == 1) {
-                return in.readBoolean();
+                // '?', space: null (BINARY); 0x00 is written for false by this library
+                byte b = in.readByte();
+                switch (b) {
+                    case '?':
+                    case ' ':
+                        return null;
+                    case 0:
+                    case '0':
+                    case 'F':
+                    case 'f':
+                        return false;
+                    default:
+                        return true;
+                }
             }
             throw new UnsupportedOperationException("Boolean Arrays are not supported");
         }
@@ -520,6 +540,18 @@ public class FieldProcessorFactory {
         }
     }
 
+    // Number of elements in a value of a field without a variable dimension.
+    private static int computeFixedLength(VOTableField field) {
+        int[] shape = VOTableUtil.parseArraySize(field.getArraysize());
+        int length = 1;
+        if (shape != null) {
+            for (int dim : shape) {
+                length *= dim;
+            }
+        }
+        return length;
+    }
+
     // Designed for arraysize containing a variable dimension.
     private static int computeVariableDim(VOTableField field, int arrayDataSize) throws IOException {
         int[] shape = VOTableUtil.parseArraySize(field.getArraysize());
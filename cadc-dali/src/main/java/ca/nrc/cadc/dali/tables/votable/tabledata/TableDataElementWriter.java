@@ -69,8 +69,8 @@
 
 package ca.nrc.cadc.dali.tables.votable.tabledata;
 
+import ca.nrc.cadc.dali.tables.votable.TableCodecPlan;
 import ca.nrc.cadc.dali.tables.votable.VOTableField;
-import ca.nrc.cadc.dali.util.Format;
 import ca.nrc.cadc.dali.util.FormatFactory;
 import ca.nrc.cadc.xml.MaxIterations;
 import java.io.IOException;
@@ -85,18 +85,54 @@ public class TableDataElementWriter {
     private static final Logger log = Logger.getLogger(TableDataElementWriter.class);
 
     private final Iterator<List<Object>> rowIter;
-    private final List<VOTableField> fields;
-    private final FormatFactory formatFactory;
+    private final TableCodecPlan plan;
     private final MaxIterations maxIterations;
-    private final Element trailer;
+
+    // reused for every row
+    private final StringBuilder rowBuffer = new StringBuilder(1024);
+    private final StringBuilder escapeBuffer = new StringBuilder();
+    private char[] chars = new char[1024];
+
+    private Exception error;
+
+    // deprecated: INFO element that gets the error
+    private Element trailer;
 
     public TableDataElementWriter(Iterator<List<Object>> rowIter, List<VOTableField> fields, MaxIterations maxIterations,
-                                  Element trailer, FormatFactory formatFactory) {
+                                  FormatFactory formatFactory) {
+        this(rowIter, new TableCodecPlan(fields, formatFactory), maxIterations);
+    }
+
+    public TableDataElementWriter(Iterator<List<Object>> rowIter, TableCodecPlan plan, MaxIterations maxIterations) {
         this.rowIter = rowIter;
-        this.fields = fields;
+        this.plan = plan;
         this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @param rowIter rows to write
+     * @param fields table fields
+     * @param maxIterations row limit, may be null
+     * @param trailer INFO element that is set to QUERY_STATUS ERROR if writing rows fails
+     * @param formatFactory format factory
+     * @deprecated use {@link #TableDataElementWriter(Iterator, List, MaxIterations, FormatFactory)}
+     *     and report {@link #getError()}
+     */
+    @Deprecated
+    public TableDataElementWriter(Iterator<List<Object>> rowIter, List<VOTableField> fields, MaxIterations maxIterations,
+                                  Element trailer, FormatFactory formatFactory) {
+        this(rowIter, fields, maxIterations, formatFactory);
         this.trailer = trailer;
-        this.formatFactory = formatFactory;
+    }
+
+    /**
+     * Get the failure that stopped writing rows. The caller reports it in the
+     * trailing INFO element (DALI QUERY_STATUS ERROR).
+     *
+     * @return the exception or null if all rows were written
+     */
+    public Exception getError() {
+        return error;
     }
 
     public void write(Writer out) throws IOException {
@@ -105,59 +141,109 @@ public class TableDataElementWriter {
 
         long rowCount = 0;
 
-        while (rowIter.hasNext()) {
-            rowCount++;
-            List<Object> row = rowIter.next();
-
-            out.write("\n<TR>");
-            try {
-                writeRow(out, row);
-            } catch (Exception e) {
-                // DALI error
-                log.warn("ERROR writing row : " + row, e);
-                trailer.setAttribute("name", "QUERY_STATUS");
-                trailer.setAttribute("value", "ERROR");
-                trailer.setText(e.toString());
-                break;
-            } finally {
-                out.write("</TR>");
-            }
+        try {
+            while (rowIter.hasNext()) {
+                rowCount++;
+                List<Object> row = rowIter.next();
+
+                try {
+                    formatRow(row);
+                } catch (Exception e) {
+                    // DALI error
+                    log.warn("ERROR writing row : " + row, e);
+                    this.error = e;
+                    break;
+                }
+                writeRow(out);
 
-            // check for max iterations
-            if (maxIterations != null && rowCount == maxIterations.getMaxIterations()) {
-                maxIterations.maxIterationsReached(rowIter.hasNext());
-                break;
+                // check for max iterations
+                if (maxIterations != null && rowCount == maxIterations.getMaxIterations()) {
+                    maxIterations.maxIterationsReached(rowIter.hasNext());
+                    break;
+                }
             }
+        } catch (RuntimeException ex) {
+            // DALI error: failed to get the next row, e.g. from a database cursor
+            log.warn("ERROR reading next row", ex);
+            this.error = ex;
         }
         out.write("</TABLEDATA>");
+        if (error != null && trailer != null) {
+            trailer.setAttribute("name", "QUERY_STATUS");
+            trailer.setAttribute("value", "ERROR");
+            trailer.setText(error.toString());
+        }
         log.debug("Finished writing TABLEDATA element. Wrote " + rowCount + " rows");
     }
 
-    private void writeRow(Writer out, List<Object> row) throws IOException {
+    // format the complete TR element into the reusable row buffer
+    private void formatRow(List<Object> row) {
+        rowBuffer.setLength(0);
+        rowBuffer.append("\n<TR>");
         for (int i = 0; i < row.size(); i++) {
             Object value = row.get(i);
-            VOTableField fd = fields.get(i);
-            Format fmt = formatFactory.getFormat(fd);
-
             if (value == null) {
-                out.write("<TD/>");
+                rowBuffer.append("<TD/>");
             } else {
-                out.write("<TD>");
-                try {
-                    out.write(escapeXml(fmt.format(value)));
-                } finally {
-                    out.write("</TD>");
-                }
+                rowBuffer.append("<TD>");
+                int start = rowBuffer.length();
+                plan.getColumn(i).appendTo(value, rowBuffer);
+                escapeXml(start);
+                rowBuffer.append("</TD>");
+            }
+        }
+        rowBuffer.append("</TR>");
+    }
+
+    private void writeRow(Writer out) throws IOException {
+        int len = rowBuffer.length();
+        if (chars.length < len) {
+            chars = new char[Math.max(len, 2 * chars.length)];
+        }
+        rowBuffer.getChars(0, len, chars, 0);
+        out.write(chars, 0, len);
+    }
+
+    // escape XML special characters in the row buffer from start to the end; the
+    // text is only copied if it contains a character that needs to be escaped
+    private void escapeXml(int start) {
+        int len = rowBuffer.length();
+        int i = start;
+        while (i < len && !isSpecial(rowBuffer.charAt(i))) {
+            i++;
+        }
+        if (i == len) {
+            return;
+        }
+
+        escapeBuffer.setLength(0);
+        escapeBuffer.append(rowBuffer, i, len);
+        rowBuffer.setLength(i);
+        for (int j = 0; j < escapeBuffer.length(); j++) {
+            char c = escapeBuffer.charAt(j);
+            switch (c) {
+                case '&':
+                    rowBuffer.append("&amp;");
+                    break;
+                case '<':
+                    rowBuffer.append("&lt;");
+                    break;
+                case '>':
+                    rowBuffer.append("&gt;");
+                    break;
+                case '"':
+                    rowBuffer.append("&quot;");
+                    break;
+                case '\'':
+                    rowBuffer.append("&apos;");
+                    break;
+                default:
+                    rowBuffer.append(c);
             }
         }
     }
 
-    // Utility method to escape XML special characters
-    private static String escapeXml(String input) {
-        return input.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&apos;");
+    private static boolean isSpecial(char c) {
+        return c == '&' || c == '<' || c == '>' || c == '"' || c == '\'';
     }
 }
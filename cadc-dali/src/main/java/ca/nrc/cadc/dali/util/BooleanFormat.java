@@ -89,6 +89,21 @@ public class BooleanFormat implements Format<Boolean> {
         return object.toString();
     }
 
+    /**
+     * Appends the String representation of the Boolean to the buffer. Nothing is
+     * appended if the Boolean is null.
+     *
+     * @param object Boolean to format
+     * @param sb buffer to append to
+     */
+    @Override
+    public void appendTo(Boolean object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        sb.append(object.booleanValue());
+    }
+
     /**
      * Parses a String to a Boolean.
      *
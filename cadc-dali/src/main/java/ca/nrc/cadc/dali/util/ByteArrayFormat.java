@@ -88,15 +88,33 @@ public class ByteArrayFormat implements Format<byte[]> {
         }
 
         StringBuilder sb = new StringBuilder();
-        for (byte b : object) {
-            sb.append(Byte.toString(b));
-            sb.append(" ");
+        appendTo(object, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the space separated values of the byte[] to the buffer. Nothing is
+     * appended if the byte[] is null.
+     *
+     * @param object byte[] to format.
+     * @param sb buffer to append to.
+     */
+    @Override
+    public void appendTo(byte[] object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        for (int i = 0; i < object.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(object[i]);
         }
-        return sb.toString().trim();
     }
 
     /**
-     * Parses a String to a byte[].
+     * Parses a String to a byte[]. Values from 128 to 255 (unsignedByte) are
+     * stored as the byte with the same bits.
      *
      * @param s the String to parse.
      * @return byte[] value of the String.
@@ -108,7 +126,7 @@ public class ByteArrayFormat implements Format<byte[]> {
             String[] tokens = s.split(" +");
             byte[] array = new byte[tokens.length];
             for (int i = 0; i < tokens.length; i++) {
-                array[i] = Byte.parseByte(tokens[i]);
+                array[i] = ByteFormat.parseByte(tokens[i]);
             }
             return array;
         }
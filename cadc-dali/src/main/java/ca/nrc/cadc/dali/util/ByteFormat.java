@@ -90,7 +90,23 @@ public class ByteFormat implements Format<Byte> {
     }
 
     /**
-     * Parses a String to a Byte.
+     * Appends the String representation of the Byte to the buffer. Nothing is
+     * appended if the Byte is null.
+     *
+     * @param object Byte to format
+     * @param sb buffer to append to
+     */
+    @Override
+    public void appendTo(Byte object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        sb.append(object.byteValue());
+    }
+
+    /**
+     * Parses a String to a Byte. Values from 128 to 255 (unsignedByte) are
+     * returned as the byte with the same bits.
      *
      * @param s the String to parse.
      * @return Byte value of the String.
@@ -99,7 +115,15 @@ public class ByteFormat implements Format<Byte> {
         if (s == null || s.isEmpty()) {
             return null;
         }
-        return Byte.valueOf(s);
+        return parseByte(s);
+    }
+
+    static byte parseByte(String s) {
+        int i = Integer.parseInt(s);
+        if (i < Byte.MIN_VALUE || i > 255) {
+            throw new NumberFormatException("Value out of range. Value:\"" + s + "\"");
+        }
+        return (byte) i;
     }
 
 }
@@ -91,11 +91,28 @@ public class DoubleArrayFormat implements Format<double[]> {
         }
 
         StringBuilder sb = new StringBuilder();
-        for (double d : object) {
-            sb.append(Double.toString(d));
-            sb.append(" ");
+        appendTo(object, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the space separated values of the double[] to the buffer. Nothing is
+     * appended if the double[] is null.
+     *
+     * @param object double[] to format.
+     * @param sb buffer to append to.
+     */
+    @Override
+    public void appendTo(double[] object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        for (int i = 0; i < object.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(object[i]);
         }
-        return sb.toString().trim();
     }
 
     /**
@@ -98,6 +98,26 @@ public class DoubleFormat implements Format<Double> {
         return object.toString();
     }
 
+    /**
+     * Appends the String representation of the Double to the buffer. Nothing is
+     * appended if the Double is null.
+     *
+     * @param object Double to format
+     * @param sb buffer to append to
+     */
+    @Override
+    public void appendTo(Double object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        if (object.isInfinite()) {
+            // IVOA-VOTable compliant
+            sb.append(object < 0.0 ? "-Inf" : "+Inf");
+        } else {
+            sb.append(object.doubleValue());
+        }
+    }
+
     /**
      * Parses a String to a Double.
      *
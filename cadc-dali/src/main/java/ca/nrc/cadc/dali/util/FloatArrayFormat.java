@@ -88,11 +88,28 @@ public class FloatArrayFormat implements Format<float[]> {
         }
 
         StringBuilder sb = new StringBuilder();
-        for (float f : object) {
-            sb.append(Float.toString(f));
-            sb.append(" ");
+        appendTo(object, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the space separated values of the float[] to the buffer. Nothing is
+     * appended if the float[] is null.
+     *
+     * @param object float[] to format.
+     * @param sb buffer to append to.
+     */
+    @Override
+    public void appendTo(float[] object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        for (int i = 0; i < object.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(object[i]);
         }
-        return sb.toString().trim();
     }
 
     /**
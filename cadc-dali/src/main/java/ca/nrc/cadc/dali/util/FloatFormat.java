@@ -89,6 +89,21 @@ public class FloatFormat implements Format<Float> {
         return object.toString();
     }
 
+    /**
+     * Appends the String representation of the Float to the buffer. Nothing is
+     * appended if the Float is null.
+     *
+     * @param object Float to format
+     * @param sb buffer to append to
+     */
+    @Override
+    public void appendTo(Float object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        sb.append(object.floatValue());
+    }
+
     /**
      * Parses a String to a Float.
      *
@@ -77,4 +77,16 @@ public interface Format<T> {
     T parse(String s);
 
     String format(T t);
+
+    /**
+     * Append the String representation of the value to a buffer. The default
+     * implementation appends the result of format(t); implementations can override
+     * this to avoid creating an intermediate String.
+     *
+     * @param t value to format
+     * @param sb buffer to append to
+     */
+    default void appendTo(T t, StringBuilder sb) {
+        sb.append(format(t));
+    }
 }
@@ -87,11 +87,28 @@ public class IntArrayFormat implements Format<int[]> {
         }
 
         StringBuilder sb = new StringBuilder();
-        for (int i : object) {
-            sb.append(Integer.toString(i));
-            sb.append(" ");
+        appendTo(object, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the space separated values of the int[] to the buffer. Nothing is
+     * appended if the int[] is null.
+     *
+     * @param object int[] to format.
+     * @param sb buffer to append to.
+     */
+    @Override
+    public void appendTo(int[] object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        for (int i = 0; i < object.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(object[i]);
         }
-        return sb.toString().trim();
     }
 
     /**
@@ -99,6 +99,21 @@ public class IntegerFormat implements Format<Integer> {
         return object.toString();
     }
 
+    /**
+     * Appends the String representation of the Integer to the buffer. Nothing is
+     * appended if the Integer is null.
+     *
+     * @param object Integer to format
+     * @param sb buffer to append to
+     */
+    @Override
+    public void appendTo(Integer object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        sb.append(object.intValue());
+    }
+
     /**
      * Parses a String to a Integer.
      *
@@ -87,11 +87,28 @@ public class LongArrayFormat implements Format<long[]> {
         }
 
         StringBuilder sb = new StringBuilder();
-        for (long i : object) {
-            sb.append(Long.toString(i));
-            sb.append(" ");
+        appendTo(object, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the space separated values of the long[] to the buffer. Nothing is
+     * appended if the long[] is null.
+     *
+     * @param object long[] to format.
+     * @param sb buffer to append to.
+     */
+    @Override
+    public void appendTo(long[] object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        for (int i = 0; i < object.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(object[i]);
         }
-        return sb.toString().trim();
     }
 
     /**
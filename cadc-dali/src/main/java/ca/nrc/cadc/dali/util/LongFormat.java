@@ -100,6 +100,21 @@ public class LongFormat implements Format<Long> {
         return object.toString();
     }
 
+    /**
+     * Appends the String representation of the Long to the buffer. Nothing is
+     * appended if the Long is null.
+     *
+     * @param object Long to format
+     * @param sb buffer to append to
+     */
+    @Override
+    public void appendTo(Long object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        sb.append(object.longValue());
+    }
+
     /**
      * Parses a String to a Long.
      *
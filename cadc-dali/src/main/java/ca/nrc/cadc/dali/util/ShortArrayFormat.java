@@ -87,11 +87,28 @@ public class ShortArrayFormat implements Format<short[]> {
         }
 
         StringBuilder sb = new StringBuilder();
-        for (short s : object) {
-            sb.append(Short.toString(s));
-            sb.append(" ");
+        appendTo(object, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the space separated values of the short[] to the buffer. Nothing is
+     * appended if the short[] is null.
+     *
+     * @param object short[] to format.
+     * @param sb buffer to append to.
+     */
+    @Override
+    public void appendTo(short[] object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        for (int i = 0; i < object.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(object[i]);
         }
-        return sb.toString().trim();
     }
 
     /**
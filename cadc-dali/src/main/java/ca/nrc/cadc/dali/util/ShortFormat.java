@@ -99,6 +99,21 @@ public class ShortFormat implements Format<Short> {
         return object.toString();
     }
 
+    /**
+     * Appends the String representation of the Short to the buffer. Nothing is
+     * appended if the Short is null.
+     *
+     * @param object Short to format
+     * @param sb buffer to append to
+     */
+    @Override
+    public void appendTo(Short object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        sb.append(object.shortValue());
+    }
+
     /**
      * Parses a String to a Short.
      *
@@ -89,6 +89,21 @@ public class StringFormat implements Format<String> {
         return object;
     }
 
+    /**
+     * Appends the String representation of the String to the buffer. Nothing is
+     * appended if the String is null.
+     *
+     * @param object String to format
+     * @param sb buffer to append to
+     */
+    @Override
+    public void appendTo(String object, StringBuilder sb) {
+        if (object == null) {
+            return;
+        }
+        sb.append(object);
+    }
+
     /**
      * Parses a String to a String.
      *
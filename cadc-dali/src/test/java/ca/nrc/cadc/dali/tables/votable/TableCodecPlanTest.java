@@ -0,0 +1,151 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 5 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.dali.tables.votable;
+
+import ca.nrc.cadc.dali.Point;
+import ca.nrc.cadc.dali.util.DoubleFormat;
+import ca.nrc.cadc.dali.util.PointFormat;
+import ca.nrc.cadc.util.Log4jInit;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TableCodecPlanTest {
+    private static final Logger log = Logger.getLogger(TableCodecPlanTest.class);
+
+    static {
+        Log4jInit.setLevel("ca.nrc.cadc.dali", Level.INFO);
+    }
+
+    @Test
+    public void testColumns() throws Exception {
+        List<VOTableField> fields = new ArrayList<>();
+        VOTableField f = new VOTableField("a", "double");
+        fields.add(f);
+        f = new VOTableField("b", "int");
+        f.nullValue = "-1";
+        fields.add(f);
+        f = new VOTableField("c", "double", "2");
+        f.xtype = "point";
+        fields.add(f);
+        f = new VOTableField("d", "short", "3x*");
+        fields.add(f);
+        f = new VOTableField("e", "floatComplex");
+        fields.add(f);
+
+        TableCodecPlan plan = new TableCodecPlan(fields, null);
+        Assert.assertEquals(5, plan.size());
+
+        TableCodecPlan.ColumnCodec a = plan.getColumn(0);
+        Assert.assertTrue(a.getFormat() instanceof DoubleFormat);
+        Assert.assertFalse(a.isArray());
+        Assert.assertEquals(1, a.getFixedLength());
+        Assert.assertFalse(a.hasNullValue());
+        Assert.assertNull(a.parse(""));
+        Assert.assertEquals(2.5, a.parse("2.5"));
+        Assert.assertEquals("2.5", a.format(2.5));
+
+        TableCodecPlan.ColumnCodec b = plan.getColumn(1);
+        Assert.assertTrue(b.hasNullValue());
+        Assert.assertNull(b.parse("-1"));
+        Assert.assertEquals(3, b.parse("3"));
+
+        TableCodecPlan.ColumnCodec c = plan.getColumn(2);
+        Assert.assertTrue(c.getFormat() instanceof PointFormat);
+        Assert.assertTrue(c.isArray());
+        Assert.assertFalse(c.isVariable());
+        Assert.assertEquals(2, c.getFixedLength());
+        Assert.assertEquals(new Point(1.0, 2.0), c.parse("1.0 2.0"));
+        Assert.assertNotNull(c.getFieldProcessor());
+
+        TableCodecPlan.ColumnCodec d = plan.getColumn(3);
+        Assert.assertTrue(d.isVariable());
+        Assert.assertEquals(3, d.getFixedLength());
+        Assert.assertArrayEquals(new int[] {3, -1}, d.getShape());
+
+        // unsupported datatypes fail on use
+        TableCodecPlan.ColumnCodec e = plan.getColumn(4);
+        try {
+            e.getFormat();
+            Assert.fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException expected) {
+            log.debug("caught expected: " + expected);
+        }
+        try {
+            e.getFieldProcessor();
+            Assert.fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            log.debug("caught expected: " + expected);
+        }
+    }
+}
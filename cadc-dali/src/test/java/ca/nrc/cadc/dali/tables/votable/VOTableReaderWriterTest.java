@@ -74,6 +74,8 @@ import ca.nrc.cadc.dali.Point;
 import ca.nrc.cadc.dali.Polygon;
 import ca.nrc.cadc.dali.tables.ListTableData;
 import ca.nrc.cadc.dali.tables.TableData;
+import ca.nrc.cadc.dali.tables.votable.binary.BinaryElementWriter;
+import ca.nrc.cadc.dali.tables.votable.tabledata.TableDataElementWriter;
 import ca.nrc.cadc.dali.util.Format;
 import ca.nrc.cadc.dali.util.FormatFactory;
 import ca.nrc.cadc.dali.util.PointFormat;
@@ -83,13 +85,17 @@ import ca.nrc.cadc.io.ResourceIterator;
 import ca.nrc.cadc.util.FileUtil;
 import ca.nrc.cadc.util.Log4jInit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -97,6 +103,8 @@ import java.util.List;
 import ca.nrc.cadc.util.StringUtil;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.jdom2.Document;
+import org.jdom2.Element;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -191,10 +199,199 @@ public class VOTableReaderWriterTest {
         }
     }
 
+    @Test
+    public void testStreamingReadVOTable() throws Exception {
+        testStreamingReadVOTable(VOTableWriter.SerializationType.TABLEDATA);
+        testStreamingReadVOTable(VOTableWriter.SerializationType.BINARY2);
+        testStreamingReadVOTable(VOTableWriter.SerializationType.BINARY);
+    }
+
+    public void testStreamingReadVOTable(VOTableWriter.SerializationType serializationType) throws Exception {
+        log.debug("testStreamingReadVOTable: " + serializationType);
+        try {
+            VOTableDocument expected = new VOTableDocument();
+            expected.getInfos().addAll(getTestInfos("a"));
+
+            VOTableResource vr = new VOTableResource("results");
+            vr.getInfos().addAll(getTestInfos("b"));
+            expected.getResources().add(vr);
+
+            VOTableTable vot = new VOTableTable();
+            vot.getInfos().addAll(getTestInfos("c"));
+            vot.getParams().addAll(getTestParams());
+            vot.getFields().addAll(getTestFields(serializationType));
+            vot.setTableData(new TestTableData());
+            vr.setTable(vot);
+
+            StringWriter sw = new StringWriter();
+            VOTableWriter writer = new VOTableWriter(serializationType);
+            writer.write(expected, sw);
+            String xml = sw.toString();
+            log.debug("XML: \n\n" + xml);
+
+            StreamingVOTableReader reader = new StreamingVOTableReader();
+            VOTableDocument actual = reader.read(xml);
+            Assert.assertEquals(1, actual.getResources().size());
+            VOTableResource ar = actual.getResources().get(0);
+            Assert.assertEquals("results", ar.getType());
+
+            // metadata before the DATA element is available before reading rows
+            compareInfos(vr.getInfos(), ar.getInfos());
+            compareTables(vot, ar.getTable(), null);
+
+            // trailing elements are available once the rows have been consumed
+            VOTableInfo trailer = ar.getInfos().get(ar.getInfos().size() - 1);
+            Assert.assertEquals("placeholder", trailer.getName());
+            compareInfos(expected.getInfos(), actual.getInfos());
+            actual.close();
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testWriteOutputStream() throws Exception {
+        testWriteOutputStream(VOTableWriter.SerializationType.TABLEDATA);
+        testWriteOutputStream(VOTableWriter.SerializationType.BINARY2);
+        testWriteOutputStream(VOTableWriter.SerializationType.BINARY);
+    }
+
+    public void testWriteOutputStream(VOTableWriter.SerializationType serializationType) throws Exception {
+        log.debug("testWriteOutputStream: " + serializationType);
+        try {
+            VOTableDocument expected = new VOTableDocument();
+            VOTableResource vr = new VOTableResource("results");
+            expected.getResources().add(vr);
+            VOTableTable vot = new VOTableTable();
+            vot.getFields().addAll(getTestFields(serializationType));
+            vr.setTable(vot);
+
+            // same document written to a Writer and to an OutputStream
+            VOTableWriter writer = new VOTableWriter(serializationType);
+            vot.setTableData(new TestTableData());
+            StringWriter sw = new StringWriter();
+            writer.write(expected, sw);
+
+            vot.setTableData(new TestTableData());
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            writer.write(expected, bos);
+            String xml = new String(bos.toByteArray(), StandardCharsets.UTF_8);
+            log.debug("XML: \n\n" + xml);
+            Assert.assertEquals(sw.toString(), xml);
+
+            VOTableReader reader = new VOTableReader();
+            VOTableDocument actual = reader.read(new ByteArrayInputStream(bos.toByteArray()));
+            vr.getInfos().add(new VOTableInfo("placeholder", "ignore"));
+            vot.setTableData(new TestTableData());
+            compareVOTable(expected, actual, null);
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testWritePipelined() throws Exception {
+        testWritePipelined(VOTableWriter.SerializationType.TABLEDATA);
+        testWritePipelined(VOTableWriter.SerializationType.BINARY2);
+        testWritePipelined(VOTableWriter.SerializationType.BINARY);
+    }
+
+    public void testWritePipelined(VOTableWriter.SerializationType serializationType) throws Exception {
+        log.debug("testWritePipelined: " + serializationType);
+        try {
+            VOTableDocument doc = new VOTableDocument();
+            VOTableResource vr = new VOTableResource("results");
+            doc.getResources().add(vr);
+            VOTableTable vot = new VOTableTable();
+            vot.getFields().addAll(getTestFields(serializationType));
+            vr.setTable(vot);
+
+            VOTableWriter writer = new VOTableWriter(serializationType);
+            VOTableWriter pipelined = new VOTableWriter(serializationType);
+            pipelined.setPipelined(true);
+
+            // more rows than fit in one batch: same output as the single thread writer
+            for (Long maxrec : new Long[] {null, 2500L}) {
+                vot.setTableData(new TestTableData(3000));
+                StringWriter expected = new StringWriter();
+                writer.write(doc, expected, maxrec);
+                vot.setTableData(new TestTableData(3000));
+                StringWriter actual = new StringWriter();
+                pipelined.write(doc, actual, maxrec);
+                Assert.assertEquals(expected.toString(), actual.toString());
+                Assert.assertEquals(maxrec != null, actual.toString().contains("OVERFLOW"));
+            }
+
+            // rows read before a failure are written and the failure goes in the trailer
+            vot.setTableData(new FailingTableData(1500));
+            StringWriter sw = new StringWriter();
+            pipelined.write(doc, sw);
+            VOTableDocument actual = new VOTableReader().read(sw.toString());
+            VOTableResource ar = actual.getResourceByType("results");
+            int numRows = 0;
+            Iterator<List<Object>> iter = ar.getTable().getTableData().iterator();
+            while (iter.hasNext()) {
+                iter.next();
+                numRows++;
+            }
+            Assert.assertEquals(1500, numRows);
+            VOTableInfo trailer = ar.getInfos().get(ar.getInfos().size() - 1);
+            Assert.assertEquals("QUERY_STATUS", trailer.getName());
+            Assert.assertEquals("ERROR", trailer.getValue());
+            Assert.assertTrue(trailer.content.contains("cursor failed"));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testWritePrettyPrint() throws Exception {
+        try {
+            VOTableDocument expected = new VOTableDocument();
+            VOTableResource vr = new VOTableResource("results");
+            vr.description = "description with <markup> & \"quotes\"";
+            expected.getResources().add(vr);
+            VOTableTable vot = new VOTableTable();
+            vot.getFields().addAll(getTestFields());
+            vr.setTable(vot);
+
+            VOTableWriter writer = new VOTableWriter();
+            vot.setTableData(new TestTableData());
+            StringWriter sw = new StringWriter();
+            writer.write(expected, sw);
+            String compact = sw.toString();
+            log.debug("compact XML: \n\n" + compact);
+            Assert.assertFalse(compact.contains("\n  <"));
+
+            writer.setPrettyPrint(true);
+            vot.setTableData(new TestTableData());
+            sw = new StringWriter();
+            writer.write(expected, sw);
+            String pretty = sw.toString();
+            log.debug("pretty XML: \n\n" + pretty);
+            Assert.assertTrue(pretty.contains("\n  <RESOURCE"));
+            Assert.assertTrue(compact.length() < pretty.length());
+
+            vr.getInfos().add(new VOTableInfo("placeholder", "ignore"));
+            VOTableReader reader = new VOTableReader();
+            vot.setTableData(new TestTableData());
+            compareVOTable(expected, reader.read(compact), null);
+            vot.setTableData(new TestTableData());
+            compareVOTable(expected, reader.read(pretty), null);
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
     @Test
     public void testReadWriteVOTableWithMax() throws Exception {
         testReadWriteVOTableWithMax(VOTableWriter.SerializationType.TABLEDATA);
         testReadWriteVOTableWithMax(VOTableWriter.SerializationType.BINARY2);
+        testReadWriteVOTableWithMax(VOTableWriter.SerializationType.BINARY);
     }
 
     public void testReadWriteVOTableWithMax(VOTableWriter.SerializationType serializationType) throws Exception {
@@ -225,7 +422,7 @@ public class VOTableReaderWriterTest {
 
             // Add VOTableFields.
             vot.getParams().addAll(getTestParams());
-            vot.getFields().addAll(getTestFields());
+            vot.getFields().addAll(getTestFields(serializationType));
 
             // Add TableData.
             vot.setTableData(new TestTableData(maxrec + 1L));
@@ -256,6 +453,7 @@ public class VOTableReaderWriterTest {
     public void testReadWriteVOTableWithIterationFail() throws Exception {
         testReadWriteVOTableWithIterationFail(VOTableWriter.SerializationType.TABLEDATA);
         testReadWriteVOTableWithIterationFail(VOTableWriter.SerializationType.BINARY2);
+        testReadWriteVOTableWithIterationFail(VOTableWriter.SerializationType.BINARY);
     }
 
     public void testReadWriteVOTableWithIterationFail(VOTableWriter.SerializationType serializationType) throws Exception {
@@ -285,10 +483,10 @@ public class VOTableReaderWriterTest {
 
             // Add VOTableFields.
             vot.getParams().addAll(getTestParams());
-            vot.getFields().addAll(getTestFields());
+            vot.getFields().addAll(getTestFields(serializationType));
 
             // Add TableData.
-            vot.setTableData(new TestTableData(serializationType.equals(VOTableWriter.SerializationType.BINARY2)));
+            vot.setTableData(new TestTableData(!serializationType.equals(VOTableWriter.SerializationType.TABLEDATA)));
 
             // Write VOTable to xml.
             StringWriter sw = new StringWriter();
@@ -332,6 +530,7 @@ public class VOTableReaderWriterTest {
     public void testReadWriteVOTableArraysize() throws Exception {
         testReadWriteVOTableArraysize(VOTableWriter.SerializationType.TABLEDATA);
         testReadWriteVOTableArraysize(VOTableWriter.SerializationType.BINARY2);
+        testReadWriteVOTableArraysize(VOTableWriter.SerializationType.BINARY);
     }
 
     public void testReadWriteVOTableArraysize(VOTableWriter.SerializationType serializationType) throws Exception {
@@ -441,6 +640,199 @@ public class VOTableReaderWriterTest {
         }
     }
 
+    @Test
+    public void testWriteValues() throws Exception {
+        try {
+            VOTableDocument expected = new VOTableDocument();
+            VOTableResource vr = new VOTableResource("results");
+            expected.getResources().add(vr);
+            VOTableTable vot = new VOTableTable();
+            vr.setTable(vot);
+
+            VOTableParam param = new VOTableParam("band", "double", "0.5");
+            param.setMin("0.1");
+            param.setMax("1.0");
+            param.getValues().add("0.2");
+            param.getOptions().add("0.5");
+            vot.getParams().add(param);
+
+            VOTableField field = new VOTableField("n", "int");
+            field.nullValue = "-1";
+            vot.getFields().add(field);
+            vot.setTableData(new ListTableData());
+
+            for (VOTableWriter.SerializationType type : VOTableWriter.SerializationType.values()) {
+                StringWriter sw = new StringWriter();
+                new VOTableWriter(type).write(expected, sw);
+                String xml = sw.toString();
+                log.debug("XML: \n\n" + xml);
+
+                // schema order of the VALUES content
+                int min = xml.indexOf("<MIN value=\"0.1\"");
+                int max = xml.indexOf("<MAX value=\"1.0\"");
+                int opt1 = xml.indexOf("<OPTION value=\"0.2\"");
+                int opt2 = xml.indexOf("<OPTION value=\"0.5\"");
+                Assert.assertTrue(xml, min > 0 && min < max && max < opt1 && opt1 < opt2);
+                Assert.assertEquals(xml.indexOf("<VALUES"), xml.lastIndexOf("<VALUES", opt2));
+
+                // only BINARY declares the null value
+                Assert.assertEquals(type + " null", type == VOTableWriter.SerializationType.BINARY,
+                        xml.contains("null=\"-1\""));
+
+                VOTableDocument actual = new VOTableReader().read(xml);
+                VOTableParam actualParam = actual.getResources().get(0).getTable().getParams().get(0);
+                Assert.assertEquals(2, actualParam.getValues().size());
+                Assert.assertEquals("0.2", actualParam.getValues().get(0));
+                Assert.assertEquals("0.5", actualParam.getValues().get(1));
+            }
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedTrailer() throws Exception {
+        List<VOTableField> fields = new ArrayList<>();
+        fields.add(new VOTableField("n", "int"));
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(Arrays.asList((Object) 1));
+        rows.add(Arrays.asList((Object) "not an int"));
+
+        Element trailer = new Element("INFO");
+        new TableDataElementWriter(rows.iterator(), fields, null, trailer, new FormatFactory()).write(new StringWriter());
+        Assert.assertEquals("QUERY_STATUS", trailer.getAttributeValue("name"));
+        Assert.assertEquals("ERROR", trailer.getAttributeValue("value"));
+
+        trailer = new Element("INFO");
+        new BinaryElementWriter(rows.iterator(), fields, null, trailer).write(new StringWriter());
+        Assert.assertEquals("QUERY_STATUS", trailer.getAttributeValue("name"));
+        Assert.assertEquals("ERROR", trailer.getAttributeValue("value"));
+
+        Document doc = new VOTableWriter().createDocument();
+        Assert.assertEquals("VOTABLE", doc.getRootElement().getName());
+        Assert.assertEquals(VOTableWriter.VOTABLE_13_NS_URI, doc.getRootElement().getNamespaceURI());
+    }
+
+    @Test
+    public void testBinaryUnsignedByteMaxValue() throws Exception {
+        try {
+            VOTableDocument expected = new VOTableDocument();
+            VOTableResource vr = new VOTableResource("results");
+            expected.getResources().add(vr);
+            VOTableTable vot = new VOTableTable();
+            vr.setTable(vot);
+            VOTableField ub = new VOTableField("ub", "unsignedByte");
+            vot.getFields().add(ub);
+
+            ListTableData tData = new ListTableData();
+            for (Byte b : new Byte[] {(byte) 255, 1, null}) {
+                List<Object> row = new ArrayList<>();
+                row.add(b);
+                tData.getArrayList().add(row);
+            }
+            vot.setTableData(tData);
+            VOTableWriter writer = new VOTableWriter(VOTableWriter.SerializationType.BINARY);
+
+            // no declared null value: refused before anything is written
+            StringWriter sw = new StringWriter();
+            try {
+                writer.write(expected, sw);
+                Assert.fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException expectedException) {
+                log.debug("caught expected: " + expectedException);
+            }
+            Assert.assertEquals(0, sw.toString().length());
+
+            // 255 is data, not null
+            ub.nullValue = "0";
+            writer.write(expected, sw);
+            String xml = sw.toString();
+            log.debug("XML: \n\n" + xml);
+
+            VOTableReader reader = new VOTableReader();
+            VOTableDocument actual = reader.read(xml);
+            Iterator<List<Object>> iter = actual.getResources().get(0).getTable().getTableData().iterator();
+            for (List<Object> row : tData.getArrayList()) {
+                Assert.assertTrue(iter.hasNext());
+                Object value = iter.next().get(0);
+                if (row.get(0) == null) {
+                    Assert.assertNull(value);
+                } else {
+                    Assert.assertNotNull(value);
+                    Assert.assertEquals(((Number) row.get(0)).intValue() & 0xFF, ((Number) value).intValue() & 0xFF);
+                }
+            }
+            Assert.assertFalse(iter.hasNext());
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testBinaryNullValues() throws Exception {
+        try {
+            VOTableDocument expected = new VOTableDocument();
+            VOTableResource vr = new VOTableResource("results");
+            expected.getResources().add(vr);
+            VOTableTable vot = new VOTableTable();
+            vr.setTable(vot);
+            vot.getFields().add(new VOTableField("b", "boolean"));
+            vot.getFields().add(new VOTableField("s", "short", "3"));
+            vot.getFields().add(new VOTableField("i", "int", "2"));
+            vot.getFields().add(new VOTableField("l", "long", "2"));
+            VOTableField ub = new VOTableField("ub", "unsignedByte", "2");
+            ub.nullValue = "255";
+            vot.getFields().add(ub);
+
+            ListTableData tData = new ListTableData();
+            tData.getArrayList().add(Arrays.asList(Boolean.TRUE, new short[] {1, 2, 3}, new int[] {4, 5},
+                    new long[] {6L, 7L}, new byte[] {8, 9}));
+            tData.getArrayList().add(Arrays.asList(null, null, null, null, null));
+            tData.getArrayList().add(Arrays.asList(Boolean.FALSE, new short[] {Short.MIN_VALUE, 0, 1},
+                    new int[] {Integer.MIN_VALUE, 0}, new long[] {Long.MIN_VALUE, 0L}, new byte[] {(byte) 255, 0}));
+            vot.setTableData(tData);
+
+            StringWriter sw = new StringWriter();
+            VOTableWriter writer = new VOTableWriter(VOTableWriter.SerializationType.BINARY);
+            writer.write(expected, sw);
+            String xml = sw.toString();
+            log.debug("XML: \n\n" + xml);
+            Assert.assertFalse(xml.contains("QUERY_STATUS"));
+            Assert.assertTrue(xml.contains("null=\"" + Integer.MIN_VALUE + "\""));
+
+            VOTableReader reader = new VOTableReader();
+            VOTableDocument actual = reader.read(xml);
+            Iterator<List<Object>> iter = actual.getResources().get(0).getTable().getTableData().iterator();
+
+            List<Object> row = iter.next();
+            Assert.assertEquals(Boolean.TRUE, row.get(0));
+            Assert.assertArrayEquals(new short[] {1, 2, 3}, (short[]) row.get(1));
+            Assert.assertArrayEquals(new int[] {4, 5}, (int[]) row.get(2));
+            Assert.assertArrayEquals(new long[] {6L, 7L}, (long[]) row.get(3));
+            Assert.assertArrayEquals(new byte[] {8, 9}, (byte[]) row.get(4));
+
+            row = iter.next();
+            for (Object value : row) {
+                Assert.assertNull(value);
+            }
+
+            // only an array with every element set to the null value is null
+            row = iter.next();
+            Assert.assertEquals(Boolean.FALSE, row.get(0));
+            Assert.assertArrayEquals(new short[] {Short.MIN_VALUE, 0, 1}, (short[]) row.get(1));
+            Assert.assertArrayEquals(new int[] {Integer.MIN_VALUE, 0}, (int[]) row.get(2));
+            Assert.assertArrayEquals(new long[] {Long.MIN_VALUE, 0L}, (long[]) row.get(3));
+            Assert.assertArrayEquals(new byte[] {(byte) 255, 0}, (byte[]) row.get(4));
+            Assert.assertFalse(iter.hasNext());
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
     /**
      * Returns a test table that matches the output BINARY file's table.
      *
@@ -942,6 +1334,25 @@ public class VOTableReaderWriterTest {
         return params;
     }
 
+    /**
+     * Get the test fields for a serialization: every unsignedByte is a valid value, so
+     * the byte column declares a null value for BINARY.
+     *
+     * @param serializationType serialization the fields are written with
+     * @return test fields
+     */
+    public static List<VOTableField> getTestFields(VOTableWriter.SerializationType serializationType) {
+        List<VOTableField> fields = getTestFields();
+        if (VOTableWriter.SerializationType.BINARY.equals(serializationType)) {
+            for (VOTableField f : fields) {
+                if (f.getName().equals("byte column")) {
+                    f.nullValue = "0";
+                }
+            }
+        }
+        return fields;
+    }
+
     public static List<VOTableField> getTestFields() {
         List<VOTableField> fields = new ArrayList<VOTableField>();
 
@@ -1148,7 +1559,7 @@ public class VOTableReaderWriterTest {
 
             List<Object> row1 = new ArrayList<Object>();
             row1.add(Boolean.TRUE);
-            row1.add(new byte[]{1, 2});
+            row1.add(new byte[]{1, 2, (byte) 200});
             row1.add(Byte.valueOf("1"));
             row1.add(new double[]{3.3, 4.4});
             row1.add(5.5D);
@@ -1160,7 +1571,7 @@ public class VOTableReaderWriterTest {
             row1.add(Long.valueOf("14"));
             row1.add(new short[]{15, 16});
             row1.add(brokenData ? "Broken Data" : Short.valueOf("17"));
-            row1.add("string value");
+            row1.add("string & <value> \"quoted\" 'too'");
             row1.add(dateFormat.parse(DATE_TIME));
 
             // DALI geom
@@ -1220,4 +1631,39 @@ public class VOTableReaderWriterTest {
         }
     }
 
+    // row iterator fails after the specified number of rows, like a broken database cursor
+    private static class FailingTableData extends TestTableData {
+
+        private final long failAfter;
+
+        FailingTableData(long failAfter) throws Exception {
+            super(failAfter + 10);
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public ResourceIterator<List<Object>> iterator() {
+            final Iterator<List<Object>> it = super.iterator();
+            return new ResourceIterator<>() {
+                private long numRows = 0;
+
+                public boolean hasNext() {
+                    if (numRows == failAfter) {
+                        throw new RuntimeException("cursor failed");
+                    }
+                    return it.hasNext();
+                }
+
+                public List<Object> next() {
+                    numRows++;
+                    return it.next();
+                }
+
+                public void close() throws IOException {
+                    // nothing to close
+                }
+            };
+        }
+    }
+
 }
@@ -131,4 +131,27 @@ public class DoubleFormatTest
         log.info("testNull passed");
     }
 
+    @Test
+    public void testAppendTo() throws Exception
+    {
+        log.debug("testAppendTo");
+
+        DoubleFormat format = new DoubleFormat();
+        Double[] values = new Double[] { 1.0, -2.5e-12, 3.0e300, Double.NaN,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        StringBuilder sb = new StringBuilder("x");
+        for (Double d : values)
+        {
+            sb.setLength(1);
+            format.appendTo(d, sb);
+            assertEquals("x" + format.format(d), sb.toString());
+        }
+
+        sb.setLength(1);
+        format.appendTo(null, sb);
+        assertEquals("x", sb.toString());
+
+        log.info("testAppendTo passed");
+    }
+
 }
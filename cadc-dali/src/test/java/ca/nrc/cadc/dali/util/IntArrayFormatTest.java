@@ -136,5 +136,23 @@ public class IntArrayFormatTest
 
         log.info("testNull passed");
     }
+
+    @Test
+    public void testAppendTo() throws Exception
+    {
+        log.debug("testAppendTo");
+
+        IntArrayFormat format = new IntArrayFormat();
+        StringBuilder sb = new StringBuilder("x");
+        format.appendTo(new int[] { 1, -2, Integer.MAX_VALUE }, sb);
+        assertEquals("x1 -2 2147483647", sb.toString());
+
+        sb.setLength(1);
+        format.appendTo(new int[0], sb);
+        format.appendTo(null, sb);
+        assertEquals("x", sb.toString());
+
+        log.info("testAppendTo passed");
+    }
     
 }
\ No newline at end of file
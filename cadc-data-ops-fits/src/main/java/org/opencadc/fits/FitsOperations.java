@@ -84,6 +84,7 @@ import nom.tam.util.Cursor;
 import nom.tam.util.RandomAccessFileIO;
 import org.apache.log4j.Logger;
 import org.opencadc.fits.slice.NDimensionalSlicer;
+import org.opencadc.fits.slice.WCSKeywordsCache;
 import org.opencadc.soda.server.Cutout;
 
 /**
@@ -95,9 +96,38 @@ public class FitsOperations {
     private static final Logger log = Logger.getLogger(FitsOperations.class);
 
     private final RandomAccessFileIO src;
+    private final HDUIndex index;
+    private final WCSKeywordsCache wcsKeywordsCache;
+    private final String cacheKey;
 
     public FitsOperations(RandomAccessFileIO src) {
+        this(src, null);
+    }
+
+    /**
+     * Operations that use an index of the HDUs to read headers and extensions directly.
+     *
+     * @param src FITS content
+     * @param index index of the HDUs in src, or null to walk the HDUs
+     */
+    public FitsOperations(RandomAccessFileIO src, HDUIndex index) {
+        this(src, index, null, null);
+    }
+
+    /**
+     * Operations that also use a cache of the WCS keywords of the HDUs for cutouts.
+     *
+     * @param src FITS content
+     * @param index index of the HDUs in src, or null to walk the HDUs
+     * @param wcsKeywordsCache cache of WCS keywords shared between operations, or null to not cache
+     * @param cacheKey key of src in the cache, which must change when the content changes
+     */
+    public FitsOperations(RandomAccessFileIO src, HDUIndex index, WCSKeywordsCache wcsKeywordsCache,
+                          String cacheKey) {
         this.src = src;
+        this.index = index;
+        this.wcsKeywordsCache = wcsKeywordsCache;
+        this.cacheKey = cacheKey;
     }
 
     public Header getPrimaryHeader() throws ReadException {
@@ -114,10 +144,48 @@ public class FitsOperations {
         }
     }
     
+    /**
+     * Get the header of one HDU.
+     *
+     * @param hduIndex zero-based HDU index
+     * @return the header
+     * @throws ReadException failure to read
+     * @throws IndexOutOfBoundsException if there is no such HDU
+     */
+    public Header getHeader(int hduIndex) throws ReadException {
+        try {
+            if (index != null) {
+                return new IndexedFits(src, index).getHeader(hduIndex);
+            }
+
+            Fits fits = new Fits(src);
+            BasicHDU<?> hdu = fits.readHDU();
+            for (int i = 0; i < hduIndex && hdu != null; i++) {
+                hdu = fits.readHDU();
+            }
+            if (hdu == null) {
+                throw new IndexOutOfBoundsException("no such HDU: " + hduIndex);
+            }
+            return hdu.getHeader();
+        } catch (FitsException ex) {
+            throw new RuntimeException("invalid fits data: " + src);
+        } catch (IOException ex) {
+            throw new ReadException("failed to read " + src, ex);
+        }
+    }
+
     public List<Header> getHeaders() throws ReadException {
         try {
             List<Header> ret = new ArrayList<>();
             
+            if (index != null) {
+                IndexedFits fits = new IndexedFits(src, index);
+                for (int i = 0; i < fits.getNumberOfHDUs(); i++) {
+                    ret.add(fits.getHeader(i));
+                }
+                return ret;
+            }
+
             Fits fits = new Fits(src);
             BasicHDU<?> hdu = fits.readHDU();
             while (hdu != null) {
@@ -165,8 +233,8 @@ public class FitsOperations {
             throws NoOverlapException, ReadException {
         log.debug("cutoutToStream() start.");
         try {
-            final NDimensionalSlicer slicer = new NDimensionalSlicer();
-            slicer.slice(src, cutout, outputStream);
+            final NDimensionalSlicer slicer = new NDimensionalSlicer(null, wcsKeywordsCache);
+            slicer.slice(src, index, cacheKey, cutout, outputStream);
         } catch (FitsException | NoSuchKeywordException ex) {
             throw new ReadException("invalid fits data: " + src + " reason: " + ex.getMessage(), ex);
         } catch (IOException ex) {
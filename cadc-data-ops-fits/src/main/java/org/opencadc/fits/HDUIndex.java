@@ -0,0 +1,453 @@
+/*
+************************************************************************
+*******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+**************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+*
+*  (c) 2025.                            (c) 2025.
+*  Government of Canada                 Gouvernement du Canada
+*  National Research Council            Conseil national de recherches
+*  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+*  All rights reserved                  Tous droits réservés
+*
+*  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+*  expressed, implied, or               énoncée, implicite ou légale,
+*  statutory, of any kind with          de quelque nature que ce
+*  respect to the software,             soit, concernant le logiciel,
+*  including without limitation         y compris sans restriction
+*  any warranty of merchantability      toute garantie de valeur
+*  or fitness for a particular          marchande ou de pertinence
+*  purpose. NRC shall not be            pour un usage particulier.
+*  liable in any event for any          Le CNRC ne pourra en aucun cas
+*  damages, whether direct or           être tenu responsable de tout
+*  indirect, special or general,        dommage, direct ou indirect,
+*  consequential or incidental,         particulier ou général,
+*  arising from the use of the          accessoire ou fortuit, résultant
+*  software.  Neither the name          de l'utilisation du logiciel. Ni
+*  of the National Research             le nom du Conseil National de
+*  Council of Canada nor the            Recherches du Canada ni les noms
+*  names of its contributors may        de ses  participants ne peuvent
+*  be used to endorse or promote        être utilisés pour approuver ou
+*  products derived from this           promouvoir les produits dérivés
+*  software without specific prior      de ce logiciel sans autorisation
+*  written permission.                  préalable et particulière
+*                                       par écrit.
+*
+*  This file is part of the             Ce fichier fait partie du projet
+*  OpenCADC project.                    OpenCADC.
+*
+*  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+*  you can redistribute it and/or       vous pouvez le redistribuer ou le
+*  modify it under the terms of         modifier suivant les termes de
+*  the GNU Affero General Public        la “GNU Affero General Public
+*  License as published by the          License” telle que publiée
+*  Free Software Foundation,            par la Free Software Foundation
+*  either version 3 of the              : soit la version 3 de cette
+*  License, or (at your option)         licence, soit (à votre gré)
+*  any later version.                   toute version ultérieure.
+*
+*  OpenCADC is distributed in the       OpenCADC est distribué
+*  hope that it will be useful,         dans l’espoir qu’il vous
+*  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+*  without even the implied             GARANTIE : sans même la garantie
+*  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+*  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+*  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+*  General Public License for           Générale Publique GNU Affero
+*  more details.                        pour plus de détails.
+*
+*  You should have received             Vous devriez avoir reçu une
+*  a copy of the GNU Affero             copie de la Licence Générale
+*  General Public License along         Publique GNU Affero avec
+*  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+*  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+*                                       <http://www.gnu.org/licenses/>.
+*
+************************************************************************
+*/
+
+package org.opencadc.fits;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import nom.tam.util.RandomAccessFileIO;
+import org.apache.log4j.Logger;
+
+/**
+ * Index of the HDUs in a FITS file: the byte offsets of each header and data unit together with the
+ * keywords needed to select an HDU (BITPIX, NAXISn, EXTNAME, EXTVER, compression). The index is built
+ * with a single pass over the headers that reads only the header blocks and can be persisted so that
+ * later requests can seek directly to the HDU they need.
+ */
+public class HDUIndex {
+    private static final Logger log = Logger.getLogger(HDUIndex.class);
+
+    private static final int BLOCK_SIZE = 2880;
+    private static final int CARD_SIZE = 80;
+
+    // serialized form
+    private static final int MAGIC = 0x48445549; // HDUI
+    private static final int VERSION = 2;
+
+    private final long fileLength;
+    private final long lastModified;
+    private final List<HDUIndexEntry> entries;
+
+    /**
+     * @param fileLength length of the indexed file in bytes
+     * @param entries    one entry per HDU in file order
+     */
+    public HDUIndex(long fileLength, List<HDUIndexEntry> entries) {
+        this(fileLength, 0L, entries);
+    }
+
+    /**
+     * @param fileLength    length of the indexed file in bytes
+     * @param lastModified  modification time of the indexed file (File.lastModified()), 0 if unknown
+     * @param entries       one entry per HDU in file order
+     */
+    public HDUIndex(long fileLength, long lastModified, List<HDUIndexEntry> entries) {
+        this.fileLength = fileLength;
+        this.lastModified = lastModified;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /**
+     * @return length of the indexed file; an index is not valid for a file with a different length
+     */
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    /**
+     * @return modification time of the indexed file, 0 if unknown; an index is not valid for a file with a
+     *     different modification time
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public HDUIndexEntry get(int hduIndex) {
+        return entries.get(hduIndex);
+    }
+
+    public List<HDUIndexEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Find an extension by name and optional version.
+     *
+     * @param extensionName     extension name (EXTNAME)
+     * @param extensionVersion  extension version (EXTVER), or null for EXTVER 1
+     * @return the HDU index or -1 if there is no such extension
+     */
+    public int find(String extensionName, Integer extensionVersion) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).matches(extensionName, extensionVersion)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get a valid index for the given file from the store, building and storing a new one if the store
+     * has no index or the stored index does not match the current file length and modification time.
+     * The store is only an optimization: failure to read or write the stored index is logged and the
+     * index is built from the file.
+     *
+     * @param fitsFile  the FITS file
+     * @param store     index store
+     * @return index for the file
+     * @throws IOException failure to read the file
+     */
+    public static HDUIndex get(File fitsFile, HDUIndexStore store) throws IOException {
+        final long lastModified = fitsFile.lastModified();
+        HDUIndex ret = null;
+        try {
+            ret = store.get(fitsFile);
+        } catch (IOException ex) {
+            log.warn("failed to read stored HDU index for " + fitsFile + ": " + ex);
+        }
+        if (ret != null && ret.getFileLength() == fitsFile.length() && ret.getLastModified() == lastModified) {
+            return ret;
+        }
+
+        try (final RandomAccessStorageObject src = new RandomAccessStorageObject(fitsFile, "r")) {
+            final HDUIndex built = build(src);
+            ret = new HDUIndex(built.getFileLength(), lastModified, built.getEntries());
+        }
+        try {
+            store.put(fitsFile, ret);
+        } catch (IOException ex) {
+            log.warn("failed to store HDU index for " + fitsFile + ": " + ex);
+        }
+        log.debug("indexed " + fitsFile + ": " + ret.size() + " HDUs");
+        return ret;
+    }
+
+    /**
+     * Build an index by reading the header blocks of the source.  Data units are not read.  The
+     * position of the source is restored afterwards.
+     *
+     * @param src   FITS content
+     * @return the index
+     * @throws IOException failure to read or content is not valid FITS
+     */
+    public static HDUIndex build(RandomAccessFileIO src) throws IOException {
+        final long startPosition = src.position();
+        try {
+            final long length = src.length();
+            final List<HDUIndexEntry> entries = new ArrayList<>();
+            final byte[] block = new byte[BLOCK_SIZE];
+            long offset = 0L;
+            while (offset + BLOCK_SIZE <= length) {
+                src.position(offset);
+                readFully(src, block);
+                final String first = keyword(block, 0);
+                if (!(offset == 0L ? "SIMPLE".equals(first) : "XTENSION".equals(first))) {
+                    if (offset == 0L) {
+                        throw new IOException("invalid FITS file: no SIMPLE keyword");
+                    }
+                    log.debug("ignoring content after last HDU at offset " + offset);
+                    break;
+                }
+                final HeaderScan scan = new HeaderScan();
+                long pos = offset;
+                while (!scan.scan(block)) {
+                    pos += BLOCK_SIZE;
+                    if (pos + BLOCK_SIZE > length) {
+                        throw new IOException("invalid FITS file: no END keyword in header at offset " + offset);
+                    }
+                    readFully(src, block);
+                }
+                final long dataOffset = pos + BLOCK_SIZE;
+                final HDUIndexEntry e = scan.toEntry(offset, dataOffset);
+                entries.add(e);
+                offset = dataOffset + padded(e.getDataSize());
+            }
+            return new HDUIndex(length, entries);
+        } finally {
+            src.position(startPosition);
+        }
+    }
+
+    /**
+     * Read an index written by {@link #write(OutputStream)}.
+     *
+     * @param istream   input stream; this method does not close it
+     * @return the index
+     * @throws IOException failure to read or unsupported content
+     */
+    public static HDUIndex read(InputStream istream) throws IOException {
+        final DataInputStream in = new DataInputStream(istream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("invalid HDU index: unexpected magic number");
+        }
+        final int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported HDU index version: " + version);
+        }
+        final long fileLength = in.readLong();
+        final long lastModified = in.readLong();
+        final int n = in.readInt();
+        final List<HDUIndexEntry> entries = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            final long headerOffset = in.readLong();
+            final long dataOffset = in.readLong();
+            final long dataSize = in.readLong();
+            final int bitpix = in.readInt();
+            final long[] naxis = new long[in.readInt()];
+            for (int j = 0; j < naxis.length; j++) {
+                naxis[j] = in.readLong();
+            }
+            final String xtension = readString(in);
+            final String extname = readString(in);
+            final int extver = in.readInt();
+            final boolean compressed = in.readBoolean();
+            entries.add(new HDUIndexEntry(headerOffset, dataOffset, dataSize, bitpix, naxis,
+                                          xtension, extname, extver, compressed));
+        }
+        return new HDUIndex(fileLength, lastModified, entries);
+    }
+
+    /**
+     * Write this index in a compact binary form.
+     *
+     * @param ostream   output stream; this method flushes but does not close it
+     * @throws IOException failure to write
+     */
+    public void write(OutputStream ostream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(ostream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(fileLength);
+        out.writeLong(lastModified);
+        out.writeInt(entries.size());
+        for (final HDUIndexEntry e : entries) {
+            out.writeLong(e.getHeaderOffset());
+            out.writeLong(e.getDataOffset());
+            out.writeLong(e.getDataSize());
+            out.writeInt(e.getBitpix());
+            final long[] naxis = e.getNaxis();
+            out.writeInt(naxis.length);
+            for (final long n : naxis) {
+                out.writeLong(n);
+            }
+            writeString(out, e.getXtension());
+            writeString(out, e.getExtname());
+            out.writeInt(e.getExtver());
+            out.writeBoolean(e.isCompressed());
+        }
+        out.flush();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static long padded(long size) {
+        final long rem = size % BLOCK_SIZE;
+        return rem == 0L ? size : size + BLOCK_SIZE - rem;
+    }
+
+    private static void readFully(RandomAccessFileIO src, byte[] buf) throws IOException {
+        int n = 0;
+        while (n < buf.length) {
+            final int r = src.read(buf, n, buf.length - n);
+            if (r < 0) {
+                throw new EOFException("unexpected end of FITS file");
+            }
+            n += r;
+        }
+    }
+
+    private static String keyword(byte[] block, int cardOffset) {
+        return new String(block, cardOffset, 8, StandardCharsets.US_ASCII).trim();
+    }
+
+    // collects the indexed keywords from successive header blocks
+    private static class HeaderScan {
+        private int bitpix = 0;
+        private long[] naxis = new long[0];
+        private long pcount = 0L;
+        private long gcount = 1L;
+        private boolean groups = false;
+        private String xtension;
+        private String extname;
+        private int extver = 1;
+        private boolean compressed = false;
+
+        // returns true when the END card was found
+        boolean scan(byte[] block) throws IOException {
+            for (int c = 0; c < BLOCK_SIZE; c += CARD_SIZE) {
+                final String key = keyword(block, c);
+                if ("END".equals(key)) {
+                    return true;
+                }
+                if (block[c + 8] != '=' || block[c + 9] != ' ') {
+                    continue;
+                }
+                final String val = new String(block, c + 10, CARD_SIZE - 10, StandardCharsets.US_ASCII);
+                try {
+                    if ("BITPIX".equals(key)) {
+                        bitpix = (int) intValue(val);
+                    } else if ("NAXIS".equals(key)) {
+                        naxis = new long[(int) intValue(val)];
+                    } else if (key.startsWith("NAXIS")) {
+                        final int i = Integer.parseInt(key.substring(5)) - 1;
+                        if (i >= 0 && i < naxis.length) {
+                            naxis[i] = intValue(val);
+                        }
+                    } else if ("PCOUNT".equals(key)) {
+                        pcount = intValue(val);
+                    } else if ("GCOUNT".equals(key)) {
+                        gcount = intValue(val);
+                    } else if ("GROUPS".equals(key)) {
+                        groups = "T".equals(rawValue(val));
+                    } else if ("XTENSION".equals(key)) {
+                        xtension = stringValue(val);
+                    } else if ("EXTNAME".equals(key)) {
+                        extname = stringValue(val);
+                    } else if ("EXTVER".equals(key)) {
+                        extver = (int) intValue(val);
+                    } else if ("ZIMAGE".equals(key)) {
+                        compressed = "T".equals(rawValue(val));
+                    }
+                } catch (NumberFormatException ex) {
+                    throw new IOException("invalid FITS header: " + key + " =" + val, ex);
+                }
+            }
+            return false;
+        }
+
+        HDUIndexEntry toEntry(long headerOffset, long dataOffset) {
+            long size = 0L;
+            if (naxis.length > 0) {
+                // random groups: NAXIS1 = 0 is not a dimension
+                final int first = (groups && naxis[0] == 0L) ? 1 : 0;
+                long n = 1L;
+                for (int i = first; i < naxis.length; i++) {
+                    n *= naxis[i];
+                }
+                size = (Math.abs(bitpix) / 8) * gcount * (pcount + n);
+            }
+            return new HDUIndexEntry(headerOffset, dataOffset, size, bitpix, naxis, xtension, extname, extver,
+                                     compressed);
+        }
+
+        // value without comment
+        private static String rawValue(String val) {
+            final int slash = val.indexOf('/');
+            return (slash == -1 ? val : val.substring(0, slash)).trim();
+        }
+
+        private static long intValue(String val) {
+            return Long.parseLong(rawValue(val));
+        }
+
+        // quoted string value with '' as an embedded quote; leading spaces are significant in FITS but,
+        // as in the cutout extension matching, the value is trimmed
+        private static String stringValue(String val) {
+            final int open = val.indexOf('\'');
+            if (open == -1) {
+                return rawValue(val);
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (int i = open + 1; i < val.length(); i++) {
+                final char ch = val.charAt(i);
+                if (ch == '\'') {
+                    if (i + 1 < val.length() && val.charAt(i + 1) == '\'') {
+                        sb.append('\'');
+                        i++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    sb.append(ch);
+                }
+            }
+            return sb.toString().trim();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+************************************************************************
+*******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+**************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+*
+*  (c) 2025.                            (c) 2025.
+*  Government of Canada                 Gouvernement du Canada
+*  National Research Council            Conseil national de recherches
+*  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+*  All rights reserved                  Tous droits réservés
+*
+*  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+*  expressed, implied, or               énoncée, implicite ou légale,
+*  statutory, of any kind with          de quelque nature que ce
+*  respect to the software,             soit, concernant le logiciel,
+*  including without limitation         y compris sans restriction
+*  any warranty of merchantability      toute garantie de valeur
+*  or fitness for a particular          marchande ou de pertinence
+*  purpose. NRC shall not be            pour un usage particulier.
+*  liable in any event for any          Le CNRC ne pourra en aucun cas
+*  damages, whether direct or           être tenu responsable de tout
+*  indirect, special or general,        dommage, direct ou indirect,
+*  consequential or incidental,         particulier ou général,
+*  arising from the use of the          accessoire ou fortuit, résultant
+*  software.  Neither the name          de l'utilisation du logiciel. Ni
+*  of the National Research             le nom du Conseil National de
+*  Council of Canada nor the            Recherches du Canada ni les noms
+*  names of its contributors may        de ses  participants ne peuvent
+*  be used to endorse or promote        être utilisés pour approuver ou
+*  products derived from this           promouvoir les produits dérivés
+*  software without specific prior      de ce logiciel sans autorisation
+*  written permission.                  préalable et particulière
+*                                       par écrit.
+*
+*  This file is part of the             Ce fichier fait partie du projet
+*  OpenCADC project.                    OpenCADC.
+*
+*  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+*  you can redistribute it and/or       vous pouvez le redistribuer ou le
+*  modify it under the terms of         modifier suivant les termes de
+*  the GNU Affero General Public        la “GNU Affero General Public
+*  License as published by the          License” telle que publiée
+*  Free Software Foundation,            par la Free Software Foundation
+*  either version 3 of the              : soit la version 3 de cette
+*  License, or (at your option)         licence, soit (à votre gré)
+*  any later version.                   toute version ultérieure.
+*
+*  OpenCADC is distributed in the       OpenCADC est distribué
+*  hope that it will be useful,         dans l’espoir qu’il vous
+*  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+*  without even the implied             GARANTIE : sans même la garantie
+*  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+*  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+*  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+*  General Public License for           Générale Publique GNU Affero
+*  more details.                        pour plus de détails.
+*
+*  You should have received             Vous devriez avoir reçu une
+*  a copy of the GNU Affero             copie de la Licence Générale
+*  General Public License along         Publique GNU Affero avec
+*  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+*  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+*                                       <http://www.gnu.org/licenses/>.
+*
+************************************************************************
+*/
+
+package org.opencadc.fits;
+
+import java.util.Arrays;
+
+/**
+ * Location and basic description of one HDU in a FITS file.
+ */
+public class HDUIndexEntry {
+
+    private final long headerOffset;
+    private final long dataOffset;
+    private final long dataSize;
+    private final int bitpix;
+    private final long[] naxis;
+    private final String xtension;
+    private final String extname;
+    private final int extver;
+    private final boolean compressed;
+
+    /**
+     * @param headerOffset  byte offset of the start of the header
+     * @param dataOffset    byte offset of the start of the data unit
+     * @param dataSize      size of the data unit in bytes, not including padding
+     * @param bitpix        BITPIX value
+     * @param naxis         NAXISn values in header order (NAXIS1 first)
+     * @param xtension      XTENSION value or null for the primary HDU
+     * @param extname       EXTNAME value or null
+     * @param extver        EXTVER value (1 if not present)
+     * @param compressed    true if the HDU is a tile-compressed image (ZIMAGE = T)
+     */
+    public HDUIndexEntry(long headerOffset, long dataOffset, long dataSize, int bitpix, long[] naxis,
+                         String xtension, String extname, int extver, boolean compressed) {
+        this.headerOffset = headerOffset;
+        this.dataOffset = dataOffset;
+        this.dataSize = dataSize;
+        this.bitpix = bitpix;
+        this.naxis = naxis;
+        this.xtension = xtension;
+        this.extname = extname;
+        this.extver = extver;
+        this.compressed = compressed;
+    }
+
+    public long getHeaderOffset() {
+        return headerOffset;
+    }
+
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    /**
+     * @return size of the data unit in bytes, not including padding to the FITS block size
+     */
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    public int getBitpix() {
+        return bitpix;
+    }
+
+    /**
+     * @return copy of the NAXISn values in header order (NAXIS1 first)
+     */
+    public long[] getNaxis() {
+        return Arrays.copyOf(naxis, naxis.length);
+    }
+
+    public String getXtension() {
+        return xtension;
+    }
+
+    public String getExtname() {
+        return extname;
+    }
+
+    public int getExtver() {
+        return extver;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Check if this HDU matches an extension name and optional version, with the same rules as the cutout
+     * extension lookup: the name is case-insensitive and a null version matches EXTVER 1.
+     *
+     * @param extensionName     extension name to match
+     * @param extensionVersion  extension version to match, or null
+     * @return true if this HDU matches
+     */
+    public boolean matches(String extensionName, Integer extensionVersion) {
+        if (extname == null || extensionName == null) {
+            return false;
+        }
+        return extname.equalsIgnoreCase(extensionName)
+            && (extensionVersion == null ? extver == 1 : extensionVersion == extver);
+    }
+
+    @Override
+    public String toString() {
+        return "HDUIndexEntry[" + headerOffset + "," + dataOffset + "," + dataSize + "," + bitpix + ","
+            + Arrays.toString(naxis) + "," + xtension + "," + extname + "," + extver + "," + compressed + "]";
+    }
+}
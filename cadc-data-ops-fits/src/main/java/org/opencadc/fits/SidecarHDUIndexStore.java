@@ -0,0 +1,139 @@
+/*
+************************************************************************
+*******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+**************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+*
+*  (c) 2025.                            (c) 2025.
+*  Government of Canada                 Gouvernement du Canada
+*  National Research Council            Conseil national de recherches
+*  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+*  All rights reserved                  Tous droits réservés
+*
+*  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+*  expressed, implied, or               énoncée, implicite ou légale,
+*  statutory, of any kind with          de quelque nature que ce
+*  respect to the software,             soit, concernant le logiciel,
+*  including without limitation         y compris sans restriction
+*  any warranty of merchantability      toute garantie de valeur
+*  or fitness for a particular          marchande ou de pertinence
+*  purpose. NRC shall not be            pour un usage particulier.
+*  liable in any event for any          Le CNRC ne pourra en aucun cas
+*  damages, whether direct or           être tenu responsable de tout
+*  indirect, special or general,        dommage, direct ou indirect,
+*  consequential or incidental,         particulier ou général,
+*  arising from the use of the          accessoire ou fortuit, résultant
+*  software.  Neither the name          de l'utilisation du logiciel. Ni
+*  of the National Research             le nom du Conseil National de
+*  Council of Canada nor the            Recherches du Canada ni les noms
+*  names of its contributors may        de ses  participants ne peuvent
+*  be used to endorse or promote        être utilisés pour approuver ou
+*  products derived from this           promouvoir les produits dérivés
+*  software without specific prior      de ce logiciel sans autorisation
+*  written permission.                  préalable et particulière
+*                                       par écrit.
+*
+*  This file is part of the             Ce fichier fait partie du projet
+*  OpenCADC project.                    OpenCADC.
+*
+*  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+*  you can redistribute it and/or       vous pouvez le redistribuer ou le
+*  modify it under the terms of         modifier suivant les termes de
+*  the GNU Affero General Public        la “GNU Affero General Public
+*  License as published by the          License” telle que publiée
+*  Free Software Foundation,            par la Free Software Foundation
+*  either version 3 of the              : soit la version 3 de cette
+*  License, or (at your option)         licence, soit (à votre gré)
+*  any later version.                   toute version ultérieure.
+*
+*  OpenCADC is distributed in the       OpenCADC est distribué
+*  hope that it will be useful,         dans l’espoir qu’il vous
+*  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+*  without even the implied             GARANTIE : sans même la garantie
+*  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+*  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+*  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+*  General Public License for           Générale Publique GNU Affero
+*  more details.                        pour plus de détails.
+*
+*  You should have received             Vous devriez avoir reçu une
+*  a copy of the GNU Affero             copie de la Licence Générale
+*  General Public License along         Publique GNU Affero avec
+*  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+*  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+*                                       <http://www.gnu.org/licenses/>.
+*
+************************************************************************
+*/
+
+package org.opencadc.fits;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import org.apache.log4j.Logger;
+
+/**
+ * Store each HDU index in a file next to the FITS file (same name with an added suffix).  A stored
+ * index older than the FITS file is ignored; HDUIndex.get also checks the file length and modification
+ * time recorded in the index.
+ */
+public class SidecarHDUIndexStore implements HDUIndexStore {
+    private static final Logger log = Logger.getLogger(SidecarHDUIndexStore.class);
+
+    public static final String DEFAULT_SUFFIX = ".hdu-index";
+
+    private final String suffix;
+
+    public SidecarHDUIndexStore() {
+        this(DEFAULT_SUFFIX);
+    }
+
+    /**
+     * @param suffix    suffix appended to the FITS file name
+     */
+    public SidecarHDUIndexStore(String suffix) {
+        if (suffix == null || suffix.isEmpty()) {
+            throw new IllegalArgumentException("suffix cannot be null or empty");
+        }
+        this.suffix = suffix;
+    }
+
+    /**
+     * @param fitsFile  the FITS file
+     * @return the file the index of fitsFile is stored in
+     */
+    public File getIndexFile(File fitsFile) {
+        return new File(fitsFile.getPath() + suffix);
+    }
+
+    @Override
+    public HDUIndex get(File fitsFile) throws IOException {
+        final File indexFile = getIndexFile(fitsFile);
+        if (!indexFile.exists() || indexFile.lastModified() < fitsFile.lastModified()) {
+            return null;
+        }
+        try (final InputStream istream = Files.newInputStream(indexFile.toPath())) {
+            return HDUIndex.read(istream);
+        }
+    }
+
+    @Override
+    public void put(File fitsFile, HDUIndex index) throws IOException {
+        final File indexFile = getIndexFile(fitsFile);
+        final Path tmp = Files.createTempFile(indexFile.getAbsoluteFile().getParentFile().toPath(),
+                                              indexFile.getName(), ".tmp");
+        try {
+            try (final OutputStream ostream = Files.newOutputStream(tmp)) {
+                index.write(ostream);
+            }
+            Files.move(tmp, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("wrote " + indexFile);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -86,6 +86,10 @@ public class CircleCutout extends ShapeCutout<Circle> {
         super(header);
     }
 
+    public CircleCutout(final FITSHeaderWCSKeywords fitsHeaderWCSKeywords) {
+        super(fitsHeaderWCSKeywords);
+    }
+
 
     /**
      * Obtain the bounds of the given cutout.
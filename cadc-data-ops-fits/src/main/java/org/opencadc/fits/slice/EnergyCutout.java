@@ -92,6 +92,31 @@ public class EnergyCutout extends FITSCutout<Interval<Number>> {
         super(header);
     }
 
+    /**
+     * Spectral cutout from keywords that were already processed, such as those from
+     * {@link #getSpectralKeywords(Header)}.
+     *
+     * @param fitsHeaderWCSKeywords The spectral keywords.
+     */
+    public EnergyCutout(final FITSHeaderWCSKeywords fitsHeaderWCSKeywords) {
+        super(fitsHeaderWCSKeywords);
+    }
+
+    /**
+     * Obtain the keywords that this cutout would use for the given Header, without modifying the Header.
+     *
+     * @param header The Header to read.
+     * @return FITSHeaderWCSKeywords without the PV matrix.
+     * @throws HeaderCardException If the header cards cannot be read.
+     */
+    static FITSHeaderWCSKeywords getSpectralKeywords(final Header header) throws HeaderCardException {
+        final FITSHeaderWCSKeywords spectralWCSKeywords = new FITSHeaderWCSKeywords(header);
+
+        // The cloned Header is not shared until this method returns.
+        removePVMatrix(spectralWCSKeywords.getHeader());
+        return spectralWCSKeywords;
+    }
+
     /**
      * Implementors can override this to further process the Header to accommodate different cutout types.  Leave empty
      * if no further processing needs to be done.
@@ -101,6 +126,10 @@ public class EnergyCutout extends FITSCutout<Interval<Number>> {
      */
     @Override
     protected void postProcess(final Header header) {
+        removePVMatrix(header);
+    }
+
+    static void removePVMatrix(final Header header) {
         final int naxis = header.getIntValue(Standard.NAXIS);
 
         for (int x = 1; x <= naxis; x++) {
@@ -199,7 +228,7 @@ public class EnergyCutout extends FITSCutout<Interval<Number>> {
         final int energyAxisIndex = energyAxis - 1;
         final String unitKey = CADCExt.CUNITn.n(energyAxis).key();
         final EnergyConverter energyConverter = new EnergyConverter();
-        final Transform transform = new Transform(this.fitsHeaderWCSKeywords);
+        final Transform transform = this.fitsHeaderWCSKeywords.getTransform();
 
         final String unit = this.fitsHeaderWCSKeywords.getStringValue(unitKey);
         final String ctype = this.fitsHeaderWCSKeywords.getStringValue(Standard.CTYPEn.n(energyAxis).key());
@@ -243,11 +272,15 @@ public class EnergyCutout extends FITSCutout<Interval<Number>> {
             }
         }
 
-        LOGGER.debug("Getting pixel value for lower coords " + Arrays.toString(lowerCoords));
-        final Transform.Result p1 = transform.sky2pix(lowerCoords);
+        final Transform.Result p1;
+        final Transform.Result p2;
+        synchronized (transform) {
+            LOGGER.debug("Getting pixel value for lower coords " + Arrays.toString(lowerCoords));
+            p1 = transform.sky2pix(lowerCoords);
 
-        LOGGER.debug("Getting pixel value for upper coords " + Arrays.toString(upperCoords));
-        final Transform.Result p2 = transform.sky2pix(upperCoords);
+            LOGGER.debug("Getting pixel value for upper coords " + Arrays.toString(upperCoords));
+            p2 = transform.sky2pix(upperCoords);
+        }
 
         final double low = p1.coordinates[energyAxisIndex];
         final double hi = p2.coordinates[energyAxisIndex];
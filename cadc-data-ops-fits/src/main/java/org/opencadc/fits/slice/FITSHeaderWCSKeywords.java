@@ -69,7 +69,9 @@
 package org.opencadc.fits.slice;
 
 import ca.nrc.cadc.util.StringUtil;
+import ca.nrc.cadc.wcs.Transform;
 import ca.nrc.cadc.wcs.WCSKeywords;
+import ca.nrc.cadc.wcs.exceptions.NoSuchKeywordException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Arrays;
@@ -98,6 +100,9 @@ public class FITSHeaderWCSKeywords implements WCSKeywords {
     // Source for values.
     private final Header header;
 
+    // Created on first use and shared by the cutouts using this instance.
+    private Transform transform;
+
 
     /**
      * Empty constructor.
@@ -363,6 +368,21 @@ public class FITSHeaderWCSKeywords implements WCSKeywords {
         return this.header;
     }
 
+    /**
+     * Obtain the WCSLib Transform for these keywords, creating it on first use.  Cutouts that share this instance
+     * (including cached instances shared between requests) share the Transform, so callers must synchronize on it
+     * while transforming coordinates.
+     *
+     * @return Transform for these keywords.  Never null.
+     * @throws NoSuchKeywordException Unknown keyword found.
+     */
+    synchronized Transform getTransform() throws NoSuchKeywordException {
+        if (this.transform == null) {
+            this.transform = new Transform(this);
+        }
+        return this.transform;
+    }
+
     private Header cloneHeader(final WCSKeywords wcsKeywords) throws HeaderCardException {
         final Header destination = new Header();
         for (final Iterator<Map.Entry<String, Object>> entryIterator = wcsKeywords.iterator();
@@ -103,7 +103,11 @@ import nom.tam.image.compression.hdu.CompressedImageHDU;
 import nom.tam.util.FitsOutputStream;
 import nom.tam.util.RandomAccessFileIO;
 import org.apache.log4j.Logger;
+import org.opencadc.fits.HDUIndex;
+import org.opencadc.fits.HDUIndexEntry;
+import org.opencadc.fits.HDUIndexStore;
 import org.opencadc.fits.HDUIterator;
+import org.opencadc.fits.IndexedFits;
 import org.opencadc.fits.NoOverlapException;
 import org.opencadc.fits.RandomAccessStorageObject;
 import org.opencadc.soda.ExtensionSlice;
@@ -118,8 +122,34 @@ import org.opencadc.soda.server.Cutout;
 public class NDimensionalSlicer {
     private static final Logger LOGGER = Logger.getLogger(NDimensionalSlicer.class);
 
+    private final HDUIndexStore indexStore;
+    private final WCSKeywordsCache wcsKeywordsCache;
 
     public NDimensionalSlicer() {
+        this(null);
+    }
+
+    /**
+     * Slicer that uses (and builds as needed) persistent HDU indexes for File input so that requested extensions
+     * are read directly instead of walking the file from the beginning.
+     *
+     * @param indexStore Store for HDU indexes, or null to not use indexes.
+     */
+    public NDimensionalSlicer(final HDUIndexStore indexStore) {
+        this(indexStore, null);
+    }
+
+    /**
+     * Slicer that also keeps the WCS keywords of the HDUs that WCS cutouts are computed for, so that later cutouts of
+     * the same content do not parse the headers again.  The cache is used for File input, and for RandomAccess input
+     * that is given a cache key.
+     *
+     * @param indexStore       Store for HDU indexes, or null to not use indexes.
+     * @param wcsKeywordsCache Cache of WCS keywords, usually shared by slicers, or null to not cache.
+     */
+    public NDimensionalSlicer(final HDUIndexStore indexStore, final WCSKeywordsCache wcsKeywordsCache) {
+        this.indexStore = indexStore;
+        this.wcsKeywordsCache = wcsKeywordsCache;
     }
 
     /**
@@ -142,7 +172,11 @@ public class NDimensionalSlicer {
      */
     public void slice(final File fitsFile, final Cutout cutout, final OutputStream outputStream)
         throws FitsException, IOException, NoSuchKeywordException, NoOverlapException {
-        slice(new RandomAccessStorageObject(fitsFile, "r"), cutout, outputStream);
+        final HDUIndex index = indexStore == null ? null : HDUIndex.get(fitsFile, indexStore);
+        final String cacheKey = wcsKeywordsCache == null ? null : WCSKeywordsCache.getKey(fitsFile);
+        try (final RandomAccessStorageObject randomAccessDataObject = new RandomAccessStorageObject(fitsFile, "r")) {
+            slice(randomAccessDataObject, index, cacheKey, cutout, outputStream);
+        }
     }
 
     /**
@@ -168,21 +202,74 @@ public class NDimensionalSlicer {
     public void slice(final RandomAccessFileIO randomAccessDataObject, final Cutout cutout,
                       final OutputStream outputStream)
         throws FitsException, IOException, NoOverlapException, NoSuchKeywordException {
+        slice(randomAccessDataObject, null, cutout, outputStream);
+    }
+
+    /**
+     * Perform a slice operation from the input RandomAccess using an index of its HDUs.  Only the HDUs that are
+     * needed are read: the header of each candidate extension is read by seeking directly to it.
+     *
+     * <p>It is NOT the responsibility of this method to manage the given <code>OutputStream</code>.  The caller will
+     * need to close it and ensure it's open outside the bounds of this method.
+     *
+     * @param randomAccessDataObject The RandomAccess object to read bytes from.  This method will not close
+     *                               this file.
+     * @param index                  The HDU index of the RandomAccess object, or null to walk the HDUs.
+     * @param cutout                 The cutout specification.
+     * @param outputStream           Where to write bytes to.  This method will not close this stream.
+     * @throws FitsException          Any FITS related errors from the NOM TAM Fits library.
+     * @throws IOException            Reading Writing errors.
+     * @throws NoOverlapException     Client error to inform that the supplied cutout is valid but yields no results.
+     * @throws NoSuchKeywordException Reading the FITS file failed.
+     */
+    public void slice(final RandomAccessFileIO randomAccessDataObject, final HDUIndex index, final Cutout cutout,
+                      final OutputStream outputStream)
+        throws FitsException, IOException, NoOverlapException, NoSuchKeywordException {
+        slice(randomAccessDataObject, index, null, cutout, outputStream);
+    }
+
+    /**
+     * Perform a slice operation from the input RandomAccess using an index of its HDUs, and the WCS keywords cache of
+     * this slicer for its content.
+     *
+     * <p>It is NOT the responsibility of this method to manage the given <code>OutputStream</code>.  The caller will
+     * need to close it and ensure it's open outside the bounds of this method.
+     *
+     * @param randomAccessDataObject The RandomAccess object to read bytes from.  This method will not close
+     *                               this file.
+     * @param index                  The HDU index of the RandomAccess object, or null to walk the HDUs.
+     * @param cacheKey               Key of the content in the WCS keywords cache, which must change when the content
+     *                               changes, or null to not cache.
+     * @param cutout                 The cutout specification.
+     * @param outputStream           Where to write bytes to.  This method will not close this stream.
+     * @throws FitsException          Any FITS related errors from the NOM TAM Fits library.
+     * @throws IOException            Reading Writing errors.
+     * @throws NoOverlapException     Client error to inform that the supplied cutout is valid but yields no results.
+     * @throws NoSuchKeywordException Reading the FITS file failed.
+     */
+    public void slice(final RandomAccessFileIO randomAccessDataObject, final HDUIndex index, final String cacheKey,
+                      final Cutout cutout, final OutputStream outputStream)
+        throws FitsException, IOException, NoOverlapException, NoSuchKeywordException {
         final FitsOutputStream output = new FitsOutputStream(outputStream);
-        slice(randomAccessDataObject, cutout, output);
+        slice(randomAccessDataObject, index, wcsKeywordsCache == null ? null : cacheKey, cutout, output);
     }
 
-    private void slice(final RandomAccessFileIO randomAccessDataObject, final Cutout cutout, final FitsOutputStream output)
+    private void slice(final RandomAccessFileIO randomAccessDataObject, final HDUIndex index, final String cacheKey,
+                       final Cutout cutout, final FitsOutputStream output)
         throws FitsException, IOException, NoOverlapException, NoSuchKeywordException {
         if (isEmpty(cutout)) {
             throw new IllegalStateException("No cutout specified.");
         }
 
-        // Single Fits object for the slice.  It maintains state about itself such as the current read offset.
-        final Fits fitsInput = new Fits(randomAccessDataObject);
+        // Single Fits object for the slice.  It maintains state about itself such as the current read offset.  With
+        // an index, HDUs are read directly by position instead.
+        final Fits fitsInput = index == null ? new Fits(randomAccessDataObject) : null;
+        final IndexedFits indexedInput = index == null ? null : new IndexedFits(randomAccessDataObject, index);
 
         // Reduce the requested extensions to only those that overlap.
-        final Map<Integer, List<ExtensionSlice>> overlapHDUs = getOverlap(fitsInput, cutout);
+        final Map<Integer, List<ExtensionSlice>> overlapHDUs = index == null
+            ? getOverlap(fitsInput, cacheKey, cutout)
+            : getOverlap(indexedInput, cacheKey, cutout);
 
         if (overlapHDUs.isEmpty()) {
             throw new NoOverlapException();
@@ -190,8 +277,9 @@ public class NDimensionalSlicer {
             LOGGER.debug("Found " + overlapHDUs.size() + " overlapping slices.");
         }
 
-        // This count is available because the getOverlap call above will read through and cache the HDUs.
-        final int hduCount = fitsInput.getNumberOfHDUs();
+        // This count is available because the getOverlap call above will read through and cache the HDUs, or from
+        // the index.
+        final int hduCount = index == null ? fitsInput.getNumberOfHDUs() : index.size();
 
         // The count will indicate the number of reads into the file that were needed to get to the farthest requested
         // HDU.  This DEBUG is here to help optimize the I/O.  All other getHDU() calls will use the cached list of HDUs
@@ -199,7 +287,7 @@ public class NDimensionalSlicer {
         LOGGER.debug("Number of reads: " + hduCount);
 
         // Read the primary header first.
-        final BasicHDU<?> firstHDU = fitsInput.getHDU(0);
+        final BasicHDU<?> firstHDU = getHDU(fitsInput, indexedInput, 0);
 
         if (firstHDU == null) {
             throw new FitsException("Invalid FITS file (No primary HDU).");
@@ -242,7 +330,14 @@ public class NDimensionalSlicer {
 
             LOGGER.debug("Next extension slice value at extension " + nextHDUIndex);
             try {
-                final BasicHDU<?> hdu = fitsInput.getHDU(nextHDUIndex);
+                final BasicHDU<?> hdu = getHDU(fitsInput, indexedInput, nextHDUIndex);
+
+                // Spectral bounds are computed without the PV matrix, which is then left out of the output as well.
+                // Cached keywords leave the Header intact, so remove it here.
+                if (cutout.band != null) {
+                    EnergyCutout.removePVMatrix(hdu.getHeader());
+                }
+
                 writeSlices(hdu, overlap.getValue(), fitsOutput, mefOutput, firstHDUAlreadyWritten, overlapHDUs.size() - 1);
 
                 // If it wasn't true before, it is now.
@@ -260,6 +355,11 @@ public class NDimensionalSlicer {
         fitsOutput.write(output);
     }
 
+    private BasicHDU<?> getHDU(final Fits fitsInput, final IndexedFits indexedInput, final int hduIndex)
+        throws FitsException, IOException {
+        return indexedInput == null ? fitsInput.getHDU(hduIndex) : indexedInput.getHDU(hduIndex);
+    }
+
     private void setupPrimaryHeader(final Header header, final int nextEndSize) throws HeaderCardException {
         final HeaderCard nextEndCard = header.findCard(DataDescription.NEXTEND);
 
@@ -564,10 +664,8 @@ public class NDimensionalSlicer {
         return false;
     }
 
-    private void mapOverlap(final Header header, final Cutout cutout, final int hduIndex,
-                            final Map<Integer, List<ExtensionSlice>> overlapHDUIndexesSlices)
-        throws HeaderCardException, NoSuchKeywordException {
-        final PixelRange[] pixelCutoutBounds = WCSCutoutUtil.getBounds(header, cutout);
+    private void mapOverlap(final PixelRange[] pixelCutoutBounds, final int hduIndex,
+                            final Map<Integer, List<ExtensionSlice>> overlapHDUIndexesSlices) {
         if (pixelCutoutBounds.length > 0) {
             final ExtensionSlice overlapSlice = new ExtensionSlice(hduIndex);
             overlapSlice.getPixelRanges().addAll(Arrays.asList(pixelCutoutBounds));
@@ -636,12 +734,13 @@ public class NDimensionalSlicer {
      * Obtain the overlapping indexes of matching HDUs.  This will return a unique list of Integers in file order,
      * rather than the order that they were requested.
      *
-     * @param fits   The Fits object to scan.
-     * @param cutout The requested cutout.
+     * @param fits     The Fits object to scan.
+     * @param cacheKey The key of the content in the WCS keywords cache, or null to not cache.
+     * @param cutout   The requested cutout.
      * @return An Map of overlapping hduIndex->slice[], or empty Map.  Never null.
      * @throws FitsException if the header could not be read
      */
-    private Map<Integer, List<ExtensionSlice>> getOverlap(final Fits fits, final Cutout cutout)
+    private Map<Integer, List<ExtensionSlice>> getOverlap(final Fits fits, final String cacheKey, final Cutout cutout)
         throws FitsException, NoOverlapException, NoSuchKeywordException {
         if ((cutout.pixelCutouts != null) && !cutout.pixelCutouts.isEmpty()) {
             return getOverlap(fits, cutout.pixelCutouts);
@@ -655,7 +754,16 @@ public class NDimensionalSlicer {
             for (final HDUIterator hduIterator = new HDUIterator(fits); hduIterator.hasNext(); ) {
                 final BasicHDU<?> hdu = hduIterator.next();
                 final Header header = hdu.getHeader();
-                mapOverlap(header, cutout, hduIndex, overlapHDUIndexesSlices);
+                final PixelRange[] pixelCutoutBounds;
+                if (cacheKey == null) {
+                    pixelCutoutBounds = WCSCutoutUtil.getBounds(header, cutout);
+                } else {
+                    final WCSKeywordsCache.Entry entry = wcsKeywordsCache.get(cacheKey, hduIndex);
+                    pixelCutoutBounds = WCSCutoutUtil.getBounds(entry == null
+                                                                ? wcsKeywordsCache.put(cacheKey, hduIndex, header)
+                                                                : entry, cutout);
+                }
+                mapOverlap(pixelCutoutBounds, hduIndex, overlapHDUIndexesSlices);
                 hduIndex++;
             }
 
@@ -677,7 +785,81 @@ public class NDimensionalSlicer {
             hduIndex++;
         }
 
-        // Check for missing matches.
+        checkMatches(extensionSlices, overlapHDUIndexesSlices);
+
+        return overlapHDUIndexesSlices;
+    }
+
+    /**
+     * Obtain the overlapping indexes of matching HDUs using the HDU index.  Only the HDUs that are requested by
+     * pixel cutouts are read; WCS cutouts read every header that is not in the WCS keywords cache.
+     *
+     * @param fits     The indexed Fits object to read from.
+     * @param cacheKey The key of the content in the WCS keywords cache, or null to not cache.
+     * @param cutout   The requested cutout.
+     * @return An Map of overlapping hduIndex->slice[], or empty Map.  Never null.
+     * @throws FitsException if the header could not be read
+     */
+    private Map<Integer, List<ExtensionSlice>> getOverlap(final IndexedFits fits, final String cacheKey,
+                                                          final Cutout cutout)
+        throws FitsException, IOException, NoOverlapException, NoSuchKeywordException {
+        if ((cutout.pixelCutouts != null) && !cutout.pixelCutouts.isEmpty()) {
+            return getOverlap(fits, cutout.pixelCutouts);
+        } else {
+            final Map<Integer, List<ExtensionSlice>> overlapHDUIndexesSlices = new LinkedHashMap<>();
+            for (int hduIndex = 0; hduIndex < fits.getNumberOfHDUs(); hduIndex++) {
+                final PixelRange[] pixelCutoutBounds;
+                if (cacheKey == null) {
+                    pixelCutoutBounds = WCSCutoutUtil.getBounds(fits.getHeader(hduIndex), cutout);
+                } else {
+                    // The header is only read when its keywords are not cached.
+                    final WCSKeywordsCache.Entry entry = wcsKeywordsCache.get(cacheKey, hduIndex);
+                    pixelCutoutBounds = WCSCutoutUtil.getBounds(entry == null
+                                                                ? wcsKeywordsCache.put(cacheKey, hduIndex,
+                                                                                       fits.getHeader(hduIndex))
+                                                                : entry, cutout);
+                }
+                mapOverlap(pixelCutoutBounds, hduIndex, overlapHDUIndexesSlices);
+            }
+
+            return overlapHDUIndexesSlices;
+        }
+    }
+
+    private Map<Integer, List<ExtensionSlice>> getOverlap(final IndexedFits fits,
+                                                          final List<ExtensionSlice> extensionSlices)
+        throws FitsException, IOException, NoOverlapException {
+        final Map<Integer, List<ExtensionSlice>> overlapHDUIndexesSlices = new LinkedHashMap<>();
+        final HDUIndex index = fits.getIndex();
+
+        int matchCount = 0;
+        for (int hduIndex = 0; hduIndex < index.size() && matchCount < extensionSlices.size(); hduIndex++) {
+            // Only read the HDUs that are requested.
+            if (isRequested(index.get(hduIndex), hduIndex, extensionSlices)) {
+                matchCount += mapOverlap(fits.getHDU(hduIndex), hduIndex, extensionSlices, overlapHDUIndexesSlices);
+            }
+        }
+
+        checkMatches(extensionSlices, overlapHDUIndexesSlices);
+
+        return overlapHDUIndexesSlices;
+    }
+
+    private boolean isRequested(final HDUIndexEntry entry, final int hduIndex,
+                                final List<ExtensionSlice> extensionSlices) {
+        for (final ExtensionSlice slice : extensionSlices) {
+            if (entry.matches(slice.extensionName, slice.extensionVersion)
+                || ((slice.extensionIndex != null) && (hduIndex == slice.extensionIndex))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Check for missing matches.
+    private void checkMatches(final List<ExtensionSlice> extensionSlices,
+                              final Map<Integer, List<ExtensionSlice>> overlapHDUIndexesSlices)
+        throws NoOverlapException {
         final List<ExtensionSlice> matchedValues =
             overlapHDUIndexesSlices.values().stream().flatMap(Collection::stream).collect(Collectors.toList());
         final List<ExtensionSlice> containsAll =
@@ -699,8 +881,6 @@ public class NDimensionalSlicer {
         if (!containsAll.isEmpty()) {
             throw new NoOverlapException("One or more requested slices could not be found:\n" + containsAll);
         }
-
-        return overlapHDUIndexesSlices;
     }
 
     private ExtensionSlice getOverlap(final ExtensionSlice extensionSlice, final PixelCutout pixelCutout) {
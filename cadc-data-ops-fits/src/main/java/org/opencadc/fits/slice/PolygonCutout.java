@@ -157,7 +157,7 @@ public class PolygonCutout extends ShapeCutout<Polygon> {
             throw new UnsupportedOperationException("unexpected coordsys: " + coordSys.getName());
         }
 
-        final Transform transform = new Transform(this.fitsHeaderWCSKeywords);
+        final Transform transform = this.fitsHeaderWCSKeywords.getTransform();
         LOGGER.debug("Transform is\n" + transform);
         final Polygon polygonToCut = new Polygon();
 
@@ -209,7 +209,10 @@ public class PolygonCutout extends ShapeCutout<Polygon> {
             }
 
             LOGGER.debug("Coordinates to transform are " + Arrays.toString(worldCoords));
-            final Transform.Result tr = transform.sky2pix(worldCoords);
+            final Transform.Result tr;
+            synchronized (transform) {
+                tr = transform.sky2pix(worldCoords);
+            }
 
             // if <code>tr</code> is null, it was a long way away from the WCS and does not
             // impose a limit/cutout - so we can safely skip it
@@ -86,6 +86,10 @@ public class RangeCutout extends ShapeCutout<Range> {
         super(header);
     }
 
+    public RangeCutout(final FITSHeaderWCSKeywords fitsHeaderWCSKeywords) {
+        super(fitsHeaderWCSKeywords);
+    }
+
     /**
      * Obtain the bounds of the given cutout.
      *
@@ -92,7 +92,7 @@ public class TimeCutout extends FITSCutout<Interval<Number>> {
 
     public TimeCutout(final Header header) throws HeaderCardException {
         super(header);
-        this.timeHeaderWCSKeywords = new TimeHeaderWCSKeywords(header);
+        this.timeHeaderWCSKeywords = new TimeHeaderWCSKeywords(this.fitsHeaderWCSKeywords);
     }
 
     public TimeCutout(final FITSHeaderWCSKeywords fitsHeaderWCSKeywords) {
@@ -104,33 +104,38 @@ public class WCSCutoutUtil {
      */
     public static PixelRange[] getBounds(final Header header, final Cutout cutout)
             throws HeaderCardException, NoSuchKeywordException {
-        final List<PixelRange> allPixelRanges = new ArrayList<>();
-
-        if (cutout.pos != null) {
-            final PixelRange[] spatialPixelRanges = WCSCutoutUtil.getSpatialBounds(header, cutout.pos);
-            if (spatialPixelRanges != null) {
-                WCSCutoutUtil.merge(spatialPixelRanges, allPixelRanges);
-            }
-        }
-
-        if (cutout.band != null) {
-            final PixelRange[] spectralPixelRanges = WCSCutoutUtil.getSpectralBounds(header, cutout.band);
-            if (spectralPixelRanges != null) {
-                WCSCutoutUtil.merge(spectralPixelRanges, allPixelRanges);
-            }
-        }
+        return WCSCutoutUtil.mergeAll(
+            cutout.pos == null ? null : WCSCutoutUtil.getSpatialBounds(header, cutout.pos),
+            cutout.band == null ? null : WCSCutoutUtil.getSpectralBounds(header, cutout.band),
+            cutout.time == null ? null : WCSCutoutUtil.getTemporalBounds(header, cutout.time),
+            cutout.pol == null ? null : WCSCutoutUtil.getPolarizationBounds(header, cutout.pol));
+    }
 
-        if (cutout.time != null) {
-            final PixelRange[] temporalPixelRanges = WCSCutoutUtil.getTemporalBounds(header, cutout.time);
-            if (temporalPixelRanges != null) {
-                WCSCutoutUtil.merge(temporalPixelRanges, allPixelRanges);
-            }
-        }
+    /**
+     * Calculate the pixel ranges that the set of WCS cutouts will produce for the HDU of the given cached keywords.
+     * No Header is cloned.
+     * @param entry         The cached keywords of the HDU.
+     * @param cutout        The Cutout specifications.
+     * @return  Array of PixelRange objects, or empty if no overlap.  Never null.
+     * @throws NoSuchKeywordException Unknown keyword found in Header.
+     * @throws HeaderCardException    If a FITS Header card couldn't be read.
+     */
+    static PixelRange[] getBounds(final WCSKeywordsCache.Entry entry, final Cutout cutout)
+            throws HeaderCardException, NoSuchKeywordException {
+        return WCSCutoutUtil.mergeAll(
+            cutout.pos == null ? null : WCSCutoutUtil.getSpatialBounds(entry.keywords, cutout.pos),
+            cutout.band == null ? null : WCSCutoutUtil.getSpectralBounds(entry.spectralKeywords, cutout.band),
+            cutout.time == null ? null : WCSCutoutUtil.getTemporalBounds(entry.keywords, cutout.time),
+            cutout.pol == null ? null : WCSCutoutUtil.getPolarizationBounds(entry.keywords, cutout.pol));
+    }
 
-        if (cutout.pol != null) {
-            final PixelRange[] polarizationPixelRanges = WCSCutoutUtil.getPolarizationBounds(header, cutout.pol);
-            if (polarizationPixelRanges != null) {
-                WCSCutoutUtil.merge(polarizationPixelRanges, allPixelRanges);
+    // Merge the bounds of each requested cutout, in order.  Null entries are cutouts that were not requested, or that
+    // did not overlap.
+    private static PixelRange[] mergeAll(final PixelRange[]... pixelCutoutRanges) {
+        final List<PixelRange> allPixelRanges = new ArrayList<>();
+        for (final PixelRange[] pixelRanges : pixelCutoutRanges) {
+            if (pixelRanges != null) {
+                WCSCutoutUtil.merge(pixelRanges, allPixelRanges);
             }
         }
 
@@ -218,6 +223,38 @@ public class WCSCutoutUtil {
                 polarizationStates.toArray(new PolarizationState[0])));
     }
 
+    static PixelRange[] getSpatialBounds(final FITSHeaderWCSKeywords fitsHeaderWCSKeywords, final Shape shape)
+            throws NoSuchKeywordException, HeaderCardException {
+        final long[] bounds;
+        if (shape instanceof Circle) {
+            bounds = new CircleCutout(fitsHeaderWCSKeywords).getBounds((Circle) shape);
+        } else if (shape instanceof Polygon) {
+            bounds = new PolygonCutout(fitsHeaderWCSKeywords).getBounds((Polygon) shape);
+        } else if (shape instanceof Range) {
+            bounds = new RangeCutout(fitsHeaderWCSKeywords).getBounds((Range) shape);
+        } else {
+            bounds = null;
+        }
+
+        return WCSCutoutUtil.toPixelRanges(bounds);
+    }
+
+    static PixelRange[] getSpectralBounds(final FITSHeaderWCSKeywords spectralWCSKeywords,
+                                          final Interval<Number> spectralInterval) throws NoSuchKeywordException {
+        return WCSCutoutUtil.toPixelRanges(new EnergyCutout(spectralWCSKeywords).getBounds(spectralInterval));
+    }
+
+    static PixelRange[] getTemporalBounds(final FITSHeaderWCSKeywords fitsHeaderWCSKeywords,
+                                          final Interval<Number> temporalInterval) {
+        return WCSCutoutUtil.toPixelRanges(new TimeCutout(fitsHeaderWCSKeywords).getBounds(temporalInterval));
+    }
+
+    static PixelRange[] getPolarizationBounds(final FITSHeaderWCSKeywords fitsHeaderWCSKeywords,
+                                              final List<PolarizationState> polarizationStates) {
+        return WCSCutoutUtil.toPixelRanges(new PolarizationCutout(fitsHeaderWCSKeywords).getBounds(
+                polarizationStates.toArray(new PolarizationState[0])));
+    }
+
     /**
      * Merge in the given pixelCutoutRanges array into the entire list of PixelRange objects.  This is to support
      * multiple cutouts in a single HDU (Header), but along different axes.
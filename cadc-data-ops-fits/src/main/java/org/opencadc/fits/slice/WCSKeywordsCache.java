@@ -0,0 +1,164 @@
+/*
+************************************************************************
+*******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+**************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+*
+*  (c) 2025.                            (c) 2025.
+*  Government of Canada                 Gouvernement du Canada
+*  National Research Council            Conseil national de recherches
+*  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+*  All rights reserved                  Tous droits réservés
+*
+*  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+*  expressed, implied, or               énoncée, implicite ou légale,
+*  statutory, of any kind with          de quelque nature que ce
+*  respect to the software,             soit, concernant le logiciel,
+*  including without limitation         y compris sans restriction
+*  any warranty of merchantability      toute garantie de valeur
+*  or fitness for a particular          marchande ou de pertinence
+*  purpose. NRC shall not be            pour un usage particulier.
+*  liable in any event for any          Le CNRC ne pourra en aucun cas
+*  damages, whether direct or           être tenu responsable de tout
+*  indirect, special or general,        dommage, direct ou indirect,
+*  consequential or incidental,         particulier ou général,
+*  arising from the use of the          accessoire ou fortuit, résultant
+*  software.  Neither the name          de l'utilisation du logiciel. Ni
+*  of the National Research             le nom du Conseil National de
+*  Council of Canada nor the            Recherches du Canada ni les noms
+*  names of its contributors may        de ses  participants ne peuvent
+*  be used to endorse or promote        être utilisés pour approuver ou
+*  products derived from this           promouvoir les produits dérivés
+*  software without specific prior      de ce logiciel sans autorisation
+*  written permission.                  préalable et particulière
+*                                       par écrit.
+*
+*  This file is part of the             Ce fichier fait partie du projet
+*  OpenCADC project.                    OpenCADC.
+*
+*  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+*  you can redistribute it and/or       vous pouvez le redistribuer ou le
+*  modify it under the terms of         modifier suivant les termes de
+*  the GNU Affero General Public        la “GNU Affero General Public
+*  License as published by the          License” telle que publiée
+*  Free Software Foundation,            par la Free Software Foundation
+*  either version 3 of the              : soit la version 3 de cette
+*  License, or (at your option)         licence, soit (à votre gré)
+*  any later version.                   toute version ultérieure.
+*
+*  OpenCADC is distributed in the       OpenCADC est distribué
+*  hope that it will be useful,         dans l’espoir qu’il vous
+*  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+*  without even the implied             GARANTIE : sans même la garantie
+*  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+*  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+*  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+*  General Public License for           Générale Publique GNU Affero
+*  more details.                        pour plus de détails.
+*
+*  You should have received             Vous devriez avoir reçu une
+*  a copy of the GNU Affero             copie de la Licence Générale
+*  General Public License along         Publique GNU Affero avec
+*  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+*  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+*                                       <http://www.gnu.org/licenses/>.
+*
+************************************************************************
+*/
+
+package org.opencadc.fits.slice;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import nom.tam.fits.Header;
+import nom.tam.fits.HeaderCardException;
+import org.apache.log4j.Logger;
+
+/**
+ * Bounded cache of the WCS keywords parsed from the headers of HDUs, so that repeated WCS cutouts of the same HDU
+ * skip cloning and sanitizing the Header and creating the WCSLib Transform.  The least recently used entry is
+ * evicted when the cache is full.
+ *
+ * <p>Entries are keyed by a string that must change when the content changes (see {@link #getKey(File)} for files),
+ * and the zero-based HDU index.  The cache is thread safe and can be shared by slicers.  The cached keywords cannot be
+ * modified, and the Transform they hold is synchronized on while in use.
+ */
+public class WCSKeywordsCache {
+    private static final Logger LOGGER = Logger.getLogger(WCSKeywordsCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final Map<String, Entry> entries;
+
+    public WCSKeywordsCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries maximum number of entries (HDUs)
+     */
+    public WCSKeywordsCache(final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("invalid maxEntries: " + maxEntries);
+        }
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cache key for a file: path, length and last modification time, so that a modified file does not match the old
+     * entries.
+     *
+     * @param file FITS file
+     * @return cache key
+     */
+    public static String getKey(final File file) {
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized Entry get(final String key, final int hduIndex) {
+        final Entry ret = entries.get(key + "#" + hduIndex);
+        LOGGER.debug("get " + key + "#" + hduIndex + ": " + (ret == null ? "miss" : "hit"));
+        return ret;
+    }
+
+    /**
+     * Parse and add the keywords of an HDU.  The Header is not kept, and is parsed outside the lock, so another thread
+     * may have added the same HDU in the meantime; the entry that is in the cache is returned.
+     *
+     * @param key      The cache key of the content.
+     * @param hduIndex The zero-based HDU index.
+     * @param header   The Header of the HDU.
+     * @return The cached entry.  Never null.
+     * @throws HeaderCardException If the header cards cannot be read.
+     */
+    Entry put(final String key, final int hduIndex, final Header header) throws HeaderCardException {
+        final Entry entry = new Entry(header);
+        synchronized (this) {
+            final Entry existing = entries.putIfAbsent(key + "#" + hduIndex, entry);
+            return existing == null ? entry : existing;
+        }
+    }
+
+    static class Entry {
+        final FITSHeaderWCSKeywords keywords;
+        final FITSHeaderWCSKeywords spectralKeywords;
+
+        Entry(final Header header) throws HeaderCardException {
+            this.keywords = new FITSHeaderWCSKeywords(header);
+            this.spectralKeywords = EnergyCutout.getSpectralKeywords(header);
+        }
+    }
+}
@@ -92,6 +92,7 @@ import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.opencadc.soda.ExtensionSlice;
+import org.opencadc.soda.PixelRange;
 import org.opencadc.soda.server.Cutout;
 
 /**
@@ -218,6 +219,41 @@ public class FitsOperationsTest {
         }
     }
 
+    @Test
+    public void testIndexed() throws Exception {
+        final File file = FileUtil.getFileFromResource("sample-mef.fits", FitsOperationsTest.class);
+        try (final RandomAccessFileIO randomAccessDataObject = new RandomAccessStorageObject(file, "r")) {
+            final HDUIndex index = HDUIndex.build(randomAccessDataObject);
+            final FitsOperations fop = new FitsOperations(randomAccessDataObject);
+            final FitsOperations indexed = new FitsOperations(randomAccessDataObject, index);
+
+            final List<Header> expected = fop.getHeaders();
+            final List<Header> actual = indexed.getHeaders();
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                FitsTest.assertHeadersEqual(expected.get(i), actual.get(i));
+                FitsTest.assertHeadersEqual(expected.get(i), indexed.getHeader(i));
+                FitsTest.assertHeadersEqual(expected.get(i), fop.getHeader(i));
+            }
+
+            final List<ExtensionSlice> cut = new ArrayList<>();
+            cut.add(new ExtensionSlice("ccd02", 2));
+            cut.get(0).getPixelRanges().add(new PixelRange(10, 40));
+            cut.get(0).getPixelRanges().add(new PixelRange(20, 30));
+            cut.add(new ExtensionSlice(1));
+            final Cutout cutout = new Cutout();
+            cutout.pixelCutouts = cut;
+
+            final ByteArrayOutputStream expectedBytes = new ByteArrayOutputStream();
+            fop.cutoutToStream(cutout, expectedBytes);
+            final ByteArrayOutputStream actualBytes = new ByteArrayOutputStream();
+            indexed.cutoutToStream(cutout, actualBytes);
+
+            FitsTest.assertFitsEqual(new Fits(new ByteArrayInputStream(expectedBytes.toByteArray())),
+                                     new Fits(new ByteArrayInputStream(actualBytes.toByteArray())));
+        }
+    }
+
     @Test
     public void testSlice() throws Exception {
         // setup
@@ -0,0 +1,230 @@
+/*
+************************************************************************
+*******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+**************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+*
+*  (c) 2025.                            (c) 2025.
+*  Government of Canada                 Gouvernement du Canada
+*  National Research Council            Conseil national de recherches
+*  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+*  All rights reserved                  Tous droits réservés
+*
+*  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+*  expressed, implied, or               énoncée, implicite ou légale,
+*  statutory, of any kind with          de quelque nature que ce
+*  respect to the software,             soit, concernant le logiciel,
+*  including without limitation         y compris sans restriction
+*  any warranty of merchantability      toute garantie de valeur
+*  or fitness for a particular          marchande ou de pertinence
+*  purpose. NRC shall not be            pour un usage particulier.
+*  liable in any event for any          Le CNRC ne pourra en aucun cas
+*  damages, whether direct or           être tenu responsable de tout
+*  indirect, special or general,        dommage, direct ou indirect,
+*  consequential or incidental,         particulier ou général,
+*  arising from the use of the          accessoire ou fortuit, résultant
+*  software.  Neither the name          de l'utilisation du logiciel. Ni
+*  of the National Research             le nom du Conseil National de
+*  Council of Canada nor the            Recherches du Canada ni les noms
+*  names of its contributors may        de ses  participants ne peuvent
+*  be used to endorse or promote        être utilisés pour approuver ou
+*  products derived from this           promouvoir les produits dérivés
+*  software without specific prior      de ce logiciel sans autorisation
+*  written permission.                  préalable et particulière
+*                                       par écrit.
+*
+*  This file is part of the             Ce fichier fait partie du projet
+*  OpenCADC project.                    OpenCADC.
+*
+*  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+*  you can redistribute it and/or       vous pouvez le redistribuer ou le
+*  modify it under the terms of         modifier suivant les termes de
+*  the GNU Affero General Public        la “GNU Affero General Public
+*  License as published by the          License” telle que publiée
+*  Free Software Foundation,            par la Free Software Foundation
+*  either version 3 of the              : soit la version 3 de cette
+*  License, or (at your option)         licence, soit (à votre gré)
+*  any later version.                   toute version ultérieure.
+*
+*  OpenCADC is distributed in the       OpenCADC est distribué
+*  hope that it will be useful,         dans l’espoir qu’il vous
+*  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+*  without even the implied             GARANTIE : sans même la garantie
+*  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+*  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+*  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+*  General Public License for           Générale Publique GNU Affero
+*  more details.                        pour plus de détails.
+*
+*  You should have received             Vous devriez avoir reçu une
+*  a copy of the GNU Affero             copie de la Licence Générale
+*  General Public License along         Publique GNU Affero avec
+*  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+*  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+*                                       <http://www.gnu.org/licenses/>.
+*
+************************************************************************
+*/
+
+package org.opencadc.fits;
+
+import ca.nrc.cadc.util.FileUtil;
+import ca.nrc.cadc.util.Log4jInit;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import nom.tam.fits.BasicHDU;
+import nom.tam.fits.Fits;
+import nom.tam.util.RandomAccessFileIO;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HDUIndexTest {
+    private static final Logger log = Logger.getLogger(HDUIndexTest.class);
+
+    static {
+        Log4jInit.setLevel("org.opencadc.fits", Level.INFO);
+    }
+
+    @Test
+    public void testBuild() throws Exception {
+        final File file = FileUtil.getFileFromResource("sample-mef.fits", HDUIndexTest.class);
+        final HDUIndex index;
+        try (final RandomAccessFileIO src = new RandomAccessStorageObject(file, "r")) {
+            index = HDUIndex.build(src);
+            Assert.assertEquals("position restored", 0L, src.position());
+        }
+
+        Assert.assertEquals(file.length(), index.getFileLength());
+        Assert.assertEquals(4, index.size());
+
+        final HDUIndexEntry primary = index.get(0);
+        Assert.assertNull(primary.getXtension());
+        Assert.assertEquals(0, primary.getNaxis().length);
+        Assert.assertEquals(0L, primary.getDataSize());
+
+        try (final Fits fits = new Fits(file)) {
+            for (int i = 0; i < index.size(); i++) {
+                final HDUIndexEntry e = index.get(i);
+                final BasicHDU<?> hdu = fits.getHDU(i);
+                log.info("HDU " + i + ": " + e);
+                Assert.assertEquals("header offset " + i, hdu.getFileOffset(), e.getHeaderOffset());
+                Assert.assertEquals("data size " + i, hdu.getHeader().getDataSize(),
+                                    e.getDataSize() + (2880 - e.getDataSize() % 2880) % 2880);
+                Assert.assertEquals("extname " + i, hdu.getTrimmedString("EXTNAME"), e.getExtname());
+                Assert.assertEquals("bitpix " + i, hdu.getHeader().getIntValue("BITPIX"), e.getBitpix());
+                Assert.assertFalse(e.isCompressed());
+            }
+        }
+
+        Assert.assertEquals(Arrays.toString(new long[] {101L, 101L}), Arrays.toString(index.get(3).getNaxis()));
+        Assert.assertEquals(3, index.find("CCD02", 2));
+        Assert.assertEquals(2, index.find("ccd01", null));
+        Assert.assertEquals("EXTVER 0 requires explicit version", -1, index.find("ccd00", null));
+        Assert.assertEquals(1, index.find("ccd00", 0));
+        Assert.assertEquals(-1, index.find("ccd04", null));
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+        final File file = FileUtil.getFileFromResource("sample-mef.fits", HDUIndexTest.class);
+        final HDUIndex index;
+        try (final RandomAccessFileIO src = new RandomAccessStorageObject(file, "r")) {
+            index = HDUIndex.build(src);
+        }
+
+        Assert.assertEquals(0L, index.getLastModified());
+        final HDUIndex stamped = new HDUIndex(index.getFileLength(), file.lastModified(), index.getEntries());
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        stamped.write(bos);
+        final HDUIndex actual = HDUIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+
+        Assert.assertEquals(index.getFileLength(), actual.getFileLength());
+        Assert.assertEquals(file.lastModified(), actual.getLastModified());
+        Assert.assertEquals(index.size(), actual.size());
+        for (int i = 0; i < index.size(); i++) {
+            Assert.assertEquals(index.get(i).toString(), actual.get(i).toString());
+        }
+
+        try {
+            HDUIndex.read(new ByteArrayInputStream(new byte[16]));
+            Assert.fail("expected IOException");
+        } catch (java.io.IOException expected) {
+            log.info("caught expected: " + expected);
+        }
+    }
+
+    @Test
+    public void testSidecarStore() throws Exception {
+        final String configuredTestWriteDir = System.getenv("TEST_WRITE_DIR");
+        final String testWriteDir = configuredTestWriteDir == null ? "/tmp" : configuredTestWriteDir;
+        final Path dir = Files.createTempDirectory(new File(testWriteDir).toPath(), "hdu-index");
+        final File file = new File(dir.toFile(), "sample-mef.fits");
+        Files.copy(FileUtil.getFileFromResource("sample-mef.fits", HDUIndexTest.class).toPath(), file.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING);
+        final SidecarHDUIndexStore store = new SidecarHDUIndexStore();
+        final File indexFile = store.getIndexFile(file);
+        try {
+            Assert.assertNull(store.get(file));
+
+            final HDUIndex index = HDUIndex.get(file, store);
+            Assert.assertEquals(4, index.size());
+            Assert.assertEquals(file.lastModified(), index.getLastModified());
+            Assert.assertTrue(indexFile.exists());
+
+            final HDUIndex stored = store.get(file);
+            Assert.assertNotNull(stored);
+            Assert.assertEquals(index.size(), stored.size());
+            Assert.assertEquals(index.get(3).toString(), stored.get(3).toString());
+
+            // index older than the file is ignored
+            Assert.assertTrue(indexFile.setLastModified(file.lastModified() - 10000L));
+            Assert.assertNull(store.get(file));
+            Assert.assertEquals(4, HDUIndex.get(file, store).size());
+            Assert.assertNotNull(store.get(file));
+
+            // rewrite with the same length and an index that is not older: the modification time must match
+            Assert.assertTrue(file.setLastModified(file.lastModified() - 2000L));
+            Assert.assertTrue(indexFile.setLastModified(file.lastModified()));
+            Assert.assertNotEquals(file.lastModified(), store.get(file).getLastModified());
+            Assert.assertEquals(file.lastModified(), HDUIndex.get(file, store).getLastModified());
+            Assert.assertEquals(file.lastModified(), store.get(file).getLastModified());
+
+            // a corrupt stored index is rebuilt
+            Files.write(indexFile.toPath(), new byte[] {1, 2, 3});
+            Assert.assertEquals(4, HDUIndex.get(file, store).size());
+            Assert.assertEquals(4, store.get(file).size());
+        } finally {
+            Files.deleteIfExists(indexFile.toPath());
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void testStoreFailure() throws Exception {
+        final File file = FileUtil.getFileFromResource("sample-mef.fits", HDUIndexTest.class);
+        final HDUIndexStore store = new HDUIndexStore() {
+            @Override
+            public HDUIndex get(File fitsFile) throws IOException {
+                throw new IOException("cannot read stored index");
+            }
+
+            @Override
+            public void put(File fitsFile, HDUIndex index) throws IOException {
+                throw new IOException("read-only store");
+            }
+        };
+
+        // the store is an optimization: the index built from the file is returned
+        final HDUIndex index = HDUIndex.get(file, store);
+        Assert.assertEquals(4, index.size());
+        Assert.assertEquals(file.length(), index.getFileLength());
+    }
+}
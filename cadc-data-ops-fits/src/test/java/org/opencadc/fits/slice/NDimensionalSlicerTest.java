@@ -68,6 +68,9 @@
 
 package org.opencadc.fits.slice;
 
+import ca.nrc.cadc.dali.Circle;
+import ca.nrc.cadc.dali.Interval;
+import ca.nrc.cadc.dali.Point;
 import ca.nrc.cadc.util.FileUtil;
 import ca.nrc.cadc.util.Log4jInit;
 import java.io.DataOutputStream;
@@ -80,6 +83,9 @@ import java.util.List;
 
 import nom.tam.fits.BasicHDU;
 import nom.tam.fits.Fits;
+import nom.tam.fits.Header;
+import nom.tam.fits.header.DateTime;
+import nom.tam.fits.header.Standard;
 import nom.tam.util.FitsOutputStream;
 import nom.tam.util.RandomAccessFileIO;
 import org.apache.log4j.Level;
@@ -87,9 +93,11 @@ import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.opencadc.fits.CADCExt;
 import org.opencadc.fits.FitsTest;
 import org.opencadc.fits.NoOverlapException;
 import org.opencadc.fits.RandomAccessStorageObject;
+import org.opencadc.fits.SidecarHDUIndexStore;
 import org.opencadc.soda.ExtensionSlice;
 import org.opencadc.soda.ExtensionSliceFormat;
 import org.opencadc.soda.server.Cutout;
@@ -266,6 +274,218 @@ public class NDimensionalSlicerTest {
         Files.deleteIfExists(outputPath);
     }
 
+    @Test
+    public void testIndexedFileSlice() throws Exception {
+        ExtensionSliceFormat fmt = new ExtensionSliceFormat();
+        List<ExtensionSlice> slices = new ArrayList<>();
+        slices.add(fmt.parse("[ccd02,2][10:40,20:30]"));
+        slices.add(fmt.parse("[1]"));
+        final Cutout cutout = new Cutout();
+        cutout.pixelCutouts = slices;
+
+        final String configuredTestWriteDir = System.getenv("TEST_WRITE_DIR");
+        final String testWriteDir = configuredTestWriteDir == null ? "/tmp" : configuredTestWriteDir;
+        final Path dir = Files.createTempDirectory(new File(testWriteDir).toPath(), "test-indexed-slice");
+        final File file = new File(dir.toFile(), "sample-mef.fits");
+        Files.copy(FileUtil.getFileFromResource("sample-mef.fits", NDimensionalSlicerTest.class).toPath(),
+                   file.toPath());
+        final SidecarHDUIndexStore store = new SidecarHDUIndexStore();
+        final Path expectedPath = new File(dir.toFile(), "expected.fits").toPath();
+        final Path outputPath = new File(dir.toFile(), "indexed.fits").toPath();
+        final Path storedPath = new File(dir.toFile(), "stored.fits").toPath();
+
+        try {
+            try (final OutputStream outputStream = Files.newOutputStream(expectedPath)) {
+                new NDimensionalSlicer().slice(file, cutout, outputStream);
+            }
+
+            // builds and stores the index
+            try (final OutputStream outputStream = Files.newOutputStream(outputPath)) {
+                new NDimensionalSlicer(store).slice(file, cutout, outputStream);
+            }
+            Assert.assertNotNull(store.get(file));
+
+            // uses the stored index
+            try (final OutputStream outputStream = Files.newOutputStream(storedPath)) {
+                new NDimensionalSlicer(store).slice(file, cutout, outputStream);
+            }
+
+            FitsTest.assertFitsEqual(new Fits(expectedPath.toFile()), new Fits(outputPath.toFile()));
+            FitsTest.assertFitsEqual(new Fits(expectedPath.toFile()), new Fits(storedPath.toFile()));
+        } finally {
+            Files.deleteIfExists(expectedPath);
+            Files.deleteIfExists(outputPath);
+            Files.deleteIfExists(storedPath);
+            Files.deleteIfExists(store.getIndexFile(file).toPath());
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void testCachedWCSSpatialSlice() throws Exception {
+        final Cutout cutout = new Cutout();
+        cutout.pos = new Circle(new Point(246.5333333D, -24.34013889D), 3.0E-4D);
+        assertCachedWCSSlice(cutout);
+    }
+
+    @Test
+    public void testCachedWCSBandSlice() throws Exception {
+        final Cutout cutout = new Cutout();
+        cutout.band = new Interval<>(1.3006E-3D, 1.3023E-3D);
+        assertCachedWCSSlice(cutout);
+    }
+
+    @Test
+    public void testCachedWCSTimeSlice() throws Exception {
+        final Cutout cutout = new Cutout();
+        cutout.time = new Interval<>(54468.2489864D, 54468.24901D);
+        assertCachedWCSSlice(cutout);
+    }
+
+    /**
+     * Run the given cutout without a WCS keywords cache and with one, on the walked and the indexed path, and check
+     * that all outputs agree.
+     */
+    private void assertCachedWCSSlice(final Cutout cutout) throws Exception {
+        final String configuredTestWriteDir = System.getenv("TEST_WRITE_DIR");
+        final String testWriteDir = configuredTestWriteDir == null ? "/tmp" : configuredTestWriteDir;
+        final Path dir = Files.createTempDirectory(new File(testWriteDir).toPath(), "test-cached-wcs-slice");
+        final File file = new File(dir.toFile(), "cube-tseries.fits");
+        final SidecarHDUIndexStore store = new SidecarHDUIndexStore();
+
+        try {
+            writeCubeAndTimeSeries(file);
+
+            // walked
+            final byte[] expected = slice(new NDimensionalSlicer(null, null), file, cutout, dir);
+            assertCachedSliceEquals(expected, file, cutout, dir, null);
+
+            // indexed
+            final byte[] expectedIndexed = slice(new NDimensionalSlicer(store, null), file, cutout, dir);
+            Assert.assertNotNull(store.get(file));
+            assertCachedSliceEquals(expectedIndexed, file, cutout, dir, store);
+
+            final Path expectedPath = new File(dir.toFile(), "expected.fits").toPath();
+            final Path expectedIndexedPath = new File(dir.toFile(), "expected-indexed.fits").toPath();
+            try {
+                Files.write(expectedPath, expected);
+                Files.write(expectedIndexedPath, expectedIndexed);
+                FitsTest.assertFitsEqual(new Fits(expectedPath.toFile()), new Fits(expectedIndexedPath.toFile()));
+
+                if (cutout.band != null) {
+                    try (final Fits checkFits = new Fits(expectedPath.toFile())) {
+                        final Header header = checkFits.getHDU(0).getHeader();
+                        Assert.assertFalse("PV matrix should be removed.", header.containsKey("PV2_1"));
+                        Assert.assertFalse("PV matrix should be removed.", header.containsKey("PV2_2"));
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(expectedPath);
+                Files.deleteIfExists(expectedIndexedPath);
+            }
+        } finally {
+            Files.deleteIfExists(store.getIndexFile(file).toPath());
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * Slice with a new WCS keywords cache, once to fill it and once to read from it, and compare both outputs to the
+     * uncached output.
+     */
+    private void assertCachedSliceEquals(final byte[] expected, final File file, final Cutout cutout, final Path dir,
+                                         final SidecarHDUIndexStore store) throws Exception {
+        final WCSKeywordsCache cache = new WCSKeywordsCache();
+        final NDimensionalSlicer slicer = new NDimensionalSlicer(store, cache);
+
+        Assert.assertArrayEquals("Cache miss output should match.", expected, slice(slicer, file, cutout, dir));
+        Assert.assertEquals("Wrong cache size.", 2, cache.size());
+
+        Assert.assertArrayEquals("Cache hit output should match.", expected, slice(slicer, file, cutout, dir));
+        Assert.assertEquals("Wrong cache size.", 2, cache.size());
+    }
+
+    private byte[] slice(final NDimensionalSlicer slicer, final File file, final Cutout cutout, final Path dir)
+            throws Exception {
+        final Path outputPath = Files.createTempFile(dir, "slice", ".fits");
+        try {
+            try (final OutputStream outputStream = Files.newOutputStream(outputPath)) {
+                slicer.slice(file, cutout, outputStream);
+            }
+            return Files.readAllBytes(outputPath);
+        } finally {
+            Files.deleteIfExists(outputPath);
+        }
+    }
+
+    /**
+     * Write a spectral cube with a PV matrix in the primary HDU, and a spatial time series in the extension.
+     */
+    private void writeCubeAndTimeSeries(final File file) throws Exception {
+        final float[][][] cubeData = new float[8][16][16];
+        final float[][][] timeSeriesData = new float[16][16][24];
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < 16; j++) {
+                for (int k = 0; k < 8; k++) {
+                    cubeData[k][i][j] = i * j + k;
+                }
+                for (int k = 0; k < 24; k++) {
+                    timeSeriesData[i][j][k] = i * j + k;
+                }
+            }
+        }
+
+        try (final FitsOutputStream fitsOutputStream = new FitsOutputStream(Files.newOutputStream(file.toPath()));
+             final Fits fits = new Fits()) {
+            final BasicHDU<?> cubeHDU = Fits.makeHDU(cubeData);
+            final Header cubeHeader = cubeHDU.getHeader();
+            addSpatialAxes(cubeHeader, 1);
+            cubeHeader.addValue(Standard.CTYPEn.n(3), "FREQ");
+            cubeHeader.addValue(Standard.CRVALn.n(3), 2.3E+11D);
+            cubeHeader.addValue(Standard.CDELTn.n(3), 1.0E+08D);
+            cubeHeader.addValue(Standard.CRPIXn.n(3), 1.0D);
+            cubeHeader.addValue(CADCExt.CUNITn.n(3), "Hz");
+            cubeHeader.addValue(CADCExt.RESTFRQ, 2.305380000000E+11D);
+            cubeHeader.addValue(CADCExt.SPECSYS, "LSRK");
+            cubeHeader.addValue("PV2_1", 0.0D, "");
+            cubeHeader.addValue("PV2_2", 0.0D, "");
+            fits.addHDU(cubeHDU);
+
+            final BasicHDU<?> timeSeriesHDU = Fits.makeHDU(timeSeriesData);
+            final Header timeSeriesHeader = timeSeriesHDU.getHeader();
+            timeSeriesHeader.addValue(Standard.CTYPEn.n(1), "UTC");
+            timeSeriesHeader.addValue(Standard.CRVALn.n(1), 40.0D);
+            timeSeriesHeader.addValue(Standard.CDELTn.n(1), 0.369D);
+            timeSeriesHeader.addValue(Standard.CRPIXn.n(1), 102.0D);
+            timeSeriesHeader.addValue(CADCExt.CUNITn.n(1), "s");
+            timeSeriesHeader.addValue(DateTime.MJD_BEG, 54533.0112D);
+            timeSeriesHeader.addValue(DateTime.MJD_END, 54565.0112D);
+            timeSeriesHeader.addValue(CADCExt.MJDREFI, 54468);
+            timeSeriesHeader.addValue(CADCExt.MJDREFF, 0.2489D);
+            addSpatialAxes(timeSeriesHeader, 2);
+            fits.addHDU(timeSeriesHDU);
+
+            fits.write(fitsOutputStream);
+            fitsOutputStream.flush();
+        }
+    }
+
+    private void addSpatialAxes(final Header header, final int raAxis) throws Exception {
+        header.addValue(Standard.CTYPEn.n(raAxis), "RA---SIN");
+        header.addValue(Standard.CRVALn.n(raAxis), 2.465333333333E+02D);
+        header.addValue(Standard.CDELTn.n(raAxis), -1.111111111111E-04D);
+        header.addValue(Standard.CRPIXn.n(raAxis), 8.5D);
+        header.addValue(CADCExt.CUNITn.n(raAxis), "deg");
+
+        header.addValue(Standard.CTYPEn.n(raAxis + 1), "DEC--SIN");
+        header.addValue(Standard.CRVALn.n(raAxis + 1), -2.434013888889E+01D);
+        header.addValue(Standard.CDELTn.n(raAxis + 1), 1.111111111111E-04D);
+        header.addValue(Standard.CRPIXn.n(raAxis + 1), 8.5D);
+        header.addValue(CADCExt.CUNITn.n(raAxis + 1), "deg");
+    }
+
     @Test
     public void testMEFToSimple() throws Exception {
         List<ExtensionSlice> slices = new ArrayList<>();
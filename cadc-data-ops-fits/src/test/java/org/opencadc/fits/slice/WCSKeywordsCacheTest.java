@@ -0,0 +1,171 @@
+/*
+************************************************************************
+*******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+**************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+*
+*  (c) 2025.                            (c) 2025.
+*  Government of Canada                 Gouvernement du Canada
+*  National Research Council            Conseil national de recherches
+*  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+*  All rights reserved                  Tous droits réservés
+*
+*  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+*  expressed, implied, or               énoncée, implicite ou légale,
+*  statutory, of any kind with          de quelque nature que ce
+*  respect to the software,             soit, concernant le logiciel,
+*  including without limitation         y compris sans restriction
+*  any warranty of merchantability      toute garantie de valeur
+*  or fitness for a particular          marchande ou de pertinence
+*  purpose. NRC shall not be            pour un usage particulier.
+*  liable in any event for any          Le CNRC ne pourra en aucun cas
+*  damages, whether direct or           être tenu responsable de tout
+*  indirect, special or general,        dommage, direct ou indirect,
+*  consequential or incidental,         particulier ou général,
+*  arising from the use of the          accessoire ou fortuit, résultant
+*  software.  Neither the name          de l'utilisation du logiciel. Ni
+*  of the National Research             le nom du Conseil National de
+*  Council of Canada nor the            Recherches du Canada ni les noms
+*  names of its contributors may        de ses  participants ne peuvent
+*  be used to endorse or promote        être utilisés pour approuver ou
+*  products derived from this           promouvoir les produits dérivés
+*  software without specific prior      de ce logiciel sans autorisation
+*  written permission.                  préalable et particulière
+*                                       par écrit.
+*
+*  This file is part of the             Ce fichier fait partie du projet
+*  OpenCADC project.                    OpenCADC.
+*
+*  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+*  you can redistribute it and/or       vous pouvez le redistribuer ou le
+*  modify it under the terms of         modifier suivant les termes de
+*  the GNU Affero General Public        la “GNU Affero General Public
+*  License as published by the          License” telle que publiée
+*  Free Software Foundation,            par la Free Software Foundation
+*  either version 3 of the              : soit la version 3 de cette
+*  License, or (at your option)         licence, soit (à votre gré)
+*  any later version.                   toute version ultérieure.
+*
+*  OpenCADC is distributed in the       OpenCADC est distribué
+*  hope that it will be useful,         dans l’espoir qu’il vous
+*  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+*  without even the implied             GARANTIE : sans même la garantie
+*  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+*  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+*  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+*  General Public License for           Générale Publique GNU Affero
+*  more details.                        pour plus de détails.
+*
+*  You should have received             Vous devriez avoir reçu une
+*  a copy of the GNU Affero             copie de la Licence Générale
+*  General Public License along         Publique GNU Affero avec
+*  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+*  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+*                                       <http://www.gnu.org/licenses/>.
+*
+************************************************************************
+*/
+
+package org.opencadc.fits.slice;
+
+import ca.nrc.cadc.util.Log4jInit;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import nom.tam.fits.Header;
+import nom.tam.fits.header.Standard;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class WCSKeywordsCacheTest {
+    private static final Logger LOGGER = Logger.getLogger(WCSKeywordsCacheTest.class);
+
+    static {
+        Log4jInit.setLevel("org.opencadc.fits", Level.DEBUG);
+    }
+
+    @Test
+    public void testInvalidMaxEntries() {
+        try {
+            new WCSKeywordsCache(0);
+            Assert.fail("Should throw IllegalArgumentException.");
+        } catch (IllegalArgumentException illegalArgumentException) {
+            // Good.
+        }
+    }
+
+    @Test
+    public void testPut() throws Exception {
+        final WCSKeywordsCache testSubject = new WCSKeywordsCache();
+        final Header header = createHeader();
+
+        Assert.assertNull("Should be empty.", testSubject.get("file1", 1));
+
+        final WCSKeywordsCache.Entry entry = testSubject.put("file1", 1, header);
+        Assert.assertSame("Wrong entry.", entry, testSubject.get("file1", 1));
+        Assert.assertSame("Should keep the first entry.", entry, testSubject.put("file1", 1, header));
+        Assert.assertNull("Wrong HDU.", testSubject.get("file1", 2));
+        Assert.assertNull("Wrong file.", testSubject.get("file2", 1));
+        Assert.assertEquals("Wrong size.", 1, testSubject.size());
+
+        Assert.assertTrue("Should have PV.", entry.keywords.containsKey("PV3_1"));
+        Assert.assertFalse("Should not have PV.", entry.spectralKeywords.containsKey("PV3_1"));
+        Assert.assertEquals("Wrong CTYPE3.", "VRAD", entry.spectralKeywords.getStringValue("CTYPE3"));
+        Assert.assertTrue("Source header should not be modified.", header.containsKey("PV3_1"));
+
+        testSubject.clear();
+        Assert.assertEquals("Should be empty.", 0, testSubject.size());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        final WCSKeywordsCache testSubject = new WCSKeywordsCache(2);
+        final Header header = createHeader();
+
+        testSubject.put("file1", 0, header);
+        testSubject.put("file1", 1, header);
+
+        // Most recently used now, so HDU 1 is the eldest.
+        Assert.assertNotNull("Should be cached.", testSubject.get("file1", 0));
+
+        testSubject.put("file1", 2, header);
+        Assert.assertEquals("Wrong size.", 2, testSubject.size());
+        Assert.assertNotNull("Should be cached.", testSubject.get("file1", 0));
+        Assert.assertNull("Should be evicted.", testSubject.get("file1", 1));
+        Assert.assertNotNull("Should be cached.", testSubject.get("file1", 2));
+    }
+
+    @Test
+    public void testGetKey() throws Exception {
+        final File file = File.createTempFile("wcs-keywords-cache", ".fits");
+        try {
+            final String key = WCSKeywordsCache.getKey(file);
+            Assert.assertEquals("Same file should have the same key.", key, WCSKeywordsCache.getKey(file));
+
+            try (final OutputStream outputStream = new FileOutputStream(file)) {
+                outputStream.write(new byte[2880]);
+            }
+
+            Assert.assertNotEquals("Modified file should have a new key.", key, WCSKeywordsCache.getKey(file));
+        } finally {
+            LOGGER.debug("Deleted " + file + ": " + file.delete());
+        }
+    }
+
+    private Header createHeader() throws Exception {
+        final Header header = new Header();
+        header.addValue(Standard.SIMPLE, true);
+        header.addValue(Standard.BITPIX, -32);
+        header.addValue(Standard.NAXIS, 3);
+        header.addValue(Standard.NAXISn.n(1), 10);
+        header.addValue(Standard.NAXISn.n(2), 10);
+        header.addValue(Standard.NAXISn.n(3), 10);
+        header.addValue("CTYPE1", "RA---SIN", "");
+        header.addValue("CTYPE2", "DEC--SIN", "");
+        header.addValue("CTYPE3", "VRAD", "");
+        header.addValue("PV3_1", 1.0D, "");
+        return header;
+    }
+}